@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright C 2012, The Pistoia Alliance
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package org.helm.notation.demo.tools;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.helm.notation.MonomerFactory;
+import org.helm.notation.model.Monomer;
+import org.helm.notation.tools.MolfileEncoder;
+import org.helm.notation.tools.MonomerParser;
+import org.jdom.Document;
+import org.jdom.Element;
+import org.jdom.input.SAXBuilder;
+
+/**
+ * Measures load time and retained heap of the monomer database with eager and
+ * lazy molfile decoding, for the bundled database and for a synthetic database
+ * of 10,000 monomers. Run with a fixed heap (e.g. -Xms512m -Xmx512m) for stable
+ * heap numbers.
+ */
+public class MonomerDBStartupBenchmark {
+
+	private static final int SYNTHETIC_MONOMER_COUNT = 10000;
+	private static final int ROUNDS = 5;
+
+	/**
+	 * @param args
+	 *            the command line arguments
+	 */
+	public static void main(String[] args) {
+		try {
+			List<Element> bundled = readBundledMonomerElements();
+			List<Element> synthetic = createSyntheticMonomerElements(bundled,
+					SYNTHETIC_MONOMER_COUNT);
+
+			run("bundled (" + bundled.size() + " monomers)", bundled);
+			run("synthetic (" + synthetic.size() + " monomers)", synthetic);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static void run(String name, List<Element> elements)
+			throws Exception {
+		// warm up
+		load(elements, true);
+		load(elements, false);
+
+		long eagerTime = Long.MAX_VALUE;
+		long lazyTime = Long.MAX_VALUE;
+		for (int i = 0; i < ROUNDS; i++) {
+			long start = System.nanoTime();
+			load(elements, true);
+			eagerTime = Math.min(eagerTime, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			load(elements, false);
+			lazyTime = Math.min(lazyTime, System.nanoTime() - start);
+		}
+
+		long eagerHeap = retainedHeap(elements, true);
+		long lazyHeap = retainedHeap(elements, false);
+
+		System.out.println(name);
+		System.out.println("  eager decoding: " + (eagerTime / 1000000)
+				+ " ms, " + (eagerHeap / 1024) + " KB");
+		System.out.println("  lazy decoding:  " + (lazyTime / 1000000)
+				+ " ms, " + (lazyHeap / 1024) + " KB");
+	}
+
+	/**
+	 * parses the monomer elements, eager mode decodes every molfile as the
+	 * loader did before decoding was deferred (bypassing the decoded molfile
+	 * cache)
+	 */
+	private static List<Monomer> load(List<Element> elements, boolean eager)
+			throws Exception {
+		List<Monomer> monomers = new ArrayList<Monomer>(elements.size());
+		for (Element element : elements) {
+			Monomer monomer = MonomerParser.getMonomer(element);
+			if (eager) {
+				monomer.setMolfile(MolfileEncoder.decode(monomer
+						.getEncodedMolfile()));
+			}
+			monomers.add(monomer);
+		}
+		return monomers;
+	}
+
+	private static long retainedHeap(List<Element> elements, boolean eager)
+			throws Exception {
+		long before = usedHeap();
+		List<Monomer> monomers = load(elements, eager);
+		long after = usedHeap();
+		if (monomers.isEmpty()) {
+			System.out.println("no monomers loaded");
+		}
+		return after - before;
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static List<Element> readBundledMonomerElements() throws Exception {
+		InputStream in = MonomerFactory.class
+				.getResourceAsStream(MonomerFactory.MONOMER_DB_XML_RESOURCE);
+		Document doc = new SAXBuilder().build(in);
+		in.close();
+		Element root = doc.getRootElement();
+		Element polymerList = root.getChild(
+				MonomerFactory.POLYMER_LIST_ELEMENT, root.getNamespace());
+
+		List<Element> elements = new ArrayList<Element>();
+		for (Object polymer : polymerList.getChildren()) {
+			for (Object monomer : ((Element) polymer).getChildren()) {
+				elements.add((Element) monomer);
+			}
+		}
+		return elements;
+	}
+
+	private static List<Element> createSyntheticMonomerElements(
+			List<Element> templates, int count) {
+		List<Element> elements = new ArrayList<Element>(count);
+		for (int i = 0; i < count; i++) {
+			Element monomer = (Element) templates.get(i % templates.size())
+					.clone();
+			Element id = monomer.getChild(MonomerParser.MONOMER_ID_ELEMENT,
+					monomer.getNamespace());
+			id.setText(id.getText() + "_" + i);
+			elements.add(monomer);
+		}
+		return elements;
+	}
+}
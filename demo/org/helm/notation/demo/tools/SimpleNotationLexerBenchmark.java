@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright C 2012, The Pistoia Alliance
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package org.helm.notation.demo.tools;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.helm.notation.MonomerFactory;
+import org.helm.notation.MonomerStore;
+import org.helm.notation.model.Monomer;
+import org.helm.notation.tools.SimpleNotationGroupIterator;
+import org.helm.notation.tools.SimpleNotationParser;
+
+/**
+ * Measures time and allocated bytes of the monomer ID list of a 1,000 residue
+ * peptide, with the single-pass lexer and with the group iterator based
+ * tokenization it replaced. Allocations are read from the HotSpot thread
+ * allocation counter.
+ */
+public class SimpleNotationLexerBenchmark {
+
+	private static final int RESIDUE_COUNT = 1000;
+	private static final int WARMUP_ROUNDS = 2000;
+	private static final int ROUNDS = 2000;
+	private static final String RESIDUES = "ACDEFGHIKLMNPQRSTVWY";
+
+	/**
+	 * @param args
+	 *            the command line arguments
+	 */
+	public static void main(String[] args) {
+		try {
+			MonomerStore store = MonomerFactory.getInstance().getMonomerStore();
+			String notation = createPeptide(RESIDUE_COUNT);
+
+			for (int i = 0; i < WARMUP_ROUNDS; i++) {
+				legacyMonomerIDList(notation, store);
+				SimpleNotationParser.getMonomerIDList(notation,
+						Monomer.PEPTIDE_POLYMER_TYPE, store);
+			}
+
+			com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory
+					.getThreadMXBean();
+			long threadId = Thread.currentThread().getId();
+
+			long bytes = bean.getThreadAllocatedBytes(threadId);
+			long start = System.nanoTime();
+			for (int i = 0; i < ROUNDS; i++) {
+				legacyMonomerIDList(notation, store);
+			}
+			long legacyTime = (System.nanoTime() - start) / ROUNDS;
+			long legacyBytes = (bean.getThreadAllocatedBytes(threadId) - bytes)
+					/ ROUNDS;
+
+			bytes = bean.getThreadAllocatedBytes(threadId);
+			start = System.nanoTime();
+			for (int i = 0; i < ROUNDS; i++) {
+				SimpleNotationParser.getMonomerIDList(notation,
+						Monomer.PEPTIDE_POLYMER_TYPE, store);
+			}
+			long lexerTime = (System.nanoTime() - start) / ROUNDS;
+			long lexerBytes = (bean.getThreadAllocatedBytes(threadId) - bytes)
+					/ ROUNDS;
+
+			System.out.println(RESIDUE_COUNT + " residue peptide");
+			System.out.println("  group iterator: " + (legacyTime / 1000)
+					+ " us, " + legacyBytes + " bytes per call");
+			System.out.println("  lexer:          " + (lexerTime / 1000)
+					+ " us, " + lexerBytes + " bytes per call");
+			System.out.println("  allocation ratio: "
+					+ ((double) legacyBytes / Math.max(1, lexerBytes)));
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static String createPeptide(int length) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			if (sb.length() > 0) {
+				sb.append('.');
+			}
+			if (i % 10 == 9) {
+				sb.append("[dA]");
+			} else {
+				sb.append(RESIDUES.charAt(i % RESIDUES.length()));
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * peptide monomer IDs as they were tokenized before the lexer, with the
+	 * per monomer SMILES pattern match, monomers are expected to be in the
+	 * store
+	 */
+	private static List<String> legacyMonomerIDList(String notation,
+			MonomerStore store) {
+		List<String> ids = new ArrayList<String>();
+		SimpleNotationGroupIterator groupIterator = new SimpleNotationGroupIterator(
+				notation);
+		while (groupIterator.hasNextGroup()) {
+			String group = groupIterator.nextGroup();
+			char[] chars = group.toCharArray();
+			for (int i = 0; i < chars.length; i++) {
+				String curId = group;
+				if (chars[i] == '[') {
+					int matchingPos = SimpleNotationParser
+							.getMatchingBracketPosition(chars, i, '[', ']');
+					curId = group.substring(i + 1, matchingPos);
+					i = matchingPos;
+				}
+
+				boolean isSmilesCode = Pattern.matches(".*\\$\\|$", curId);
+				Map<String, Monomer> monomers = store
+						.getMonomers(Monomer.PEPTIDE_POLYMER_TYPE);
+				if (!isSmilesCode && monomers.containsKey(curId)) {
+					ids.add(curId);
+				}
+			}
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright C 2012, The Pistoia Alliance
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package org.helm.notation.demo.tools;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import org.helm.notation.MonomerFactory;
+import org.helm.notation.MonomerStore;
+import org.helm.notation.tools.ComplexNotationParser;
+
+import chemaxon.struc.Molecule;
+
+/**
+ * Measures time and allocated bytes of the structure of peptides from 100 to
+ * 20,000 residues. With linear assembly the time per residue stays about the
+ * same for all sizes. The time of the non-canonical SMILES, written from the
+ * monomer SMILES without building the structure, is measured as well. The
+ * monomer count threshold is lifted for the run. Allocations are read from
+ * the HotSpot thread allocation counter.
+ */
+public class StructureAssemblyBenchmark {
+
+	private static final int[] RESIDUE_COUNTS = new int[] { 100, 500, 1000,
+			2000, 5000, 10000, 20000 };
+	private static final int WARMUP_RESIDUE_COUNT = 1000;
+	private static final int WARMUP_ROUNDS = 20;
+	private static final int ROUNDS = 3;
+	private static final String RESIDUES = "ACDEFGHIKLMNPQRSTVWY";
+
+	/**
+	 * @param args
+	 *            the command line arguments
+	 */
+	public static void main(String[] args) {
+		try {
+			MonomerStore store = MonomerFactory.getInstance().getMonomerStore();
+			ComplexNotationParser.setMonomerCountThreshold(0);
+
+			String warmup = createPeptide(WARMUP_RESIDUE_COUNT);
+			for (int i = 0; i < WARMUP_ROUNDS; i++) {
+				ComplexNotationParser.getComplexPolymerStructure(warmup, store);
+				ComplexNotationParser.writeComplexPolymerSmiles(warmup, store,
+						new StringBuilder());
+			}
+
+			com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory
+					.getThreadMXBean();
+			long threadId = Thread.currentThread().getId();
+
+			System.out.println("residues        ms   us/residue   bytes/residue   atoms   smiles ms");
+			for (int residueCount : RESIDUE_COUNTS) {
+				String notation = createPeptide(residueCount);
+				int atomCount = 0;
+
+				long bytes = bean.getThreadAllocatedBytes(threadId);
+				long start = System.nanoTime();
+				for (int i = 0; i < ROUNDS; i++) {
+					List<Molecule> molecules = ComplexNotationParser
+							.getComplexPolymerStructure(notation, store);
+					atomCount = molecules.get(0).getAtomCount();
+				}
+				long time = (System.nanoTime() - start) / ROUNDS;
+				long allocated = (bean.getThreadAllocatedBytes(threadId) - bytes)
+						/ ROUNDS;
+
+				start = System.nanoTime();
+				for (int i = 0; i < ROUNDS; i++) {
+					ComplexNotationParser.writeComplexPolymerSmiles(notation,
+							store, new StringBuilder());
+				}
+				long smilesTime = (System.nanoTime() - start) / ROUNDS;
+
+				System.out.println(String.format("%8d %9d %12.1f %15d %7d %11d",
+						residueCount, time / 1000000, time / 1000.0
+								/ residueCount, allocated / residueCount,
+						atomCount, smilesTime / 1000000));
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static String createPeptide(int length) {
+		StringBuilder sb = new StringBuilder("PEPTIDE1{");
+		for (int i = 0; i < length; i++) {
+			if (i > 0) {
+				sb.append('.');
+			}
+			sb.append(RESIDUES.charAt(i % RESIDUES.length()));
+		}
+		sb.append("}$$$$");
+		return sb.toString();
+	}
+}
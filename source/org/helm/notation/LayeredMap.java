@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright C 2012, The Pistoia Alliance
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package org.helm.notation;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * This class is an unmodifiable map made of a base map and layers of added
+ * entries. Adding entries creates a new map that shares the base and the
+ * layers of this one: the base is never copied or iterated, and a new layer is
+ * merged only with the smaller layers on top of it, so each added entry is
+ * copied O(log n) times. Keys of the layers do not occur in the base or in
+ * other layers.
+ */
+final class LayeredMap<K, V> extends AbstractMap<K, V> {
+
+	private final Map<K, V> base;
+	// oldest first, each layer is larger than the layers after it
+	private final Map<K, V>[] layers;
+	private final int layerSize;
+
+	private LayeredMap(Map<K, V> base, Map<K, V>[] layers, int layerSize) {
+		this.base = base;
+		this.layers = layers;
+		this.layerSize = layerSize;
+	}
+
+	/**
+	 * returns an unmodifiable map with the entries of the given map and the
+	 * additions, the given map is not changed
+	 * 
+	 * @param map
+	 *            unmodifiable map, possibly a LayeredMap
+	 * @param additions
+	 *            entries whose keys are not in the map, copied
+	 * @return LayeredMap or the given map if there are no additions
+	 */
+	@SuppressWarnings("unchecked")
+	static <K, V> Map<K, V> with(Map<K, V> map, Map<K, V> additions) {
+		if (additions.isEmpty()) {
+			return map;
+		}
+
+		Map<K, V> base = map;
+		Map<K, V>[] layers = new Map[0];
+		int layerSize = 0;
+		if (map instanceof LayeredMap) {
+			LayeredMap<K, V> layered = (LayeredMap<K, V>) map;
+			base = layered.base;
+			layers = layered.layers;
+			layerSize = layered.layerSize;
+		}
+
+		int count = layers.length;
+		Map<K, V> layer = new HashMap<K, V>(additions);
+		while (count > 0 && layers[count - 1].size() <= layer.size()) {
+			Map<K, V> merged = new HashMap<K, V>(layers[count - 1]);
+			merged.putAll(layer);
+			layer = merged;
+			count--;
+		}
+		Map<K, V>[] newLayers = Arrays.copyOf(layers, count + 1);
+		newLayers[count] = Collections.unmodifiableMap(layer);
+		return new LayeredMap<K, V>(base, newLayers, layerSize
+				+ additions.size());
+	}
+
+	@Override
+	public int size() {
+		return base.size() + layerSize;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return layerSize == 0 && base.isEmpty();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		for (int i = layers.length - 1; i >= 0; i--) {
+			if (layers[i].containsKey(key)) {
+				return true;
+			}
+		}
+		return base.containsKey(key);
+	}
+
+	@Override
+	public V get(Object key) {
+		for (int i = layers.length - 1; i >= 0; i--) {
+			V value = layers[i].get(key);
+			if (null != value) {
+				return value;
+			}
+		}
+		return base.get(key);
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		return new AbstractSet<Map.Entry<K, V>>() {
+			@Override
+			public int size() {
+				return LayeredMap.this.size();
+			}
+
+			@Override
+			public Iterator<Map.Entry<K, V>> iterator() {
+				return new Iterator<Map.Entry<K, V>>() {
+					private int layer = -1;
+					private Iterator<Map.Entry<K, V>> it = base.entrySet()
+							.iterator();
+
+					public boolean hasNext() {
+						while (!it.hasNext() && layer + 1 < layers.length) {
+							layer++;
+							it = layers[layer].entrySet().iterator();
+						}
+						return it.hasNext();
+					}
+
+					public Map.Entry<K, V> next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						return it.next();
+					}
+
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+}
@@ -0,0 +1,889 @@
+/*******************************************************************************
+ * Copyright C 2012, The Pistoia Alliance
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package org.helm.notation;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.CRC32;
+
+import org.helm.notation.model.Attachment;
+import org.helm.notation.model.Monomer;
+import org.helm.notation.model.MonomerCache;
+
+/**
+ * This class reads and writes the binary monomer cache file. The file consists
+ * of a fixed header, a string table, attachment records, one index block per
+ * polymer type, fixed size monomer records, a SMILES index and the molfile
+ * payload. All references are int offsets or indexes, so the file is memory
+ * mapped and only the index is read on open. Monomers are decoded on first
+ * access, each monomer record carries a CRC32 checksum of its molfile that is
+ * checked when the monomer is decoded or the payload is validated. A monomer
+ * that fails its checksum deletes the cache file, so the next initialization
+ * rebuilds it from the XML monomer database.
+ * 
+ * The header carries a CRC32 checksum of the header fields and the sections
+ * before the payload and a validated marker: the content hash of the monomer
+ * database at the time it passed full validation. When the marker matches the
+ * content hash, the monomers need not be validated again on load.
+ * 
+ * The cache file itself only holds the name of the data file in the same
+ * directory. Every write creates a new data file and then replaces the small
+ * cache file, so a data file that is still mapped is never overwritten; stale
+ * data files are deleted once they are no longer mapped.
+ */
+public final class MonomerCacheFile {
+
+	/** "HMC1" */
+	private static final int MAGIC = 0x484d4331;
+	private static final int FORMAT_VERSION = 5;
+	private static final int HEADER_SIZE = 96;
+
+	private static final int VALIDATED_FLAG = 1;
+
+	private static final int NULL_INDEX = -1;
+	private static final int ATTACHMENT_RECORD_SIZE = 5 * 4;
+	private static final int POLYMER_TYPE_RECORD_SIZE = 3 * 4;
+	private static final int MONOMER_RECORD_SIZE = 13 * 4;
+	private static final int SMILES_RECORD_SIZE = 2 * 4;
+
+	private static final int NEW_MONOMER_FLAG = 1;
+	private static final int AD_HOC_MONOMER_FLAG = 2;
+	private static final int ENCODED_MOLFILE_FLAG = 4;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final String DATA_FILE_SUFFIX = ".data";
+	private static final int MAX_DATA_FILE_NAME_LENGTH = 255;
+
+	private final File file;
+	private final File dataFile;
+	private final ByteBuffer buffer;
+	private final long contentHash;
+	private final int flags;
+	private final long validatedHash;
+	private final int stringCount;
+	private final int stringOffsetsPos;
+	private final int stringDataPos;
+	private final int attachmentPos;
+	private final int monomerCount;
+	private final int monomerPos;
+	private final int monomerAttachmentPos;
+	private final int payloadPos;
+
+	private final String[] strings;
+	private final AtomicReferenceArray<Monomer> monomers;
+	private final Map<String, Map<String, Monomer>> monomerDB;
+	private final Map<String, Monomer> smilesMonomerDB;
+	private final Map<String, Attachment> attachmentDB;
+
+	private MonomerCacheFile(File file, File dataFile, ByteBuffer buffer)
+			throws MonomerException {
+		this.file = file;
+		this.dataFile = dataFile;
+		this.buffer = buffer;
+		if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new MonomerException("Not a binary monomer cache file");
+		}
+		if (buffer.getInt(4) != FORMAT_VERSION) {
+			throw new MonomerException(
+					"Unsupported binary monomer cache format version "
+							+ buffer.getInt(4));
+		}
+		contentHash = buffer.getLong(8);
+		flags = buffer.getInt(16);
+		stringCount = buffer.getInt(20);
+		stringOffsetsPos = buffer.getInt(24);
+		stringDataPos = buffer.getInt(28);
+		int attachmentCount = buffer.getInt(32);
+		attachmentPos = buffer.getInt(36);
+		int polymerTypeCount = buffer.getInt(40);
+		int polymerTypePos = buffer.getInt(44);
+		monomerCount = buffer.getInt(48);
+		monomerPos = buffer.getInt(52);
+		monomerAttachmentPos = buffer.getInt(56);
+		int smilesCount = buffer.getInt(60);
+		int smilesPos = buffer.getInt(64);
+		payloadPos = buffer.getInt(68);
+		if (payloadPos < HEADER_SIZE || payloadPos > buffer.capacity()
+				|| buffer.getInt(72) != buffer.capacity()) {
+			throw new MonomerException("Truncated binary monomer cache file");
+		}
+		validatedHash = buffer.getLong(76);
+		if (buffer.getInt(84) != headerChecksum(buffer, payloadPos)) {
+			throw new MonomerException("Corrupt binary monomer cache file");
+		}
+
+		strings = new String[stringCount];
+		monomers = new AtomicReferenceArray<Monomer>(monomerCount);
+
+		Map<String, Attachment> attachments = new HashMap<String, Attachment>();
+		for (int i = 0; i < attachmentCount; i++) {
+			Attachment attachment = readAttachment(attachmentPos + i
+					* ATTACHMENT_RECORD_SIZE);
+			attachments.put(attachment.getAlternateId(), attachment);
+		}
+		attachmentDB = Collections.unmodifiableMap(attachments);
+
+		Map<String, Map<String, Monomer>> db = new HashMap<String, Map<String, Monomer>>();
+		for (int i = 0; i < polymerTypeCount; i++) {
+			int pos = polymerTypePos + i * POLYMER_TYPE_RECORD_SIZE;
+			String polymerType = getString(buffer.getInt(pos));
+			int count = buffer.getInt(pos + 4);
+			int first = buffer.getInt(pos + 8);
+			Map<String, Integer> index = new HashMap<String, Integer>(
+					count * 4 / 3 + 1);
+			for (int j = first; j < first + count; j++) {
+				index.put(getString(buffer.getInt(monomerPos + j
+						* MONOMER_RECORD_SIZE + 4)), j);
+			}
+			db.put(polymerType, new LazyMonomerMap(index));
+		}
+		monomerDB = Collections.unmodifiableMap(db);
+
+		Map<String, Integer> smilesIndex = new HashMap<String, Integer>(
+				smilesCount * 4 / 3 + 1);
+		for (int i = 0; i < smilesCount; i++) {
+			int pos = smilesPos + i * SMILES_RECORD_SIZE;
+			smilesIndex.put(getString(buffer.getInt(pos)),
+					buffer.getInt(pos + 4));
+		}
+		smilesMonomerDB = new LazyMonomerMap(smilesIndex);
+	}
+
+	/**
+	 * maps the data file of the given binary cache file into memory, only the
+	 * index is read
+	 * 
+	 * @param file
+	 * @return MonomerCacheFile
+	 * @throws IOException
+	 * @throws MonomerException
+	 *             if the file is not a valid binary cache file
+	 */
+	public static MonomerCacheFile open(File file) throws IOException,
+			MonomerException {
+		File dataFile = getDataFile(file);
+		RandomAccessFile raf = new RandomAccessFile(dataFile, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+					0, channel.size());
+			return new MonomerCacheFile(file, dataFile, buffer);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * returns the content hash stored in the file
+	 * 
+	 * @return content hash
+	 */
+	public long getContentHash() {
+		return contentHash;
+	}
+
+	/**
+	 * checks whether the content of the file passed full validation before it
+	 * was written
+	 * 
+	 * @return true if the validated marker matches the content hash
+	 */
+	public boolean isValidated() {
+		return (flags & VALIDATED_FLAG) != 0 && validatedHash == contentHash;
+	}
+
+	/**
+	 * returns the monomer of the given polymer type and ID, decoding it if
+	 * needed
+	 * 
+	 * @param polymerType
+	 * @param alternateId
+	 * @return monomer or null if the file has no such monomer
+	 * @throws MonomerException
+	 *             if the molfile of the monomer does not match its checksum,
+	 *             the cache file is deleted
+	 */
+	public Monomer getMonomer(String polymerType, String alternateId)
+			throws MonomerException {
+		Map<String, Monomer> monomerMap = monomerDB.get(polymerType);
+		if (null == monomerMap) {
+			return null;
+		}
+		try {
+			return monomerMap.get(alternateId);
+		} catch (IllegalStateException e) {
+			throw unwrap(e);
+		}
+	}
+
+	/**
+	 * returns the monomer of the given unique SMILES, decoding it if needed
+	 * 
+	 * @param smiles
+	 * @return monomer or null if the file has no such monomer
+	 * @throws MonomerException
+	 *             if the molfile of the monomer does not match its checksum,
+	 *             the cache file is deleted
+	 */
+	public Monomer getMonomer(String smiles) throws MonomerException {
+		try {
+			return smilesMonomerDB.get(smiles);
+		} catch (IllegalStateException e) {
+			throw unwrap(e);
+		}
+	}
+
+	/**
+	 * returns the unmodifiable monomer database, monomers are decoded on first
+	 * access. Map lookups can not throw checked exceptions, a monomer that
+	 * fails its checksum throws an IllegalStateException caused by the
+	 * MonomerException of getMonomer.
+	 * 
+	 * @return MonomerDB as Map<String, Map<String, Monomer>>
+	 */
+	public Map<String, Map<String, Monomer>> getMonomerDB() {
+		return monomerDB;
+	}
+
+	/**
+	 * returns the unmodifiable SMILES monomer database, it shares the monomer
+	 * instances with the monomer database
+	 * 
+	 * @return SmilesMonomerDB as Map<String, Monomer>
+	 */
+	public Map<String, Monomer> getSmilesMonomerDB() {
+		return smilesMonomerDB;
+	}
+
+	/**
+	 * returns the unmodifiable attachment database
+	 * 
+	 * @return AttachmentDB as Map<String, Attachment>
+	 */
+	public Map<String, Attachment> getAttachmentDB() {
+		return attachmentDB;
+	}
+
+	/**
+	 * returns a MonomerCache backed by the lazily decoded maps of this file
+	 * 
+	 * @return MonomerCache
+	 */
+	public MonomerCache toMonomerCache() {
+		MonomerCache cache = new MonomerCache();
+		cache.setMonomerDB(monomerDB);
+		cache.setSmilesMonomerDB(smilesMonomerDB);
+		cache.setAttachmentDB(attachmentDB);
+		return cache;
+	}
+
+	/**
+	 * deletes the binary cache file and its data files, data files that are
+	 * still mapped may remain until the next write
+	 * 
+	 * @param file
+	 */
+	public static void delete(File file) {
+		file.delete();
+		deleteDataFiles(file, null);
+	}
+
+	private static File getDataFile(File file) throws IOException,
+			MonomerException {
+		if (file.length() > MAX_DATA_FILE_NAME_LENGTH) {
+			throw new MonomerException("Not a binary monomer cache file");
+		}
+		String name = new String(Files.readAllBytes(file.toPath()), UTF8);
+		if (!isDataFileName(file, name)) {
+			throw new MonomerException("Not a binary monomer cache file");
+		}
+		return new File(file.getAbsoluteFile().getParentFile(), name);
+	}
+
+	private static boolean isDataFileName(File file, String name) {
+		return name.startsWith(file.getName() + ".")
+				&& name.endsWith(DATA_FILE_SUFFIX)
+				&& name.indexOf('/') < 0 && name.indexOf('\\') < 0;
+	}
+
+	// data files can not be deleted while mapped on some platforms, they are
+	// deleted on a later call
+	private static void deleteDataFiles(File file, String keep) {
+		File[] dataFiles = file.getAbsoluteFile().getParentFile().listFiles();
+		if (null == dataFiles) {
+			return;
+		}
+		for (File dataFile : dataFiles) {
+			String name = dataFile.getName();
+			if (isDataFileName(file, name) && !name.equals(keep)) {
+				dataFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * checks the molfile checksums of all monomer records, this reads the
+	 * whole payload
+	 * 
+	 * @throws MonomerException
+	 *             if a molfile does not match its checksum, the cache file is
+	 *             deleted
+	 */
+	public void validatePayload() throws MonomerException {
+		for (int i = 0; i < monomerCount; i++) {
+			if (!isMolfileValid(monomerPos + i * MONOMER_RECORD_SIZE)) {
+				invalidate();
+				throw new MonomerException(
+						"Corrupt molfile in binary monomer cache file");
+			}
+		}
+	}
+
+	private boolean isMolfileValid(int pos) {
+		int molfileLength = buffer.getInt(pos + 44);
+		if (molfileLength == NULL_INDEX) {
+			return true;
+		}
+		int start = payloadPos + buffer.getInt(pos + 40);
+		return start >= payloadPos
+				&& molfileLength >= 0
+				&& start + molfileLength <= buffer.capacity()
+				&& buffer.getInt(pos + 48) == checksum(buffer, start, start
+						+ molfileLength);
+	}
+
+	// everything before the payload except the checksum field itself
+	private static int headerChecksum(ByteBuffer buffer, int payloadPos) {
+		CRC32 crc = new CRC32();
+		update(crc, buffer, 0, 84);
+		update(crc, buffer, 88, payloadPos);
+		return (int) crc.getValue();
+	}
+
+	private static int checksum(ByteBuffer buffer, int start, int end) {
+		CRC32 crc = new CRC32();
+		update(crc, buffer, start, end);
+		return (int) crc.getValue();
+	}
+
+	private static void update(CRC32 crc, ByteBuffer buffer, int start, int end) {
+		ByteBuffer body = buffer.duplicate();
+		body.limit(end);
+		body.position(start);
+		if (body.hasArray()) {
+			crc.update(body.array(), body.arrayOffset() + start,
+					body.remaining());
+		} else {
+			byte[] chunk = new byte[8192];
+			while (body.hasRemaining()) {
+				int length = Math.min(chunk.length, body.remaining());
+				body.get(chunk, 0, length);
+				crc.update(chunk, 0, length);
+			}
+		}
+	}
+
+	private String getString(int index) {
+		if (index == NULL_INDEX) {
+			return null;
+		}
+		// racy but benign, Strings are immutable
+		String s = strings[index];
+		if (null == s) {
+			int pos = stringDataPos
+					+ buffer.getInt(stringOffsetsPos + index * 4);
+			s = decode(pos + 4, buffer.getInt(pos));
+			strings[index] = s;
+		}
+		return s;
+	}
+
+	private String decode(int pos, int length) {
+		byte[] bytes = new byte[length];
+		ByteBuffer view = buffer.duplicate();
+		view.position(pos);
+		view.get(bytes);
+		return new String(bytes, UTF8);
+	}
+
+	private Attachment readAttachment(int pos) {
+		Attachment attachment = new Attachment();
+		attachment.setId(buffer.getInt(pos));
+		attachment.setAlternateId(getString(buffer.getInt(pos + 4)));
+		attachment.setLabel(getString(buffer.getInt(pos + 8)));
+		attachment.setCapGroupName(getString(buffer.getInt(pos + 12)));
+		attachment.setCapGroupSMILES(getString(buffer.getInt(pos + 16)));
+		return attachment;
+	}
+
+	private Monomer getMonomer(int index) {
+		Monomer monomer = monomers.get(index);
+		if (null == monomer) {
+			try {
+				monomers.compareAndSet(index, null, readMonomer(index));
+			} catch (MonomerException e) {
+				throw new IllegalStateException(e.getMessage(), e);
+			}
+			monomer = monomers.get(index);
+		}
+		return monomer;
+	}
+
+	private static MonomerException unwrap(IllegalStateException e) {
+		if (e.getCause() instanceof MonomerException) {
+			return (MonomerException) e.getCause();
+		}
+		throw e;
+	}
+
+	// deletes the cache file unless it was rewritten for a new data file
+	private void invalidate() {
+		try {
+			if (!dataFile.equals(getDataFile(file))) {
+				return;
+			}
+		} catch (Exception e) {
+			// deleted or replaced by something else, leave it alone
+			return;
+		}
+		delete(file);
+	}
+
+	private Monomer readMonomer(int index) throws MonomerException {
+		int pos = monomerPos + index * MONOMER_RECORD_SIZE;
+		Monomer monomer = new Monomer();
+		monomer.setId(buffer.getInt(pos));
+		monomer.setAlternateId(getString(buffer.getInt(pos + 4)));
+		monomer.setNaturalAnalog(getString(buffer.getInt(pos + 8)));
+		monomer.setName(getString(buffer.getInt(pos + 12)));
+		monomer.setCanSMILES(getString(buffer.getInt(pos + 16)));
+		monomer.setMonomerType(getString(buffer.getInt(pos + 20)));
+		monomer.setPolymerType(getString(buffer.getInt(pos + 24)));
+		int monomerFlags = buffer.getInt(pos + 28);
+		monomer.setNewMonomer((monomerFlags & NEW_MONOMER_FLAG) != 0);
+		monomer.setAdHocMonomer((monomerFlags & AD_HOC_MONOMER_FLAG) != 0);
+
+		int firstAttachment = buffer.getInt(pos + 32);
+		int attachmentCount = buffer.getInt(pos + 36);
+		List<Attachment> attachmentList = new ArrayList<Attachment>(
+				attachmentCount);
+		for (int i = firstAttachment; i < firstAttachment + attachmentCount; i++) {
+			attachmentList.add(readAttachment(monomerAttachmentPos + i
+					* ATTACHMENT_RECORD_SIZE));
+		}
+		monomer.setAttachmentList(attachmentList);
+
+		int molfileLength = buffer.getInt(pos + 44);
+		if (molfileLength != NULL_INDEX) {
+			// the payload is not covered by the header checksum
+			if (!isMolfileValid(pos)) {
+				invalidate();
+				throw new MonomerException(
+						"Corrupt molfile in binary monomer cache file: "
+								+ monomer.getAlternateId());
+			}
+			String molfile = decode(payloadPos + buffer.getInt(pos + 40),
+					molfileLength);
+			if ((monomerFlags & ENCODED_MOLFILE_FLAG) != 0) {
+				monomer.setEncodedMolfile(molfile);
+			} else {
+				monomer.setMolfile(molfile);
+			}
+		}
+		return monomer;
+	}
+
+	/**
+	 * writes the monomer cache as binary cache file. The data is written to a
+	 * new data file before the cache file is switched to it, so readers never
+	 * see a partial file and mapped data files are not replaced.
+	 * 
+	 * @param cache
+	 * @param file
+	 * @throws IOException
+	 */
+	public static void write(MonomerCache cache, File file) throws IOException {
+		write(cache, file, null);
+	}
+
+	/**
+	 * writes the monomer cache as binary cache file and stamps it as validated
+	 * if its content hash equals the given hash of validated content
+	 * 
+	 * @param cache
+	 * @param file
+	 * @param validatedHash
+	 *            content hash of the last fully validated monomer database, or
+	 *            null
+	 * @throws IOException
+	 */
+	public static void write(MonomerCache cache, File file, Long validatedHash)
+			throws IOException {
+		long contentHash = MonomerDBSnapshot.contentHashOf(
+				cache.getMonomerDB(), cache.getAttachmentDB());
+		boolean validated = (null != validatedHash && validatedHash
+				.longValue() == contentHash);
+
+		Writer writer = new Writer(cache);
+		ByteBuffer out = writer.toByteBuffer(contentHash,
+				validated ? VALIDATED_FLAG : 0, validated ? contentHash : 0);
+
+		File directory = file.getAbsoluteFile().getParentFile();
+		File dataFile = File.createTempFile(file.getName() + ".",
+				DATA_FILE_SUFFIX, directory);
+		FileOutputStream fos = new FileOutputStream(dataFile);
+		try {
+			fos.getChannel().write(out);
+		} finally {
+			fos.close();
+		}
+
+		// the cache file is never mapped, so it can be replaced
+		File tmpFile = File.createTempFile(file.getName() + ".", ".tmp",
+				directory);
+		fos = new FileOutputStream(tmpFile);
+		try {
+			fos.write(dataFile.getName().getBytes(UTF8));
+		} finally {
+			fos.close();
+		}
+		Files.move(tmpFile.toPath(), file.toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+		deleteDataFiles(file, dataFile.getName());
+	}
+
+	/**
+	 * collects the sections of a cache file before they are laid out
+	 */
+	private static class Writer {
+		private final Map<String, Integer> stringIndex = new LinkedHashMap<String, Integer>();
+		private final List<byte[]> stringBytes = new ArrayList<byte[]>();
+		private int stringDataSize;
+		private final List<Attachment> attachments = new ArrayList<Attachment>();
+		private final List<String> polymerTypes = new ArrayList<String>();
+		private final List<int[]> polymerTypeRecords = new ArrayList<int[]>();
+		private final List<Monomer> monomerList = new ArrayList<Monomer>();
+		private final List<Attachment> monomerAttachments = new ArrayList<Attachment>();
+		private final List<int[]> smilesRecords = new ArrayList<int[]>();
+		private final List<byte[]> molfiles = new ArrayList<byte[]>();
+		private int payloadSize;
+
+		Writer(MonomerCache cache) {
+			Map<Monomer, Integer> monomerIndex = new HashMap<Monomer, Integer>();
+
+			if (null != cache.getAttachmentDB()) {
+				attachments.addAll(new TreeMap<String, Attachment>(cache
+						.getAttachmentDB()).values());
+			}
+
+			Map<String, Map<String, Monomer>> db = new TreeMap<String, Map<String, Monomer>>(
+					cache.getMonomerDB());
+			for (Map.Entry<String, Map<String, Monomer>> entry : db.entrySet()) {
+				polymerTypes.add(entry.getKey());
+				int first = monomerList.size();
+				for (Monomer monomer : new TreeMap<String, Monomer>(
+						entry.getValue()).values()) {
+					monomerIndex.put(monomer, monomerList.size());
+					monomerList.add(monomer);
+				}
+				polymerTypeRecords.add(new int[] { intern(entry.getKey()),
+						monomerList.size() - first, first });
+			}
+
+			if (null != cache.getSmilesMonomerDB()) {
+				for (Map.Entry<String, Monomer> entry : new TreeMap<String, Monomer>(
+						cache.getSmilesMonomerDB()).entrySet()) {
+					Integer index = monomerIndex.get(entry.getValue());
+					// monomers excluded from the monomer DB are skipped
+					if (null != index) {
+						smilesRecords.add(new int[] { intern(entry.getKey()),
+								index });
+					}
+				}
+			}
+
+			for (Attachment attachment : attachments) {
+				internAttachment(attachment);
+			}
+			for (Monomer monomer : monomerList) {
+				intern(monomer.getAlternateId());
+				intern(monomer.getNaturalAnalog());
+				intern(monomer.getName());
+				intern(monomer.getCanSMILES());
+				intern(monomer.getMonomerType());
+				intern(monomer.getPolymerType());
+				if (null != monomer.getAttachmentList()) {
+					for (Attachment attachment : monomer.getAttachmentList()) {
+						internAttachment(attachment);
+						monomerAttachments.add(attachment);
+					}
+				}
+				// keep encoded molfiles encoded, they are decoded on demand
+				String molfile = monomer.getEncodedMolfile();
+				if (null == molfile) {
+					molfile = monomer.getMolfile();
+				}
+				if (null == molfile) {
+					molfiles.add(null);
+				} else {
+					byte[] bytes = molfile.getBytes(UTF8);
+					molfiles.add(bytes);
+					payloadSize += bytes.length;
+				}
+			}
+		}
+
+		private int intern(String s) {
+			if (null == s) {
+				return NULL_INDEX;
+			}
+			Integer index = stringIndex.get(s);
+			if (null == index) {
+				index = stringBytes.size();
+				byte[] bytes = s.getBytes(UTF8);
+				stringIndex.put(s, index);
+				stringBytes.add(bytes);
+				stringDataSize += 4 + bytes.length;
+			}
+			return index;
+		}
+
+		private void internAttachment(Attachment attachment) {
+			intern(attachment.getAlternateId());
+			intern(attachment.getLabel());
+			intern(attachment.getCapGroupName());
+			intern(attachment.getCapGroupSMILES());
+		}
+
+		private void putAttachment(ByteBuffer out, Attachment attachment) {
+			out.putInt(attachment.getId());
+			out.putInt(intern(attachment.getAlternateId()));
+			out.putInt(intern(attachment.getLabel()));
+			out.putInt(intern(attachment.getCapGroupName()));
+			out.putInt(intern(attachment.getCapGroupSMILES()));
+		}
+
+		ByteBuffer toByteBuffer(long contentHash, int flags, long validatedHash) {
+			int stringOffsetsPos = HEADER_SIZE;
+			int stringDataPos = stringOffsetsPos + stringBytes.size() * 4;
+			int attachmentPos = stringDataPos + stringDataSize;
+			int polymerTypePos = attachmentPos + attachments.size()
+					* ATTACHMENT_RECORD_SIZE;
+			int monomerPos = polymerTypePos + polymerTypes.size()
+					* POLYMER_TYPE_RECORD_SIZE;
+			int monomerAttachmentPos = monomerPos + monomerList.size()
+					* MONOMER_RECORD_SIZE;
+			int smilesPos = monomerAttachmentPos + monomerAttachments.size()
+					* ATTACHMENT_RECORD_SIZE;
+			int payloadPos = smilesPos + smilesRecords.size()
+					* SMILES_RECORD_SIZE;
+			int fileSize = payloadPos + payloadSize;
+
+			ByteBuffer out = ByteBuffer.allocate(fileSize);
+			out.putInt(MAGIC);
+			out.putInt(FORMAT_VERSION);
+			out.putLong(contentHash);
+			out.putInt(flags);
+			out.putInt(stringBytes.size());
+			out.putInt(stringOffsetsPos);
+			out.putInt(stringDataPos);
+			out.putInt(attachments.size());
+			out.putInt(attachmentPos);
+			out.putInt(polymerTypes.size());
+			out.putInt(polymerTypePos);
+			out.putInt(monomerList.size());
+			out.putInt(monomerPos);
+			out.putInt(monomerAttachmentPos);
+			out.putInt(smilesRecords.size());
+			out.putInt(smilesPos);
+			out.putInt(payloadPos);
+			out.putInt(fileSize);
+			out.putLong(validatedHash);
+			out.position(HEADER_SIZE);
+
+			int offset = 0;
+			for (byte[] bytes : stringBytes) {
+				out.putInt(offset);
+				offset += 4 + bytes.length;
+			}
+			for (byte[] bytes : stringBytes) {
+				out.putInt(bytes.length);
+				out.put(bytes);
+			}
+
+			for (Attachment attachment : attachments) {
+				putAttachment(out, attachment);
+			}
+
+			for (int[] record : polymerTypeRecords) {
+				for (int value : record) {
+					out.putInt(value);
+				}
+			}
+
+			int attachmentIndex = 0;
+			int payloadOffset = 0;
+			for (int i = 0; i < monomerList.size(); i++) {
+				Monomer monomer = monomerList.get(i);
+				int monomerFlags = (monomer.isNewMonomer() ? NEW_MONOMER_FLAG
+						: 0)
+						| (monomer.isAdHocMonomer() ? AD_HOC_MONOMER_FLAG : 0)
+						| (null != monomer.getEncodedMolfile() ? ENCODED_MOLFILE_FLAG
+								: 0);
+				int attachmentCount = (null == monomer.getAttachmentList()) ? 0
+						: monomer.getAttachmentList().size();
+				out.putInt(monomer.getId());
+				out.putInt(intern(monomer.getAlternateId()));
+				out.putInt(intern(monomer.getNaturalAnalog()));
+				out.putInt(intern(monomer.getName()));
+				out.putInt(intern(monomer.getCanSMILES()));
+				out.putInt(intern(monomer.getMonomerType()));
+				out.putInt(intern(monomer.getPolymerType()));
+				out.putInt(monomerFlags);
+				out.putInt(attachmentIndex);
+				out.putInt(attachmentCount);
+				byte[] molfile = molfiles.get(i);
+				if (null == molfile) {
+					out.putInt(0);
+					out.putInt(NULL_INDEX);
+					out.putInt(0);
+				} else {
+					CRC32 crc = new CRC32();
+					crc.update(molfile);
+					out.putInt(payloadOffset);
+					out.putInt(molfile.length);
+					out.putInt((int) crc.getValue());
+					payloadOffset += molfile.length;
+				}
+				attachmentIndex += attachmentCount;
+			}
+
+			for (Attachment attachment : monomerAttachments) {
+				putAttachment(out, attachment);
+			}
+
+			for (int[] record : smilesRecords) {
+				out.putInt(record[0]);
+				out.putInt(record[1]);
+			}
+
+			for (byte[] molfile : molfiles) {
+				if (null != molfile) {
+					out.put(molfile);
+				}
+			}
+
+			out.putInt(84, headerChecksum(out, payloadPos));
+			out.flip();
+			return out;
+		}
+	}
+
+	/**
+	 * read-only map from a key to a monomer record, values are decoded on
+	 * first access
+	 */
+	private class LazyMonomerMap extends AbstractMap<String, Monomer> {
+		private final Map<String, Integer> index;
+
+		LazyMonomerMap(Map<String, Integer> index) {
+			this.index = index;
+		}
+
+		@Override
+		public int size() {
+			return index.size();
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return index.containsKey(key);
+		}
+
+		@Override
+		public Monomer get(Object key) {
+			Integer i = index.get(key);
+			if (null == i) {
+				return null;
+			}
+			return getMonomer(i);
+		}
+
+		@Override
+		public Set<String> keySet() {
+			return Collections.unmodifiableSet(index.keySet());
+		}
+
+		@Override
+		public Set<Map.Entry<String, Monomer>> entrySet() {
+			return new AbstractSet<Map.Entry<String, Monomer>>() {
+				@Override
+				public int size() {
+					return index.size();
+				}
+
+				@Override
+				public Iterator<Map.Entry<String, Monomer>> iterator() {
+					final Iterator<Map.Entry<String, Integer>> it = index
+							.entrySet().iterator();
+					return new Iterator<Map.Entry<String, Monomer>>() {
+						public boolean hasNext() {
+							return it.hasNext();
+						}
+
+						public Map.Entry<String, Monomer> next() {
+							Map.Entry<String, Integer> entry = it.next();
+							return new SimpleImmutableEntry<String, Monomer>(
+									entry.getKey(),
+									getMonomer(entry.getValue()));
+						}
+
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+			};
+		}
+	}
+}
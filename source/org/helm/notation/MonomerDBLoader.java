@@ -0,0 +1,288 @@
+/*******************************************************************************
+ * Copyright C 2012, The Pistoia Alliance
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package org.helm.notation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.helm.notation.model.Attachment;
+import org.helm.notation.model.Monomer;
+import org.helm.notation.model.MonomerCache;
+import org.helm.notation.tools.MonomerParser;
+import org.helm.notation.tools.StructureParser;
+import org.jdom.Element;
+
+/**
+ * This class builds the monomer, attachment and SMILES databases from the
+ * PolymerList and AttachmentList elements of a monomer database document.
+ * Validation and SMILES canonicalization of the monomers are independent and
+ * run on a fork-join pool; the maps are assembled in document order
+ * afterwards, so the result does not depend on the parallelism. If several
+ * monomers are invalid, the error of the first one in the document is thrown.
+ */
+public final class MonomerDBLoader {
+
+	/**
+	 * system property with the number of threads used to load the monomer
+	 * database, defaults to the number of available processors
+	 */
+	public static final String PARALLELISM_PROPERTY = "org.helm.notation.monomerLoaderParallelism";
+
+	/** number of monomers validated by a single fork-join task */
+	private static final int TASK_SIZE = 16;
+
+	private final int parallelism;
+
+	/**
+	 * Constructs a loader with the parallelism given by the system property
+	 * {@link #PARALLELISM_PROPERTY}
+	 */
+	public MonomerDBLoader() {
+		this(Integer.getInteger(PARALLELISM_PROPERTY, Runtime.getRuntime()
+				.availableProcessors()));
+	}
+
+	/**
+	 * Constructs a loader with the given number of threads, 1 loads on the
+	 * calling thread
+	 * 
+	 * @param parallelism
+	 */
+	public MonomerDBLoader(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	/**
+	 * builds the monomer cache from the given elements
+	 * 
+	 * @param polymerList
+	 *            PolymerList element
+	 * @param attachmentList
+	 *            AttachmentList element
+	 * @return MonomerCache
+	 * @throws MonomerException
+	 *             if a monomer or attachment is invalid
+	 * @throws IOException
+	 */
+	public MonomerCache load(Element polymerList, Element attachmentList)
+			throws MonomerException, IOException {
+		List<String> polymerTypes = new ArrayList<String>();
+		List<Integer> polymerEnds = new ArrayList<Integer>();
+		List<Monomer> monomers = new ArrayList<Monomer>();
+		for (Object polymer : polymerList.getChildren()) {
+			Element polymerElement = (Element) polymer;
+			polymerTypes.add(polymerElement.getAttribute(
+					MonomerFactory.POLYMER_TYPE_ATTRIBUTE).getValue());
+			for (Object monomer : polymerElement.getChildren()) {
+				monomers.add(MonomerParser.getMonomer((Element) monomer));
+			}
+			polymerEnds.add(monomers.size());
+		}
+
+		List<Attachment> attachments = new ArrayList<Attachment>();
+		for (Object attachment : attachmentList.getChildren()) {
+			attachments.add(MonomerParser.getAttachment((Element) attachment));
+		}
+
+		MonomerTask monomerTask = new MonomerTask(monomers);
+		AttachmentTask attachmentTask = new AttachmentTask(attachments);
+		if (parallelism == 1) {
+			monomerTask.compute();
+			attachmentTask.compute();
+		} else {
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				pool.execute(attachmentTask);
+				pool.invoke(monomerTask);
+				attachmentTask.join();
+			} finally {
+				pool.shutdown();
+			}
+		}
+		monomerTask.rethrowFirstError();
+		attachmentTask.rethrowFirstError();
+
+		// monomers with a duplicate ID replace earlier ones
+		Map<String, Map<String, Monomer>> monomerDB = new HashMap<String, Map<String, Monomer>>();
+		int start = 0;
+		for (int i = 0; i < polymerTypes.size(); i++) {
+			Map<String, Monomer> idMonomerMap = new HashMap<String, Monomer>();
+			int end = polymerEnds.get(i);
+			for (int j = start; j < end; j++) {
+				Monomer m = monomers.get(j);
+				idMonomerMap.put(m.getAlternateId(), m);
+			}
+			monomerDB.put(polymerTypes.get(i), idMonomerMap);
+			start = end;
+		}
+
+		Map<String, Attachment> attachmentDB = new HashMap<String, Attachment>();
+		for (Attachment att : attachments) {
+			attachmentDB.put(att.getAlternateId(), att);
+		}
+
+		Map<Monomer, String> canonicalSmiles = new IdentityHashMap<Monomer, String>();
+		for (int i = 0; i < monomers.size(); i++) {
+			canonicalSmiles.put(monomers.get(i), monomerTask.smiles[i]);
+		}
+		Map<String, Monomer> smilesMonomerDB = new HashMap<String, Monomer>();
+		for (Map<String, Monomer> monomerMap : monomerDB.values()) {
+			for (Monomer monomer : monomerMap.values()) {
+				String smiles = canonicalSmiles.get(monomer);
+				monomer.setCanSMILES(smiles);
+				smilesMonomerDB.put(smiles, monomer);
+			}
+		}
+
+		MonomerCache cache = new MonomerCache();
+		cache.setMonomerDB(monomerDB);
+		cache.setAttachmentDB(attachmentDB);
+		cache.setSmilesMonomerDB(smilesMonomerDB);
+		return cache;
+	}
+
+	private static void rethrow(Exception e) throws MonomerException,
+			IOException {
+		if (e instanceof MonomerException) {
+			throw (MonomerException) e;
+		} else if (e instanceof IOException) {
+			throw (IOException) e;
+		}
+		throw (RuntimeException) e;
+	}
+
+	/**
+	 * validates the monomers of a range and computes their unique extended
+	 * SMILES, errors are kept per monomer
+	 */
+	private static class MonomerTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<Monomer> monomers;
+		private final String[] smiles;
+		private final Exception[] errors;
+		private final int from;
+		private final int to;
+
+		MonomerTask(List<Monomer> monomers) {
+			this(monomers, new String[monomers.size()],
+					new Exception[monomers.size()], 0, monomers.size());
+		}
+
+		private MonomerTask(List<Monomer> monomers, String[] smiles,
+				Exception[] errors, int from, int to) {
+			this.monomers = monomers;
+			this.smiles = smiles;
+			this.errors = errors;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > TASK_SIZE && getPool() != null) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new MonomerTask(monomers, smiles, errors, from,
+						middle), new MonomerTask(monomers, smiles, errors,
+						middle, to));
+				return;
+			}
+
+			for (int i = from; i < to; i++) {
+				Monomer monomer = monomers.get(i);
+				try {
+					MonomerParser.validateMonomer(monomer);
+				} catch (Exception e) {
+					errors[i] = e;
+					continue;
+				}
+
+				String canSmiles = monomer.getCanSMILES();
+				try {
+					canSmiles = StructureParser
+							.getUniqueExtendedSMILES(canSmiles);
+				} catch (Exception e) {
+					// ignored
+				}
+				smiles[i] = canSmiles;
+			}
+		}
+
+		void rethrowFirstError() throws MonomerException, IOException {
+			for (Exception e : errors) {
+				if (null != e) {
+					rethrow(e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * validates all attachments and computes their cap group MoleculeInfo,
+	 * errors are kept per attachment
+	 */
+	private static class AttachmentTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<Attachment> attachments;
+		private final Exception[] errors;
+
+		AttachmentTask(List<Attachment> attachments) {
+			this.attachments = attachments;
+			this.errors = new Exception[attachments.size()];
+		}
+
+		@Override
+		protected void compute() {
+			for (int i = 0; i < attachments.size(); i++) {
+				try {
+					MonomerParser.validateAttachement(attachments.get(i));
+				} catch (Exception e) {
+					errors[i] = e;
+					continue;
+				}
+
+				try {
+					attachments.get(i).getCapMoleculeInfo();
+				} catch (Exception e) {
+					// computed again on first use
+				}
+			}
+		}
+
+		void rethrowFirstError() throws MonomerException, IOException {
+			for (Exception e : errors) {
+				if (null != e) {
+					rethrow(e);
+				}
+			}
+		}
+	}
+}
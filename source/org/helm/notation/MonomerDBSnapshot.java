@@ -0,0 +1,358 @@
+/*******************************************************************************
+ * Copyright C 2012, The Pistoia Alliance
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package org.helm.notation;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.helm.notation.model.Attachment;
+import org.helm.notation.model.Monomer;
+import org.helm.notation.model.MonomerCache;
+
+/**
+ * This class is an immutable, versioned view of the monomer database. The
+ * MonomerFactory publishes a new snapshot whenever the database changes, so
+ * readers never need to lock. The version is unique within the JVM and the
+ * content hash only depends on the monomers and attachments, both can be used
+ * to key caches derived from the database.
+ */
+public final class MonomerDBSnapshot {
+
+	private static final AtomicLong VERSION_SEQUENCE = new AtomicLong();
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final long version;
+	private final long baseVersion;
+	private final long contentHash;
+	private final Map<String, Map<String, Monomer>> monomerDB;
+	private final Map<String, Monomer> smilesMonomerDB;
+	private final Map<String, Attachment> attachmentDB;
+
+	// the maps must already be unmodifiable, a base version of 0 starts a new
+	// base
+	private MonomerDBSnapshot(Map<String, Map<String, Monomer>> monomerDB,
+			Map<String, Monomer> smilesMonomerDB,
+			Map<String, Attachment> attachmentDB, long contentHash,
+			long baseVersion) {
+		this.version = nextVersion();
+		this.baseVersion = (baseVersion == 0) ? version : baseVersion;
+		this.contentHash = contentHash;
+		this.monomerDB = monomerDB;
+		this.smilesMonomerDB = smilesMonomerDB;
+		this.attachmentDB = attachmentDB;
+	}
+
+	/**
+	 * creates a snapshot from the content of the given maps, the maps are
+	 * copied
+	 * 
+	 * @param monomerDB
+	 * @param smilesMonomerDB
+	 * @param attachmentDB
+	 * @return MonomerDBSnapshot
+	 */
+	public static MonomerDBSnapshot create(
+			Map<String, Map<String, Monomer>> monomerDB,
+			Map<String, Monomer> smilesMonomerDB,
+			Map<String, Attachment> attachmentDB) {
+		Map<String, Map<String, Monomer>> newMonomerDB = new HashMap<String, Map<String, Monomer>>();
+		if (null != monomerDB) {
+			for (Map.Entry<String, Map<String, Monomer>> entry : monomerDB
+					.entrySet()) {
+				Map<String, Monomer> monomerMap = new HashMap<String, Monomer>();
+				if (null != entry.getValue()) {
+					monomerMap.putAll(entry.getValue());
+				}
+				newMonomerDB.put(entry.getKey(),
+						Collections.unmodifiableMap(monomerMap));
+			}
+		}
+
+		Map<String, Attachment> newAttachmentDB = new HashMap<String, Attachment>();
+		if (null != attachmentDB) {
+			newAttachmentDB.putAll(attachmentDB);
+		}
+		long hash = contentHashOf(newMonomerDB, newAttachmentDB);
+
+		Map<String, Monomer> newSmilesMonomerDB = new HashMap<String, Monomer>();
+		if (null != smilesMonomerDB) {
+			newSmilesMonomerDB.putAll(smilesMonomerDB);
+		}
+
+		return new MonomerDBSnapshot(Collections.unmodifiableMap(newMonomerDB),
+				Collections.unmodifiableMap(newSmilesMonomerDB),
+				Collections.unmodifiableMap(newAttachmentDB), hash, 0);
+	}
+
+	/**
+	 * creates a snapshot from the content of a MonomerCache
+	 * 
+	 * @param cache
+	 * @return MonomerDBSnapshot
+	 */
+	public static MonomerDBSnapshot create(MonomerCache cache) {
+		return create(cache.getMonomerDB(), cache.getSmilesMonomerDB(),
+				cache.getAttachmentDB());
+	}
+
+	/**
+	 * creates a snapshot on top of a binary cache file without copying, so the
+	 * monomers of the file are still decoded on first access
+	 * 
+	 * @param cacheFile
+	 * @return MonomerDBSnapshot
+	 */
+	public static MonomerDBSnapshot create(MonomerCacheFile cacheFile) {
+		return new MonomerDBSnapshot(cacheFile.getMonomerDB(),
+				cacheFile.getSmilesMonomerDB(), cacheFile.getAttachmentDB(),
+				cacheFile.getContentHash(), 0);
+	}
+
+	/**
+	 * returns a new version from the sequence shared by all snapshots and
+	 * monomer stores
+	 * 
+	 * @return version
+	 */
+	static long nextVersion() {
+		return VERSION_SEQUENCE.incrementAndGet();
+	}
+
+	/**
+	 * computes the content hash of a monomer and attachment database as
+	 * returned by {@link #getContentHash()}
+	 * 
+	 * @param monomerDB
+	 * @param attachmentDB
+	 * @return content hash
+	 */
+	static long contentHashOf(Map<String, Map<String, Monomer>> monomerDB,
+			Map<String, Attachment> attachmentDB) {
+		long hash = 0;
+		if (null != monomerDB) {
+			for (Map<String, Monomer> monomerMap : monomerDB.values()) {
+				if (null != monomerMap) {
+					for (Monomer monomer : monomerMap.values()) {
+						hash += hashOf(monomer);
+					}
+				}
+			}
+		}
+		if (null != attachmentDB) {
+			for (Attachment attachment : attachmentDB.values()) {
+				hash += hashOf(attachment);
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * returns a snapshot which additionally contains the given monomer. A
+	 * monomer whose ID already exists for its polymer type is ignored, as is a
+	 * SMILES that is already indexed. If nothing changes, this snapshot is
+	 * returned.
+	 * 
+	 * @param monomer
+	 * @return MonomerDBSnapshot
+	 */
+	public MonomerDBSnapshot withMonomer(Monomer monomer) {
+		return withMonomers(Collections.singleton(monomer));
+	}
+
+	/**
+	 * returns a snapshot which additionally contains the given monomers, see
+	 * {@link #withMonomer(Monomer)}
+	 * 
+	 * @param monomers
+	 * @return MonomerDBSnapshot
+	 */
+	public MonomerDBSnapshot withMonomers(Collection<Monomer> monomers) {
+		// the maps of this snapshot are layered, not copied: they may be the
+		// lazily decoded maps of a cache file, which must not be iterated
+		Map<String, Map<String, Monomer>> addedMonomers = new HashMap<String, Map<String, Monomer>>();
+		Map<String, Monomer> addedSmiles = new HashMap<String, Monomer>();
+		long hash = contentHash;
+
+		for (Monomer monomer : monomers) {
+			String polymerType = monomer.getPolymerType();
+			String id = monomer.getAlternateId();
+			Map<String, Monomer> current = monomerDB.get(polymerType);
+			if (null != current && current.containsKey(id)) {
+				continue;
+			}
+			Map<String, Monomer> added = addedMonomers.get(polymerType);
+			if (null == added) {
+				added = new HashMap<String, Monomer>();
+				addedMonomers.put(polymerType, added);
+			} else if (added.containsKey(id)) {
+				continue;
+			}
+
+			added.put(id, monomer);
+			hash += hashOf(monomer);
+
+			String smiles = monomer.getCanSMILES();
+			if (null != smiles && smiles.length() > 0
+					&& !smilesMonomerDB.containsKey(smiles)
+					&& !addedSmiles.containsKey(smiles)) {
+				addedSmiles.put(smiles, monomer);
+			}
+		}
+
+		if (addedMonomers.isEmpty()) {
+			return this;
+		}
+		Map<String, Map<String, Monomer>> newMonomerDB = new HashMap<String, Map<String, Monomer>>(
+				monomerDB);
+		for (Map.Entry<String, Map<String, Monomer>> entry : addedMonomers
+				.entrySet()) {
+			Map<String, Monomer> current = monomerDB.get(entry.getKey());
+			if (null == current) {
+				current = Collections.emptyMap();
+			}
+			newMonomerDB.put(entry.getKey(),
+					LayeredMap.with(current, entry.getValue()));
+		}
+		return new MonomerDBSnapshot(Collections.unmodifiableMap(newMonomerDB),
+				LayeredMap.with(smilesMonomerDB, addedSmiles), attachmentDB,
+				hash, baseVersion);
+	}
+
+	/**
+	 * returns an empty snapshot which keeps the attachments of this one
+	 * 
+	 * @return MonomerDBSnapshot
+	 */
+	public MonomerDBSnapshot withoutMonomers() {
+		return create(null, null, attachmentDB);
+	}
+
+	/**
+	 * returns the version of this snapshot, a newer snapshot always has a
+	 * higher version
+	 * 
+	 * @return version
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * returns the version of the snapshot this one was derived from by adding
+	 * monomers only. Snapshots with the same base version never map a monomer
+	 * ID to different monomers.
+	 * 
+	 * @return base version
+	 */
+	public long getBaseVersion() {
+		return baseVersion;
+	}
+
+	/**
+	 * returns a hash over the monomer IDs, SMILES, types, attachments,
+	 * molfiles and the attachment database. Snapshots with equal content have equal hashes
+	 * regardless of their version.
+	 * 
+	 * @return content hash
+	 */
+	public long getContentHash() {
+		return contentHash;
+	}
+
+	/**
+	 * returns the unmodifiable monomer database
+	 * 
+	 * @return MonomerDB as Map<String, Map<String, Monomer>>
+	 */
+	public Map<String, Map<String, Monomer>> getMonomerDB() {
+		return monomerDB;
+	}
+
+	/**
+	 * returns the unmodifiable SMILES monomer database
+	 * 
+	 * @return SmilesMonomerDB as Map<String, Monomer>
+	 */
+	public Map<String, Monomer> getSmilesMonomerDB() {
+		return smilesMonomerDB;
+	}
+
+	/**
+	 * returns the unmodifiable attachment database
+	 * 
+	 * @return AttachmentDB as Map<String, Attachment>
+	 */
+	public Map<String, Attachment> getAttachmentDB() {
+		return attachmentDB;
+	}
+
+	private static long hashOf(Monomer monomer) {
+		long hash = fnv(FNV_OFFSET_BASIS, monomer.getPolymerType());
+		hash = fnv(hash, monomer.getAlternateId());
+		hash = fnv(hash, monomer.getCanSMILES());
+		hash = fnv(hash, monomer.getMonomerType());
+		hash = fnv(hash, monomer.getNaturalAnalog());
+		if (null != monomer.getAttachmentList()) {
+			hash = fnv(hash, monomer.getAttachmentListString());
+		}
+		// the molfile as stored, an encoded molfile is not decoded
+		String molfile = monomer.getEncodedMolfile();
+		if (null == molfile) {
+			molfile = monomer.getMolfile();
+		}
+		hash = fnv(hash, molfile);
+		return mix(hash);
+	}
+
+	private static long hashOf(Attachment attachment) {
+		return mix(fnv(fnv(fnv(FNV_OFFSET_BASIS, "Attachment"),
+				attachment.getAlternateId()), attachment.getCapGroupSMILES()));
+	}
+
+	private static long fnv(long hash, String value) {
+		if (null != value) {
+			for (int i = 0; i < value.length(); i++) {
+				hash ^= value.charAt(i);
+				hash *= FNV_PRIME;
+			}
+		}
+		// separator, so that ("ab", "c") and ("a", "bc") differ
+		hash ^= 0xff;
+		hash *= FNV_PRIME;
+		return hash;
+	}
+
+	// entry hashes are summed, mixing keeps the sum well distributed
+	private static long mix(long hash) {
+		hash ^= (hash >>> 33);
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= (hash >>> 33);
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= (hash >>> 33);
+		return hash;
+	}
+}
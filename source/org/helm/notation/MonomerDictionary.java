@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright C 2012, The Pistoia Alliance
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package org.helm.notation;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.helm.notation.model.Monomer;
+
+/**
+ * This class assigns dense int codes to the monomers of a MonomerStore, per
+ * polymer type and in the order the monomers are first requested. A code
+ * resolves to its monomer with an array access instead of the nested map
+ * lookups of the store.
+ * 
+ * Codes stay valid as long as the version of the store does not change;
+ * clearing the store starts a new set of codes. The dictionary is safe for
+ * concurrent use.
+ */
+public class MonomerDictionary {
+
+	/** code returned for monomer IDs that are not in the store */
+	public static final int NO_CODE = -1;
+
+	private final MonomerStore store;
+	private final ConcurrentMap<String, CodeTable> tables = new ConcurrentHashMap<String, CodeTable>();
+	private volatile long version;
+
+	/**
+	 * Constructs an empty dictionary for the given store
+	 * 
+	 * @param store
+	 */
+	public MonomerDictionary(MonomerStore store) {
+		this.store = store;
+		this.version = store.getVersion();
+	}
+
+	/**
+	 * returns the store the codes refer to
+	 * 
+	 * @return MonomerStore
+	 */
+	public MonomerStore getMonomerStore() {
+		return store;
+	}
+
+	/**
+	 * returns the store version of the current codes
+	 * 
+	 * @return version
+	 */
+	public long getVersion() {
+		getTables();
+		return version;
+	}
+
+	/**
+	 * returns the code of a monomer, a new code is assigned on first use
+	 * 
+	 * @param polymerType
+	 * @param monomerID
+	 * @return code or NO_CODE if the store has no such monomer
+	 */
+	public int getCode(String polymerType, String monomerID) {
+		return getTable(polymerType).getCode(store, polymerType, monomerID);
+	}
+
+	/**
+	 * returns the monomer of a code
+	 * 
+	 * @param polymerType
+	 * @param code
+	 * @return Monomer
+	 * @throws IndexOutOfBoundsException
+	 *             if the code has not been assigned
+	 */
+	public Monomer getMonomer(String polymerType, int code) {
+		return getTable(polymerType).getMonomer(code);
+	}
+
+	/**
+	 * returns the monomer ID of a code
+	 * 
+	 * @param polymerType
+	 * @param code
+	 * @return monomer ID
+	 */
+	public String getMonomerID(String polymerType, int code) {
+		return getMonomer(polymerType, code).getAlternateId();
+	}
+
+	/**
+	 * returns the number of codes assigned for a polymer type, codes are
+	 * between 0 and size - 1
+	 * 
+	 * @param polymerType
+	 * @return number of codes
+	 */
+	public int size(String polymerType) {
+		return getTable(polymerType).size;
+	}
+
+	private ConcurrentMap<String, CodeTable> getTables() {
+		long storeVersion = store.getVersion();
+		if (storeVersion != version) {
+			synchronized (this) {
+				if (storeVersion != version) {
+					tables.clear();
+					version = storeVersion;
+				}
+			}
+		}
+		return tables;
+	}
+
+	private CodeTable getTable(String polymerType) {
+		ConcurrentMap<String, CodeTable> currentTables = getTables();
+		CodeTable table = currentTables.get(polymerType);
+		if (null == table) {
+			CodeTable newTable = new CodeTable();
+			table = currentTables.putIfAbsent(polymerType, newTable);
+			if (null == table) {
+				table = newTable;
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * codes of one polymer type, codes are looked up lock-free and assigned
+	 * under the lock of the table
+	 */
+	private static final class CodeTable {
+
+		private final ConcurrentMap<String, Integer> codes = new ConcurrentHashMap<String, Integer>();
+		private volatile Monomer[] monomers = new Monomer[16];
+		private volatile int size;
+
+		int getCode(MonomerStore store, String polymerType, String monomerID) {
+			Integer code = codes.get(monomerID);
+			if (null != code) {
+				return code;
+			}
+
+			synchronized (this) {
+				code = codes.get(monomerID);
+				if (null != code) {
+					return code;
+				}
+
+				Monomer monomer = store.getMonomer(polymerType, monomerID);
+				if (null == monomer) {
+					return NO_CODE;
+				}
+
+				int newCode = size;
+				Monomer[] current = monomers;
+				if (newCode == current.length) {
+					Monomer[] grown = new Monomer[current.length * 2];
+					System.arraycopy(current, 0, grown, 0, newCode);
+					current = grown;
+				}
+				current[newCode] = monomer;
+				monomers = current;
+				// the code is published only after its monomer
+				size = newCode + 1;
+				codes.put(monomerID, newCode);
+				return newCode;
+			}
+		}
+
+		Monomer getMonomer(int code) {
+			if (code < 0 || code >= size) {
+				throw new IndexOutOfBoundsException("Unknown monomer code "
+						+ code);
+			}
+			return monomers[code];
+		}
+	}
+}
@@ -28,7 +28,6 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -37,15 +36,14 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.helm.notation.model.Attachment;
 import org.helm.notation.model.Monomer;
 import org.helm.notation.model.MonomerCache;
-import org.helm.notation.tools.DeepCopy;
 import org.helm.notation.tools.MonomerParser;
-import org.helm.notation.tools.StructureParser;
 import org.jdom.Attribute;
 import org.jdom.Document;
 import org.jdom.Element;
@@ -63,6 +61,11 @@ import org.jdom.output.XMLOutputter;
 public class MonomerFactory {
 
 	public static final String NOTATION_DIRECTORY = NotationConstant.NOTATION_DIRECTORY;
+	public static final String MONOMER_CACHE_BINARY_FILE_NAME = "MonomerCache.bin";
+	public static final String MONOMER_CACHE_BINARY_FILE_PATH = NOTATION_DIRECTORY
+			+ System.getProperty("file.separator")
+			+ MONOMER_CACHE_BINARY_FILE_NAME;
+	/** legacy serialized cache, only read when no binary cache exists */
 	public static final String MONOMER_CACHE_FILE_NAME = "MonomerCache.ser";
 	public static final String MONOMER_CACHE_FILE_PATH = NOTATION_DIRECTORY
 			+ System.getProperty("file.separator") + MONOMER_CACHE_FILE_NAME;
@@ -78,33 +81,47 @@ public class MonomerFactory {
 	public static final String POLYMER_ELEMENT = "Polymer";
 	public static final String POLYMER_TYPE_ATTRIBUTE = "polymerType";
 	public static final String ATTACHMENT_LIST_ELEMENT = "AttachmentList";
-	private static MonomerFactory instance;
 	/**
-	 * First key is polymer Type, such as "RNA" Second key is monomer ID, such
-	 * as "A"
+	 * system property, if "true" monomers from a binary cache file are fully
+	 * validated on startup even if the file is stamped as validated
 	 */
-	private static Map<String, Map<String, Monomer>> monomerDB; // key is
-																// monomer
-																// SMILES, value
-																// is Monomer
-	private static Map<String, Monomer> smilesMonomerDB; // key is
-															// AttachementID,
-															// value is
-															// Attachment
-	private static Map<String, Attachment> attachmentDB;
+	public static final String VALIDATE_MONOMER_CACHE_PROPERTY = "org.helm.notation.validateMonomerCache";
+	private static volatile MonomerFactory instance;
+	/**
+	 * current monomer database, replaced as a whole whenever monomers are
+	 * added. In the monomerDB first key is polymer Type, such as "RNA" Second
+	 * key is monomer ID, such as "A"
+	 */
+	private static final AtomicReference<MonomerDBSnapshot> snapshot = new AtomicReference<MonomerDBSnapshot>();
 	// private static Map<String, Map<String, Monomer>> externalMonomerDB;
 	private static SAXBuilder builder;
 	private static Logger logger = Logger.getLogger(MonomerFactory.class
 			.toString());
 
-	private static boolean dbChanged = true;
+	private static volatile boolean dbChanged = true;
+
+	/**
+	 * content hash of the last monomer database that passed full validation,
+	 * stamped into the binary cache file on save
+	 */
+	private static volatile Long validatedContentHash;
+
+	/**
+	 * returns the current immutable monomer database snapshot, its version or
+	 * content hash can be used to key caches derived from the database
+	 * 
+	 * @return MonomerDBSnapshot
+	 */
+	public MonomerDBSnapshot getSnapshot() {
+		return snapshot.get();
+	}
 
 	/**
 	 * retruns the monomer database
 	 * 
 	 * @return Map as Map<String, Map<String, Monomer>>
 	 */
-	public synchronized Map<String, Map<String, Monomer>> getMonomerDB() {
+	public Map<String, Map<String, Monomer>> getMonomerDB() {
 		return getMonomerDB(true);
 	}
 
@@ -115,8 +132,10 @@ public class MonomerFactory {
 	 * @param includeNewMonomers
 	 * @return Map as Map<String, Map<String, Monomer>>
 	 */
-	public synchronized Map<String, Map<String, Monomer>> getMonomerDB(
+	public Map<String, Map<String, Monomer>> getMonomerDB(
 			boolean includeNewMonomers) {
+		Map<String, Map<String, Monomer>> monomerDB = getSnapshot()
+				.getMonomerDB();
 		if (includeNewMonomers) {
 			return monomerDB;
 		} else {
@@ -130,31 +149,30 @@ public class MonomerFactory {
 		}
 	}
 
-	protected MonomerStore monomerStore;
+	protected final MonomerStore monomerStore = new SnapshotMonomerStore();
 
 	/**
-	 * create a MonomerStore instance based on MonomerFactory's monomerDB and
-	 * smilesMonomerDB
+	 * returns the MonomerStore based on MonomerFactory's monomerDB and
+	 * smilesMonomerDB. The store always reads the current snapshot, monomers
+	 * added to it publish a new snapshot.
 	 * 
 	 * @return MonomerStore
 	 */
-	public synchronized MonomerStore getMonomerStore() {
-		if (monomerStore == null) {
-			monomerStore = new MonomerStore(monomerDB, smilesMonomerDB);
-		}
+	public MonomerStore getMonomerStore() {
 		return monomerStore;
 	}
 
-	public synchronized Map<String, Attachment> getAttachmentDB() {
-		return attachmentDB;
+	public Map<String, Attachment> getAttachmentDB() {
+		return getSnapshot().getAttachmentDB();
 	}
 
-	public synchronized Map<String, Monomer> getSmilesMonomerDB() {
+	public Map<String, Monomer> getSmilesMonomerDB() {
 		return getSmilesMonomerDB(true);
 	}
 
-	public synchronized Map<String, Monomer> getSmilesMonomerDB(
-			boolean includeNewMonomers) {
+	public Map<String, Monomer> getSmilesMonomerDB(boolean includeNewMonomers) {
+		Map<String, Monomer> smilesMonomerDB = getSnapshot()
+				.getSmilesMonomerDB();
 		if (includeNewMonomers) {
 			return smilesMonomerDB;
 		} else {
@@ -162,7 +180,7 @@ public class MonomerFactory {
 		}
 	}
 
-	private synchronized Map<String, Monomer> excludeNewMonomers(
+	private Map<String, Monomer> excludeNewMonomers(
 			Map<String, Monomer> monomerMap) {
 		Map<String, Monomer> reducedMonomerMap = new HashMap<String, Monomer>();
 		for (String identifier : monomerMap.keySet()) {
@@ -174,16 +192,16 @@ public class MonomerFactory {
 		return reducedMonomerMap;
 	}
 
-	public synchronized List<String> getPolymerTypes() {
+	public List<String> getPolymerTypes() {
 		List<String> l = new ArrayList<String>();
-		l.addAll(monomerDB.keySet());
+		l.addAll(getSnapshot().getMonomerDB().keySet());
 		Collections.sort(l);
 		return l;
 	}
 
-	public synchronized List<String> getMonomerTypes() {
+	public List<String> getMonomerTypes() {
 		List<String> monomerTypeList = new ArrayList<String>();
-		Object[] col = monomerDB.values().toArray();
+		Object[] col = getSnapshot().getMonomerDB().values().toArray();
 		for (int i = 0; i < col.length; i++) {
 			Map<String, Monomer> map = (Map<String, Monomer>) col[i];
 			Monomer[] monomers = map.values().toArray(new Monomer[0]);
@@ -197,8 +215,9 @@ public class MonomerFactory {
 		return monomerTypeList;
 	}
 
-	public synchronized Map<String, List<String>> getAttachmentLabelIDs() {
+	public Map<String, List<String>> getAttachmentLabelIDs() {
 		Map<String, List<String>> labelMap = new HashMap<String, List<String>>();
+		Map<String, Attachment> attachmentDB = getAttachmentDB();
 
 		// group attachments based on R value (label)
 		Set<String> idSet = attachmentDB.keySet();
@@ -247,11 +266,18 @@ public class MonomerFactory {
 	 */
 	public static MonomerFactory getInstance() throws MonomerException,
 			IOException, JDOMException {
-		if (null == instance) {
-			initializeMonomerCache();
-			instance = new MonomerFactory();
+		MonomerFactory factory = instance;
+		if (null == factory) {
+			synchronized (MonomerFactory.class) {
+				factory = instance;
+				if (null == factory) {
+					initializeMonomerCache();
+					factory = new MonomerFactory();
+					instance = factory;
+				}
+			}
 		}
-		return instance;
+		return factory;
 	}
 
 	public static void setDBChanged(boolean isChanged) {
@@ -272,15 +298,6 @@ public class MonomerFactory {
 		dbChanged = false;
 	}
 
-	private static void serializeMonomerCache(MonomerCache monomerCache,
-			String fileName) throws IOException {
-		FileOutputStream fos = new FileOutputStream(fileName);
-		ObjectOutputStream oos = new ObjectOutputStream(fos);
-		oos.writeObject(monomerCache);
-		oos.close();
-		fos.close();
-	}
-
 	private static MonomerCache deserializeMonomerCache(String fileName)
 			throws IOException, MonomerException {
 		FileInputStream fis = new FileInputStream(fileName);
@@ -307,39 +324,29 @@ public class MonomerFactory {
 	 * 
 	 * @param monomer
 	 */
-	public synchronized void addNewMonomer(Monomer monomer) throws IOException,
+	public void addNewMonomer(Monomer monomer) throws IOException,
 			MonomerException {
 		monomer.setNewMonomer(true);
-		addMonomer(monomerDB, smilesMonomerDB, monomer);
+		addMonomers(Collections.singletonList(monomer));
 
 		dbChanged = true;
 	}
 
-	private void addMonomer(Map<String, Map<String, Monomer>> monomerDB,
-			Map<String, Monomer> smilesMonomerDB, Monomer monomer)
-			throws IOException, MonomerException {
-		Map<String, Monomer> monomerMap = monomerDB.get(monomer
-				.getPolymerType());
-
-		if (null == monomerMap) {
-			Map<String, Monomer> map = new HashMap<String, Monomer>();
-			Monomer copyMonomer = DeepCopy.copy(monomer);
-			map.put(monomer.getAlternateId(), copyMonomer);
-			monomerDB.put(monomer.getPolymerType(), map);
-		} else {
-			if (!monomerMap.containsKey(monomer.getAlternateId())) {
-				monomerMap.put(monomer.getAlternateId(), monomer);
-			}
-		}
-
-		if (monomer.getCanSMILES() != null
-				&& monomer.getCanSMILES().length() > 0) {
-			if (!smilesMonomerDB.containsKey(monomer.getCanSMILES())) {
-				smilesMonomerDB.put(monomer.getCanSMILES(), monomer);
+	/**
+	 * publishes a new snapshot containing the given monomers, retried when
+	 * another thread published in the meantime
+	 * 
+	 * @param monomers
+	 * @return the published snapshot
+	 */
+	private static MonomerDBSnapshot addMonomers(List<Monomer> monomers) {
+		while (true) {
+			MonomerDBSnapshot current = snapshot.get();
+			MonomerDBSnapshot next = current.withMonomers(monomers);
+			if (next == current || snapshot.compareAndSet(current, next)) {
+				return next;
 			}
 		}
-
-		dbChanged = true;
 	}
 
 	/**
@@ -368,26 +375,31 @@ public class MonomerFactory {
 	 * @throws java.io.IOException
 	 * @throws org.helm.notation.MonomerException
 	 */
-	public synchronized void merge(MonomerCache remoteMonomerCache)
-			throws IOException, MonomerException {
-		Map<Monomer, Monomer> conflicts = getConflictedMonomerMap(remoteMonomerCache);
-		if (conflicts.size() > 0) {
-			throw new MonomerException(
-					"Local new monomer and remote monomer database conflict found");
-		} else {
-			Map<String, Map<String, Monomer>> monoDB = remoteMonomerCache
-					.getMonomerDB();
-
-			Set<String> polymerTypeSet = monoDB.keySet();
-			for (Iterator i = polymerTypeSet.iterator(); i.hasNext();) {
-				String polymerType = (String) i.next();
-				Map<String, Monomer> map = monoDB.get(polymerType);
-				Set<String> monomerSet = map.keySet();
-				for (Iterator it = monomerSet.iterator(); it.hasNext();) {
-					String id = (String) it.next();
-					Monomer m = map.get(id);
-					addMonomer(monomerDB, smilesMonomerDB, m);
-				}
+	public void merge(MonomerCache remoteMonomerCache) throws IOException,
+			MonomerException {
+		List<Monomer> remoteMonomers = new ArrayList<Monomer>();
+		Map<String, Map<String, Monomer>> monoDB = remoteMonomerCache
+				.getMonomerDB();
+
+		Set<String> polymerTypeSet = monoDB.keySet();
+		for (Iterator i = polymerTypeSet.iterator(); i.hasNext();) {
+			String polymerType = (String) i.next();
+			Map<String, Monomer> map = monoDB.get(polymerType);
+			remoteMonomers.addAll(map.values());
+		}
+
+		while (true) {
+			MonomerDBSnapshot current = snapshot.get();
+			Map<Monomer, Monomer> conflicts = getConflictedMonomerMap(
+					current.getMonomerDB(), remoteMonomerCache);
+			if (conflicts.size() > 0) {
+				throw new MonomerException(
+						"Local new monomer and remote monomer database conflict found");
+			}
+
+			MonomerDBSnapshot next = current.withMonomers(remoteMonomers);
+			if (next == current || snapshot.compareAndSet(current, next)) {
+				break;
 			}
 		}
 
@@ -401,11 +413,9 @@ public class MonomerFactory {
 	 * @throws java.io.IOException
 	 * @throws org.helm.notation.MonomerException
 	 */
-	public synchronized void setMonomerCache(MonomerCache remoteMonomerCache)
+	public void setMonomerCache(MonomerCache remoteMonomerCache)
 			throws IOException, MonomerException {
-		monomerDB = remoteMonomerCache.getMonomerDB();
-		attachmentDB = remoteMonomerCache.getAttachmentDB();
-		smilesMonomerDB = remoteMonomerCache.getSmilesMonomerDB();
+		snapshot.set(MonomerDBSnapshot.create(remoteMonomerCache));
 
 		dbChanged = true;
 	}
@@ -418,9 +428,16 @@ public class MonomerFactory {
 	 * @throws java.io.IOException
 	 * @throws org.helm.notation.MonomerException
 	 */
-	public synchronized Map<Monomer, Monomer> getConflictedMonomerMap(
+	public Map<Monomer, Monomer> getConflictedMonomerMap(
 			MonomerCache remoteMonomerCache) throws IOException,
 			MonomerException {
+		return getConflictedMonomerMap(getSnapshot().getMonomerDB(),
+				remoteMonomerCache);
+	}
+
+	private Map<Monomer, Monomer> getConflictedMonomerMap(
+			Map<String, Map<String, Monomer>> monomerDB,
+			MonomerCache remoteMonomerCache) {
 		Map<String, Map<String, Monomer>> remoteMonomerDB = remoteMonomerCache
 				.getMonomerDB();
 		Map<String, Monomer> remoteSmilesDB = remoteMonomerCache
@@ -493,16 +510,7 @@ public class MonomerFactory {
 		Element attachmentList = root.getChild(ATTACHMENT_LIST_ELEMENT,
 				root.getNamespace());
 
-		Map<String, Map<String, Monomer>> newMonomerDB = buildMonomerDB(polymerList);
-		Map<String, Attachment> newAttachmentDB = buildAttachmentDB(attachmentList);
-		Map<String, Monomer> newSmilesMonomerDB = buildSmilesMonomerDB(newMonomerDB);
-
-		MonomerCache cache = new MonomerCache();
-		cache.setMonomerDB(newMonomerDB);
-		cache.setAttachmentDB(newAttachmentDB);
-		cache.setSmilesMonomerDB(newSmilesMonomerDB);
-
-		return cache;
+		return new MonomerDBLoader().load(polymerList, attachmentList);
 	}
 
 	private static String buildMonomerDbXMLFromCache(MonomerCache cache)
@@ -555,8 +563,9 @@ public class MonomerFactory {
 	}
 
 	/**
-	 * This method is called during startup, use serialized version if exists,
-	 * otherwise use XML version (First from local, then from jar)
+	 * This method is called during startup, use binary cache if exists, then
+	 * the legacy serialized version, otherwise use XML version (First from
+	 * local, then from jar)
 	 * 
 	 * @throws org.helm.notation.MonomerException
 	 * @throws java.io.IOException
@@ -565,10 +574,35 @@ public class MonomerFactory {
 	private static void initializeMonomerCache() throws MonomerException,
 			IOException, JDOMException {
 		MonomerCache cache = null;
+		MonomerDBSnapshot newSnapshot = null;
 		InputStream in = null;
 
+		File binaryCacheFile = new File(MONOMER_CACHE_BINARY_FILE_PATH);
+		if (binaryCacheFile.exists()) {
+			try {
+				MonomerCacheFile cacheFile = MonomerCacheFile
+						.open(binaryCacheFile);
+				if (!cacheFile.isValidated()
+						|| Boolean.getBoolean(VALIDATE_MONOMER_CACHE_PROPERTY)) {
+					cacheFile.validatePayload();
+					validate(cacheFile.getMonomerDB());
+				}
+				cache = cacheFile.toMonomerCache();
+				newSnapshot = MonomerDBSnapshot.create(cacheFile);
+				logger.log(Level.INFO, MONOMER_CACHE_BINARY_FILE_PATH
+						+ " is used for monomer cache initialization");
+			} catch (Exception e) {
+				logger.log(Level.INFO,
+						"Unable to use local monomer cache file: "
+								+ MONOMER_CACHE_BINARY_FILE_NAME);
+				MonomerCacheFile.delete(binaryCacheFile);
+				logger.log(Level.INFO, "Deleted local monomer cache file: "
+						+ MONOMER_CACHE_BINARY_FILE_NAME);
+			}
+		}
+
 		File cacheFile = new File(MONOMER_CACHE_FILE_PATH);
-		if (cacheFile.exists()) {
+		if (null == cache && cacheFile.exists()) {
 			try {
 				cache = deserializeMonomerCache(MONOMER_CACHE_FILE_PATH);
 				validate(cache.getMonomerDB());
@@ -588,8 +622,8 @@ public class MonomerFactory {
 		if (null == cache && localMonomerDBFile.exists()) {
 			try {
 				in = new FileInputStream(MONOMER_DB_FILE_PATH);
+				// monomers are validated while the database is built
 				cache = buildMonomerCacheFromXML(in);
-				validate(cache.getMonomerDB());
 				logger.log(Level.INFO, MONOMER_DB_FILE_PATH
 						+ " is used for monomer cache initialization");
 			} catch (Exception e) {
@@ -605,19 +639,38 @@ public class MonomerFactory {
 			in = MonomerFactory.class
 					.getResourceAsStream(MONOMER_DB_XML_RESOURCE);
 			cache = buildMonomerCacheFromXML(in);
-			validate(cache.getMonomerDB());
 
 			logger.log(Level.INFO, MONOMER_DB_XML_RESOURCE
 					+ " is used for monomer cache initialization");
 		}
 
-		monomerDB = cache.getMonomerDB();
-		attachmentDB = cache.getAttachmentDB();
-		smilesMonomerDB = cache.getSmilesMonomerDB();
+		if (null == newSnapshot) {
+			newSnapshot = MonomerDBSnapshot.create(cache);
+		}
+		snapshot.set(newSnapshot);
+		// every load path above either validated or trusted a validated stamp
+		validatedContentHash = newSnapshot.getContentHash();
 
 		dbChanged = true;
 	}
 
+	/**
+	 * validates every monomer of the database with Marvin, regardless of a
+	 * validated stamp of the cache file. A database that passes is stamped as
+	 * validated when the monomer cache is saved.
+	 * 
+	 * @throws MonomerException
+	 *             if a monomer is invalid
+	 * @throws IOException
+	 */
+	public void validateMonomerDB() throws MonomerException, IOException {
+		Map<String, Map<String, Monomer>> monomerDB = getMonomerDB(false);
+		validate(monomerDB);
+		// temporary new monomers are not saved, so they are not part of the hash
+		validatedContentHash = MonomerDBSnapshot.contentHashOf(monomerDB,
+				getAttachmentDB());
+	}
+
 	/**
 	 * save monomerCache to disk file
 	 * 
@@ -632,109 +685,115 @@ public class MonomerFactory {
 		cache.setMonomerDB(getMonomerDB(false));
 		cache.setAttachmentDB(getAttachmentDB());
 		cache.setSmilesMonomerDB(getSmilesMonomerDB(false));
-		serializeMonomerCache(cache, MONOMER_CACHE_FILE_PATH);
+		MonomerCacheFile.write(cache, new File(MONOMER_CACHE_BINARY_FILE_PATH),
+				validatedContentHash);
+
+		// superseded by the binary cache
+		new File(MONOMER_CACHE_FILE_PATH).delete();
 
 		String monomerDbXML = buildMonomerDbXMLFromCache(cache);
 		FileOutputStream fos = new FileOutputStream(MONOMER_DB_FILE_PATH);
 		fos.write(monomerDbXML.getBytes());
 	}
 
-	private static Map<String, Map<String, Monomer>> buildMonomerDB(
-			Element polymerList) throws MonomerException, IOException,
-			JDOMException {
-		Map<String, Map<String, Monomer>> map = new HashMap<String, Map<String, Monomer>>();
-		List poplymers = polymerList.getChildren();
-
-		Iterator i = poplymers.iterator();
-		while (i.hasNext()) {
-			Element polymer = (Element) i.next();
-			Attribute polymerType = polymer
-					.getAttribute(POLYMER_TYPE_ATTRIBUTE);
-
-			Map idMonomerMap = new HashMap<String, Monomer>();
-
-			List monomers = polymer.getChildren();
-			Iterator it = monomers.iterator();
-			while (it.hasNext()) {
-				Element monomer = (Element) it.next();
-				Monomer m = MonomerParser.getMonomer(monomer);
-				if (MonomerParser.validateMonomer(m)) {
-					idMonomerMap.put(m.getAlternateId(), m);
-				}
+	private static boolean validate(Map<String, Map<String, Monomer>> monomerDB)
+			throws MonomerException, IOException {
+		Set<String> polymers = monomerDB.keySet();
+		for (String polymer : polymers) {
+			Map<String, Monomer> monomerMap = monomerDB.get(polymer);
+			Set<String> monomers = monomerMap.keySet();
+			for (String monomer : monomers) {
+				Monomer m = monomerMap.get(monomer);
+				MonomerParser.validateMonomer(m);
 			}
-			map.put(polymerType.getValue(), idMonomerMap);
 		}
+		return true;
+	}
 
-		return map;
+	public static void finalizeMonomerCache() {
+		synchronized (MonomerFactory.class) {
+			snapshot.set(null);
+			validatedContentHash = null;
+			dbChanged = true;
+			instance = null;
+		}
 	}
 
-	private static Map<String, Attachment> buildAttachmentDB(
-			Element attachmentList) throws MonomerException, IOException,
-			JDOMException {
-		Map<String, Attachment> map = new HashMap<String, Attachment>();
+	/**
+	 * MonomerStore view of the factory's current snapshot, writes publish a
+	 * new snapshot instead of changing the current one
+	 */
+	private static class SnapshotMonomerStore extends MonomerStore {
 
-		List attachments = attachmentList.getChildren();
-		Iterator i = attachments.iterator();
-		while (i.hasNext()) {
-			Element attachment = (Element) i.next();
-			Attachment att = MonomerParser.getAttachment(attachment);
+		@Override
+		public Map<String, Map<String, Monomer>> getMonomerDB() {
+			return snapshot.get().getMonomerDB();
+		}
 
-			if (MonomerParser.validateAttachement(att)) {
-				map.put(att.getAlternateId(), att);
-			}
+		@Override
+		public Map<String, Monomer> getSmilesMonomerDB() {
+			return snapshot.get().getSmilesMonomerDB();
+		}
 
+		@Override
+		public long getVersion() {
+			return snapshot.get().getBaseVersion();
 		}
 
-		return map;
-	}
+		@Override
+		public void addMonomer(Monomer monomer, boolean dbChanged)
+				throws IOException, MonomerException {
+			if (null == monomer.getAlternateId()) {
+				throw new MonomerException("Monomer ID is required");
+			}
+			addMonomers(Collections.singletonList(copyWithUniqueSMILES(monomer)));
+			if (dbChanged) {
+				markDBChanged();
+			}
+		}
 
-	private static Map<String, Monomer> buildSmilesMonomerDB(
-			Map<String, Map<String, Monomer>> monomerDB) {
-		Map<String, Monomer> map = new HashMap<String, Monomer>();
-		Set<String> polymerSet = monomerDB.keySet();
-		for (Iterator i = polymerSet.iterator(); i.hasNext();) {
-			String polymer = (String) i.next();
-			Map<String, Monomer> monomerMap = monomerDB.get(polymer);
-			Set<String> monomerSet = monomerMap.keySet();
-			for (Iterator it = monomerSet.iterator(); it.hasNext();) {
-				String monomerID = (String) it.next();
-				Monomer monomer = monomerMap.get(monomerID);
-				String smiles = monomer.getCanSMILES();
-				try {
-					smiles = StructureParser.getUniqueExtendedSMILES(smiles);
-				} catch (Exception e) {
-					// ignored
+		@Override
+		public Monomer addNewMonomerIfAbsent(Monomer monomer)
+				throws IOException, MonomerException {
+			if (null == monomer.getAlternateId()) {
+				throw new MonomerException("Monomer ID is required");
+			}
+			monomer.setNewMonomer(true);
+			Monomer copyMonomer = copyWithUniqueSMILES(monomer);
+			String smilesString = copyMonomer.getCanSMILES();
+
+			while (true) {
+				MonomerDBSnapshot current = snapshot.get();
+				if (hasSmiles(smilesString)) {
+					Monomer registered = current.getSmilesMonomerDB().get(
+							smilesString);
+					if (null != registered) {
+						return registered;
+					}
 				}
-				monomer.setCanSMILES(smiles);
-				map.put(smiles, monomer);
 
+				MonomerDBSnapshot next = current.withMonomer(copyMonomer);
+				if (next == current) {
+					return getMonomer(copyMonomer.getPolymerType(),
+							copyMonomer.getAlternateId());
+				}
+				if (snapshot.compareAndSet(current, next)) {
+					dbChanged = true;
+					return copyMonomer;
+				}
 			}
 		}
-		// System.out.println("smiles map count"+map.size());
-		return map;
-	}
 
-	private static boolean validate(Map<String, Map<String, Monomer>> monomerDB)
-			throws MonomerException, IOException {
-		Set<String> polymers = monomerDB.keySet();
-		for (String polymer : polymers) {
-			Map<String, Monomer> monomerMap = monomerDB.get(polymer);
-			Set<String> monomers = monomerMap.keySet();
-			for (String monomer : monomers) {
-				Monomer m = monomerMap.get(monomer);
-				MonomerParser.validateMonomer(m);
+		@Override
+		public void clearMonomers() {
+			while (true) {
+				MonomerDBSnapshot current = snapshot.get();
+				if (snapshot.compareAndSet(current, current.withoutMonomers())) {
+					dbChanged = true;
+					return;
+				}
 			}
 		}
-		return true;
-	}
-
-	public static void finalizeMonomerCache() {
-
-		monomerDB = null;
-		attachmentDB = null;
-		smilesMonomerDB = null;
-		dbChanged = true;
-		instance = null;
 	}
 
 }
@@ -2,10 +2,12 @@ package org.helm.notation;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.helm.notation.model.Monomer;
 import org.helm.notation.tools.DeepCopy;
@@ -16,23 +18,30 @@ import org.helm.notation.tools.StructureParser;
  * monomers coming from a single (XHELM) file from the monomers within the local
  * database.
  * 
+ * The store is safe for concurrent use: lookups are lock-free and ad hoc
+ * monomers are registered atomically by their canonical SMILES.
+ * 
  * @author maisel
  * 
  */
 public class MonomerStore {
-	private Map<String, Map<String, Monomer>> monomerDB;
-	private Map<String, Monomer> smilesMonomerDB;
+	private final ConcurrentMap<String, Map<String, Monomer>> monomerDB;
+	private final ConcurrentMap<String, Monomer> smilesMonomerDB;
+	private volatile long version = MonomerDBSnapshot.nextVersion();
+	private final ConcurrentMap<String, AtomicInteger> adHocSeeds = new ConcurrentHashMap<String, AtomicInteger>();
+	private volatile MonomerDictionary monomerDictionary;
 
 	/**
-	 * Constructor with Monomer- and SmilesDB
+	 * Constructor with Monomer- and SmilesDB. Concurrent maps are shared with
+	 * the caller, other maps are copied into concurrent ones.
 	 * 
 	 * @param monomerDB
 	 * @param smilesMonomerDB
 	 */
 	public MonomerStore(Map<String, Map<String, Monomer>> monomerDB,
 			Map<String, Monomer> smilesMonomerDB) {
-		this.monomerDB = monomerDB;
-		this.smilesMonomerDB = smilesMonomerDB;
+		this.monomerDB = toConcurrentMonomerDB(monomerDB);
+		this.smilesMonomerDB = toConcurrentMap(smilesMonomerDB);
 	}
 
 	/**
@@ -41,8 +50,68 @@ public class MonomerStore {
 	 * 
 	 */
 	public MonomerStore() {
-		monomerDB = new HashMap<String, Map<String, Monomer>>();
-		smilesMonomerDB = new HashMap<String, Monomer>();
+		monomerDB = new ConcurrentHashMap<String, Map<String, Monomer>>();
+		smilesMonomerDB = new ConcurrentHashMap<String, Monomer>();
+	}
+
+	/**
+	 * returns a concurrent version of the given monomer database, reusing the
+	 * given maps when they are already concurrent
+	 * 
+	 * @param monomerDB
+	 * @return concurrent MonomerDB as Map<String, Map<String, Monomer>>
+	 */
+	private static ConcurrentMap<String, Map<String, Monomer>> toConcurrentMonomerDB(
+			Map<String, Map<String, Monomer>> monomerDB) {
+		if (monomerDB == null) {
+			return new ConcurrentHashMap<String, Map<String, Monomer>>();
+		}
+
+		ConcurrentMap<String, Map<String, Monomer>> result;
+		if (monomerDB instanceof ConcurrentMap) {
+			result = (ConcurrentMap<String, Map<String, Monomer>>) monomerDB;
+		} else {
+			result = new ConcurrentHashMap<String, Map<String, Monomer>>();
+			for (Map.Entry<String, Map<String, Monomer>> entry : monomerDB
+					.entrySet()) {
+				if (entry.getKey() != null && entry.getValue() != null) {
+					result.put(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+
+		for (Map.Entry<String, Map<String, Monomer>> entry : result.entrySet()) {
+			Map<String, Monomer> monomerMap = entry.getValue();
+			if (!(monomerMap instanceof ConcurrentMap)) {
+				result.replace(entry.getKey(), monomerMap,
+						toConcurrentMap(monomerMap));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * returns a concurrent version of the given monomer map, entries with null
+	 * key or value are dropped
+	 * 
+	 * @param monomerMap
+	 * @return concurrent map as ConcurrentMap<String, Monomer>
+	 */
+	private static ConcurrentMap<String, Monomer> toConcurrentMap(
+			Map<String, Monomer> monomerMap) {
+		if (monomerMap instanceof ConcurrentMap) {
+			return (ConcurrentMap<String, Monomer>) monomerMap;
+		}
+
+		ConcurrentMap<String, Monomer> result = new ConcurrentHashMap<String, Monomer>();
+		if (monomerMap != null) {
+			for (Map.Entry<String, Monomer> entry : monomerMap.entrySet()) {
+				if (entry.getKey() != null && entry.getValue() != null) {
+					result.put(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+		return result;
 	}
 
 	/**
@@ -63,6 +132,37 @@ public class MonomerStore {
 		return smilesMonomerDB;
 	}
 
+	/**
+	 * returns the version of the store. Monomers are only added under the same
+	 * version, so a version, polymer type and monomer ID always identify the
+	 * same monomer and can key caches derived from monomers. Versions are
+	 * unique across all stores.
+	 * 
+	 * @return version
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * returns the dictionary with the int codes of the monomers of this store
+	 * 
+	 * @return MonomerDictionary
+	 */
+	public MonomerDictionary getMonomerDictionary() {
+		MonomerDictionary dictionary = monomerDictionary;
+		if (null == dictionary) {
+			synchronized (this) {
+				dictionary = monomerDictionary;
+				if (null == dictionary) {
+					dictionary = new MonomerDictionary(this);
+					monomerDictionary = dictionary;
+				}
+			}
+		}
+		return dictionary;
+	}
+
 	/**
 	 * Adds a monomer to the store
 	 * 
@@ -85,51 +185,169 @@ public class MonomerStore {
 	 */
 	public void addMonomer(Monomer monomer, boolean dbChanged)
 			throws IOException, MonomerException {
-		Map<String, Monomer> monomerMap = monomerDB.get(monomer
-				.getPolymerType());
-		String polymerType = monomer.getPolymerType();
 		String alternateId = monomer.getAlternateId();
-		String smilesString = monomer.getCanSMILES();
+		if (null == alternateId) {
+			throw new MonomerException("Monomer ID is required");
+		}
+		Monomer copyMonomer = copyWithUniqueSMILES(monomer);
+		String smilesString = copyMonomer.getCanSMILES();
 
-		try {
-			smilesString = StructureParser
-					.getUniqueExtendedSMILES(smilesString);
-		} catch (Exception e) {
-			smilesString = monomer.getCanSMILES();
+		Map<String, Monomer> monomerMap = getOrCreateMonomerMap(monomer
+				.getPolymerType());
+		boolean alreadyAdded = (monomerMap.putIfAbsent(alternateId,
+				copyMonomer) != null);
+
+		if (!alreadyAdded && hasSmiles(smilesString)) {
+			smilesMonomerDB.putIfAbsent(smilesString, copyMonomer);
+		}
+
+		if (dbChanged) {
+			markDBChanged();
+		}
+	}
+
+	/**
+	 * Atomically registers a new monomer by its canonical SMILES. If another
+	 * monomer with the same SMILES is already in the store, that monomer is
+	 * returned and the given one is discarded, so concurrent callers seeing the
+	 * same new SMILES end up with a single monomer.
+	 * 
+	 * @param monomer
+	 * @return the monomer registered for the SMILES of the given monomer
+	 * @throws IOException
+	 * @throws MonomerException
+	 */
+	public Monomer addNewMonomerIfAbsent(Monomer monomer) throws IOException,
+			MonomerException {
+		if (null == monomer.getAlternateId()) {
+			throw new MonomerException("Monomer ID is required");
+		}
+		Monomer copyMonomer = copyWithUniqueSMILES(monomer);
+		copyMonomer.setNewMonomer(true);
+		String smilesString = copyMonomer.getCanSMILES();
+		if (!hasSmiles(smilesString)) {
+			addMonomer(copyMonomer, true);
+			return getMonomer(monomer.getPolymerType(),
+					monomer.getAlternateId());
 		}
 
-		boolean hasSmilesString = (smilesString != null && smilesString
-				.length() > 0);
+		// the ID is published first, so a monomer found by SMILES is always
+		// found by ID as well
+		ConcurrentMap<String, Monomer> monomerMap = getOrCreateMonomerMap(copyMonomer
+				.getPolymerType());
+		Monomer existing = monomerMap.putIfAbsent(
+				copyMonomer.getAlternateId(), copyMonomer);
+		if (existing != null) {
+			Monomer registered = smilesMonomerDB.get(smilesString);
+			return (registered != null) ? registered : existing;
+		}
 
-		if (null == monomerMap) {
-			monomerMap = new HashMap<String, Monomer>();
-			monomerDB.put(polymerType, monomerMap);
+		Monomer registered = smilesMonomerDB.putIfAbsent(smilesString,
+				copyMonomer);
+		if (registered != null) {
+			// lost the race for the SMILES, withdraw the ID entry
+			monomerMap.remove(copyMonomer.getAlternateId(), copyMonomer);
+			return registered;
 		}
+		markDBChanged();
+		return copyMonomer;
+	}
 
+	/**
+	 * Returns a deep copy of the monomer with its SMILES in unique extended
+	 * form, the form under which monomers are indexed
+	 * 
+	 * @param monomer
+	 * @return copy of monomer
+	 * @throws IOException
+	 * @throws MonomerException
+	 */
+	protected Monomer copyWithUniqueSMILES(Monomer monomer) throws IOException,
+			MonomerException {
+		String smilesString = getUniqueSMILES(monomer);
 		Monomer copyMonomer = DeepCopy.copy(monomer);
-		
+
 		// ensure the canonical SMILES is indexed in the monomer store
-		if (hasSmilesString) {
+		if (hasSmiles(smilesString)) {
 			copyMonomer.setCanSMILES(smilesString);
 		}
+		return copyMonomer;
+	}
 
-		boolean alreadyAdded = false;
-		alreadyAdded = monomerMap.containsKey(alternateId);
+	/**
+	 * Returns the SMILES of the monomer in unique extended form, or the SMILES
+	 * as is if it cannot be converted
+	 * 
+	 * @param monomer
+	 * @return unique extended SMILES
+	 */
+	protected static String getUniqueSMILES(Monomer monomer) {
+		try {
+			return StructureParser.getUniqueExtendedSMILES(monomer
+					.getCanSMILES());
+		} catch (Exception e) {
+			return monomer.getCanSMILES();
+		}
+	}
 
-		if (!alreadyAdded) {
-			monomerMap.put(alternateId, copyMonomer);
+	/**
+	 * called when a monomer was added that should be persisted, sets the
+	 * dbChanged flag of the MonomerFactory
+	 */
+	protected void markDBChanged() {
+		MonomerFactory.setDBChanged(true);
+	}
 
-			boolean alreadyInSMILESMap = hasSmilesString
-					&& (smilesMonomerDB.containsKey(smilesString));
+	protected static boolean hasSmiles(String smilesString) {
+		return (smilesString != null && smilesString.length() > 0);
+	}
 
-			if (!alreadyInSMILESMap) {
-				smilesMonomerDB.put(smilesString, copyMonomer);
+	private ConcurrentMap<String, Monomer> getOrCreateMonomerMap(
+			String polymerType) {
+		while (true) {
+			Map<String, Monomer> monomerMap = monomerDB.get(polymerType);
+			if (monomerMap == null) {
+				ConcurrentMap<String, Monomer> newMap = new ConcurrentHashMap<String, Monomer>();
+				monomerMap = monomerDB.putIfAbsent(polymerType, newMap);
+				if (monomerMap == null) {
+					return newMap;
+				}
+			}
+			if (monomerMap instanceof ConcurrentMap) {
+				return (ConcurrentMap<String, Monomer>) monomerMap;
 			}
+
+			// a plain map was put in from outside, swap in a concurrent copy
+			monomerDB.replace(polymerType, monomerMap,
+					toConcurrentMap(monomerMap));
 		}
+	}
 
-		if (dbChanged) {
-			MonomerFactory.setDBChanged(true);
+	/**
+	 * returns the next seed for ad hoc monomer IDs of the given polymer type.
+	 * Seeds are allocated atomically and are unique per store and polymer
+	 * type.
+	 * 
+	 * @param polymerType
+	 * @return seed, starting at 1
+	 */
+	public int nextAdHocSeed(String polymerType) {
+		AtomicInteger seed = adHocSeeds.get(polymerType);
+		if (seed == null) {
+			AtomicInteger newSeed = new AtomicInteger();
+			seed = adHocSeeds.putIfAbsent(polymerType, newSeed);
+			if (seed == null) {
+				seed = newSeed;
+			}
 		}
+		return seed.incrementAndGet();
+	}
+
+	/**
+	 * restarts the ad hoc monomer ID seeds of all polymer types at 1
+	 */
+	public void resetAdHocSeeds() {
+		adHocSeeds.clear();
 	}
 
 	/**
@@ -140,8 +358,7 @@ public class MonomerStore {
 	 * @return true if monomer exists, false if not
 	 */
 	public boolean hasMonomer(String polymerType, String alternateId) {
-		return ((monomerDB.get(polymerType) != null) && getMonomer(polymerType,
-				alternateId) != null);
+		return getMonomer(polymerType, alternateId) != null;
 	}
 
 	/**
@@ -152,7 +369,14 @@ public class MonomerStore {
 	 * @return the matching monomer
 	 */
 	public Monomer getMonomer(String polymerType, String alternateId) {
-		return monomerDB.get(polymerType).get(alternateId);
+		if (polymerType == null || alternateId == null) {
+			return null;
+		}
+		Map<String, Monomer> monomerMap = getMonomerDB().get(polymerType);
+		if (monomerMap == null) {
+			return null;
+		}
+		return monomerMap.get(alternateId);
 	}
 
 	/**
@@ -162,7 +386,10 @@ public class MonomerStore {
 	 * @return the matching monomer
 	 */
 	public Monomer getMonomer(String smiles) {
-		return smilesMonomerDB.get(smiles);
+		if (smiles == null) {
+			return null;
+		}
+		return getSmilesMonomerDB().get(smiles);
 	}
 
 	/**
@@ -172,7 +399,10 @@ public class MonomerStore {
 	 * @return All monomers with polymerType
 	 */
 	public Map<String, Monomer> getMonomers(String polymerType) {
-		return monomerDB.get(polymerType);
+		if (polymerType == null) {
+			return null;
+		}
+		return getMonomerDB().get(polymerType);
 	}
 
 	/**
@@ -182,7 +412,7 @@ public class MonomerStore {
 	 * @throws IOException
 	 * @throws MonomerException
 	 */
-	public synchronized void addNewMonomer(Monomer monomer) throws IOException,
+	public void addNewMonomer(Monomer monomer) throws IOException,
 			MonomerException {
 		monomer.setNewMonomer(true);
 		addMonomer(monomer, true);
@@ -194,21 +424,23 @@ public class MonomerStore {
 	 * @return true if the store is empty, false if not
 	 */
 	public boolean isMonomerStoreEmpty() {
-		return (this.monomerDB == null || this.monomerDB.values() == null || this.monomerDB
-				.values().size() == 0);
+		Map<String, Map<String, Monomer>> db = getMonomerDB();
+		return (db == null || db.values() == null || db.values().size() == 0);
 	}
 
 	/**
 	 * Clears the MonomerStore
 	 */
-	public synchronized void clearMonomers() {
+	public void clearMonomers() {
 		this.monomerDB.clear();
 		this.smilesMonomerDB.clear();
+		// after clearing, so no old monomer is seen under the new version
+		this.version = MonomerDBSnapshot.nextVersion();
 	}
 
 	public String toString() {
 		String str = "";
-		for (Map<String, Monomer> val : this.monomerDB.values()) {
+		for (Map<String, Monomer> val : getMonomerDB().values()) {
 			for (Monomer mon : val.values()) {
 				str += mon.getAlternateId() + "(" + mon.getPolymerType()
 						+ "); ";
@@ -225,7 +457,7 @@ public class MonomerStore {
 	 * @return the polymer type set as Set<String>
 	 */
 	public Set<String> getPolymerTypeSet() {
-		return monomerDB.keySet();
+		return getMonomerDB().keySet();
 	}
 
 	/**
@@ -32,9 +32,10 @@ public interface NotationConstant {
 			+ System.getProperty("file.separator")
 			+ ".helm";
 
-	// notation to smiles conversion will not be performed when total monomer
-	// count is above this threshold
-	public static final int MONOMER_COUNT_THRESHOLD = 200;
+	// default of the total monomer count above which notation to structure
+	// and smiles conversion is not performed, see
+	// ComplexNotationParser.setMonomerCountThreshold
+	public static final int MONOMER_COUNT_THRESHOLD = 20000;
 
 	// break long sequences to small chunks using the value
 	public static final int MONOMER_GROUP_COUNT_INTERVAL = 20;
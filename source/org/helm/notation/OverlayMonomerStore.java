@@ -0,0 +1,344 @@
+/*******************************************************************************
+ * Copyright C 2012, The Pistoia Alliance
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package org.helm.notation;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.helm.notation.model.Monomer;
+
+/**
+ * This class is a request scoped monomer store on top of a shared base store.
+ * Reads fall through to the base, while monomers added to the overlay, such as
+ * ad hoc monomers from inline SMILES, stay in the overlay and are discarded
+ * with it unless they are promoted to the base. Adding monomers neither
+ * changes the base nor sets the dbChanged flag of the MonomerFactory.
+ * 
+ * Monomer lookups check the overlay first and then the base, getMonomerDB and
+ * getSmilesMonomerDB return read only views of both.
+ */
+public class OverlayMonomerStore extends MonomerStore {
+
+	private final MonomerStore base;
+
+	/**
+	 * Constructs an empty overlay on top of the given store
+	 * 
+	 * @param base
+	 */
+	public OverlayMonomerStore(MonomerStore base) {
+		if (null == base) {
+			throw new IllegalArgumentException("Base monomer store is required");
+		}
+		this.base = base;
+	}
+
+	/**
+	 * returns the store this overlay reads through to
+	 * 
+	 * @return base MonomerStore
+	 */
+	public MonomerStore getBase() {
+		return base;
+	}
+
+	/**
+	 * returns an unmodifiable view of the monomers of the overlay and the base
+	 * 
+	 * @return MonomerDB as Map<String, Map<String, Monomer>>
+	 */
+	@Override
+	public Map<String, Map<String, Monomer>> getMonomerDB() {
+		return new LayeredMonomerDB(super.getMonomerDB(), base.getMonomerDB());
+	}
+
+	/**
+	 * returns an unmodifiable view of the SMILES of the overlay and the base
+	 * 
+	 * @return SmilesMonomerDB as Map<String, Monomer>
+	 */
+	@Override
+	public Map<String, Monomer> getSmilesMonomerDB() {
+		return new UnionMap<Monomer>(super.getSmilesMonomerDB(),
+				base.getSmilesMonomerDB());
+	}
+
+	@Override
+	public Monomer getMonomer(String polymerType, String alternateId) {
+		if (polymerType == null || alternateId == null) {
+			return null;
+		}
+		Map<String, Monomer> monomerMap = super.getMonomerDB().get(polymerType);
+		Monomer monomer = (null == monomerMap) ? null : monomerMap
+				.get(alternateId);
+		return (null != monomer) ? monomer : base.getMonomer(polymerType,
+				alternateId);
+	}
+
+	@Override
+	public Monomer getMonomer(String smiles) {
+		if (smiles == null) {
+			return null;
+		}
+		Monomer monomer = super.getSmilesMonomerDB().get(smiles);
+		return (null != monomer) ? monomer : base.getMonomer(smiles);
+	}
+
+	/**
+	 * returns the monomers of a polymer type, a view of the overlay and the
+	 * base only if both have monomers of that type
+	 */
+	@Override
+	public Map<String, Monomer> getMonomers(String polymerType) {
+		if (polymerType == null) {
+			return null;
+		}
+		Map<String, Monomer> monomerMap = super.getMonomerDB().get(polymerType);
+		Map<String, Monomer> baseMap = base.getMonomers(polymerType);
+		if (null == monomerMap || monomerMap.isEmpty()) {
+			return (null == baseMap) ? monomerMap : Collections
+					.unmodifiableMap(baseMap);
+		}
+		if (null == baseMap || baseMap.isEmpty()) {
+			return Collections.unmodifiableMap(monomerMap);
+		}
+		return new UnionMap<Monomer>(monomerMap, baseMap);
+	}
+
+	/**
+	 * returns the monomers added to the overlay only
+	 * 
+	 * @return list of overlay monomers
+	 */
+	public List<Monomer> getOverlayMonomers() {
+		List<Monomer> monomers = new ArrayList<Monomer>();
+		for (Map<String, Monomer> monomerMap : super.getMonomerDB().values()) {
+			monomers.addAll(monomerMap.values());
+		}
+		return monomers;
+	}
+
+	/**
+	 * the overlay shares the version of its base, so structures cached for base
+	 * monomers are reused across overlays
+	 */
+	@Override
+	public long getVersion() {
+		return base.getVersion();
+	}
+
+	/**
+	 * ad hoc IDs are allocated by the base, so they are unique across overlays
+	 * and can be promoted
+	 */
+	@Override
+	public int nextAdHocSeed(String polymerType) {
+		return base.nextAdHocSeed(polymerType);
+	}
+
+	@Override
+	public void resetAdHocSeeds() {
+		base.resetAdHocSeeds();
+	}
+
+	/**
+	 * Adds a monomer to the overlay, monomers whose ID already exists in the
+	 * base are ignored
+	 */
+	@Override
+	public void addMonomer(Monomer monomer, boolean dbChanged)
+			throws IOException, MonomerException {
+		if (base.hasMonomer(monomer.getPolymerType(), monomer.getAlternateId())) {
+			return;
+		}
+		super.addMonomer(monomer, dbChanged);
+	}
+
+	/**
+	 * Registers a new monomer in the overlay, unless the base or the overlay
+	 * already has a monomer with the same SMILES
+	 */
+	@Override
+	public Monomer addNewMonomerIfAbsent(Monomer monomer) throws IOException,
+			MonomerException {
+		if (null == monomer.getAlternateId()) {
+			throw new MonomerException("Monomer ID is required");
+		}
+		Monomer registered = base.getMonomer(getUniqueSMILES(monomer));
+		if (null != registered) {
+			return registered;
+		}
+		return super.addNewMonomerIfAbsent(monomer);
+	}
+
+	/**
+	 * Adds the monomers of the overlay to the base as new monomers and clears
+	 * the overlay
+	 * 
+	 * @throws IOException
+	 * @throws MonomerException
+	 */
+	public void promoteMonomers() throws IOException, MonomerException {
+		for (Monomer monomer : getOverlayMonomers()) {
+			base.addNewMonomerIfAbsent(monomer);
+		}
+		clearMonomers();
+	}
+
+	// monomers stay in the request
+	@Override
+	protected void markDBChanged() {
+	}
+
+	/**
+	 * read only union of two maps, entries of the top map win
+	 */
+	private static class UnionMap<V> extends AbstractMap<String, V> {
+
+		private final Map<String, V> top;
+		private final Map<String, V> bottom;
+
+		UnionMap(Map<String, V> top, Map<String, V> bottom) {
+			this.top = top;
+			this.bottom = (null == bottom) ? Collections.<String, V> emptyMap()
+					: bottom;
+		}
+
+		@Override
+		public V get(Object key) {
+			V value = top.get(key);
+			return (null != value) ? value : bottom.get(key);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return top.containsKey(key) || bottom.containsKey(key);
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return top.isEmpty() && bottom.isEmpty();
+		}
+
+		@Override
+		public Set<Map.Entry<String, V>> entrySet() {
+			if (top.isEmpty()) {
+				return Collections.unmodifiableMap(bottom).entrySet();
+			}
+			return new AbstractSet<Map.Entry<String, V>>() {
+				@Override
+				public Iterator<Map.Entry<String, V>> iterator() {
+					List<Map.Entry<String, V>> entries = new ArrayList<Map.Entry<String, V>>();
+					for (Map.Entry<String, V> entry : top.entrySet()) {
+						entries.add(new SimpleImmutableEntry<String, V>(entry));
+					}
+					for (Map.Entry<String, V> entry : bottom.entrySet()) {
+						if (!top.containsKey(entry.getKey())) {
+							entries.add(new SimpleImmutableEntry<String, V>(
+									entry));
+						}
+					}
+					return Collections.unmodifiableList(entries).iterator();
+				}
+
+				@Override
+				public int size() {
+					int size = bottom.size();
+					for (String key : top.keySet()) {
+						if (!bottom.containsKey(key)) {
+							size++;
+						}
+					}
+					return size;
+				}
+			};
+		}
+	}
+
+	/**
+	 * read only union of two monomer databases, the monomer maps of a polymer
+	 * type are layered as well
+	 */
+	private static class LayeredMonomerDB extends
+			AbstractMap<String, Map<String, Monomer>> {
+
+		private final Map<String, Map<String, Monomer>> top;
+		private final Map<String, Map<String, Monomer>> bottom;
+
+		LayeredMonomerDB(Map<String, Map<String, Monomer>> top,
+				Map<String, Map<String, Monomer>> bottom) {
+			this.top = top;
+			this.bottom = (null == bottom) ? Collections
+					.<String, Map<String, Monomer>> emptyMap() : bottom;
+		}
+
+		@Override
+		public Map<String, Monomer> get(Object key) {
+			Map<String, Monomer> topMap = top.get(key);
+			Map<String, Monomer> bottomMap = bottom.get(key);
+			if (null == topMap || topMap.isEmpty()) {
+				return (null == bottomMap) ? topMap : Collections
+						.unmodifiableMap(bottomMap);
+			}
+			return new UnionMap<Monomer>(topMap, bottomMap);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return top.containsKey(key) || bottom.containsKey(key);
+		}
+
+		@Override
+		public Set<Map.Entry<String, Map<String, Monomer>>> entrySet() {
+			return new AbstractSet<Map.Entry<String, Map<String, Monomer>>>() {
+				@Override
+				public Iterator<Map.Entry<String, Map<String, Monomer>>> iterator() {
+					List<Map.Entry<String, Map<String, Monomer>>> entries = new ArrayList<Map.Entry<String, Map<String, Monomer>>>();
+					for (String polymerType : polymerTypes()) {
+						entries.add(new SimpleImmutableEntry<String, Map<String, Monomer>>(
+								polymerType, get(polymerType)));
+					}
+					return Collections.unmodifiableList(entries).iterator();
+				}
+
+				@Override
+				public int size() {
+					return polymerTypes().size();
+				}
+			};
+		}
+
+		private Set<String> polymerTypes() {
+			Set<String> polymerTypes = new HashSet<String>(bottom.keySet());
+			polymerTypes.addAll(top.keySet());
+			return polymerTypes;
+		}
+	}
+}
@@ -21,7 +21,12 @@
  ******************************************************************************/
 package org.helm.notation.model;
 
+import chemaxon.marvin.plugin.PluginException;
+import org.helm.notation.tools.StructureParser;
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * This is a data model for Attachment point on monomer
@@ -41,6 +46,10 @@ public class Attachment implements Serializable {
 
 	public static final String PAIR_ATTACHMENT = "pair";
 
+	// MoleculeInfo of the cap groups by cap group SMILES, only a handful of
+	// distinct cap groups exist
+	private static final ConcurrentMap<String, MoleculeInfo> capMoleculeInfoTable = new ConcurrentHashMap<String, MoleculeInfo>();
+
 	// surrogate database ID, users may never see it
 	private int id;
 
@@ -113,6 +122,33 @@ public class Attachment implements Serializable {
 		this.capGroupSMILES = capGroupSMILES;
 	}
 
+	/**
+	 * returns formula, average mass and exact mass of the cap group. They are
+	 * computed once per cap group SMILES, either when the attachment database
+	 * is loaded or on first use.
+	 * 
+	 * @return copy of the MoleculeInfo for the cap group, null if there is no
+	 *         cap group SMILES
+	 * @throws IOException
+	 * @throws PluginException
+	 */
+	public MoleculeInfo getCapMoleculeInfo() throws IOException,
+			PluginException {
+		if (null == capGroupSMILES) {
+			return null;
+		}
+		MoleculeInfo mi = capMoleculeInfoTable.get(capGroupSMILES);
+		if (null == mi) {
+			mi = StructureParser.getMoleculeInfo(capGroupSMILES);
+			MoleculeInfo existing = capMoleculeInfoTable.putIfAbsent(
+					capGroupSMILES, mi);
+			if (null != existing) {
+				mi = existing;
+			}
+		}
+		return new MoleculeInfo(mi);
+	}
+
 	// public boolean isConnected() {
 	// return connected;
 	// }
@@ -21,6 +21,8 @@
  ******************************************************************************/
 package org.helm.notation.model;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -75,4 +77,54 @@ public class ComplexPolymer {
 			Map<String, String> polymerNodeAnnotationMap) {
 		this.polymerNodeAnnotationMap = polymerNodeAnnotationMap;
 	}
+
+	/**
+	 * returns a copy of this complex polymer with copies of its nodes, edges
+	 * and annotations, so that the copy can be canonicalized without changing
+	 * this complex polymer
+	 * 
+	 * @return ComplexPolymer
+	 */
+	public ComplexPolymer copy() {
+		ComplexPolymer cp = new ComplexPolymer();
+		if (null != polymerNodeList) {
+			List<PolymerNode> nodes = new ArrayList<PolymerNode>(
+					polymerNodeList.size());
+			for (PolymerNode node : polymerNodeList) {
+				PolymerNode copy = new PolymerNode();
+				copy.setId(node.getId());
+				copy.setLabel(node.getLabel());
+				copy.setAnotation(node.getAnotation());
+				nodes.add(copy);
+			}
+			cp.setPolymerNodeList(nodes);
+		}
+		cp.setPolymerEdgeList(copyEdges(polymerEdgeList));
+		cp.setBasePairList(copyEdges(basePairList));
+		if (null != polymerNodeAnnotationMap) {
+			cp.setPolymerNodeAnnotationMap(new HashMap<String, String>(
+					polymerNodeAnnotationMap));
+		}
+		return cp;
+	}
+
+	private static List<PolymerEdge> copyEdges(List<PolymerEdge> edgeList) {
+		if (null == edgeList) {
+			return null;
+		}
+
+		List<PolymerEdge> edges = new ArrayList<PolymerEdge>(edgeList.size());
+		for (PolymerEdge edge : edgeList) {
+			PolymerEdge copy = new PolymerEdge();
+			copy.setEdgeNotation(edge.getEdgeNotation());
+			copy.setSourceNode(edge.getSourceNode());
+			copy.setTargetNode(edge.getTargetNode());
+			copy.setConnection(edge.getConnection());
+			copy.setEdgeType(edge.getEdgeType());
+			copy.setSourceAttachmentType(edge.getSourceAttachmentType());
+			copy.setTargetAttachmentType(edge.getTargetAttachmentType());
+			edges.add(copy);
+		}
+		return edges;
+	}
 }
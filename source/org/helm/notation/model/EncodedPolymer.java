@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright C 2012, The Pistoia Alliance
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package org.helm.notation.model;
+
+import org.helm.notation.MonomerDictionary;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * This class represents a simple polymer as the MonomerDictionary codes of its
+ * monomers in notation order, with a bitmap of the branch monomers (the bases
+ * of RNA). Codes refer to the store version the polymer was encoded with.
+ */
+public class EncodedPolymer {
+
+	private final String polymerType;
+	private final int[] codes;
+	private final BitSet branches;
+	private final MonomerDictionary dictionary;
+	private final long version;
+
+	/**
+	 * Constructs an encoded polymer, the arrays are not copied
+	 * 
+	 * @param polymerType
+	 * @param codes
+	 *            monomer codes in notation order
+	 * @param branches
+	 *            bitmap of branch monomer positions
+	 * @param dictionary
+	 *            dictionary the codes were assigned by
+	 * @param version
+	 *            store version of the codes
+	 */
+	public EncodedPolymer(String polymerType, int[] codes, BitSet branches,
+			MonomerDictionary dictionary, long version) {
+		this.polymerType = polymerType;
+		this.codes = codes;
+		this.branches = branches;
+		this.dictionary = dictionary;
+		this.version = version;
+	}
+
+	public String getPolymerType() {
+		return polymerType;
+	}
+
+	public MonomerDictionary getDictionary() {
+		return dictionary;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * returns the number of monomers
+	 * 
+	 * @return monomer count
+	 */
+	public int getMonomerCount() {
+		return codes.length;
+	}
+
+	/**
+	 * returns the monomer codes in notation order, the array must not be
+	 * modified
+	 * 
+	 * @return codes
+	 */
+	public int[] getCodes() {
+		return codes;
+	}
+
+	/**
+	 * returns the code of the monomer at a position
+	 * 
+	 * @param position
+	 * @return code
+	 */
+	public int getCode(int position) {
+		return codes[position];
+	}
+
+	/**
+	 * returns the bitmap of branch monomer positions, it must not be modified
+	 * 
+	 * @return branches
+	 */
+	public BitSet getBranches() {
+		return branches;
+	}
+
+	/**
+	 * Checks if the monomer at a position is a branch monomer
+	 * 
+	 * @param position
+	 * @return true for branch monomers
+	 */
+	public boolean isBranch(int position) {
+		return branches.get(position);
+	}
+
+	/**
+	 * returns the monomer at a position
+	 * 
+	 * @param position
+	 * @return Monomer
+	 * @throws IllegalStateException
+	 *             if the monomer store changed since the polymer was encoded
+	 */
+	public Monomer getMonomer(int position) {
+		checkVersion();
+		return dictionary.getMonomer(polymerType, codes[position]);
+	}
+
+	/**
+	 * returns the ID of the monomer at a position
+	 * 
+	 * @param position
+	 * @return monomer ID
+	 */
+	public String getMonomerID(int position) {
+		return getMonomer(position).getAlternateId();
+	}
+
+	/**
+	 * returns the monomer IDs in notation order
+	 * 
+	 * @return list of monomer IDs
+	 */
+	public List<String> getMonomerIDList() {
+		List<String> ids = new ArrayList<String>(codes.length);
+		for (int i = 0; i < codes.length; i++) {
+			ids.add(getMonomerID(i));
+		}
+		return ids;
+	}
+
+	/**
+	 * returns how often each monomer occurs, indexed by code
+	 * 
+	 * @return counts with one entry per code of the polymer type
+	 */
+	public int[] getComposition() {
+		checkVersion();
+		int[] counts = new int[dictionary.size(polymerType)];
+		for (int code : codes) {
+			counts[code]++;
+		}
+		return counts;
+	}
+
+	private void checkVersion() {
+		if (dictionary.getVersion() != version) {
+			throw new IllegalStateException(
+					"Monomer store changed since the polymer was encoded");
+		}
+	}
+}
@@ -30,6 +30,20 @@ public class MoleculeInfo {
 	private String molecularFormula;
 	private double exactMass;
 
+	public MoleculeInfo() {
+	}
+
+	/**
+	 * copy constructor
+	 * 
+	 * @param mi
+	 */
+	public MoleculeInfo(MoleculeInfo mi) {
+		this.molecularWeight = mi.molecularWeight;
+		this.molecularFormula = mi.molecularFormula;
+		this.exactMass = mi.exactMass;
+	}
+
 	public double getMolecularWeight() {
 		return molecularWeight;
 	}
@@ -24,12 +24,18 @@ package org.helm.notation.model;
 import chemaxon.marvin.plugin.PluginException;
 import chemaxon.struc.MolAtom;
 import chemaxon.struc.Molecule;
+import org.helm.notation.MonomerException;
+import org.helm.notation.tools.MolfileEncoder;
 import org.helm.notation.tools.StructureParser;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * This is a data model for Monomer. alternateId is used in polymer notation.
@@ -58,7 +64,8 @@ public class Monomer implements Serializable {
 	private String naturalAnalog; // the long name of the monomer
 	private String name; // canonical SMILES that represents the monomer
 	private String canSMILES;
-	private String molfile; // monomer type, Backone, Branch, UnDefined
+	private String molfile; // gzip/base64 encoded molfile, decoded on demand
+	private String encodedMolfile; // monomer type, Backone, Branch, UnDefined
 	private String monomerType; // polymer type, NucleicAcid, Peptide,
 								// ChemicalStructure
 	private String polymerType; // list of attachments in the monomer
@@ -96,6 +103,17 @@ public class Monomer implements Serializable {
 	public static final String ID_VAL = "Val";
 	public static final String ID_CHEMICAL_STRUCTURE = "chemical structure";
 
+	// maximum number of decoded molfiles kept in memory
+	public static final int DECODED_MOLFILE_CACHE_SIZE = 512;
+
+	private static final Map<String, String> decodedMolfileCache = new LinkedHashMap<String, String>(
+			64, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+			return size() > DECODED_MOLFILE_CACHE_SIZE;
+		}
+	};
+
 	/**
 	 * constructor
 	 */
@@ -192,12 +210,98 @@ public class Monomer implements Serializable {
 		this.attachmentList = attachmentList;
 	}
 
+	/**
+	 * returns the molfile, an encoded molfile is decoded on first use through
+	 * a bounded cache shared by all monomers
+	 * 
+	 * @return molfile or null, also if the encoded molfile can not be decoded
+	 */
 	public String getMolfile() {
+		if (null == molfile && null != encodedMolfile) {
+			try {
+				return decodeMolfile(encodedMolfile);
+			} catch (MonomerException ex) {
+				Logger.getLogger(Monomer.class.getName()).log(Level.WARNING,
+						ex.getMessage() + ": " + alternateId, ex);
+				return null;
+			}
+		}
+		return molfile;
+	}
+
+	/**
+	 * returns the molfile like {@link #getMolfile()}, but reports an encoded
+	 * molfile that can not be decoded
+	 * 
+	 * @return molfile or null if the monomer has no molfile
+	 * @throws MonomerException
+	 *             if the encoded molfile is invalid
+	 */
+	public String getValidMolfile() throws MonomerException {
+		if (null == molfile && null != encodedMolfile) {
+			return decodeMolfile(encodedMolfile);
+		}
 		return molfile;
 	}
 
 	public void setMolfile(String molfile) {
 		this.molfile = molfile;
+		this.encodedMolfile = null;
+	}
+
+	/**
+	 * returns the encoded molfile as stored in the monomer database, or null
+	 * if the molfile was set in decoded form
+	 * 
+	 * @return encoded molfile or null
+	 */
+	public String getEncodedMolfile() {
+		return encodedMolfile;
+	}
+
+	/**
+	 * sets the molfile in its encoded form, decoding is deferred until
+	 * {@link #getMolfile()} is called
+	 * 
+	 * @param encodedMolfile
+	 */
+	public void setEncodedMolfile(String encodedMolfile) {
+		this.encodedMolfile = encodedMolfile;
+		this.molfile = null;
+	}
+
+	/**
+	 * checks for a molfile without decoding it
+	 * 
+	 * @return true if the monomer has a molfile in either form
+	 */
+	public boolean hasMolfile() {
+		return (null != molfile || null != encodedMolfile);
+	}
+
+	private static String decodeMolfile(String encodedMolfile)
+			throws MonomerException {
+		synchronized (decodedMolfileCache) {
+			String decoded = decodedMolfileCache.get(encodedMolfile);
+			if (null != decoded) {
+				return decoded;
+			}
+		}
+
+		String decoded = null;
+		try {
+			decoded = MolfileEncoder.decode(encodedMolfile);
+		} catch (Exception ex) {
+			throw new MonomerException("Invalid monomer molfile", ex);
+		}
+		if (null == decoded) {
+			throw new MonomerException("Invalid monomer molfile");
+		}
+
+		synchronized (decodedMolfileCache) {
+			decodedMolfileCache.put(encodedMolfile, decoded);
+		}
+		return decoded;
 	}
 
 	/**
@@ -230,8 +334,7 @@ public class Monomer implements Serializable {
 			PluginException {
 		for (Attachment attachment : attachmentList) {
 			if (attachment.getLabel().equalsIgnoreCase(label)) {
-				String capSmi = attachment.getCapGroupSMILES();
-				return StructureParser.getMoleculeInfo(capSmi);
+				return attachment.getCapMoleculeInfo();
 			}
 		}
 		return null;
@@ -348,7 +451,7 @@ public class Monomer implements Serializable {
 		boolean containsA = false;
 		String smiles = getCanSMILES();
 		if (null != smiles && smiles.length() > 0) {
-			Molecule mol = StructureParser.getMolecule(smiles);
+			Molecule mol = StructureParser.getMolecule(smiles, false);
 			MolAtom[] atoms = mol.getAtomArray();
 			for (MolAtom atom : atoms) {
 				String symbol = atom.getSymbol();
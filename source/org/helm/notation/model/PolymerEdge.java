@@ -31,6 +31,10 @@ package org.helm.notation.model;
  * generic:C114+C288 For generic edge, source node and/or target node could be
  * groups of polymer nodes as PEPTIDE1+PEPTIDE2
  * 
+ * The connection is parsed once when it is set; monomer positions and R group
+ * numbers are kept as int fields, and the connection string is only rendered
+ * again after one of its attachments has been changed.
+ * 
  * @author zhangtianhong
  */
 public class PolymerEdge {
@@ -56,7 +60,9 @@ public class PolymerEdge {
 	private String edgeNotation; // RNA1, CHEM2, 5:R2-1:R3
 	private String sourceNode; // RNA1
 	private String targetNode; // RNA2
-	private String connection; // 1:R2-34:R1
+	private String connection; // 1:R2-34:R1, null after attachment changes
+	private ConnectionEnd source; // 1:R2
+	private ConnectionEnd target; // 34:R1
 	private int edgeType;
 	private int sourceAttachmentType;
 	private int targetAttachmentType;
@@ -74,10 +80,7 @@ public class PolymerEdge {
 	}
 
 	public String[] getSourceNodes() {
-		if (null != sourceNode) {
-			return sourceNode.split(NODE_CONCATENATOR_REGEX, -1);
-		}
-		return new String[0];
+		return splitNodes(sourceNode);
 	}
 
 	public void setSourceNode(String sourceNode) {
@@ -89,22 +92,61 @@ public class PolymerEdge {
 	}
 
 	public String[] getTargetNodes() {
-		if (null != targetNode) {
-			return targetNode.split(NODE_CONCATENATOR_REGEX, -1);
-		}
-		return new String[0];
+		return splitNodes(targetNode);
 	}
 
 	public void setTargetNode(String targetNode) {
 		this.targetNode = targetNode;
 	}
 
+	private static String[] splitNodes(String node) {
+		if (null == node) {
+			return new String[0];
+		}
+		if (node.indexOf(NODE_CONCATENATOR) < 0) {
+			return new String[] { node };
+		}
+		return node.split(NODE_CONCATENATOR_REGEX, -1);
+	}
+
 	public String getConnection() {
+		if (null == connection && null != source) {
+			connection = source.text + CONNECTION_SEPARATOR
+					+ (null == target ? null : target.text);
+		}
 		return connection;
 	}
 
+	/**
+	 * sets and parses the connection, source and target connection are
+	 * separated by the first dash as String.split would separate them
+	 * 
+	 * @param connection
+	 */
 	public void setConnection(String connection) {
 		this.connection = connection;
+		source = null;
+		target = null;
+		if (null == connection) {
+			return;
+		}
+
+		// trailing empty parts are dropped as by String.split
+		int end = connection.length();
+		while (end > 0 && connection.charAt(end - 1) == '-') {
+			end--;
+		}
+		int separatorPos = connection.indexOf('-');
+		if (separatorPos < 0 || separatorPos >= end) {
+			source = new ConnectionEnd(connection.substring(0, end));
+		} else {
+			source = new ConnectionEnd(connection.substring(0, separatorPos));
+			if (connection.indexOf('-', separatorPos + 1) < 0
+					|| connection.indexOf('-', separatorPos + 1) >= end) {
+				target = new ConnectionEnd(connection.substring(
+						separatorPos + 1, end));
+			}
+		}
 	}
 
 	public int getEdgeType() {
@@ -132,25 +174,11 @@ public class PolymerEdge {
 	}
 
 	public String getSourceConnection() {
-		if (null == getConnection()) {
-			return null;
-		}
-
-		String[] conTokens = getConnection().split(CONNECTION_SEPARATOR);
-		return conTokens[0];
+		return (null == source) ? null : source.text;
 	}
 
 	public String getTargetConnection() {
-		if (null == getConnection()) {
-			return null;
-		}
-
-		String[] tokens = getConnection().split(CONNECTION_SEPARATOR);
-		if (tokens.length == 2) {
-			return tokens[1];
-		} else {
-			return null;
-		}
+		return (null == target) ? null : target.text;
 	}
 
 	public String getReverseConnection() {
@@ -181,114 +209,94 @@ public class PolymerEdge {
 	}
 
 	public String getSourceR() {
-		if (null == getSourceConnection()) {
-			return null;
+		if (null != source
+				&& getSourceAttachmentType() == STANDARD_EDGE_ATTACHMENT) {
+			return source.label;
 		}
 
-		if (getSourceAttachmentType() == STANDARD_EDGE_ATTACHMENT) {
-			String[] tokens = getSourceConnection().split(
-					MONOMER_ATTACHEMENT_SEPARATOR);
-			return tokens[1];
+		return null;
+	}
+
+	/**
+	 * returns the R group number of a standard source attachment
+	 * 
+	 * @return number of the R group, 3 for R3, or 0
+	 */
+	public int getSourceRNumber() {
+		if (null != source
+				&& getSourceAttachmentType() == STANDARD_EDGE_ATTACHMENT) {
+			return source.rNumber;
 		}
 
-		return null;
+		return 0;
 	}
 
 	public void setSourceR(String sourceR) {
-		String srcCon = getSourceConnection();
-		String tarCon = getTargetConnection();
-
-		if (null != srcCon) {
-			String[] tokens = srcCon.split(MONOMER_ATTACHEMENT_SEPARATOR);
-			if (tokens.length == 2) {
-				String newCon = tokens[0] + MONOMER_ATTACHEMENT_SEPARATOR
-						+ sourceR;
-				setConnection(newCon + CONNECTION_SEPARATOR + tarCon);
-			}
+		if (null != source && source.hasTwoParts) {
+			source = new ConnectionEnd(source.position, sourceR);
+			connection = null;
 		}
 	}
 
 	public String getTargetR() {
-		if (null == getTargetConnection()) {
-			return null;
+		if (null != target
+				&& getTargetAttachmentType() == STANDARD_EDGE_ATTACHMENT) {
+			return target.label;
 		}
 
-		if (getTargetAttachmentType() == STANDARD_EDGE_ATTACHMENT) {
-			String[] tokens = getTargetConnection().split(
-					MONOMER_ATTACHEMENT_SEPARATOR);
-			return tokens[1];
+		return null;
+	}
+
+	/**
+	 * returns the R group number of a standard target attachment
+	 * 
+	 * @return number of the R group, 3 for R3, or 0
+	 */
+	public int getTargetRNumber() {
+		if (null != target
+				&& getTargetAttachmentType() == STANDARD_EDGE_ATTACHMENT) {
+			return target.rNumber;
 		}
 
-		return null;
+		return 0;
 	}
 
 	public void setTargetR(String targetR) {
-		String srcCon = getSourceConnection();
-		String tarCon = getTargetConnection();
-
-		if (null != tarCon) {
-			String[] tokens = tarCon.split(MONOMER_ATTACHEMENT_SEPARATOR);
-			if (tokens.length == 2) {
-				String newCon = tokens[0] + MONOMER_ATTACHEMENT_SEPARATOR
-						+ targetR;
-				setConnection(srcCon + CONNECTION_SEPARATOR + newCon);
-			}
+		if (null != target && target.hasTwoParts) {
+			target = new ConnectionEnd(target.position, targetR);
+			connection = null;
 		}
 	}
 
 	public int getSourceMonomerNumber() {
-		if (null == getSourceConnection()) {
-			return 0;
-		}
-
-		if (getSourceAttachmentType() == STANDARD_EDGE_ATTACHMENT) {
-			String[] tokens = getSourceConnection().split(
-					MONOMER_ATTACHEMENT_SEPARATOR);
-			return Integer.parseInt(tokens[0]);
+		if (null != source
+				&& getSourceAttachmentType() == STANDARD_EDGE_ATTACHMENT) {
+			return source.monomerNumber;
 		}
 
 		return 0;
 	}
 
 	public int getTargetMonomerNumber() {
-		if (null == getTargetConnection()) {
-			return 0;
-		}
-
-		if (getTargetAttachmentType() == STANDARD_EDGE_ATTACHMENT) {
-			String[] tokens = getTargetConnection().split(
-					MONOMER_ATTACHEMENT_SEPARATOR);
-			return Integer.parseInt(tokens[0]);
+		if (null != target
+				&& getTargetAttachmentType() == STANDARD_EDGE_ATTACHMENT) {
+			return target.monomerNumber;
 		}
 
 		return 0;
 	}
 
 	public void setSourceMonomerNumber(int num) {
-		String srcCon = getSourceConnection();
-		String tarCon = getTargetConnection();
-
-		if (null != srcCon) {
-			String[] tokens = srcCon.split(MONOMER_ATTACHEMENT_SEPARATOR);
-			if (tokens.length == 2) {
-				String newCon = "" + num + MONOMER_ATTACHEMENT_SEPARATOR
-						+ tokens[1];
-				setConnection(newCon + CONNECTION_SEPARATOR + tarCon);
-			}
+		if (null != source && source.hasTwoParts) {
+			source = new ConnectionEnd(String.valueOf(num), source.label);
+			connection = null;
 		}
 	}
 
 	public void setTargetMonomerNumber(int num) {
-		String srcCon = getSourceConnection();
-		String tarCon = getTargetConnection();
-
-		if (null != tarCon) {
-			String[] tokens = tarCon.split(MONOMER_ATTACHEMENT_SEPARATOR);
-			if (tokens.length == 2) {
-				String newCon = "" + num + MONOMER_ATTACHEMENT_SEPARATOR
-						+ tokens[1];
-				setConnection(srcCon + CONNECTION_SEPARATOR + newCon);
-			}
+		if (null != target && target.hasTwoParts) {
+			target = new ConnectionEnd(String.valueOf(num), target.label);
+			connection = null;
 		}
 	}
 
@@ -300,30 +308,106 @@ public class PolymerEdge {
 		return false;
 	}
 
+	/**
+	 * Checks if the edge connects R1 and R2 of the same polymer node
+	 * 
+	 * @return true for backbone cycles
+	 */
 	public boolean isBackboneSelfCycle() {
-		if (isSelfCycle()) {
-			if (null != getConnection() && getConnection().contains("R1")
-					&& getConnection().contains("R2")) {
-				return true;
-			}
+		if (isSelfCycle() && null != source && null != target) {
+			return (source.rNumber == 1 && target.rNumber == 2)
+					|| (source.rNumber == 2 && target.rNumber == 1);
 		}
 
 		return false;
 	}
 
 	public String getSourceGenericDescriptor() {
-		String sourceConnection = getSourceConnection();
 		if (getSourceAttachmentType() == GENERIC_EDGE_ATTACHMENT) {
-			return sourceConnection.split(MONOMER_ATTACHEMENT_SEPARATOR)[1];
+			return source.label;
 		}
 		return null;
 	}
 
 	public String getTargetGenericDescriptor() {
-		String targetConnection = getTargetConnection();
 		if (getTargetAttachmentType() == GENERIC_EDGE_ATTACHMENT) {
-			return targetConnection.split(MONOMER_ATTACHEMENT_SEPARATOR)[1];
+			return target.label;
 		}
 		return null;
 	}
+
+	/**
+	 * one side of a connection, position and label are separated by colon:
+	 * 5:R3, 5:pair or generic:C114+C288
+	 */
+	private static final class ConnectionEnd {
+
+		final String text;
+		final String position;
+		final String label;
+		final boolean hasTwoParts;
+		final int monomerNumber;
+		final int rNumber;
+
+		ConnectionEnd(String text) {
+			this.text = text;
+
+			// trailing empty parts are dropped as by String.split
+			int end = text.length();
+			while (end > 0 && text.charAt(end - 1) == ':') {
+				end--;
+			}
+			int separatorPos = text.indexOf(':');
+			if (separatorPos < 0 || separatorPos >= end) {
+				position = text.substring(0, end);
+				label = null;
+				hasTwoParts = false;
+			} else {
+				position = text.substring(0, separatorPos);
+				int labelEnd = text.indexOf(':', separatorPos + 1);
+				if (labelEnd < 0 || labelEnd >= end) {
+					labelEnd = end;
+					hasTwoParts = true;
+				} else {
+					hasTwoParts = false;
+				}
+				label = text.substring(separatorPos + 1, labelEnd);
+			}
+			monomerNumber = parseNumber(position, 0);
+			rNumber = (null != label && label.startsWith("R")) ? parseNumber(
+					label, 1) : 0;
+		}
+
+		ConnectionEnd(String position, String label) {
+			this.text = position + MONOMER_ATTACHEMENT_SEPARATOR + label;
+			this.position = position;
+			this.label = label;
+			this.hasTwoParts = true;
+			this.monomerNumber = parseNumber(position, 0);
+			this.rNumber = (null != label && label.startsWith("R")) ? parseNumber(
+					label, 1) : 0;
+		}
+
+		/**
+		 * parses the decimal digits of a string from start on
+		 * 
+		 * @return number or 0 if there are no digits, other characters or too
+		 *         many digits
+		 */
+		private static int parseNumber(String s, int start) {
+			int length = s.length();
+			if (start >= length || length - start > 9) {
+				return 0;
+			}
+			int number = 0;
+			for (int i = start; i < length; i++) {
+				char c = s.charAt(i);
+				if (c < '0' || c > '9') {
+					return 0;
+				}
+				number = number * 10 + (c - '0');
+			}
+			return number;
+		}
+	}
 }
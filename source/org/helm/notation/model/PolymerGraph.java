@@ -0,0 +1,445 @@
+/*******************************************************************************
+ * Copyright C 2012, The Pistoia Alliance
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package org.helm.notation.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class is an indexed view of the polymer nodes and covalent edges of a
+ * complex polymer. Nodes are numbered in list order, followed by IDs that
+ * only occur in edges (such as generic node groups PEPTIDE1+PEPTIDE2); edges
+ * keep their list order. The graph has node ID lookup, per node edge lists
+ * and connected components, and does not follow later changes of node IDs or
+ * of the lists.
+ * 
+ * Components are found by union-find. Components with edges are ordered by
+ * their first edge, followed by the unconnected nodes in list order. The nodes
+ * of a component are in the order they join it, the nodes of an earlier
+ * started component before those of a later one when two components are
+ * joined.
+ */
+public class PolymerGraph {
+
+	/** index returned for unknown node IDs */
+	public static final int NO_INDEX = -1;
+
+	private final List<PolymerNode> nodeList;
+	private final List<PolymerEdge> edgeList;
+	private final List<String> nodeIds = new ArrayList<String>();
+	private final Map<String, Integer> nodeIndexMap = new HashMap<String, Integer>();
+
+	private final int[] sourceIndices;
+	private final int[] targetIndices;
+	private int[][] nodeEdges;
+
+	private int[] componentOfNode;
+	private int[][] componentNodes;
+	private int[][] componentEdges;
+
+	/**
+	 * Constructs the graph of the nodes and covalent edges of a complex polymer
+	 * 
+	 * @param complexPolymer
+	 */
+	public PolymerGraph(ComplexPolymer complexPolymer) {
+		this(complexPolymer.getPolymerNodeList(), complexPolymer
+				.getPolymerEdgeList());
+	}
+
+	/**
+	 * Constructs the graph of a node list and an edge list, either list may be
+	 * null
+	 * 
+	 * @param nodeList
+	 * @param edgeList
+	 */
+	public PolymerGraph(List<PolymerNode> nodeList, List<PolymerEdge> edgeList) {
+		this.nodeList = (null == nodeList) ? new ArrayList<PolymerNode>()
+				: nodeList;
+		this.edgeList = (null == edgeList) ? new ArrayList<PolymerEdge>()
+				: edgeList;
+
+		for (int i = 0; i < this.nodeList.size(); i++) {
+			String id = this.nodeList.get(i).getId();
+			nodeIds.add(id);
+			// the first node of an ID is found, as by a linear search
+			if (!nodeIndexMap.containsKey(id)) {
+				nodeIndexMap.put(id, i);
+			}
+		}
+
+		int edgeCount = this.edgeList.size();
+		sourceIndices = new int[edgeCount];
+		targetIndices = new int[edgeCount];
+		for (int i = 0; i < edgeCount; i++) {
+			PolymerEdge edge = this.edgeList.get(i);
+			sourceIndices[i] = getOrAddNodeIndex(edge.getSourceNode());
+			targetIndices[i] = getOrAddNodeIndex(edge.getTargetNode());
+		}
+
+		buildNodeEdges();
+		buildComponents();
+	}
+
+	private int getOrAddNodeIndex(String id) {
+		Integer index = nodeIndexMap.get(id);
+		if (null == index) {
+			index = nodeIds.size();
+			nodeIds.add(id);
+			nodeIndexMap.put(id, index);
+		}
+		return index;
+	}
+
+	private void buildNodeEdges() {
+		int nodeCount = nodeIds.size();
+		int[] degrees = new int[nodeCount];
+		for (int i = 0; i < sourceIndices.length; i++) {
+			degrees[sourceIndices[i]]++;
+			if (targetIndices[i] != sourceIndices[i]) {
+				degrees[targetIndices[i]]++;
+			}
+		}
+
+		nodeEdges = new int[nodeCount][];
+		for (int i = 0; i < nodeCount; i++) {
+			nodeEdges[i] = new int[degrees[i]];
+			degrees[i] = 0;
+		}
+		for (int i = 0; i < sourceIndices.length; i++) {
+			int source = sourceIndices[i];
+			nodeEdges[source][degrees[source]++] = i;
+			int target = targetIndices[i];
+			if (target != source) {
+				nodeEdges[target][degrees[target]++] = i;
+			}
+		}
+	}
+
+	private void buildComponents() {
+		int nodeCount = nodeIds.size();
+		int[] parents = new int[nodeCount];
+		int[] starts = new int[nodeCount];
+		int[] heads = new int[nodeCount];
+		int[] tails = new int[nodeCount];
+		int[] next = new int[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			parents[i] = NO_INDEX;
+			next[i] = NO_INDEX;
+		}
+
+		// connected nodes, members of a component are kept as linked list
+		// at the root so that joining keeps the order in constant time
+		int startCount = 0;
+		for (int i = 0; i < sourceIndices.length; i++) {
+			int source = sourceIndices[i];
+			int target = targetIndices[i];
+			if (parents[source] == NO_INDEX && parents[target] == NO_INDEX) {
+				startComponent(source, startCount++, parents, starts, heads,
+						tails);
+				if (target != source) {
+					append(source, target, parents, tails, next);
+				}
+			} else if (parents[target] == NO_INDEX) {
+				append(find(source, parents), target, parents, tails, next);
+			} else if (parents[source] == NO_INDEX) {
+				append(find(target, parents), source, parents, tails, next);
+			} else {
+				int sourceRoot = find(source, parents);
+				int targetRoot = find(target, parents);
+				if (sourceRoot != targetRoot) {
+					int first = (starts[sourceRoot] < starts[targetRoot]) ? sourceRoot
+							: targetRoot;
+					int second = (first == sourceRoot) ? targetRoot
+							: sourceRoot;
+					next[tails[first]] = heads[second];
+					tails[first] = tails[second];
+					parents[second] = first;
+				}
+			}
+		}
+
+		// unconnected nodes of the list, a repeated ID belongs to the
+		// component of its first node
+		for (int i = 0; i < nodeList.size(); i++) {
+			if (parents[i] == NO_INDEX && getNodeIndex(nodeIds.get(i)) == i) {
+				startComponent(i, startCount++, parents, starts, heads, tails);
+			}
+		}
+
+		// number components in start order, joined components keep the
+		// start of the earlier one
+		int[] rootOfStart = new int[startCount];
+		for (int i = 0; i < startCount; i++) {
+			rootOfStart[i] = NO_INDEX;
+		}
+		int componentCount = 0;
+		for (int i = 0; i < nodeCount; i++) {
+			if (parents[i] == i) {
+				rootOfStart[starts[i]] = i;
+				componentCount++;
+			}
+		}
+
+		componentOfNode = new int[nodeCount];
+		componentNodes = new int[componentCount][];
+		int component = 0;
+		for (int i = 0; i < startCount; i++) {
+			int root = rootOfStart[i];
+			if (root == NO_INDEX) {
+				continue;
+			}
+			int size = 0;
+			for (int n = heads[root]; n != NO_INDEX; n = next[n]) {
+				size++;
+			}
+			int[] members = new int[size];
+			size = 0;
+			for (int n = heads[root]; n != NO_INDEX; n = next[n]) {
+				members[size++] = n;
+				componentOfNode[n] = component;
+			}
+			componentNodes[component++] = members;
+		}
+
+		for (int i = 0; i < nodeList.size(); i++) {
+			if (parents[i] == NO_INDEX) {
+				componentOfNode[i] = componentOfNode[getNodeIndex(nodeIds.get(i))];
+			}
+		}
+
+		int[] edgeCounts = new int[componentCount];
+		for (int i = 0; i < sourceIndices.length; i++) {
+			edgeCounts[componentOfNode[sourceIndices[i]]]++;
+		}
+		componentEdges = new int[componentCount][];
+		for (int c = 0; c < componentCount; c++) {
+			componentEdges[c] = new int[edgeCounts[c]];
+			edgeCounts[c] = 0;
+		}
+		for (int i = 0; i < sourceIndices.length; i++) {
+			int c = componentOfNode[sourceIndices[i]];
+			componentEdges[c][edgeCounts[c]++] = i;
+		}
+	}
+
+	private static void startComponent(int node, int start, int[] parents,
+			int[] starts, int[] heads, int[] tails) {
+		parents[node] = node;
+		starts[node] = start;
+		heads[node] = node;
+		tails[node] = node;
+	}
+
+	private static void append(int root, int node, int[] parents, int[] tails,
+			int[] next) {
+		parents[node] = root;
+		next[tails[root]] = node;
+		tails[root] = node;
+	}
+
+	private static int find(int node, int[] parents) {
+		int root = node;
+		while (parents[root] != root) {
+			root = parents[root];
+		}
+		while (parents[node] != root) {
+			int parent = parents[node];
+			parents[node] = root;
+			node = parent;
+		}
+		return root;
+	}
+
+	/**
+	 * returns the number of indexed nodes, list nodes and IDs that only occur
+	 * in edges
+	 * 
+	 * @return node count
+	 */
+	public int getNodeCount() {
+		return nodeIds.size();
+	}
+
+	/**
+	 * returns the index of a node ID
+	 * 
+	 * @param nodeId
+	 * @return index or NO_INDEX
+	 */
+	public int getNodeIndex(String nodeId) {
+		Integer index = nodeIndexMap.get(nodeId);
+		return (null == index) ? NO_INDEX : index;
+	}
+
+	/**
+	 * returns the ID of a node
+	 * 
+	 * @param index
+	 * @return node ID
+	 */
+	public String getNodeId(int index) {
+		return nodeIds.get(index);
+	}
+
+	/**
+	 * returns the polymer node of an index
+	 * 
+	 * @param index
+	 * @return PolymerNode or null for IDs that only occur in edges
+	 */
+	public PolymerNode getNode(int index) {
+		return (index < nodeList.size()) ? nodeList.get(index) : null;
+	}
+
+	/**
+	 * returns the first polymer node with the given ID
+	 * 
+	 * @param nodeId
+	 * @return PolymerNode or null
+	 */
+	public PolymerNode getNode(String nodeId) {
+		int index = getNodeIndex(nodeId);
+		return (index == NO_INDEX) ? null : getNode(index);
+	}
+
+	/**
+	 * returns the number of edges
+	 * 
+	 * @return edge count
+	 */
+	public int getEdgeCount() {
+		return sourceIndices.length;
+	}
+
+	public PolymerEdge getEdge(int index) {
+		return edgeList.get(index);
+	}
+
+	/**
+	 * returns the source node index of an edge
+	 * 
+	 * @param edge
+	 *            edge index
+	 * @return node index
+	 */
+	public int getSourceIndex(int edge) {
+		return sourceIndices[edge];
+	}
+
+	/**
+	 * returns the target node index of an edge
+	 * 
+	 * @param edge
+	 *            edge index
+	 * @return node index
+	 */
+	public int getTargetIndex(int edge) {
+		return targetIndices[edge];
+	}
+
+	/**
+	 * returns the indices of the edges of a node in list order, a self
+	 * connection is listed once; the array must not be modified
+	 * 
+	 * @param node
+	 *            node index
+	 * @return edge indices
+	 */
+	public int[] getNodeEdges(int node) {
+		return nodeEdges[node];
+	}
+
+	/**
+	 * returns the number of connected components
+	 * 
+	 * @return component count
+	 */
+	public int getComponentCount() {
+		return componentNodes.length;
+	}
+
+	/**
+	 * returns the component of a node
+	 * 
+	 * @param node
+	 *            node index
+	 * @return component index
+	 */
+	public int getComponent(int node) {
+		return componentOfNode[node];
+	}
+
+	/**
+	 * returns the node indices of a component, the array must not be modified
+	 * 
+	 * @param component
+	 * @return node indices
+	 */
+	public int[] getComponentNodes(int component) {
+		return componentNodes[component];
+	}
+
+	/**
+	 * returns the node IDs of a component
+	 * 
+	 * @param component
+	 * @return node IDs
+	 */
+	public List<String> getComponentNodeIds(int component) {
+		int[] nodes = componentNodes[component];
+		List<String> ids = new ArrayList<String>(nodes.length);
+		for (int node : nodes) {
+			ids.add(nodeIds.get(node));
+		}
+		return ids;
+	}
+
+	/**
+	 * returns the edge indices of a component in list order, the array must
+	 * not be modified
+	 * 
+	 * @param component
+	 * @return edge indices
+	 */
+	public int[] getComponentEdges(int component) {
+		return componentEdges[component];
+	}
+
+	/**
+	 * returns the edges of a component in list order
+	 * 
+	 * @param component
+	 * @return new list of edges
+	 */
+	public List<PolymerEdge> getComponentEdgeList(int component) {
+		int[] edges = componentEdges[component];
+		List<PolymerEdge> list = new ArrayList<PolymerEdge>(edges.length);
+		for (int edge : edges) {
+			list.add(edgeList.get(edge));
+		}
+		return list;
+	}
+}
@@ -23,6 +23,7 @@ package org.helm.notation.model;
 
 import chemaxon.struc.MolAtom;
 import chemaxon.struc.Molecule;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -51,4 +52,28 @@ public class RgroupStructure {
 		this.rgroupMap = rgroupMap;
 	}
 
+	/**
+	 * returns a copy with a cloned molecule, the R group map of the copy
+	 * refers to the atoms of the cloned molecule
+	 * 
+	 * @return RgroupStructure
+	 */
+	public RgroupStructure copy() {
+		RgroupStructure copy = new RgroupStructure();
+		Molecule mol = (null == molecule) ? null : molecule.cloneMolecule();
+		copy.setMolecule(mol);
+		if (null != rgroupMap) {
+			Map<String, MolAtom> map = new HashMap<String, MolAtom>();
+			for (Map.Entry<String, MolAtom> entry : rgroupMap.entrySet()) {
+				MolAtom atom = entry.getValue();
+				if (null != mol && null != atom) {
+					atom = mol.getAtom(molecule.indexOf(atom));
+				}
+				map.put(entry.getKey(), atom);
+			}
+			copy.setRgroupMap(map);
+		}
+		return copy;
+	}
+
 }
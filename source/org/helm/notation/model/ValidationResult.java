@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright C 2012, The Pistoia Alliance
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package org.helm.notation.model;
+
+/**
+ * This class holds the outcome of validating one notation: an error code, the
+ * polymer node and character offset the error was found at, and a message.
+ * Instances are reset and reused for each validated notation.
+ */
+public class ValidationResult {
+
+	/** notation is valid */
+	public static final int VALID = 0;
+
+	/** missing or misplaced section delimiters */
+	public static final int INVALID_FORMAT = 1;
+
+	/** polymer node with invalid format, ID or polymer type */
+	public static final int INVALID_POLYMER_NODE = 2;
+
+	/** monomer that is neither in the monomer store nor a valid SMILES */
+	public static final int UNKNOWN_MONOMER = 3;
+
+	/** simple polymer that can not be built from its monomers */
+	public static final int INVALID_POLYMER = 4;
+
+	/** invalid edge, base pair or annotation */
+	public static final int INVALID_CONNECTION = 5;
+
+	private String notation;
+	private int errorCode;
+	private String nodeId;
+	private int offset = -1;
+	private String message;
+
+	public ValidationResult() {
+	}
+
+	/**
+	 * Constructs a copy of a result
+	 * 
+	 * @param result
+	 */
+	public ValidationResult(ValidationResult result) {
+		this.notation = result.notation;
+		this.errorCode = result.errorCode;
+		this.nodeId = result.nodeId;
+		this.offset = result.offset;
+		this.message = result.message;
+	}
+
+	/**
+	 * clears the result for validating a new notation
+	 * 
+	 * @param notation
+	 */
+	public void reset(String notation) {
+		this.notation = notation;
+		this.errorCode = VALID;
+		this.nodeId = null;
+		this.offset = -1;
+		this.message = null;
+	}
+
+	/**
+	 * records an error
+	 * 
+	 * @param errorCode
+	 * @param nodeId
+	 *            polymer node ID, or null if the error is not in a node
+	 * @param offset
+	 *            character offset in the notation, or -1 if unknown
+	 * @param message
+	 * @return false
+	 */
+	public boolean setError(int errorCode, String nodeId, int offset,
+			String message) {
+		this.errorCode = errorCode;
+		this.nodeId = nodeId;
+		this.offset = offset;
+		this.message = message;
+		return false;
+	}
+
+	public boolean isValid() {
+		return errorCode == VALID;
+	}
+
+	public String getNotation() {
+		return notation;
+	}
+
+	public int getErrorCode() {
+		return errorCode;
+	}
+
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	public int getOffset() {
+		return offset;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	@Override
+	public String toString() {
+		if (isValid()) {
+			return "valid";
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append("error ").append(errorCode);
+		if (null != nodeId) {
+			sb.append(" in ").append(nodeId);
+		}
+		if (offset >= 0) {
+			sb.append(" at ").append(offset);
+		}
+		sb.append(": ").append(message);
+		return sb.toString();
+	}
+}
@@ -136,7 +136,8 @@ public class PeptideStructureParser {
     }
 
     public String molfile2notation(String molfile) throws StructureException, IOException {
-        Molecule mol = StructureParser.getMolecule(molfile);
+        // the molfile has coordinates already
+        Molecule mol = StructureParser.getMolecule(molfile, false);
         return molecule2notation(mol);
     }
 
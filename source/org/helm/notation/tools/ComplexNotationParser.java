@@ -22,7 +22,6 @@
 package org.helm.notation.tools;
 
 import chemaxon.marvin.plugin.PluginException;
-import chemaxon.struc.MolAtom;
 import chemaxon.struc.Molecule;
 
 import org.helm.notation.MonomerException;
@@ -36,14 +35,14 @@ import org.helm.notation.model.ComplexPolymer;
 import org.helm.notation.model.MoleculeInfo;
 import org.helm.notation.model.Monomer;
 import org.helm.notation.model.Nucleotide;
-import org.helm.notation.model.RgroupStructure;
 import org.helm.notation.model.PolymerEdge;
+import org.helm.notation.model.PolymerGraph;
 import org.helm.notation.model.PolymerNode;
 import org.helm.notation.model.RNAPolymerNode;
+import org.helm.notation.model.ValidationResult;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -91,6 +90,16 @@ public class ComplexNotationParser {
 	public static final String DEFAULT_PADDING_CHAR = " ";
 	public static final String DEFAULT_BASE_PAIR_CHAR = "|";
 
+	/**
+	 * system property with the maximum total monomer count for structure
+	 * generation, a value of 0 or less removes the limit
+	 */
+	public static final String MONOMER_COUNT_THRESHOLD_PROPERTY = "org.helm.notation.monomerCountThreshold";
+
+	private static volatile int monomerCountThreshold = Integer.getInteger(
+			MONOMER_COUNT_THRESHOLD_PROPERTY,
+			NotationConstant.MONOMER_COUNT_THRESHOLD);
+
 	/**
 	 * This function checks the given MonomerStore. It is returned unchanged,
 	 * when it is neither null nor empty. Else a fresh MonomerStore is fetched
@@ -99,7 +108,7 @@ public class ComplexNotationParser {
 	 * @param monomerStore
 	 * @return monomerStore or default store
 	 */
-	private static MonomerStore checkForMonomerStore(MonomerStore monomerStore) {
+	static MonomerStore checkForMonomerStore(MonomerStore monomerStore) {
 		// check for default value
 		MonomerStore combinedMonomerStore = monomerStore;
 		if (combinedMonomerStore == null) {
@@ -117,6 +126,22 @@ public class ComplexNotationParser {
 		return combinedMonomerStore;
 	}
 
+	/**
+	 * sets the maximum total monomer count for structure generation, the
+	 * default is NotationConstant.MONOMER_COUNT_THRESHOLD unless the system
+	 * property MONOMER_COUNT_THRESHOLD_PROPERTY is set
+	 * 
+	 * @param threshold
+	 *            maximum monomer count, 0 or less for no limit
+	 */
+	public static void setMonomerCountThreshold(int threshold) {
+		monomerCountThreshold = threshold;
+	}
+
+	public static int getMonomerCountThreshold() {
+		return monomerCountThreshold;
+	}
+
 	/**
 	 * This methods returns the unique SMILES string for complex polymer
 	 * extendendNotation, if all monomers have specific structures
@@ -155,24 +180,95 @@ public class ComplexNotationParser {
 
 		monomerStore = checkForMonomerStore(monomerStore);
 
-		List<Molecule> list = getComplexPolymerStructure(extendedNotation,
-				monomerStore);
-		StringBuffer sb = new StringBuffer();
-		for (int i = 0; i < list.size(); i++) {
-			Molecule m = list.get(i);
-			String smi = m.toFormat("smiles");
-			if (sb.length() > 0) {
-				sb.append(".");
-			}
-			sb.append(smi);
-		}
+		ComplexPolymer complexPolymer = parse(extendedNotation, monomerStore);
+		int totalMonomerCount = getTotalMonomerCount(
+				complexPolymer.getPolymerNodeList(), monomerStore);
+		return getComplexPolymerSMILES(complexPolymer, totalMonomerCount,
+				true, monomerStore);
+	}
+
+	/**
+	 * This methods returns the unique SMILES string of a parsed complex
+	 * polymer, the SMILES written from the monomer SMILES is canonicalized
+	 * 
+	 * @param complexPolymer
+	 * @param totalMonomerCount
+	 *            number of monomers of all polymer nodes
+	 * @param validate
+	 *            false if the complex polymer has been validated already
+	 * @param monomerStore
+	 * @return SMILES
+	 * @throws IOException
+	 * @throws NotationException
+	 * @throws MonomerException
+	 * @throws StructureException
+	 * @throws JDOMException
+	 */
+	static String getComplexPolymerSMILES(ComplexPolymer complexPolymer,
+			int totalMonomerCount, boolean validate, MonomerStore monomerStore)
+			throws IOException, NotationException, MonomerException,
+			StructureException, JDOMException {
+		StringBuilder sb = new StringBuilder();
+		writeComplexPolymerSmiles(complexPolymer, totalMonomerCount, validate,
+				monomerStore, sb);
 
 		String mixtureSmiles = sb.toString();
-		Molecule mol = StructureParser.getMolecule(mixtureSmiles);
+		Molecule mol = StructureParser.getMolecule(mixtureSmiles, false);
 
 		return mol.toFormat("smiles:u");
 	}
 
+	/**
+	 * This method writes a non-canonical SMILES of complex polymer
+	 * extendedNotation, if all monomers have specific structures. The SMILES
+	 * is concatenated from the SMILES of the monomers and cap groups, with
+	 * ring closures for the connections, no molecule is built. Polymer node
+	 * groups that have monomers without usable SMILES are written from their
+	 * molecule.
+	 * 
+	 * @param extendedNotation
+	 *            text string for complex polymer extendedNotation
+	 * @param monomerStore
+	 * @param out
+	 *            destination of the SMILES
+	 * @throws IOException
+	 * @throws NotationException
+	 * @throws MonomerException
+	 * @throws StructureException
+	 * @throws JDOMException
+	 */
+	public static void writeComplexPolymerSmiles(String extendedNotation,
+			MonomerStore monomerStore, Appendable out) throws IOException,
+			NotationException, MonomerException, StructureException,
+			JDOMException {
+
+		monomerStore = checkForMonomerStore(monomerStore);
+
+		ComplexPolymer complexPolymer = parse(extendedNotation, monomerStore);
+		int totalMonomerCount = getTotalMonomerCount(
+				complexPolymer.getPolymerNodeList(), monomerStore);
+		writeComplexPolymerSmiles(complexPolymer, totalMonomerCount, true,
+				monomerStore, out);
+	}
+
+	static void writeComplexPolymerSmiles(ComplexPolymer complexPolymer,
+			int totalMonomerCount, boolean validate,
+			MonomerStore monomerStore, Appendable out) throws IOException,
+			NotationException, MonomerException, StructureException,
+			JDOMException {
+		List<StructureAssembler> assemblers = assembleComplexPolymer(
+				complexPolymer, totalMonomerCount, validate, monomerStore);
+		for (int i = 0; i < assemblers.size(); i++) {
+			if (i > 0) {
+				out.append('.');
+			}
+			StructureAssembler assembler = assemblers.get(i);
+			if (!assembler.writeSmiles(out)) {
+				out.append(assembler.build().toFormat("smiles"));
+			}
+		}
+	}
+
 	public static String getComplexPolymerCanonicalSmiles(
 			String extendedNotation) throws IOException, NotationException,
 			MonomerException, StructureException, JDOMException {
@@ -187,8 +283,22 @@ public class ComplexNotationParser {
 
 		monomerStore = checkForMonomerStore(monomerStore);
 
-		List<Molecule> list = getComplexPolymerStructure(extendedNotation,
-				monomerStore);
+		return getComplexPolymerCanonicalSmiles(getComplexPolymerStructure(
+				extendedNotation, monomerStore));
+	}
+
+	/**
+	 * This methods returns the canonical SMILES string of the molecules of a
+	 * complex polymer
+	 * 
+	 * @param list
+	 *            molecules of the complex polymer
+	 * @return canonical SMILES
+	 * @throws IOException
+	 * @throws StructureException
+	 */
+	static String getComplexPolymerCanonicalSmiles(List<Molecule> list)
+			throws IOException, StructureException {
 		StringBuffer sb = new StringBuffer();
 		for (int i = 0; i < list.size(); i++) {
 			Molecule m = list.get(i);
@@ -281,16 +391,65 @@ public class ComplexNotationParser {
 
 		monomerStore = checkForMonomerStore(monomerStore);
 
-		int totalMonomerCount = getTotalMonomerCount(extendedNotation,
-				monomerStore);
-		if (totalMonomerCount > NotationConstant.MONOMER_COUNT_THRESHOLD) {
+		ComplexPolymer complexPolymer = parse(extendedNotation, monomerStore);
+		int totalMonomerCount = getTotalMonomerCount(
+				complexPolymer.getPolymerNodeList(), monomerStore);
+		return getComplexPolymerStructure(complexPolymer, totalMonomerCount,
+				true, monomerStore);
+	}
+
+	/**
+	 * This method returns list of Molecule with specific structure of a parsed
+	 * complex polymer, all R groups are filled
+	 * 
+	 * @param complexPolymer
+	 * @param totalMonomerCount
+	 *            number of monomers of all polymer nodes
+	 * @param validate
+	 *            false if the complex polymer has been validated already
+	 * @param monomerStore
+	 * @return list of Molecule that are not connected
+	 * @throws IOException
+	 * @throws NotationException
+	 * @throws MonomerException
+	 * @throws StructureException
+	 * @throws JDOMException
+	 */
+	static List<Molecule> getComplexPolymerStructure(
+			ComplexPolymer complexPolymer, int totalMonomerCount,
+			boolean validate, MonomerStore monomerStore) throws IOException,
+			NotationException, MonomerException, StructureException,
+			JDOMException {
+		List<StructureAssembler> assemblers = assembleComplexPolymer(
+				complexPolymer, totalMonomerCount, validate, monomerStore);
+		List<Molecule> l = new ArrayList<Molecule>(assemblers.size());
+		for (StructureAssembler assembler : assemblers) {
+			l.add(assembler.build());
+		}
+		return l;
+	}
+
+	/**
+	 * This method assembles the monomers and cap groups of each connected
+	 * polymer node group of a parsed complex polymer, all R groups are filled
+	 * 
+	 * @return one assembler for each polymer node group, nothing is built
+	 */
+	private static List<StructureAssembler> assembleComplexPolymer(
+			ComplexPolymer complexPolymer, int totalMonomerCount,
+			boolean validate, MonomerStore monomerStore) throws IOException,
+			NotationException, MonomerException, StructureException,
+			JDOMException {
+		int threshold = monomerCountThreshold;
+		if (threshold > 0 && totalMonomerCount > threshold) {
 			throw new NotationException("Total monomer count ["
 					+ totalMonomerCount + "] is above support threshold ["
-					+ NotationConstant.MONOMER_COUNT_THRESHOLD + "]");
+					+ threshold + "]");
 		}
 
-		ComplexPolymer complexPolymer = parse(extendedNotation, monomerStore);
-		validateComplexPolymer(complexPolymer, monomerStore);
+		if (validate) {
+			validateComplexPolymer(complexPolymer, monomerStore);
+		}
 
 		List<PolymerNode> nodeList = complexPolymer.getPolymerNodeList();
 		List<PolymerEdge> edgeList = complexPolymer.getPolymerEdgeList();
@@ -307,315 +466,125 @@ public class ComplexNotationParser {
 			}
 		}
 
-		// convert each polymer node into RgroupStructure
-		// add original poymer ID into rgroup Atom key
-		Map<String, RgroupStructure> nodeStrucMap = getPolymerNodeStructureMap(
-				nodeList, monomerStore);
-		for (String nodeID : nodeStrucMap.keySet()) {
-			RgroupStructure struc = nodeStrucMap.get(nodeID);
-			Map<String, MolAtom> rgMap = struc.getRgroupMap();
-			Map<String, MolAtom> newRgMap = new HashMap<String, MolAtom>();
-			Set keySet = rgMap.keySet();
-			for (Iterator itr = keySet.iterator(); itr.hasNext();) {
-				String key = (String) itr.next();
-				newRgMap.put(nodeID + ":" + key, rgMap.get(key));
+		// monomer fragments of each connected polymer node group are assembled
+		// into one structure, the molecule is only built after all
+		// connections and cap groups are in place
+		PolymerGraph graph = new PolymerGraph(nodeList, edgeList);
+		Map<String, PolymerNodeAssembly> nodeAssemblyMap = new HashMap<String, PolymerNodeAssembly>();
+		Map<String, List<String>> monomerIDListMap = new HashMap<String, List<String>>();
+		Map<String, MolecularGraph> capGroupMap = new HashMap<String, MolecularGraph>();
+		List<StructureAssembler> l = new ArrayList<StructureAssembler>();
+		for (int group = 0; group < graph.getComponentCount(); group++) {
+			StructureAssembler assembler = new StructureAssembler();
+			Map<String, Map<String, Integer>> nodeRgroupMap = assemblePolymerNodes(
+					graph, group, assembler, nodeAssemblyMap, monomerStore);
+
+			// the group was found by the graph already, each edge connects
+			// two R atoms that are taken from the map of their node in place
+			for (int edge : graph.getComponentEdges(group)) {
+				PolymerEdge polymerEdge = graph.getEdge(edge);
+				int sourceAtom = removeRgroupAtom(nodeRgroupMap,
+						polymerEdge.getSourceNode(), polymerEdge.getSourceUID());
+				int targetAtom = removeRgroupAtom(nodeRgroupMap,
+						polymerEdge.getTargetNode(), polymerEdge.getTargetUID());
+				assembler.connect(sourceAtom, targetAtom);
 			}
-			struc.setRgroupMap(newRgMap);
-		}
-
-		// list string could be duplicating for self-connection and multiple
-		// connections
-		// single element list indicates standalone polymer node
-		Map<Integer, List<String>> groupNodeListMap = getGroupNodeListMap(
-				nodeList, edgeList);
-
-		// convert each connected polymer node group into RgroupStructure
-		Map<Integer, RgroupStructure> groupStructureMap = new HashMap<Integer, RgroupStructure>();
-		Set groupSet = groupNodeListMap.keySet();
-		for (Iterator it = groupSet.iterator(); it.hasNext();) {
-			Integer group = (Integer) it.next();
-			List<String> nList = groupNodeListMap.get(group);
-			if (nList.size() == 1) {
-				RgroupStructure struc = nodeStrucMap.get(nList.get(0));
-				groupStructureMap.put(group, struc);
-			} else {
-				List<PolymerEdge> connEdgeList = getConnectedEdgeList(nList,
-						edgeList);
-
-				Map<List<String>, RgroupStructure> mergedNodeStrucMap = new HashMap<List<String>, RgroupStructure>();
-
-				// reduce the number of edges to 0 by merging the two nodes into
-				// a new node, and updating mergedNodeStrucMap
-				// final merged node structure map size is one since all nodes
-				// are connected togather
-				while (connEdgeList.size() > 0) {
-					PolymerEdge edge = connEdgeList.get(0);
-					String sourceId = edge.getSourceNode();
-					String targetId = edge.getTargetNode();
-					List<String> sourceIDList = new ArrayList<String>();
-					RgroupStructure sourceStruc;
-					Entry<List<String>, RgroupStructure> sourceEntry = getStructureEntry(
-							sourceId, mergedNodeStrucMap);
-					if (null == sourceEntry) {
-						sourceStruc = nodeStrucMap.get(sourceId);
-					} else {
-						sourceIDList = sourceEntry.getKey();
-						sourceStruc = sourceEntry.getValue();
-					}
-
-					List<String> targetIDList = new ArrayList<String>();
-					RgroupStructure targetStruc;
-					Entry<List<String>, RgroupStructure> targetEntry = getStructureEntry(
-							targetId, mergedNodeStrucMap);
-					if (null == targetEntry) {
-						targetStruc = nodeStrucMap.get(targetId);
-					} else {
-						targetIDList = targetEntry.getKey();
-						targetStruc = targetEntry.getValue();
-					}
-
-					String sourceR = edge.getSourceUID(); // e.g. RNA1:5:R1
-					String targetR = edge.getTargetUID();
-					Map<String, MolAtom> sourceAtomMap = sourceStruc
-							.getRgroupMap();
-					Map<String, MolAtom> targetAtomMap = targetStruc
-							.getRgroupMap();
-
-					Molecule tempMol = sourceStruc.getMolecule();
-					StructureParser.merge(tempMol,
-							(MolAtom) sourceAtomMap.get(sourceR),
-							targetStruc.getMolecule(),
-							(MolAtom) targetAtomMap.get(targetR));
-
-					// new structure after connection
-					RgroupStructure dirtyStruc = new RgroupStructure();
-					dirtyStruc.setMolecule(tempMol);
-					Map<String, MolAtom> rgroupMap = new HashMap<String, MolAtom>();
-					for (String key : sourceAtomMap.keySet()) {
-						MolAtom atom = sourceAtomMap.get(key);
-						rgroupMap.put(key, atom);
-					}
-					for (String key : targetAtomMap.keySet()) {
-						MolAtom atom = targetAtomMap.get(key);
-						rgroupMap.put(key, atom);
-					}
-					rgroupMap.remove(sourceR);
-					rgroupMap.remove(targetR);
-					dirtyStruc.setRgroupMap(rgroupMap);
-
-					// new ID list
-					List<String> newIDList = new ArrayList<String>();
-					if (sourceIDList.isEmpty() && targetIDList.isEmpty()) {
-						newIDList.add(sourceId);
-						newIDList.add(targetId);
-					} else if (sourceIDList.isEmpty()
-							&& !targetIDList.isEmpty()) {
-						newIDList.addAll(targetIDList);
-						if (!newIDList.contains(sourceId)) {
-							newIDList.add(sourceId);
-						}
-						mergedNodeStrucMap.remove(targetIDList);
-
-					} else if (!sourceIDList.isEmpty()
-							&& targetIDList.isEmpty()) {
-						newIDList.addAll(sourceIDList);
-						if (!newIDList.contains(targetId)) {
-							newIDList.add(targetId);
-						}
-						mergedNodeStrucMap.remove(sourceIDList);
-					} else {
-						newIDList.addAll(sourceIDList);
-						for (String id : targetIDList) {
-							if (!newIDList.contains(id)) {
-								newIDList.add(id);
-							}
-						}
-						mergedNodeStrucMap.remove(sourceIDList);
-						mergedNodeStrucMap.remove(targetIDList);
-					}
-					mergedNodeStrucMap.put(newIDList, dirtyStruc);
-					connEdgeList.remove(edge);
-				}
-
-				// only one entry finally
-				RgroupStructure mergerdStru = mergedNodeStrucMap.values()
-						.iterator().next();
-				groupStructureMap.put(group, mergerdStru);
-			}
-		}
-
-		// remove all remaining R groups not used in inter polymer connection
-		List<Molecule> l = getMoleculeList(nodeList, groupStructureMap,
-				monomerStore);
-		return l;
-	}
-
-	private static List<Molecule> getMoleculeList(List<PolymerNode> nodeList,
-			Map<Integer, RgroupStructure> groupStructureMap,
-			MonomerStore monomerStore) throws NotationException,
-			MonomerException, IOException, JDOMException, StructureException {
-		List<Molecule> l = new ArrayList<Molecule>();
-		Collection<RgroupStructure> c = groupStructureMap.values();
-		for (Iterator i = c.iterator(); i.hasNext();) {
-			RgroupStructure struc = (RgroupStructure) i.next();
-			Molecule mol = struc.getMolecule();
-			Map<String, MolAtom> rgroupMap = struc.getRgroupMap();
-
-			Set keyset = rgroupMap.keySet();
-			for (Iterator it = keyset.iterator(); it.hasNext();) {
-				String key = (String) it.next(); // NodeID:MonomerNumber:R#
-				String[] keyItems = key
-						.split(PolymerEdge.MONOMER_ATTACHEMENT_SEPARATOR);
-				String nodeId = keyItems[0];
-				String polymerType = PolymerNode.getPolymerType(nodeId);
-				String nodeNotation = getPolymerNotation(nodeId, nodeList);
-				List<String> monomerIDList = SimpleNotationParser
-						.getMonomerIDList(nodeNotation, polymerType,
-								monomerStore);
-
-				int monomerNumber = Integer.parseInt(keyItems[1]);
-				String monomerId = monomerIDList.get(monomerNumber - 1);
-				Monomer monomer = SimpleNotationParser.getMonomer(monomerId,
-						polymerType, monomerStore);
-				List<Attachment> attachments = monomer.getAttachmentList();
-
-				String rlabel = keyItems[2];
-				for (int j = 0; j < attachments.size(); j++) {
-					Attachment att = attachments.get(j);
-					if (att.getCapGroupSMILES() == null) {
-						MonomerParser.fillAttachmentInfo(att);
-					}
-					if (att.getLabel().equals(rlabel)) {
-						Molecule attMol = StructureParser.getMolecule(att
-								.getCapGroupSMILES());
-
-						int rgroupId = Integer.parseInt(rlabel.substring(1));
-						MolAtom attAtom = StructureParser.getRgroupAtom(attMol,
-								rgroupId);
-						StructureParser.merge(mol, rgroupMap.get(key), attMol,
-								attAtom);
-					}
 
+			// remove all remaining R groups not used in inter polymer
+			// connection
+			for (int node : graph.getComponentNodes(group)) {
+				Map<String, Integer> rgroupMap = nodeRgroupMap.get(graph
+						.getNodeId(node));
+				if (null != rgroupMap) {
+					addCapGroups(graph, rgroupMap, assembler,
+							monomerIDListMap, capGroupMap, monomerStore);
 				}
 			}
-			l.add(mol);
+			l.add(assembler);
 		}
 		return l;
 	}
 
-	private static Entry<List<String>, RgroupStructure> getStructureEntry(
-			String nodeId, Map<List<String>, RgroupStructure> mergedNodeStrucMap) {
-		Entry<List<String>, RgroupStructure> result = null;
-		for (Entry<List<String>, RgroupStructure> entry : mergedNodeStrucMap
-				.entrySet()) {
-			List<String> ids = entry.getKey();
-			if (ids.contains(nodeId)) {
-				result = entry;
-				break;
-			}
-		}
-		return result;
-	}
-
 	/**
-	 * This method breaks PolymerNode lists into connected groups based on edge
-	 * info List<String> could have one element for standalone polymer node,
-	 * duplicated elements for self connection or multiple connection
+	 * replaces the R groups of a structure by the cap groups of their
+	 * attachments
 	 * 
-	 * @param allNodeList
-	 * @param allEdgeList
-	 * @return map of groupId and list of polymer node
+	 * @param graph
+	 * @param rgroupMap
+	 *            R atoms of the structure, key is NodeID:MonomerNumber:R#
+	 * @param assembler
+	 *            assembler of the structure
+	 * @param monomerIDListMap
+	 *            monomer IDs of the polymer node notations, key is polymer
+	 *            type and notation, filled on first use
+	 * @param capGroupMap
+	 *            graphs of the cap group SMILES, filled on first use
+	 * @param monomerStore
 	 */
-	private static Map<Integer, List<String>> getGroupNodeListMap(
-			List<PolymerNode> allNodeList, List<PolymerEdge> allEdgeList) {
-		Map<Integer, List<String>> groupNodeListMap = new HashMap<Integer, List<String>>();
-		int groupID = 0;
-
-		// put connected nodes into groups
-		for (int i = 0; i < allEdgeList.size(); i++) {
-			PolymerEdge edge = allEdgeList.get(i);
-			String sourceId = edge.getSourceNode();
-			String targetId = edge.getTargetNode();
-			List<Integer> overlapGroups = new ArrayList<Integer>();
-			Set<Integer> groupSet = groupNodeListMap.keySet();
-			for (Integer in : groupSet) {
-				List<String> li = groupNodeListMap.get(in);
-				if (li.contains(sourceId) || li.contains(targetId)) {
-					overlapGroups.add(in);
-				}
+	private static void addCapGroups(PolymerGraph graph,
+			Map<String, Integer> rgroupMap, StructureAssembler assembler,
+			Map<String, List<String>> monomerIDListMap,
+			Map<String, MolecularGraph> capGroupMap, MonomerStore monomerStore)
+			throws NotationException, MonomerException, IOException,
+			JDOMException, StructureException {
+		for (Entry<String, Integer> entry : rgroupMap.entrySet()) {
+			String key = entry.getKey(); // NodeID:MonomerNumber:R#
+			String[] keyItems = key
+					.split(PolymerEdge.MONOMER_ATTACHEMENT_SEPARATOR);
+			String nodeId = keyItems[0];
+			String polymerType = PolymerNode.getPolymerType(nodeId);
+			String nodeNotation = getPolymerNotation(nodeId, graph);
+			String notationKey = polymerType + ":" + nodeNotation;
+			List<String> monomerIDList = monomerIDListMap.get(notationKey);
+			if (null == monomerIDList) {
+				monomerIDList = SimpleNotationParser.getMonomerIDList(
+						nodeNotation, polymerType, monomerStore);
+				monomerIDListMap.put(notationKey, monomerIDList);
 			}
 
-			if (overlapGroups.isEmpty()) {
-				groupID++;
-				List<String> l = new ArrayList<String>();
-				l.add(sourceId);
-				l.add(targetId);
-				groupNodeListMap.put(new Integer(groupID), l);
-			} else {
-				if (overlapGroups.size() > 1) {
-					for (int j = 0; j < overlapGroups.size(); j++) {
-						Integer i1 = overlapGroups.get(j);
-						List<String> l1 = groupNodeListMap.get(i1);
-						for (int k = j + 1; k < overlapGroups.size(); k++) {
-							Integer i2 = overlapGroups.get(k);
-							List<String> l2 = groupNodeListMap.get(i2);
-							l1.addAll(l2);
-							groupNodeListMap.remove(i2);
-						}
-					}
-				}
+			int monomerNumber = Integer.parseInt(keyItems[1]);
+			String monomerId = monomerIDList.get(monomerNumber - 1);
+			Monomer monomer = SimpleNotationParser.getMonomer(monomerId,
+					polymerType, monomerStore);
+			List<Attachment> attachments = monomer.getAttachmentList();
 
-				Integer i3 = overlapGroups.get(0);
-				List<String> l3 = groupNodeListMap.get(i3);
-				l3.add(sourceId);
-				l3.add(targetId);
-			}
-		}
+			String rlabel = keyItems[2];
+			for (int j = 0; j < attachments.size(); j++) {
+				Attachment att = attachments.get(j);
+				if (att.getCapGroupSMILES() == null) {
+					MonomerParser.fillAttachmentInfo(att);
+				}
+				if (att.getLabel().equals(rlabel)) {
+					String capSmiles = att.getCapGroupSMILES();
+					MolecularGraph capGroup = capGroupMap.get(capSmiles);
+					if (null == capGroup) {
+						Molecule attMol = StructureParser.getMolecule(capSmiles);
+						attMol.dearomatize();
+						capGroup = new MolecularGraph(attMol,
+								SmilesTemplate.parse(capSmiles));
+						capGroupMap.put(capSmiles, capGroup);
+					}
 
-		// put standalone node into separate group
-		for (int i = 0; i < allNodeList.size(); i++) {
-			PolymerNode node = allNodeList.get(i);
-			String nodeId = node.getId();
-			boolean foundParent = false;
-			Set<Integer> groupSet = groupNodeListMap.keySet();
-			for (Integer in : groupSet) {
-				List<String> li = groupNodeListMap.get(in);
-				if (li.contains(nodeId)) {
-					foundParent = true;
-					break;
+					int rgroupId = Integer.parseInt(rlabel.substring(1));
+					int attAtom = assembler.addFragment(capGroup)
+							+ capGroup.getRgroupAtom(rgroupId);
+					Integer rgroupAtom = entry.getValue();
+					assembler.connect(
+							(null == rgroupAtom) ? StructureAssembler.NO_ATOM
+									: rgroupAtom, attAtom);
 				}
-			}
-			if (!foundParent) {
-				groupID++;
-				List<String> l = new ArrayList<String>();
-				l.add(nodeId);
-				groupNodeListMap.put(new Integer(groupID), l);
+
 			}
 		}
-
-		return groupNodeListMap;
 	}
 
-	/**
-	 * This methods generates a List of PolymerEdge for the connected Nodes
-	 * 
-	 * @param connectedNodeList
-	 * @param allEdgeList
-	 * @return list of PolymerEdge that are connected
-	 */
-	private static List<PolymerEdge> getConnectedEdgeList(
-			List<String> connectedNodeList, List<PolymerEdge> allEdgeList) {
-		List<PolymerEdge> l = new ArrayList<PolymerEdge>();
-		for (int i = 0; i < allEdgeList.size(); i++) {
-			PolymerEdge edge = allEdgeList.get(i);
-			String sourceId = edge.getSourceNode();
-			String targetId = edge.getTargetNode();
-			if (connectedNodeList.contains(sourceId)
-					&& connectedNodeList.contains(targetId)) {
-				l.add(edge);
-			}
-		}
-		return l;
+	private static int removeRgroupAtom(
+			Map<String, Map<String, Integer>> nodeRgroupMap, String nodeId,
+			String rgroupKey) {
+		Map<String, Integer> rgroupMap = nodeRgroupMap.get(nodeId);
+		Integer atom = (null == rgroupMap) ? null : rgroupMap
+				.remove(rgroupKey);
+		return (null == atom) ? StructureAssembler.NO_ATOM : atom;
 	}
 
 	/**
@@ -654,7 +623,6 @@ public class ComplexNotationParser {
 		monomerStore = checkForMonomerStore(monomerStore);
 
 		// validate
-		validateNotationFormat(extendedNotation);
 		ComplexPolymer cp = parse(extendedNotation, monomerStore);
 		validateComplexPolymer(cp, monomerStore);
 
@@ -700,10 +668,6 @@ public class ComplexNotationParser {
 		monomerStore = checkForMonomerStore(monomerStore);
 
 		List<PolymerNode> nodeList = complexPolymer.getPolymerNodeList();
-		List<PolymerEdge> edgeList = complexPolymer.getPolymerEdgeList();
-		List<PolymerEdge> bpList = complexPolymer.getBasePairList();
-		Map<String, String> annotationMap = complexPolymer
-				.getPolymerNodeAnnotationMap();
 
 		// must
 		if (null == nodeList || nodeList.size() == 0) {
@@ -720,15 +684,39 @@ public class ComplexNotationParser {
 		}
 
 		// this call also validates simple polymers
-		Map<String, RgroupStructure> polymerNodeStructureMap = getPolymerNodeStructureMap(
+		Map<String, Set<String>> polymerNodeRgroupMap = getPolymerNodeRgroupMap(
 				nodeList, monomerStore);
 
+		validateConnections(complexPolymer, nodeMap, polymerNodeRgroupMap);
+		return true;
+	}
+
+	/**
+	 * This method checks that edges, base pairs and annotations refer to
+	 * polymer nodes and free R groups of the complex polymer
+	 * 
+	 * @param complexPolymer
+	 * @param nodeMap
+	 *            label of each polymer node ID
+	 * @param polymerNodeRgroupMap
+	 *            R groups left for connections of each polymer node ID
+	 * @throws NotationException
+	 */
+	static void validateConnections(ComplexPolymer complexPolymer,
+			Map<String, String> nodeMap,
+			Map<String, Set<String>> polymerNodeRgroupMap)
+			throws NotationException {
+		List<PolymerEdge> edgeList = complexPolymer.getPolymerEdgeList();
+		List<PolymerEdge> bpList = complexPolymer.getBasePairList();
+		Map<String, String> annotationMap = complexPolymer
+				.getPolymerNodeAnnotationMap();
+
 		if (null != edgeList) {
 			for (PolymerEdge edge : edgeList) {
 				if (edge.getEdgeType() == PolymerEdge.STANDARD_EDGE) {
-					validateStandardEdge(edge, nodeMap, polymerNodeStructureMap);
+					validateStandardEdge(edge, nodeMap, polymerNodeRgroupMap);
 				} else if (edge.getEdgeType() == PolymerEdge.GENERIC_EDGE) {
-					validateGenericEdge(edge, nodeMap, polymerNodeStructureMap);
+					validateGenericEdge(edge, nodeMap, polymerNodeRgroupMap);
 				} else if (edge.getEdgeType() == PolymerEdge.PAIR_EDGE) {
 					validatePairEdge(edge, nodeMap);
 				} else {
@@ -755,25 +743,23 @@ public class ComplexNotationParser {
 				}
 			}
 		}
-
-		return true;
 	}
 
 	private static void validateStandardEdge(PolymerEdge edge,
 			Map<String, String> nodeMap,
-			Map<String, RgroupStructure> polymerNodeStructureMap)
+			Map<String, Set<String>> polymerNodeRgroupMap)
 			throws NotationException {
 		// source node check
 		String node = edge.getSourceNode();
 		String connection = edge.getSourceConnection();
 		validateStandardAttachment(node, connection, nodeMap,
-				polymerNodeStructureMap);
+				polymerNodeRgroupMap);
 
 		// target node check
 		node = edge.getTargetNode();
 		connection = edge.getTargetConnection();
 		validateStandardAttachment(node, connection, nodeMap,
-				polymerNodeStructureMap);
+				polymerNodeRgroupMap);
 	}
 
 	private static void validatePairEdge(PolymerEdge edge,
@@ -795,7 +781,7 @@ public class ComplexNotationParser {
 
 	private static void validateGenericEdge(PolymerEdge edge,
 			Map<String, String> nodeMap,
-			Map<String, RgroupStructure> polymerNodeStructureMap)
+			Map<String, Set<String>> polymerNodeRgroupMap)
 			throws NotationException {
 		// source node check
 		int attType = edge.getSourceAttachmentType();
@@ -803,7 +789,7 @@ public class ComplexNotationParser {
 			String node = edge.getSourceNode();
 			String connection = edge.getSourceConnection();
 			validateStandardAttachment(node, connection, nodeMap,
-					polymerNodeStructureMap);
+					polymerNodeRgroupMap);
 		} else if (attType == PolymerEdge.GENERIC_EDGE_ATTACHMENT) {
 			String[] nodes = edge.getSourceNodes();
 			validateGenericAttachment(nodes, nodeMap);
@@ -815,7 +801,7 @@ public class ComplexNotationParser {
 			String node = edge.getTargetNode();
 			String connection = edge.getTargetConnection();
 			validateStandardAttachment(node, connection, nodeMap,
-					polymerNodeStructureMap);
+					polymerNodeRgroupMap);
 		} else if (attType == PolymerEdge.GENERIC_EDGE_ATTACHMENT) {
 			String[] nodes = edge.getTargetNodes();
 			validateGenericAttachment(nodes, nodeMap);
@@ -824,22 +810,16 @@ public class ComplexNotationParser {
 
 	private static void validateStandardAttachment(String node,
 			String connection, Map<String, String> nodeMap,
-			Map<String, RgroupStructure> polymerNodeStructureMap)
+			Map<String, Set<String>> polymerNodeRgroupMap)
 			throws NotationException {
-		RgroupStructure rstructure = polymerNodeStructureMap.get(node);
+		Set<String> rgroups = polymerNodeRgroupMap.get(node);
 
 		if (!(nodeMap.containsKey(node))) {
 			throw new NotationException(
 					"Polymer edge contains unknown polymer node ID");
 		}
 
-		if (null == rstructure) {
-			throw new NotationException(
-					"Polymer edge contains polymer node without connection point");
-		}
-
-		Map<String, MolAtom> rMap = rstructure.getRgroupMap();
-		if (null == rMap || !rMap.containsKey(connection)) {
+		if (null == rgroups || !rgroups.contains(connection)) {
 			throw new NotationException(
 					"Polymer edge contains polymer node without connection point");
 		}
@@ -892,22 +872,38 @@ public class ComplexNotationParser {
 	public static ComplexPolymer parse(String extendendNotation,
 			MonomerStore monomerStore) throws NotationException,
 			MonomerException, JDOMException, IOException {
-		ComplexPolymer cp = new ComplexPolymer();
+		NotationSections sections = NotationSections.split(extendendNotation);
+		return parse(sections, getPolymerNodeList(sections, monomerStore));
+	}
 
-		String allNodeString = getAllNodeString(extendendNotation);
-		List<PolymerNode> nodes = getPolymerNodeList(allNodeString,
-				monomerStore);
+	/**
+	 * builds the complex polymer of a split notation from its polymer nodes,
+	 * the nodes are not converted again
+	 * 
+	 * @param sections
+	 * @param nodes
+	 *            polymer nodes of the node section
+	 * @return ComplexPolymer
+	 * @throws NotationException
+	 * @throws MonomerException
+	 */
+	static ComplexPolymer parse(NotationSections sections,
+			List<PolymerNode> nodes) throws NotationException,
+			MonomerException {
+		ComplexPolymer cp = new ComplexPolymer();
 		cp.setPolymerNodeList(nodes);
 
-		String allEdgeString = getAllEdgeString(extendendNotation);
+		String allEdgeString = sections.getSectionString(NotationSections.EDGES);
 		List<PolymerEdge> edges = getPolymerEdgeList(allEdgeString);
 		cp.setPolymerEdgeList(edges);
 
-		String allBasePairString = getAllBasePairString(extendendNotation);
+		String allBasePairString = sections
+				.getSectionString(NotationSections.BASE_PAIRS);
 		List<PolymerEdge> basePairEdges = getPolymerEdgeList(allBasePairString);
 		cp.setBasePairList(basePairEdges);
 
-		String allNodeLabelString = getAllNodeLabelString(extendendNotation);
+		String allNodeLabelString = sections
+				.getSectionString(NotationSections.ANNOTATIONS);
 		Map<String, String> annotationMap = getPolymerNodeIDAnnotationMap(allNodeLabelString);
 		cp.setPolymerNodeAnnotationMap(annotationMap);
 
@@ -916,27 +912,29 @@ public class ComplexNotationParser {
 
 	public static String getAllNodeString(String extendedNotation)
 			throws NotationException {
-		return getComponentString(extendedNotation, 0, false);
+		return getComponentString(extendedNotation, NotationSections.NODES);
 	}
 
 	public static String getAllEdgeString(String extendedNotation)
 			throws NotationException {
-		return getComponentString(extendedNotation, 1, false);
+		return getComponentString(extendedNotation, NotationSections.EDGES);
 	}
 
 	public static String getAllBasePairString(String extendedNotation)
 			throws NotationException {
-		return getComponentString(extendedNotation, 2, false);
+		return getComponentString(extendedNotation,
+				NotationSections.BASE_PAIRS);
 	}
 
 	public static String getAllNodeLabelString(String extendedNotation)
 			throws NotationException {
-		return getComponentString(extendedNotation, 3, false);
+		return getComponentString(extendedNotation,
+				NotationSections.ANNOTATIONS);
 	}
 
 	public static String getOtherString(String extendedNotation)
 			throws NotationException {
-		return getComponentString(extendedNotation, 4, true);
+		return getComponentString(extendedNotation, NotationSections.OTHER);
 	}
 
 	/**
@@ -949,58 +947,14 @@ public class ComplexNotationParser {
 	 * @return string of component
 	 */
 	private static String getComponentString(String extendedNotation,
-			int componentIndex, boolean isLast) throws NotationException {
-		validateNotationFormat(extendedNotation);
-		int count = 0;
-		int startPos = 0;
-		int endPos = 0;
-
-		int firstPos = extendedNotation.indexOf(TOP_LEVEL_STOPPER, 0) + 1;
-
-		if (componentIndex == 0) {
-			endPos = firstPos;
-		} else {
-			endPos = firstPos;
-			while (count < componentIndex) {
-				startPos = endPos + 1;
-				endPos = extendedNotation
-						.indexOf(TOP_LEVEL_DELIMITER, startPos);
-				count++;
-			}
-		}
-
-		if (isLast) {
-			return extendedNotation.substring(startPos);
-		} else {
-			return extendedNotation.substring(startPos, endPos);
-		}
+			int componentIndex) throws NotationException {
+		return NotationSections.split(extendedNotation).getSectionString(
+				componentIndex);
 	}
 
 	public static boolean validateNotationFormat(String extendedNotation)
 			throws NotationException {
-		int count = 0;
-		int startPos = 0;
-		int pos = 0;
-
-		pos = extendedNotation.indexOf(TOP_LEVEL_STOPPER, 0);
-		if (pos < 0) {
-			throw new NotationException(
-					"Invalid complex notation format,missing first component stopper }$");
-		} else {
-			startPos = pos + TOP_LEVEL_STOPPER.length();
-		}
-
-		while (count < 3) {
-			pos = extendedNotation.indexOf(TOP_LEVEL_DELIMITER, startPos);
-			if (pos < 0) {
-				throw new NotationException(
-						"Invalid complex notation format, must have four positional delimieters $$$$");
-			} else {
-				startPos = pos + 1;
-				count++;
-			}
-		}
-
+		NotationSections.split(extendedNotation);
 		return true;
 	}
 
@@ -1038,38 +992,72 @@ public class ComplexNotationParser {
 	public static List<PolymerNode> getPolymerNodeList(String allNodeString,
 			MonomerStore monomerStore) throws NotationException {
 
-		monomerStore = checkForMonomerStore(monomerStore);
+		if (null == allNodeString || allNodeString.length() == 0) {
+			return new ArrayList<PolymerNode>();
+		}
+		if (allNodeString.indexOf(TOP_LEVEL_STOPPER) > 0) {
+			return getPolymerNodeList(NotationSections.split(allNodeString),
+					monomerStore);
+		}
+		return getPolymerNodeList(allNodeString, 0, allNodeString.length(),
+				monomerStore);
+	}
 
-		List<PolymerNode> list = new ArrayList<PolymerNode>();
-		if (null != allNodeString && allNodeString.length() > 0) {
-			String nodes = allNodeString;
-			if (allNodeString.indexOf(TOP_LEVEL_STOPPER) > 0) {
-				nodes = getAllNodeString(allNodeString);
-			}
+	/**
+	 * This methods converts the node section of a split complex notation to a
+	 * List of PolymerNode
+	 * 
+	 * @param sections
+	 * @param monomerStore
+	 * @return List<PolymerNode>
+	 * @throws org.helm.notation.NotationException
+	 */
+	static List<PolymerNode> getPolymerNodeList(NotationSections sections,
+			MonomerStore monomerStore) throws NotationException {
+		return getPolymerNodeList(sections.getNotation(),
+				sections.getStart(NotationSections.NODES),
+				sections.getEnd(NotationSections.NODES), monomerStore);
+	}
 
-			int nodeStartPos = 0;
-			int delimiterStartPos = 0;
-			int endPos = 0;
-			String nodeString = null;
+	/**
+	 * converts the nodes between start and end of the notation, node
+	 * boundaries are found by offset and only ID and label are copied
+	 */
+	private static List<PolymerNode> getPolymerNodeList(String notation,
+			int start, int end, MonomerStore monomerStore)
+			throws NotationException {
+
+		monomerStore = checkForMonomerStore(monomerStore);
 
-			delimiterStartPos = nodes.indexOf(NODE_LABEL_START_SYMBOL,
-					nodeStartPos);
-			endPos = nodes.indexOf(NODE_LABEL_END_SYMBOL, nodeStartPos) + 1;
+		List<PolymerNode> list = new ArrayList<PolymerNode>();
+		int nodeStartPos = start;
+		int delimiterStartPos = indexOf(notation, NODE_LABEL_START_SYMBOL,
+				nodeStartPos, end);
+		int endPos = indexOf(notation, NODE_LABEL_END_SYMBOL, nodeStartPos, end) + 1;
 
-			while (delimiterStartPos > 0 && endPos > 0) {
-				nodeString = nodes.substring(nodeStartPos, endPos);
-				PolymerNode node = getPolymerNode(nodeString, monomerStore);
-				list.add(node);
+		while (delimiterStartPos > start && endPos > 0) {
+			PolymerNode node = getPolymerNode(notation, nodeStartPos, endPos,
+					monomerStore);
+			list.add(node);
 
-				nodeStartPos = endPos + 1;
-				delimiterStartPos = nodes.indexOf(NODE_LABEL_START_SYMBOL,
-						nodeStartPos);
-				endPos = nodes.indexOf(NODE_LABEL_END_SYMBOL, nodeStartPos) + 1;
-			}
+			nodeStartPos = endPos + 1;
+			delimiterStartPos = indexOf(notation, NODE_LABEL_START_SYMBOL,
+					nodeStartPos, end);
+			endPos = indexOf(notation, NODE_LABEL_END_SYMBOL, nodeStartPos, end) + 1;
 		}
 		return list;
 	}
 
+	/**
+	 * returns the position of the first occurrence of a string between
+	 * from and end, or -1
+	 */
+	private static int indexOf(String notation, String str, int from,
+			int end) {
+		int pos = notation.indexOf(str, from);
+		return (pos < end) ? pos : -1;
+	}
+
 	/**
 	 * This method converts a nodeString into a PolymerNode object, throws
 	 * validation error if invalid
@@ -1090,22 +1078,29 @@ public class ComplexNotationParser {
 	private static PolymerNode getPolymerNode(String nodeString,
 			MonomerStore monomerStore) throws NotationException {
 
+		return getPolymerNode(nodeString, 0, nodeString.length(), monomerStore);
+	}
+
+	private static PolymerNode getPolymerNode(String notation, int start,
+			int end, MonomerStore monomerStore) throws NotationException {
+
 		monomerStore = checkForMonomerStore(monomerStore);
 
-		int startSymbolPos = nodeString.indexOf(NODE_LABEL_START_SYMBOL);
-		int endSymbolPos = nodeString.indexOf(NODE_LABEL_END_SYMBOL);
+		int startSymbolPos = indexOf(notation, NODE_LABEL_START_SYMBOL, start,
+				end);
+		int endSymbolPos = indexOf(notation, NODE_LABEL_END_SYMBOL, start, end);
 
-		if (startSymbolPos <= 0 || endSymbolPos <= 0) {
+		if (startSymbolPos <= start || endSymbolPos <= start) {
 			throw new NotationException(INVALID_POLYMER_NODE + ": "
-					+ nodeString);
+					+ notation.substring(start, end));
 		}
-		if (endSymbolPos != nodeString.length() - 1) {
+		if (endSymbolPos != end - 1) {
 			throw new NotationException(INVALID_POLYMER_NODE + ": "
-					+ nodeString);
+					+ notation.substring(start, end));
 		}
-		String id = nodeString.substring(0, startSymbolPos);
+		String id = notation.substring(start, startSymbolPos);
 		validateNodeID(id);
-		String label = nodeString.substring(startSymbolPos + 1, endSymbolPos);
+		String label = notation.substring(startSymbolPos + 1, endSymbolPos);
 
 		// add adhoc chem monomer into monomer database if adhoc
 		if (id.startsWith(Monomer.CHEMICAL_POLYMER_TYPE)) {
@@ -1126,22 +1121,13 @@ public class ComplexNotationParser {
 	 * This method returns the polymer extendendNotation for each polymer node
 	 * 
 	 * @param nodeId
-	 * @param nodeList
+	 * @param graph
 	 * @return polymer extendendNotation for the given node
 	 */
 	private static String getPolymerNotation(String nodeId,
-			List<PolymerNode> nodeList) {
-		String notation = null;
-
-		for (int i = 0; i < nodeList.size(); i++) {
-			PolymerNode node = nodeList.get(i);
-			if (node.getId().equals(nodeId)) {
-				notation = node.getLabel();
-				break;
-			}
-		}
-
-		return notation;
+			PolymerGraph graph) {
+		PolymerNode node = graph.getNode(nodeId);
+		return (null == node) ? null : node.getLabel();
 	}
 
 	/**
@@ -1208,9 +1194,18 @@ public class ComplexNotationParser {
 			String complexNotation, MonomerStore monomerStore)
 			throws NotationException, MonomerException, IOException,
 			JDOMException, StructureException {
+		return getRNAPolymerNodeList(NotationSections.split(complexNotation),
+				monomerStore);
+	}
+
+	private static List<RNAPolymerNode> getRNAPolymerNodeList(
+			NotationSections sections, MonomerStore monomerStore)
+			throws NotationException, MonomerException, IOException,
+			JDOMException, StructureException {
 		monomerStore = checkForMonomerStore(monomerStore);
-		List<PolymerNode> list = getPolymerNodeList(getAllNodeString(complexNotation));
-		String allNodeAnnotationString = getAllNodeLabelString(complexNotation);
+		List<PolymerNode> list = getPolymerNodeList(sections, null);
+		String allNodeAnnotationString = sections
+				.getSectionString(NotationSections.ANNOTATIONS);
 		Map<String, String> map = getPolymerNodeIDAnnotationMap(allNodeAnnotationString);
 		List<RNAPolymerNode> l = new ArrayList<RNAPolymerNode>();
 		for (int i = 0; i < list.size(); i++) {
@@ -1281,7 +1276,8 @@ public class ComplexNotationParser {
 					"Base pair string must be single character");
 		}
 
-		List<RNAPolymerNode> rnaList = getRNAPolymerNodeList(complexNotation);
+		NotationSections sections = NotationSections.split(complexNotation);
+		List<RNAPolymerNode> rnaList = getRNAPolymerNodeList(sections, null);
 		int count = rnaList.size();
 		if (count == 0) {
 			return new String[0];
@@ -1305,7 +1301,8 @@ public class ComplexNotationParser {
 			String reverseRna2Seq = NucleotideSequenceParser
 					.getReverseSequence(rna2Seq);
 
-			String bpString = getAllBasePairString(complexNotation);
+			String bpString = sections
+					.getSectionString(NotationSections.BASE_PAIRS);
 			if (null == bpString || bpString.length() == 0) {
 				return new String[] { rna1Seq, rna2Seq };
 			} else {
@@ -1554,15 +1551,37 @@ public class ComplexNotationParser {
 
 		monomerStore = checkForMonomerStore(monomerStore);
 
-		validateNotationFormat(complexNotation);
 		ComplexPolymer cp = parse(complexNotation, monomerStore);
 
 		if (includeValidation) {
 			validateComplexPolymer(cp, monomerStore);
 		}
 
+		return getCanonicalNotation(cp, monomerStore);
+	}
+
+	/**
+	 * Generate canonical notation of a parsed complex polymer, nodes and edges
+	 * of the complex polymer are canonicalized in place
+	 * 
+	 * @param cp
+	 * @param monomerStore
+	 * @return canonical notation
+	 * @throws NotationException
+	 * @throws MonomerException
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 * @throws StructureException
+	 * @throws JDOMException
+	 */
+	static String getCanonicalNotation(ComplexPolymer cp,
+			MonomerStore monomerStore) throws NotationException,
+			MonomerException, IOException, ClassNotFoundException,
+			StructureException, JDOMException {
 		List<PolymerNode> nodeList = cp.getPolymerNodeList();
 		List<PolymerEdge> edgeList = cp.getPolymerEdgeList();
+		// node IDs do not change before the notation is generated
+		PolymerGraph graph = new PolymerGraph(nodeList, edgeList);
 		// deal with ad hoc CHEM monomer here, use smiles instead of temp ID
 		for (PolymerNode node : nodeList) {
 			if (node.getType().equals(Monomer.CHEMICAL_POLYMER_TYPE)
@@ -1591,9 +1610,10 @@ public class ComplexNotationParser {
 
 				String nodeId = node.getId();
 
-				// deal with edges
-				for (PolymerEdge edge : edgeList) {
-					// find the edges of interest, could be more than one
+				// deal with edges, could be more than one
+				for (int edgeIndex : graph.getNodeEdges(graph
+						.getNodeIndex(nodeId))) {
+					PolymerEdge edge = graph.getEdge(edgeIndex);
 					if (edge.getSourceNode().equals(nodeId)) {
 						String oldR = edge.getSourceR();
 						String newR = oldNewRgroupMap.get(oldR);
@@ -1632,60 +1652,54 @@ public class ComplexNotationParser {
 			// deal with node
 			int offset = 0;
 			int monomerCount = 0;
-			for (PolymerNode node : nodeList) {
-				// find the node of interest, should be only one
-				if (node.getId().equals(nodeId)) {
-					Map.Entry<Integer, String> canEntry = SimpleNotationParser
-							.getSimpleCanonicalNotationMapEntry(
-									node.getLabel(), node.getType(),
-									monomerStore);
-					node.setLabel(canEntry.getValue());
-					offset = canEntry.getKey().intValue();
-					monomerCount = SimpleNotationParser.getMonomerCount(
-							node.getLabel(), node.getType(), monomerStore);
-					break;
-				}
+			PolymerNode node = graph.getNode(nodeId);
+			if (null != node) {
+				Map.Entry<Integer, String> canEntry = SimpleNotationParser
+						.getSimpleCanonicalNotationMapEntry(node.getLabel(),
+								node.getType(), monomerStore);
+				node.setLabel(canEntry.getValue());
+				offset = canEntry.getKey().intValue();
+				monomerCount = SimpleNotationParser.getMonomerCount(
+						node.getLabel(), node.getType(), monomerStore);
 			}
 
-			// deal with edges
-			for (PolymerEdge edge : edgeList) {
-				// find the edges of interest, could be more than one
-				if (edge.getSourceNode().equals(nodeId)
-						|| edge.getTargetNode().equals(nodeId)) {
-					if (edge.isBackboneSelfCycle()) {
-						// canonicalize connection
-						List<String> connections = new ArrayList<String>();
-						connections.add(edge.getConnection());
-						connections.add(edge.getReverseConnection());
-						Collections.sort(connections);
-						edge.setConnection(connections.get(0));
-					} else {
-						// need to modify monomer positions in connection string
-						if (edge.getSourceNode().equals(nodeId)) {
-							int oldSrcMonomerNum = edge
-									.getSourceMonomerNumber();
-							int newSrcMonomerNumber;
-							if (oldSrcMonomerNum > offset) {
-								newSrcMonomerNumber = oldSrcMonomerNum - offset;
-							} else {
-								newSrcMonomerNumber = monomerCount
-										+ oldSrcMonomerNum - offset;
-							}
-							edge.setSourceMonomerNumber(newSrcMonomerNumber);
+			// deal with edges, could be more than one
+			for (int edgeIndex : graph
+					.getNodeEdges(graph.getNodeIndex(nodeId))) {
+				PolymerEdge edge = graph.getEdge(edgeIndex);
+				if (edge.isBackboneSelfCycle()) {
+					// canonicalize connection
+					List<String> connections = new ArrayList<String>();
+					connections.add(edge.getConnection());
+					connections.add(edge.getReverseConnection());
+					Collections.sort(connections);
+					edge.setConnection(connections.get(0));
+				} else {
+					// need to modify monomer positions in connection string
+					if (edge.getSourceNode().equals(nodeId)) {
+						int oldSrcMonomerNum = edge
+								.getSourceMonomerNumber();
+						int newSrcMonomerNumber;
+						if (oldSrcMonomerNum > offset) {
+							newSrcMonomerNumber = oldSrcMonomerNum - offset;
+						} else {
+							newSrcMonomerNumber = monomerCount
+									+ oldSrcMonomerNum - offset;
 						}
+						edge.setSourceMonomerNumber(newSrcMonomerNumber);
+					}
 
-						if (edge.getTargetNode().equals(nodeId)) {
-							int oldTarMonomerNum = edge
-									.getTargetMonomerNumber();
-							int newTarMonomerNumber;
-							if (oldTarMonomerNum > offset) {
-								newTarMonomerNumber = oldTarMonomerNum - offset;
-							} else {
-								newTarMonomerNumber = monomerCount
-										+ oldTarMonomerNum - offset;
-							}
-							edge.setTargetMonomerNumber(newTarMonomerNumber);
+					if (edge.getTargetNode().equals(nodeId)) {
+						int oldTarMonomerNum = edge
+								.getTargetMonomerNumber();
+						int newTarMonomerNumber;
+						if (oldTarMonomerNum > offset) {
+							newTarMonomerNumber = oldTarMonomerNum - offset;
+						} else {
+							newTarMonomerNumber = monomerCount
+									+ oldTarMonomerNum - offset;
 						}
+						edge.setTargetMonomerNumber(newTarMonomerNumber);
 					}
 				}
 			}
@@ -1694,9 +1708,10 @@ public class ComplexNotationParser {
 		// deal with branch self cycles: self-connection edge should be
 		// canonicalized
 		for (String nodeId : branchCycleNodes) {
-			// deal with edges
-			for (PolymerEdge edge : edgeList) {
-				// find the edges of interest, could be more than one
+			// deal with edges, could be more than one
+			for (int edgeIndex : graph
+					.getNodeEdges(graph.getNodeIndex(nodeId))) {
+				PolymerEdge edge = graph.getEdge(edgeIndex);
 				if (edge.isSelfCycle() && !edge.isBackboneSelfCycle()
 						&& edge.getSourceNode().equals(nodeId)) {
 					// canonicalize connection
@@ -1876,11 +1891,8 @@ public class ComplexNotationParser {
 		int rnaCount = 0;
 		int peptideCount = 0;
 		int chemCount = 0;
-		String nodeString1 = getAllNodeString(complexNotation1);
-		String edgeString1 = getAllEdgeString(complexNotation1);
-		String basePairString1 = getAllBasePairString(complexNotation1);
-		String nodeLabelString1 = getAllNodeLabelString(complexNotation1);
-		List<PolymerNode> nodeList1 = getPolymerNodeList(nodeString1,
+		NotationSections sections1 = NotationSections.split(complexNotation1);
+		List<PolymerNode> nodeList1 = getPolymerNodeList(sections1,
 				monomerStore);
 		for (PolymerNode node : nodeList1) {
 			String type = node.getType();
@@ -1897,11 +1909,14 @@ public class ComplexNotationParser {
 		}
 
 		Map<String, String> nodeIdMap = new HashMap<String, String>();
-		String nodeString2 = getAllNodeString(complexNotation2);
-		String edgeString2 = getAllEdgeString(complexNotation2);
-		String basePairString2 = getAllBasePairString(complexNotation2);
-		String nodeLabelString2 = getAllNodeLabelString(complexNotation2);
-		List<PolymerNode> nodeList2 = getPolymerNodeList(nodeString2,
+		NotationSections sections2 = NotationSections.split(complexNotation2);
+		String nodeString2 = sections2.getSectionString(NotationSections.NODES);
+		String edgeString2 = sections2.getSectionString(NotationSections.EDGES);
+		String basePairString2 = sections2
+				.getSectionString(NotationSections.BASE_PAIRS);
+		String nodeLabelString2 = sections2
+				.getSectionString(NotationSections.ANNOTATIONS);
+		List<PolymerNode> nodeList2 = getPolymerNodeList(sections2,
 				monomerStore);
 		for (PolymerNode node : nodeList2) {
 			String type = node.getType();
@@ -1933,31 +1948,32 @@ public class ComplexNotationParser {
 			nodeLabelString2 = nodeLabelString2.replaceAll(oldId, newId);
 		}
 
-		// build all nodes first
-		sb.append(nodeString1);
+		// build all nodes first, sections of the first notation are copied
+		// from its offsets
+		appendSection(sb, sections1, NotationSections.NODES);
 		sb.append("|");
 		sb.append(nodeString2);
 		sb.append("$");
 
 		// build all edges
-		sb.append(edgeString1);
-		if (edgeString1.length() > 0) {
+		appendSection(sb, sections1, NotationSections.EDGES);
+		if (!sections1.isEmpty(NotationSections.EDGES)) {
 			sb.append("|");
 		}
 		sb.append(edgeString2);
 		sb.append("$");
 
 		// build all base pairs
-		sb.append(basePairString1);
-		if (basePairString1.length() > 0) {
+		appendSection(sb, sections1, NotationSections.BASE_PAIRS);
+		if (!sections1.isEmpty(NotationSections.BASE_PAIRS)) {
 			sb.append("|");
 		}
 		sb.append(basePairString2);
 		sb.append("$");
 
 		// build all node labels
-		sb.append(nodeLabelString1);
-		if (nodeLabelString1.length() > 0) {
+		appendSection(sb, sections1, NotationSections.ANNOTATIONS);
+		if (!sections1.isEmpty(NotationSections.ANNOTATIONS)) {
 			sb.append("|");
 		}
 		sb.append(nodeLabelString2);
@@ -1966,6 +1982,12 @@ public class ComplexNotationParser {
 		return sb.toString();
 	}
 
+	private static void appendSection(StringBuffer sb,
+			NotationSections sections, int section) {
+		sb.append(sections.getNotation(), sections.getStart(section),
+				sections.getEnd(section));
+	}
+
 	/**
 	 * This method will automatically add base pair info into notation only if
 	 * it contains TWO RNA polymer nodes and there is no base pairing info
@@ -1982,13 +2004,14 @@ public class ComplexNotationParser {
 			throws NotationException, MonomerException, IOException,
 			JDOMException, StructureException {
 		String result = null;
-		List<RNAPolymerNode> l = getRNAPolymerNodeList(complexNotation);
-		String basePairString = getAllBasePairString(complexNotation);
-		if (l.size() == 2 && basePairString.length() == 0) {
-			String nodeString = getAllNodeString(complexNotation);
-			String edgeString = getAllEdgeString(complexNotation);
-			String labelString = getAllNodeLabelString(complexNotation);
-			basePairString = getBasePairString(l.get(0), l.get(1));
+		NotationSections sections = NotationSections.split(complexNotation);
+		List<RNAPolymerNode> l = getRNAPolymerNodeList(sections, null);
+		if (l.size() == 2 && sections.isEmpty(NotationSections.BASE_PAIRS)) {
+			String nodeString = sections.getSectionString(NotationSections.NODES);
+			String edgeString = sections.getSectionString(NotationSections.EDGES);
+			String labelString = sections
+					.getSectionString(NotationSections.ANNOTATIONS);
+			String basePairString = getBasePairString(l.get(0), l.get(1));
 			result = nodeString + "$" + edgeString + "$" + basePairString + "$"
 					+ labelString + "$";
 		} else {
@@ -2132,35 +2155,44 @@ public class ComplexNotationParser {
 			MonomerException, JDOMException, IOException {
 		monomerStore = checkForMonomerStore(monomerStore);
 		ComplexPolymer cp = parse(complexNotation, monomerStore);
+		return decomposeComplexPolymer(complexNotation, cp);
+	}
+
+	/**
+	 * This method decomposes a parsed complex notation into complex notations
+	 * of covalently connected monomers
+	 * 
+	 * @param complexNotation
+	 * @param cp
+	 *            parsed complexNotation
+	 * @return complex notation for connected polymers
+	 */
+	static String[] decomposeComplexPolymer(String complexNotation,
+			ComplexPolymer cp) {
 		Map<String, String> annotationMap = cp.getPolymerNodeAnnotationMap();
 
-		Map<Integer, List<String>> groupedNodes = getGroupNodeListMap(
-				cp.getPolymerNodeList(), cp.getPolymerEdgeList());
-		if (groupedNodes.size() == 1) {
+		PolymerGraph graph = new PolymerGraph(cp);
+		if (graph.getComponentCount() == 1) {
 			return new String[] { complexNotation };
 		}
 
-		Map<Integer, String> groupNotationMap = new HashMap<Integer, String>();
-		Set groupSet = groupedNodes.keySet();
-		for (Iterator i = groupSet.iterator(); i.hasNext();) {
-			Integer groupId = (Integer) i.next();
-			List<String> allNodes = groupedNodes.get(groupId);
-			List<String> connectedNodes = new ArrayList<String>();
-			// remove duplicated nodes from list
-			for (String node : allNodes) {
-				if (!connectedNodes.contains(node)) {
-					connectedNodes.add(node);
-				}
+		// sort based on polymerNode list
+		List<String> results = new ArrayList<String>();
+		boolean[] usedGroups = new boolean[graph.getComponentCount()];
+		for (int node = 0; node < cp.getPolymerNodeList().size(); node++) {
+			int groupId = graph.getComponent(node);
+			if (usedGroups[groupId]) {
+				continue;
 			}
+			usedGroups[groupId] = true;
 
-			List<PolymerEdge> connectedEdges = getConnectedEdgeList(
-					connectedNodes, cp.getPolymerEdgeList());
+			List<String> connectedNodes = graph.getComponentNodeIds(groupId);
+			List<PolymerEdge> connectedEdges = graph
+					.getComponentEdgeList(groupId);
 
-			// Is this sorted based on order from complexNotation?
 			StringBuffer nodeSB = new StringBuffer();
 			for (String nodeId : connectedNodes) {
-				String polymerNotation = getPolymerNotation(nodeId,
-						cp.getPolymerNodeList());
+				String polymerNotation = getPolymerNotation(nodeId, graph);
 				if (nodeSB.length() > 0) {
 					nodeSB.append("|");
 				}
@@ -2189,29 +2221,7 @@ public class ComplexNotationParser {
 
 			String result = nodeSB.toString() + "$" + edgeSB.toString() + "$$"
 					+ annotationSB.toString() + "$";
-			groupNotationMap.put(groupId, result);
-		}
-
-		// sort based on polymerNode list
-		List<String> results = new ArrayList<String>();
-		List<String> usedNodes = new ArrayList<String>();
-		Set<Entry<Integer, List<String>>> entrySet = groupedNodes.entrySet();
-		for (PolymerNode polymerNode : cp.getPolymerNodeList()) {
-			String nodeId = polymerNode.getId();
-			if (!usedNodes.contains(nodeId)) {
-				for (Entry<Integer, List<String>> entry : entrySet) {
-					Integer groupId = entry.getKey();
-					List<String> nodes = entry.getValue();
-					if (nodes.contains(nodeId)) {
-						String notation = groupNotationMap.get(groupId);
-						results.add(notation);
-						usedNodes.addAll(nodes);
-						break;
-					}
-				}
-
-			}
-
+			results.add(result);
 		}
 
 		return results.toArray(new String[0]);
@@ -2275,11 +2285,9 @@ public class ComplexNotationParser {
 			return complexNotation;
 		}
 
-		String allNodeString = getAllNodeString(complexNotation);
-		String restOfNotation = complexNotation.substring(allNodeString
-				.length());
-		List<PolymerNode> polymers = getPolymerNodeList(allNodeString,
-				monomerStore);
+		NotationSections sections = NotationSections.split(complexNotation);
+		String restOfNotation = sections.getStringAfterNodes();
+		List<PolymerNode> polymers = getPolymerNodeList(sections, monomerStore);
 		StringBuffer sb = new StringBuffer();
 		for (PolymerNode polymer : polymers) {
 			if (sb.length() > 0) {
@@ -2357,13 +2365,14 @@ public class ComplexNotationParser {
 		} else {
 			Set<String> polymerTypes = MonomerFactory.getInstance()
 					.getMonomerDB().keySet();
+			HelmValidator validator = new HelmValidator(monomerStore);
+			ValidationResult result = new ValidationResult();
 			for (String polymerType : polymerTypes) {
-				try {
-					SimpleNotationParser.validateSimpleNotation(notation,
-							polymerType, monomerStore);
-					return SimpleNotationParser.getComplexNotation(notation,
-							polymerType, monomerStore);
-				} catch (Exception e) {
+				if (validator.validateSimplePolymer(notation, polymerType,
+						result)) {
+					// same as SimpleNotationParser.getComplexNotation without
+					// validating again
+					return polymerType + "1{" + notation + "}$$$$";
 				}
 			}
 			throw new NotationException(
@@ -2442,10 +2451,14 @@ public class ComplexNotationParser {
 
 		monomerStore = checkForMonomerStore(monomerStore);
 
-		int totalMonomerCount = 0;
-
 		List<PolymerNode> nodes = ComplexNotationParser.getPolymerNodeList(
 				notation, monomerStore);
+		return getTotalMonomerCount(nodes, monomerStore);
+	}
+
+	static int getTotalMonomerCount(List<PolymerNode> nodes,
+			MonomerStore monomerStore) throws NotationException {
+		int totalMonomerCount = 0;
 		for (PolymerNode node : nodes) {
 			String polymerType = node.getType();
 			String label = node.getLabel();
@@ -2556,8 +2569,29 @@ public class ComplexNotationParser {
 			validateComplexPolymer(cp, monomerStore);
 		}
 
+		return getMoleculeInfo(cp, monomerStore);
+	}
+
+	/**
+	 * This method returns the MoleculeInfo of a parsed complex polymer
+	 * 
+	 * @param cp
+	 * @param monomerStore
+	 * @return MoleculeInfo object
+	 * @throws NotationException
+	 * @throws MonomerException
+	 * @throws IOException
+	 * @throws JDOMException
+	 * @throws PluginException
+	 * @throws StructureException
+	 */
+	static MoleculeInfo getMoleculeInfo(ComplexPolymer cp,
+			MonomerStore monomerStore) throws NotationException,
+			MonomerException, IOException, JDOMException, PluginException,
+			StructureException {
 		List<PolymerNode> nodeList = cp.getPolymerNodeList();
 		List<PolymerEdge> edgeList = cp.getPolymerEdgeList();
+		PolymerGraph graph = new PolymerGraph(nodeList, edgeList);
 
 		// deal with all connections between polymers
 		List<MoleculeInfo> caps = new ArrayList<MoleculeInfo>();
@@ -2568,7 +2602,7 @@ public class ComplexNotationParser {
 			}
 
 			String sourceId = edge.getSourceNode();
-			PolymerNode sourceNode = getPolymerNodeFromID(nodeList, sourceId);
+			PolymerNode sourceNode = graph.getNode(sourceId);
 			int sourceMonomerNumber = edge.getSourceMonomerNumber();
 			String sourceR = edge.getSourceR();
 			MoleculeInfo sourceCapMI = getCapMoleculeInfo(sourceNode,
@@ -2576,7 +2610,7 @@ public class ComplexNotationParser {
 			caps.add(sourceCapMI);
 
 			String targetId = edge.getTargetNode();
-			PolymerNode targetNode = getPolymerNodeFromID(nodeList, targetId);
+			PolymerNode targetNode = graph.getNode(targetId);
 			int targetMonomerNumber = edge.getTargetMonomerNumber();
 			String targetR = edge.getTargetR();
 			MoleculeInfo targetCapMI = getCapMoleculeInfo(targetNode,
@@ -2584,13 +2618,21 @@ public class ComplexNotationParser {
 			caps.add(targetCapMI);
 		}
 
-		// deal with all simple polymers
+		// deal with all simple polymers, nodes with the same notation and
+		// repeated chunks of nodes are computed once
+		Map<String, MoleculeInfo> nodeInfoMap = new HashMap<String, MoleculeInfo>();
+		Map<String, MoleculeInfo> chunkInfoMap = new HashMap<String, MoleculeInfo>();
 		List<MoleculeInfo> chunks = new ArrayList<MoleculeInfo>();
 		for (PolymerNode node : nodeList) {
 			String polymerType = node.getType();
 			String label = node.getLabel();
-			MoleculeInfo tmpMI = SimpleNotationParser.getMoleculeInfo(label,
-					polymerType, monomerStore);
+			String key = polymerType + ":" + label;
+			MoleculeInfo tmpMI = nodeInfoMap.get(key);
+			if (null == tmpMI) {
+				tmpMI = SimpleNotationParser.getMoleculeInfo(label,
+						polymerType, monomerStore, chunkInfoMap);
+				nodeInfoMap.put(key, tmpMI);
+			}
 			chunks.add(tmpMI);
 		}
 
@@ -2619,39 +2661,83 @@ public class ComplexNotationParser {
 		return monomer.getCapMoleculeInfo(rgroup);
 	}
 
-	private static PolymerNode getPolymerNodeFromID(List<PolymerNode> nodes,
-			String nodeID) {
-		for (PolymerNode node : nodes) {
-			if (node.getId().equals(nodeID)) {
-				return node;
+	/**
+	 * returns the R groups left for connections of each polymer node, from
+	 * monomer attachments only
+	 */
+	private static Map<String, Set<String>> getPolymerNodeRgroupMap(
+			List<PolymerNode> nodeList, MonomerStore monomerStore)
+			throws IOException, NotationException, MonomerException,
+			StructureException, JDOMException {
+		Map<String, Set<String>> nodeRgroupMap = new HashMap<String, Set<String>>();
+		for (PolymerNode node : nodeList) {
+			Set<String> rgroups = SimpleNotationParser
+					.getSimplePolymerRgroupSet(node.getLabel(),
+							PolymerNode.getPolymerType(node.getId()),
+							monomerStore);
+			if (null == rgroups) {
+				throw new NotationException(
+						"Polymer notation contains non-specific monomer structure");
 			}
+			nodeRgroupMap.put(node.getId(), rgroups);
 		}
-		return null;
+		return nodeRgroupMap;
 	}
 
-	private static Map<String, RgroupStructure> getPolymerNodeStructureMap(
-			List<PolymerNode> nodeList, MonomerStore monomerStore)
-			throws IOException, NotationException, MonomerException,
-			StructureException, JDOMException {
+	/**
+	 * adds the monomer fragments of the polymer nodes of a connected group to
+	 * an assembler, nodes with the same polymer type and notation are
+	 * assembled once per request and appended for every occurrence
+	 * 
+	 * @param nodeAssemblyMap
+	 *            assembled polymer notations, key is polymer type and
+	 *            notation, filled on first use
+	 * @return map of node ID to the R atoms of the node in the assembler, key
+	 *         is NodeID:MonomerNumber:R#
+	 */
+	private static Map<String, Map<String, Integer>> assemblePolymerNodes(
+			PolymerGraph graph, int group, StructureAssembler assembler,
+			Map<String, PolymerNodeAssembly> nodeAssemblyMap,
+			MonomerStore monomerStore) throws IOException, NotationException,
+			MonomerException, StructureException, JDOMException {
 
 		monomerStore = checkForMonomerStore(monomerStore);
 
-		Map<String, RgroupStructure> nodeStrucMap = new HashMap<String, RgroupStructure>();
-		for (int i = 0; i < nodeList.size(); i++) {
-			PolymerNode node = nodeList.get(i);
-			String nodeId = node.getId();
-			String nodeLabel = node.getLabel();
+		Map<String, Map<String, Integer>> nodeRgroupMap = new HashMap<String, Map<String, Integer>>();
+		for (int node : graph.getComponentNodes(group)) {
+			PolymerNode polymerNode = graph.getNode(node);
+			if (null == polymerNode) {
+				continue;
+			}
+			String nodeId = polymerNode.getId();
 			String polymerType = PolymerNode.getPolymerType(nodeId);
-			RgroupStructure struc = SimpleNotationParser
-					.getSimplePolymerStructure(nodeLabel, polymerType,
-							monomerStore);
-			if (null == struc.getMolecule()) {
-				throw new NotationException(
-						"Polymer notation contains non-specific monomer structure");
+			String label = polymerNode.getLabel();
+			String key = polymerType + ":" + label;
+			PolymerNodeAssembly nodeAssembly = nodeAssemblyMap.get(key);
+			if (null == nodeAssembly) {
+				StructureAssembler nodeAssembler = new StructureAssembler();
+				Map<String, Integer> rgMap = SimpleNotationParser
+						.assembleSimplePolymerStructure(label, polymerType,
+								monomerStore, nodeAssembler);
+				if (null == rgMap) {
+					throw new NotationException(
+							"Polymer notation contains non-specific monomer structure");
+				}
+				nodeAssembly = new PolymerNodeAssembly(nodeAssembler, rgMap);
+				nodeAssemblyMap.put(key, nodeAssembly);
+			}
+			int offset = assembler.append(nodeAssembly.assembler);
+
+			// add original poymer ID into rgroup Atom key
+			Map<String, Integer> newRgMap = new HashMap<String, Integer>();
+			for (Entry<String, Integer> entry : nodeAssembly.rgroupMap
+					.entrySet()) {
+				newRgMap.put(nodeId + ":" + entry.getKey(),
+						offset + entry.getValue());
 			}
-			nodeStrucMap.put(nodeId, struc);
+			nodeRgroupMap.put(nodeId, newRgMap);
 		}
-		return nodeStrucMap;
+		return nodeRgroupMap;
 	}
 
 	/**
@@ -2669,10 +2755,9 @@ public class ComplexNotationParser {
 			MonomerStore monomerStore) throws NotationException,
 			MonomerException, JDOMException, IOException {
 
-		String allNodeString = getAllNodeString(helmString);
-		String restOfNotation = helmString.substring(allNodeString.length());
-		List<PolymerNode> polymers = getPolymerNodeList(allNodeString,
-				monomerStore);
+		NotationSections sections = NotationSections.split(helmString);
+		String restOfNotation = sections.getStringAfterNodes();
+		List<PolymerNode> polymers = getPolymerNodeList(sections, monomerStore);
 		StringBuffer sb = new StringBuffer();
 		for (PolymerNode polymer : polymers) {
 			if (sb.length() > 0) {
@@ -2691,4 +2776,20 @@ public class ComplexNotationParser {
 		return sb.toString() + restOfNotation;
 
 	}
+
+	/**
+	 * monomer fragments of a polymer notation with the R atoms left for
+	 * connections, shared by the polymer nodes with that notation
+	 */
+	private static final class PolymerNodeAssembly {
+
+		private final StructureAssembler assembler;
+		private final Map<String, Integer> rgroupMap;
+
+		PolymerNodeAssembly(StructureAssembler assembler,
+				Map<String, Integer> rgroupMap) {
+			this.assembler = assembler;
+			this.rgroupMap = rgroupMap;
+		}
+	}
 }
@@ -47,7 +47,8 @@ import java.util.TreeMap;
 public class EdgeParser {
 
 	/**
-	 * parses input edgeNotation into a PolymerEdge object
+	 * parses input edgeNotation into a PolymerEdge object, components are
+	 * located by position and checked without regular expressions
 	 * 
 	 * @param edgeNotation
 	 * @return a PolymerEdge object
@@ -60,29 +61,30 @@ public class EdgeParser {
 			throw new NotationException("Empty polymer edge notation");
 		}
 
-		String[] edgeComponents = edgeNotation.split(
-				PolymerEdge.EDGE_COMPONENT_DELIMITER, -1);
-		if (edgeComponents.length != 3) {
+		int firstPos = edgeNotation
+				.indexOf(PolymerEdge.EDGE_COMPONENT_DELIMITER);
+		int secondPos = (firstPos < 0) ? -1 : edgeNotation.indexOf(
+				PolymerEdge.EDGE_COMPONENT_DELIMITER, firstPos + 1);
+		if (secondPos < 0
+				|| edgeNotation.indexOf(PolymerEdge.EDGE_COMPONENT_DELIMITER,
+						secondPos + 1) >= 0) {
 			throw new NotationException(
 					"Invalid polymer edge notation: must contain three components");
 		}
 
-		String sourceNode = edgeComponents[0];
+		String sourceNode = edgeNotation.substring(0, firstPos);
 		if (checkNode(sourceNode)) {
 			edge.setSourceNode(sourceNode);
 		}
 
-		String targetNode = edgeComponents[1];
+		String targetNode = edgeNotation.substring(firstPos + 1, secondPos);
 		if (checkNode(targetNode)) {
 			edge.setTargetNode(targetNode);
 		}
 
-		String connection = edgeComponents[2];
-		PolymerEdge tmp = parseConnection(connection);
+		String connection = edgeNotation.substring(secondPos + 1);
+		parseConnection(connection, edge);
 		edge.setConnection(connection);
-		edge.setEdgeType(tmp.getEdgeType());
-		edge.setSourceAttachmentType(tmp.getSourceAttachmentType());
-		edge.setTargetAttachmentType(tmp.getTargetAttachmentType());
 
 		edge.setEdgeNotation(edgeNotation);
 
@@ -188,42 +190,46 @@ public class EdgeParser {
 			throw new NotationException("Node is empty");
 		}
 
-		String[] nodeIDs = node.split(PolymerEdge.NODE_CONCATENATOR_REGEX, -1);
-		if (nodeIDs.length > 1) {
-			String type = getPolymerType(nodeIDs[0]);
-			for (int i = 1; i < nodeIDs.length; i++) {
-				String tmp = getPolymerType(nodeIDs[i]);
-				if (!tmp.equals(type)) {
-					throw new NotationException(
-							"Group polymers must of the same type");
-				}
+		// all nodes of a group have the polymer type of the first node
+		int nodeEnd = getNodeEnd(node, 0);
+		int typeEnd = getPolymerTypeEnd(node, 0, nodeEnd);
+		while (nodeEnd < node.length()) {
+			int nodeStart = nodeEnd + 1;
+			nodeEnd = getNodeEnd(node, nodeStart);
+			int tmpEnd = getPolymerTypeEnd(node, nodeStart, nodeEnd);
+			if (tmpEnd - nodeStart != typeEnd
+					|| !node.regionMatches(nodeStart, node, 0, typeEnd)) {
+				throw new NotationException(
+						"Group polymers must of the same type");
 			}
 		}
 		return true;
 	}
 
-	private static PolymerEdge parseConnection(String connection)
+	/**
+	 * checks a connection and sets edge and attachment types of the edge
+	 */
+	private static void parseConnection(String connection, PolymerEdge edge)
 			throws NotationException {
-		PolymerEdge pe = new PolymerEdge();
-		pe.setConnection(connection);
-
 		if (null == connection || connection.length() == 0) {
 			throw new NotationException("Empty connection notation");
 		}
 
-		String[] attachments = connection.split(
-				PolymerEdge.CONNECTION_SEPARATOR, -1);
-		if (attachments.length != 2) {
+		int separatorPos = connection.indexOf(PolymerEdge.CONNECTION_SEPARATOR);
+		if (separatorPos < 0
+				|| connection.indexOf(PolymerEdge.CONNECTION_SEPARATOR,
+						separatorPos + 1) >= 0) {
 			throw new NotationException(
 					"Connection must contain two parts separated with "
 							+ PolymerEdge.CONNECTION_SEPARATOR);
 		}
 
-		int srcAtt = parseAttachment(attachments[0]);
-		pe.setSourceAttachmentType(srcAtt);
+		int srcAtt = parseAttachment(connection, 0, separatorPos);
+		edge.setSourceAttachmentType(srcAtt);
 
-		int tgtAtt = parseAttachment(attachments[1]);
-		pe.setTargetAttachmentType(tgtAtt);
+		int tgtAtt = parseAttachment(connection, separatorPos + 1,
+				connection.length());
+		edge.setTargetAttachmentType(tgtAtt);
 
 		int edgeType = 0;
 		if (srcAtt == PolymerEdge.STANDARD_EDGE_ATTACHMENT
@@ -239,62 +245,94 @@ public class EdgeParser {
 			throw new NotationException("Invalid connection notation: "
 					+ connection);
 		}
-		pe.setEdgeType(edgeType);
-
-		return pe;
+		edge.setEdgeType(edgeType);
 	}
 
-	private static int parseAttachment(String attachment)
+	/**
+	 * returns the attachment type of the attachment between start and end of
+	 * the connection
+	 */
+	private static int parseAttachment(String connection, int start, int end)
 			throws NotationException {
 
 		int attachmentType = 0;
-		if (null == attachment && attachment.length() == 0) {
-			throw new NotationException("Empty attachment notation");
-		}
-
-		String[] parts = attachment.split(
-				PolymerEdge.MONOMER_ATTACHEMENT_SEPARATOR, -1);
-		if (parts.length != 2) {
+		int separatorPos = connection.indexOf(
+				PolymerEdge.MONOMER_ATTACHEMENT_SEPARATOR, start);
+		if (separatorPos < 0
+				|| separatorPos >= end
+				|| isBefore(connection.indexOf(
+						PolymerEdge.MONOMER_ATTACHEMENT_SEPARATOR,
+						separatorPos + 1), end)) {
 			throw new NotationException(
 					"Attachment must contain two parts separated with "
 							+ PolymerEdge.MONOMER_ATTACHEMENT_SEPARATOR);
 		}
 
-		if ((parts[0].matches("[0-9]++"))) {
-			if (parts[1].startsWith("R")) {
-				try {
-					MonomerParser.validateAttachmentLabel(parts[1]);
+		int labelStart = separatorPos + 1;
+		if (isDigits(connection, start, separatorPos)) {
+			if (labelStart < end && connection.charAt(labelStart) == 'R') {
+				if (isDigits(connection, labelStart + 1, end)
+						|| labelStart + 1 == end) {
 					attachmentType = PolymerEdge.STANDARD_EDGE_ATTACHMENT;
-				} catch (Exception e) {
 				}
-			} else if (parts[1].equalsIgnoreCase(PolymerEdge.PAIR_EDGE_KEY)) {
+			} else if (end - labelStart == PolymerEdge.PAIR_EDGE_KEY.length()
+					&& connection.regionMatches(true, labelStart,
+							PolymerEdge.PAIR_EDGE_KEY, 0, end - labelStart)) {
 				attachmentType = PolymerEdge.PAIR_EDGE_ATTACHMENT;
 			}
-		} else if (parts[0].equalsIgnoreCase(PolymerEdge.GENERIC_EDGE_KEY)) {
+		} else if (separatorPos - start == PolymerEdge.GENERIC_EDGE_KEY
+				.length()
+				&& connection.regionMatches(true, start,
+						PolymerEdge.GENERIC_EDGE_KEY, 0, separatorPos - start)) {
 			attachmentType = PolymerEdge.GENERIC_EDGE_ATTACHMENT;
 		} else {
 			throw new NotationException("Invalid attachment notation: "
-					+ attachment);
+					+ connection.substring(start, end));
 		}
 
 		return attachmentType;
 	}
 
-	private static String getPolymerType(String nodeID) {
-		if (null == nodeID) {
-			return null;
+	private static boolean isBefore(int pos, int end) {
+		return pos >= 0 && pos < end;
+	}
+
+	/**
+	 * Checks if all characters between start and end are decimal digits, false
+	 * for empty ranges
+	 */
+	private static boolean isDigits(String s, int start, int end) {
+		if (start >= end) {
+			return false;
+		}
+		for (int i = start; i < end; i++) {
+			char c = s.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
 		}
+		return true;
+	}
 
-		char[] chars = nodeID.toCharArray();
-		StringBuilder sb = new StringBuilder();
-		for (int i = 0; i < chars.length; i++) {
-			if (String.valueOf(chars[i]).matches("[0-9]")) {
+	private static int getNodeEnd(String node, int start) {
+		int end = node.indexOf(PolymerEdge.NODE_CONCATENATOR, start);
+		return (end < 0) ? node.length() : end;
+	}
+
+	/**
+	 * returns the position of the first digit of the node ID between start and
+	 * end, the polymer type ends there
+	 */
+	private static int getPolymerTypeEnd(String node, int start, int end) {
+		int i = start;
+		while (i < end) {
+			char c = node.charAt(i);
+			if (c >= '0' && c <= '9') {
 				break;
-			} else {
-				sb.append(chars[i]);
 			}
+			i++;
 		}
-		return sb.toString();
+		return i;
 	}
 
 	private static List<String> getSortedEdgeNodeList(
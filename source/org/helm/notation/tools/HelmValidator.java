@@ -0,0 +1,527 @@
+/*******************************************************************************
+ * Copyright C 2012, The Pistoia Alliance
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package org.helm.notation.tools;
+
+import org.helm.notation.MonomerException;
+import org.helm.notation.MonomerFactory;
+import org.helm.notation.MonomerStore;
+import org.helm.notation.NotationException;
+import org.helm.notation.OverlayMonomerStore;
+import org.helm.notation.StructureException;
+import org.helm.notation.model.ComplexPolymer;
+import org.helm.notation.model.Monomer;
+import org.helm.notation.model.PolymerNode;
+import org.helm.notation.model.ValidationResult;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.jdom.JDOMException;
+
+/**
+ * This class validates complex and simple notations without throwing for
+ * invalid input; the outcome is written to a ValidationResult. Section
+ * delimiters, polymer nodes, peptide grammar and monomer IDs are checked
+ * directly. The remaining checks (nucleotides, attachments, connections) use
+ * the parsers and turn their exceptions into results, as do monomers that are
+ * not in the store, since the parsers accept plain SMILES as ad hoc monomers.
+ * 
+ * Validation has no side effects: ad hoc monomers that the parsers register
+ * for inline SMILES go to an overlay of the store that is discarded after each
+ * notation.
+ * 
+ * Only failures unrelated to the input, such as an unreadable monomer
+ * database, are thrown. A validator is safe for concurrent use.
+ */
+public class HelmValidator {
+
+	/**
+	 * receives the result of each notation of a bulk validation
+	 */
+	public interface ResultHandler {
+
+		/**
+		 * called once per notation; the result is reused after the call
+		 * returns. Calls come from several threads if the validator runs in
+		 * parallel.
+		 * 
+		 * @param index
+		 *            0 based position of the notation in the input
+		 * @param result
+		 */
+		void handle(long index, ValidationResult result);
+	}
+
+	// first unresolved monomer offset if all monomers of a node are known
+	private static final int ALL_MONOMERS_RESOLVED = -1;
+
+	// node check failed and the error was recorded
+	private static final int NODE_CHECK_FAILED = Integer.MIN_VALUE;
+
+	private final MonomerStore monomerStore;
+	private final int parallelism;
+
+	/**
+	 * Constructs a validator for the store of MonomerFactory
+	 * 
+	 * @throws MonomerException
+	 * @throws IOException
+	 * @throws JDOMException
+	 */
+	public HelmValidator() throws MonomerException, IOException,
+			JDOMException {
+		this(MonomerFactory.getInstance().getMonomerStore());
+	}
+
+	/**
+	 * Constructs a validator that validates bulk input on the calling thread
+	 * 
+	 * @param monomerStore
+	 */
+	public HelmValidator(MonomerStore monomerStore) {
+		this(monomerStore, 1);
+	}
+
+	/**
+	 * Constructs a validator
+	 * 
+	 * @param monomerStore
+	 * @param parallelism
+	 *            number of threads for bulk validation, 1 validates on the
+	 *            calling thread
+	 */
+	public HelmValidator(MonomerStore monomerStore, int parallelism) {
+		this.monomerStore = monomerStore;
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	public MonomerStore getMonomerStore() {
+		return monomerStore;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * validates a complex notation
+	 * 
+	 * @param notation
+	 * @return new ValidationResult
+	 * @throws IOException
+	 * @throws JDOMException
+	 */
+	public ValidationResult validate(String notation) throws IOException,
+			JDOMException {
+		ValidationResult result = new ValidationResult();
+		validate(notation, result);
+		return result;
+	}
+
+	/**
+	 * validates a complex notation
+	 * 
+	 * @param notation
+	 * @param result
+	 *            result to reset and fill
+	 * @return true if valid
+	 * @throws IOException
+	 * @throws JDOMException
+	 */
+	public boolean validate(String notation, ValidationResult result)
+			throws IOException, JDOMException {
+		result.reset(notation);
+		if (null == notation || notation.length() == 0) {
+			return result.setError(ValidationResult.INVALID_FORMAT, null, 0,
+					"Complex notation is empty");
+		}
+
+		NotationSections sections = new NotationSections(notation);
+		if (!sections.isValid()) {
+			return result.setError(ValidationResult.INVALID_FORMAT, null,
+					notation.length(), sections.getErrorMessage());
+		}
+		int connectionStart = sections.getStart(NotationSections.EDGES);
+		MonomerStore store = new OverlayMonomerStore(monomerStore);
+
+		// polymer nodes are split as by ComplexNotationParser.getPolymerNodeList
+		String nodes = sections.getSectionString(NotationSections.NODES);
+		List<PolymerNode> nodeList = new ArrayList<PolymerNode>();
+		Map<String, String> nodeMap = new HashMap<String, String>();
+		Map<String, Set<String>> rgroupMap = new HashMap<String, Set<String>>();
+		int nodeStart = 0;
+		int labelStart = nodes.indexOf(
+				ComplexNotationParser.NODE_LABEL_START_SYMBOL, nodeStart);
+		int nodeEnd = nodes.indexOf(
+				ComplexNotationParser.NODE_LABEL_END_SYMBOL, nodeStart) + 1;
+		while (labelStart > 0 && nodeEnd > 0) {
+			String nodeString = nodes.substring(nodeStart, nodeEnd);
+			int idEnd = nodeString
+					.indexOf(ComplexNotationParser.NODE_LABEL_START_SYMBOL);
+			if (idEnd <= 0) {
+				return result.setError(ValidationResult.INVALID_POLYMER_NODE,
+						null, nodeStart,
+						ComplexNotationParser.INVALID_POLYMER_NODE + ": "
+								+ nodeString);
+			}
+			String id = nodeString.substring(0, idEnd);
+			if (!isValidNodeID(id)) {
+				return result.setError(ValidationResult.INVALID_POLYMER_NODE,
+						null, nodeStart, ComplexNotationParser.INVALID_NODE_ID
+								+ ": " + id);
+			}
+			if (nodeMap.containsKey(id)) {
+				return result.setError(ValidationResult.INVALID_POLYMER_NODE,
+						id, nodeStart, "Polymer node IDs are not unique");
+			}
+			String label = nodeString.substring(idEnd + 1,
+					nodeString.length() - 1);
+			Set<String> rgroups = validateNode(id,
+					PolymerNode.getPolymerType(id), label, nodeStart + idEnd
+							+ 1, store, result);
+			if (null == rgroups) {
+				return false;
+			}
+			PolymerNode node = new PolymerNode();
+			node.setId(id);
+			node.setLabel(label);
+			nodeList.add(node);
+			nodeMap.put(id, label);
+			rgroupMap.put(id, rgroups);
+
+			nodeStart = nodeEnd + 1;
+			labelStart = nodes.indexOf(
+					ComplexNotationParser.NODE_LABEL_START_SYMBOL, nodeStart);
+			nodeEnd = nodes.indexOf(
+					ComplexNotationParser.NODE_LABEL_END_SYMBOL, nodeStart) + 1;
+		}
+		if (nodeMap.isEmpty()) {
+			return result.setError(ValidationResult.INVALID_POLYMER_NODE, null,
+					0, "Complex notation must have at least one polymer node");
+		}
+
+		try {
+			ComplexPolymer complexPolymer = ComplexNotationParser.parse(
+					sections, nodeList);
+			ComplexNotationParser.validateConnections(complexPolymer, nodeMap,
+					rgroupMap);
+		} catch (NotationException e) {
+			return result.setError(ValidationResult.INVALID_CONNECTION, null,
+					connectionStart, e.getMessage());
+		} catch (MonomerException e) {
+			return result.setError(ValidationResult.INVALID_CONNECTION, null,
+					connectionStart, e.getMessage());
+		} catch (RuntimeException e) {
+			return result.setError(ValidationResult.INVALID_CONNECTION, null,
+					connectionStart, e.toString());
+		}
+		return true;
+	}
+
+	/**
+	 * validates a simple notation of the given polymer type
+	 * 
+	 * @param notation
+	 * @param polymerType
+	 * @param result
+	 *            result to reset and fill
+	 * @return true if valid
+	 * @throws IOException
+	 * @throws JDOMException
+	 */
+	public boolean validateSimplePolymer(String notation, String polymerType,
+			ValidationResult result) throws IOException, JDOMException {
+		result.reset(notation);
+		if (null == notation) {
+			return result.setError(ValidationResult.INVALID_POLYMER, null, 0,
+					"Polymer notation contains no monomer");
+		}
+		return null != validateNode(null, polymerType, notation, 0,
+				new OverlayMonomerStore(monomerStore), result);
+	}
+
+	/**
+	 * validates the notations of an iterator, on the calling thread or in
+	 * parallel as configured. The iterator is only used by one thread at a
+	 * time.
+	 * 
+	 * @param notations
+	 * @param handler
+	 *            receives the result of each notation
+	 * @throws IOException
+	 * @throws JDOMException
+	 */
+	public void validate(final Iterator<String> notations,
+			final ResultHandler handler) throws IOException, JDOMException {
+		if (parallelism == 1) {
+			new BulkTask(notations, handler, null).call();
+			return;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+		try {
+			long[] nextIndex = new long[1];
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int i = 0; i < parallelism; i++) {
+				futures.add(executor.submit(new BulkTask(notations, handler,
+						nextIndex)));
+			}
+			for (Future<Void> future : futures) {
+				try {
+					future.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Bulk validation was interrupted", e);
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof IOException) {
+						throw (IOException) cause;
+					} else if (cause instanceof JDOMException) {
+						throw (JDOMException) cause;
+					} else if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					} else if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+					throw new IOException(cause);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * checks one polymer node
+	 * 
+	 * @param store
+	 *            overlay of the monomer store for ad hoc monomers
+	 * @return R groups left for connections, or null if the node is invalid
+	 */
+	private Set<String> validateNode(String nodeId, String polymerType,
+			String label, int labelOffset, MonomerStore store,
+			ValidationResult result) throws IOException, JDOMException {
+		if (!polymerType.equals(Monomer.PEPTIDE_POLYMER_TYPE)
+				&& !polymerType.equals(Monomer.NUCLIEC_ACID_POLYMER_TYPE)
+				&& !polymerType.equals(Monomer.CHEMICAL_POLYMER_TYPE)) {
+			result.setError(ValidationResult.INVALID_POLYMER_NODE, nodeId,
+					labelOffset, "Unknown polymer type " + polymerType);
+			return null;
+		}
+		if (label.length() == 0) {
+			result.setError(ValidationResult.INVALID_POLYMER, nodeId,
+					labelOffset, "Polymer notation contains no monomer");
+			return null;
+		}
+
+		int unresolved;
+		if (polymerType.equals(Monomer.CHEMICAL_POLYMER_TYPE)) {
+			unresolved = checkChemMonomer(label, labelOffset);
+		} else {
+			unresolved = checkMonomers(nodeId, polymerType, label,
+					labelOffset, result);
+		}
+		if (unresolved == NODE_CHECK_FAILED) {
+			return null;
+		}
+
+		try {
+			Set<String> rgroups = SimpleNotationParser
+					.getSimplePolymerRgroupSet(label, polymerType, store);
+			if (null == rgroups && null != nodeId) {
+				result.setError(ValidationResult.INVALID_POLYMER, nodeId,
+						labelOffset,
+						"Polymer notation contains non-specific monomer structure");
+			}
+			return rgroups;
+		} catch (NotationException e) {
+			setNodeError(nodeId, labelOffset, unresolved, e.getMessage(),
+					result);
+		} catch (MonomerException e) {
+			setNodeError(nodeId, labelOffset, unresolved, e.getMessage(),
+					result);
+		} catch (StructureException e) {
+			setNodeError(nodeId, labelOffset, unresolved, e.getMessage(),
+					result);
+		} catch (RuntimeException e) {
+			setNodeError(nodeId, labelOffset, unresolved, e.toString(), result);
+		}
+		return null;
+	}
+
+	private static void setNodeError(String nodeId, int labelOffset,
+			int unresolved, String message, ValidationResult result) {
+		if (unresolved >= 0) {
+			result.setError(ValidationResult.UNKNOWN_MONOMER, nodeId,
+					unresolved, message);
+		} else {
+			result.setError(ValidationResult.INVALID_POLYMER, nodeId,
+					labelOffset, message);
+		}
+	}
+
+	/**
+	 * checks the monomer IDs of a peptide or RNA, for peptides also the
+	 * grammar of SimpleNotationParser.getMonomerIDList
+	 * 
+	 * @return offset of the first monomer that is not in the store,
+	 *         ALL_MONOMERS_RESOLVED or NODE_CHECK_FAILED
+	 */
+	private int checkMonomers(String nodeId, String polymerType, String label,
+			int labelOffset, ValidationResult result) {
+		boolean isPeptide = polymerType.equals(Monomer.PEPTIDE_POLYMER_TYPE);
+		Map<String, Monomer> monomers = monomerStore.getMonomers(polymerType);
+		SimpleNotationLexer lexer = new SimpleNotationLexer(label);
+		int unresolved = ALL_MONOMERS_RESOLVED;
+
+		for (int group = 0; group < lexer.getGroupCount(); group++) {
+			boolean isSingleLetter = lexer.getGroupEnd(group)
+					- lexer.getGroupStart(group) == 1;
+			for (int token = lexer.getFirstToken(group); token < lexer
+					.getEndToken(group); token++) {
+				int flags = lexer.getTokenFlags(token);
+				String id;
+				if (!isPeptide
+						|| (flags & SimpleNotationLexer.BRACKETED) != 0) {
+					if ((flags & SimpleNotationLexer.UNMATCHED) != 0) {
+						if (!isPeptide) {
+							// nucleotide grammar is left to the parser
+							continue;
+						}
+						result.setError(
+								ValidationResult.INVALID_POLYMER,
+								nodeId,
+								labelOffset + lexer.getTokenStart(token),
+								"Invalid Polymer Notation: modified monomer must be enclosed by square brackets");
+						return NODE_CHECK_FAILED;
+					}
+					id = ((flags & SimpleNotationLexer.SMILES) != 0) ? null
+							: lexer.getMonomerID(token);
+				} else if (isSingleLetter) {
+					id = lexer.getGroupText(group);
+				} else {
+					result.setError(ValidationResult.INVALID_POLYMER, nodeId,
+							labelOffset + lexer.getGroupStart(group),
+							"Invalid Peptide Notation: "
+									+ lexer.getGroupText(group));
+					return NODE_CHECK_FAILED;
+				}
+
+				if (unresolved == ALL_MONOMERS_RESOLVED
+						&& (null == id || null == monomers || !monomers
+								.containsKey(id))) {
+					unresolved = labelOffset + lexer.getTokenStart(token);
+				}
+			}
+		}
+		return unresolved;
+	}
+
+	private int checkChemMonomer(String label, int labelOffset) {
+		String id = label;
+		if (id.charAt(0) == SimpleNotationParser.MODIFICATION_START_SYMBOL
+				&& id.charAt(id.length() - 1) == SimpleNotationParser.MODIFICATION_END_SYMBOL) {
+			id = id.substring(1, id.length() - 1);
+		}
+		Map<String, Monomer> monomers = monomerStore
+				.getMonomers(Monomer.CHEMICAL_POLYMER_TYPE);
+		if (!SimpleNotationLexer.isSmilesCode(id) && null != monomers
+				&& monomers.containsKey(id)) {
+			return ALL_MONOMERS_RESOLVED;
+		}
+		return labelOffset;
+	}
+
+	// same rules as ComplexNotationParser.validateNodeID
+	private static boolean isValidNodeID(String nodeID) {
+		if (!isLetter(nodeID.charAt(0))
+				|| !isDigit(nodeID.charAt(nodeID.length() - 1))) {
+			return false;
+		}
+		boolean foundNum = false;
+		for (int i = 0; i < nodeID.length(); i++) {
+			char c = nodeID.charAt(i);
+			if (isDigit(c)) {
+				foundNum = true;
+			} else if (foundNum && isLetter(c)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isLetter(char c) {
+		return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/**
+	 * validates notations of a shared iterator with its own result
+	 */
+	private class BulkTask implements Callable<Void> {
+
+		private final Iterator<String> notations;
+		private final ResultHandler handler;
+		private final long[] nextIndex;
+		private final ValidationResult result = new ValidationResult();
+
+		/**
+		 * @param nextIndex
+		 *            index counter shared by the tasks, guarded by the
+		 *            iterator, or null for a single task
+		 */
+		BulkTask(Iterator<String> notations, ResultHandler handler,
+				long[] nextIndex) {
+			this.notations = notations;
+			this.handler = handler;
+			this.nextIndex = (null == nextIndex) ? new long[1] : nextIndex;
+		}
+
+		public Void call() throws IOException, JDOMException {
+			while (!Thread.currentThread().isInterrupted()) {
+				String notation;
+				long index;
+				synchronized (notations) {
+					if (!notations.hasNext()) {
+						return null;
+					}
+					notation = notations.next();
+					index = nextIndex[0]++;
+				}
+				validate(notation, result);
+				handler.handle(index, result);
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,292 @@
+/*******************************************************************************
+ * Copyright C 2012, The Pistoia Alliance
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package org.helm.notation.tools;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.helm.notation.StructureException;
+
+import chemaxon.struc.MolAtom;
+import chemaxon.struc.MolBond;
+import chemaxon.struc.Molecule;
+
+/**
+ * This class keeps the topology of a monomer or cap group structure in
+ * primitive arrays: element, charge, isotope and R group number of each atom,
+ * end points and flags (type and stereo) of each bond. Polymers are stitched
+ * from graphs by atom index arithmetic, the Marvin molecule the graph was
+ * created from is only used to clone atoms and bonds when a polymer molecule
+ * is built.
+ * 
+ * A graph is immutable and can be shared, cloning is synchronized because
+ * Marvin molecules are not thread safe, even for reading.
+ */
+final class MolecularGraph {
+
+	/** bond index for R atoms without exactly one bond and other atoms */
+	static final int NO_BOND = -1;
+
+	private final Molecule molecule;
+	private final SmilesTemplate smilesTemplate;
+
+	private final int atomCount;
+	private final int[] elements;
+	private final int[] charges;
+	private final int[] isotopes;
+	private final int[] rgroups;
+	private final int[] rgroupBonds;
+
+	private final int bondCount;
+	// two atom indices per bond
+	private final int[] bondAtoms;
+	private final int[] bondFlags;
+
+	// R# label of each R atom, the last atom wins for duplicate labels
+	private final Map<String, Integer> rgroupMap;
+
+	/**
+	 * Creates the graph of a molecule, the molecule must not be changed
+	 * afterwards
+	 * 
+	 * @param molecule
+	 */
+	MolecularGraph(Molecule molecule) {
+		this(molecule, null);
+	}
+
+	/**
+	 * Creates the graph of a molecule with the SMILES template of the same
+	 * structure, the molecule must not be changed afterwards
+	 * 
+	 * @param molecule
+	 * @param smilesTemplate
+	 *            template with the same R groups or null
+	 */
+	MolecularGraph(Molecule molecule, SmilesTemplate smilesTemplate) {
+		this.molecule = molecule;
+		this.smilesTemplate = smilesTemplate;
+		MolAtom[] atoms = molecule.getAtomArray();
+		MolBond[] bonds = molecule.getBondArray();
+
+		atomCount = atoms.length;
+		elements = new int[atomCount];
+		charges = new int[atomCount];
+		isotopes = new int[atomCount];
+		rgroups = new int[atomCount];
+		rgroupBonds = new int[atomCount];
+		Map<MolAtom, Integer> indices = new IdentityHashMap<MolAtom, Integer>();
+		Map<String, Integer> labels = new HashMap<String, Integer>();
+		for (int i = 0; i < atomCount; i++) {
+			MolAtom atom = atoms[i];
+			elements[i] = atom.getAtno();
+			charges[i] = atom.getCharge();
+			isotopes[i] = atom.getMassno();
+			rgroups[i] = atom.getRgroup();
+			rgroupBonds[i] = NO_BOND;
+			indices.put(atom, i);
+			if (rgroups[i] > 0) {
+				labels.put("R" + rgroups[i], i);
+			}
+		}
+		rgroupMap = Collections.unmodifiableMap(labels);
+
+		bondCount = bonds.length;
+		bondAtoms = new int[bondCount * 2];
+		bondFlags = new int[bondCount];
+		for (int i = 0; i < bondCount; i++) {
+			bondAtoms[2 * i] = indices.get(bonds[i].getAtom1());
+			bondAtoms[2 * i + 1] = indices.get(bonds[i].getAtom2());
+			bondFlags[i] = bonds[i].getFlags();
+		}
+
+		for (int i = 0; i < 2 * bondCount; i++) {
+			int atom = bondAtoms[i];
+			if (rgroups[atom] > 0 && atoms[atom].getBondCount() == 1) {
+				rgroupBonds[atom] = i / 2;
+			}
+		}
+	}
+
+	/**
+	 * returns the template for writing the structure as SMILES
+	 * 
+	 * @return SmilesTemplate or null
+	 */
+	SmilesTemplate getSmilesTemplate() {
+		return smilesTemplate;
+	}
+
+	int getAtomCount() {
+		return atomCount;
+	}
+
+	int getElement(int atom) {
+		return elements[atom];
+	}
+
+	int getCharge(int atom) {
+		return charges[atom];
+	}
+
+	int getIsotope(int atom) {
+		return isotopes[atom];
+	}
+
+	/**
+	 * returns the R group number of an atom
+	 * 
+	 * @param atom
+	 * @return R group number or 0 if the atom is no R atom
+	 */
+	int getRgroup(int atom) {
+		return rgroups[atom];
+	}
+
+	/**
+	 * returns the bond of an R atom
+	 * 
+	 * @param atom
+	 * @return bond index or NO_BOND if the atom is no R atom or has not
+	 *         exactly one bond
+	 */
+	int getRgroupBond(int atom) {
+		return rgroupBonds[atom];
+	}
+
+	int getBondCount() {
+		return bondCount;
+	}
+
+	int getBondAtom1(int bond) {
+		return bondAtoms[2 * bond];
+	}
+
+	int getBondAtom2(int bond) {
+		return bondAtoms[2 * bond + 1];
+	}
+
+	int getBondFlags(int bond) {
+		return bondFlags[bond];
+	}
+
+	/**
+	 * returns the other atom of a bond
+	 * 
+	 * @param bond
+	 * @param atom
+	 * @return atom index
+	 */
+	int getOtherAtom(int bond, int atom) {
+		int atom1 = bondAtoms[2 * bond];
+		return (atom1 == atom) ? bondAtoms[2 * bond + 1] : atom1;
+	}
+
+	/**
+	 * returns the R atoms by label, e.g. R1
+	 * 
+	 * @return unmodifiable map of label to atom index
+	 */
+	Map<String, Integer> getRgroupMap() {
+		return rgroupMap;
+	}
+
+	/**
+	 * returns the first atom of an R group, same as
+	 * StructureParser.getRgroupAtom
+	 * 
+	 * @param rgroupId
+	 * @return atom index
+	 * @throws StructureException
+	 *             if there is no such R group
+	 */
+	int getRgroupAtom(int rgroupId) throws StructureException {
+		for (int i = 0; i < atomCount; i++) {
+			if (rgroups[i] == rgroupId) {
+				return i;
+			}
+		}
+		throw new StructureException("Rgroup does not exist in the structure");
+	}
+
+	/**
+	 * Checks if the bond of an R atom is a single stereo bond, same as
+	 * StructureParser.isSingleStereo
+	 * 
+	 * @param atom
+	 * @return true for up, down and wavy bonds
+	 * @throws StructureException
+	 *             if the R atom has not exactly one bond
+	 */
+	boolean isSingleStereo(int atom) throws StructureException {
+		int bond = rgroupBonds[atom];
+		if (bond == NO_BOND) {
+			throw new StructureException(
+					"RGroup is allowed to have single connection to other atom");
+		}
+		int bondType = bondFlags[bond] & MolBond.STEREO1_MASK;
+		return bondType == MolBond.UP || bondType == MolBond.DOWN
+				|| bondType == MolBond.WAVY;
+	}
+
+	/**
+	 * returns a copy of the molecule of the graph, atoms and bonds are in graph
+	 * order
+	 * 
+	 * @return Molecule
+	 */
+	synchronized Molecule cloneMolecule() {
+		return molecule.cloneMolecule();
+	}
+
+	/**
+	 * clones the atoms that are not removed
+	 * 
+	 * @param target
+	 *            receives the clone of atom i at offset + i
+	 * @param offset
+	 * @param removed
+	 *            removed atoms, indexed from offset
+	 */
+	synchronized void cloneAtoms(MolAtom[] target, int offset, BitSet removed) {
+		for (int i = 0; i < atomCount; i++) {
+			if (!removed.get(offset + i)) {
+				target[offset + i] = molecule.getAtom(i).cloneAtom();
+			}
+		}
+	}
+
+	/**
+	 * clones a bond with new end points
+	 * 
+	 * @param bond
+	 * @param atom1
+	 * @param atom2
+	 * @return MolBond
+	 */
+	synchronized MolBond cloneBond(int bond, MolAtom atom1, MolAtom atom2) {
+		return molecule.getBond(bond).cloneBond(atom1, atom2);
+	}
+}
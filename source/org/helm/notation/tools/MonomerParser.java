@@ -190,13 +190,8 @@ public class MonomerParser {
 		String encodedMolfile = monomer.getChildText(MONOMER_MOL_FILE_ELEMENT,
 				ns);
 
-		String molfile = null;
-		try {
-			molfile = MolfileEncoder.decode(encodedMolfile);
-		} catch (EncoderException ex) {
-			throw new MonomerException("Invalid monomer molfile");
-		}
-		m.setMolfile(molfile);
+		// decoded on demand by Monomer.getMolfile()
+		m.setEncodedMolfile(encodedMolfile);
 		m.setMonomerType(monomer.getChildText(MONOMER_TYPE_ELEMENT, ns));
 		m.setPolymerType(monomer.getChildText(POLYMER_TYPE_ELEMENT, ns));
 		m.setNaturalAnalog(monomer.getChildText(NATURAL_ANALOG_ELEMENT, ns));
@@ -240,13 +235,15 @@ public class MonomerParser {
 			element.getChildren().add(e);
 		}
 
-		if (null != monomer.getMolfile()) {
+		if (monomer.hasMolfile()) {
 			Element e = new Element(MONOMER_MOL_FILE_ELEMENT);
-			String encodedMolfile = null;
-			try {
-				encodedMolfile = MolfileEncoder.encode(monomer.getMolfile());
-			} catch (EncoderException ex) {
-				throw new MonomerException("Invalid monomer molfile");
+			String encodedMolfile = monomer.getEncodedMolfile();
+			if (null == encodedMolfile) {
+				try {
+					encodedMolfile = MolfileEncoder.encode(monomer.getMolfile());
+				} catch (EncoderException ex) {
+					throw new MonomerException("Invalid monomer molfile");
+				}
 			}
 			// CDATA cdata = new CDATA(monomer.getMolfile());
 			// e.setContent(cdata);
@@ -395,11 +392,10 @@ public class MonomerParser {
 				throw new MonomerException("Monomer has no monomerID defined");
 			}
 			String smiles = monomer.getCanSMILES();
-			String molfile = monomer.getMolfile();
 			List<Attachment> attachments = monomer.getAttachmentList();
 
 			if (!polymerType.equals(Monomer.CHEMICAL_POLYMER_TYPE)) {
-				if (null == smiles || null == molfile || null == attachments
+				if (null == smiles || !monomer.hasMolfile() || null == attachments
 						|| attachments.size() == 0) {
 					throw new MonomerException(
 							"Monomers for specific polymer type must have structure info");
@@ -407,6 +403,13 @@ public class MonomerParser {
 			}
 
 			String errorNote = alternateId + " (" + polymerType + ")";
+			// molfiles are decoded on demand, a corrupt one must fail here
+			try {
+				monomer.getValidMolfile();
+			} catch (MonomerException ex) {
+				throw new MonomerException("Invalid monomer molfile: "
+						+ errorNote, ex);
+			}
 			if (null != smiles && smiles.length() > 0) {
 
 				boolean validSmiles = StructureParser.validateSmiles(smiles);
@@ -481,7 +484,7 @@ public class MonomerParser {
 			// (single), 2 (double), 3 (triple), coordinate, conjugated and
 			// query bond types.
 			if (null != smiles && smiles.length() > 0) {
-				Molecule molecule = StructureParser.getMolecule(smiles);
+				Molecule molecule = StructureParser.getMolecule(smiles, false);
 				List<String> attachmentLabels = getAttachmentLabels(smiles);
 				for (int i = 0; i < attachmentLabels.size(); i++) {
 					String rgroupId = attachmentLabels.get(i).substring(1);
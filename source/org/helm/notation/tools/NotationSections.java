@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright C 2012, The Pistoia Alliance
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package org.helm.notation.tools;
+
+import org.helm.notation.NotationException;
+
+/**
+ * This class finds the five top level sections of a complex notation (polymer
+ * nodes, edges, base pairs, node annotations and other) in a single scan.
+ * Sections are kept as offsets into the notation; a section is only copied
+ * when its string is requested.
+ * 
+ * The node section ends with the closing brace of the first }$ stopper, the
+ * following sections are separated by $ and the last section extends to the
+ * end of the notation, as in ComplexNotationParser. A notation without
+ * stopper or with fewer than four delimiters is not valid; the constructor
+ * does not throw, split does.
+ */
+public final class NotationSections {
+
+	/** polymer node section */
+	public static final int NODES = 0;
+
+	/** edge section */
+	public static final int EDGES = 1;
+
+	/** base pair section */
+	public static final int BASE_PAIRS = 2;
+
+	/** node annotation section */
+	public static final int ANNOTATIONS = 3;
+
+	/** remaining section after the fourth delimiter */
+	public static final int OTHER = 4;
+
+	private static final int SECTION_COUNT = 5;
+
+	private static final String MISSING_STOPPER = "Invalid complex notation format,missing first component stopper }$";
+	private static final String MISSING_DELIMITER = "Invalid complex notation format, must have four positional delimieters $$$$";
+
+	private final String notation;
+
+	// start and end offset of each section
+	private final int[] bounds = new int[SECTION_COUNT * 2];
+
+	private String errorMessage;
+
+	/**
+	 * Splits a complex notation, check isValid for the outcome
+	 * 
+	 * @param notation
+	 */
+	public NotationSections(String notation) {
+		this.notation = notation;
+		split();
+	}
+
+	/**
+	 * Splits a complex notation
+	 * 
+	 * @param notation
+	 * @return sections of the notation
+	 * @throws NotationException
+	 *             if the section delimiters are missing
+	 */
+	public static NotationSections split(String notation)
+			throws NotationException {
+		NotationSections sections = new NotationSections(notation);
+		if (!sections.isValid()) {
+			throw new NotationException(sections.getErrorMessage());
+		}
+		return sections;
+	}
+
+	private void split() {
+		int stopperPos = notation
+				.indexOf(ComplexNotationParser.TOP_LEVEL_STOPPER);
+		if (stopperPos < 0) {
+			errorMessage = MISSING_STOPPER;
+			return;
+		}
+
+		int end = stopperPos + 1;
+		bounds[0] = 0;
+		bounds[1] = end;
+		int length = notation.length();
+		for (int section = EDGES; section < OTHER; section++) {
+			int start = end + 1;
+			end = -1;
+			for (int i = start; i < length; i++) {
+				if (notation.charAt(i) == '$') {
+					end = i;
+					break;
+				}
+			}
+			if (end < 0) {
+				errorMessage = MISSING_DELIMITER;
+				return;
+			}
+			bounds[section * 2] = start;
+			bounds[section * 2 + 1] = end;
+		}
+		bounds[OTHER * 2] = end + 1;
+		bounds[OTHER * 2 + 1] = length;
+	}
+
+	/**
+	 * Checks if all section delimiters were found
+	 * 
+	 * @return true if valid
+	 */
+	public boolean isValid() {
+		return null == errorMessage;
+	}
+
+	/**
+	 * returns the reason the notation is not valid
+	 * 
+	 * @return message or null if valid
+	 */
+	public String getErrorMessage() {
+		return errorMessage;
+	}
+
+	/**
+	 * returns the split notation
+	 * 
+	 * @return notation
+	 */
+	public String getNotation() {
+		return notation;
+	}
+
+	/**
+	 * returns the offset of the first character of a section
+	 * 
+	 * @param section
+	 *            NODES, EDGES, BASE_PAIRS, ANNOTATIONS or OTHER
+	 * @return offset in the notation
+	 */
+	public int getStart(int section) {
+		return bounds[section * 2];
+	}
+
+	/**
+	 * returns the offset after the last character of a section
+	 * 
+	 * @param section
+	 * @return offset in the notation
+	 */
+	public int getEnd(int section) {
+		return bounds[section * 2 + 1];
+	}
+
+	/**
+	 * Checks if a section is empty
+	 * 
+	 * @param section
+	 * @return true if empty
+	 */
+	public boolean isEmpty(int section) {
+		return getStart(section) == getEnd(section);
+	}
+
+	/**
+	 * returns a view of a section that shares the characters of the notation
+	 * 
+	 * @param section
+	 * @return section characters
+	 */
+	public CharSequence getSection(int section) {
+		return new SectionView(getStart(section), getEnd(section));
+	}
+
+	/**
+	 * returns the string of a section
+	 * 
+	 * @param section
+	 * @return section string
+	 */
+	public String getSectionString(int section) {
+		return notation.substring(getStart(section), getEnd(section));
+	}
+
+	/**
+	 * returns the notation after the node section, starting with the $ that
+	 * separates the nodes from the edges
+	 * 
+	 * @return rest of the notation
+	 */
+	public String getStringAfterNodes() {
+		return notation.substring(getEnd(NODES));
+	}
+
+	private final class SectionView implements CharSequence {
+
+		private final int start;
+		private final int end;
+
+		SectionView(int start, int end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		public int length() {
+			return end - start;
+		}
+
+		public char charAt(int index) {
+			if (index < 0 || index >= end - start) {
+				throw new IndexOutOfBoundsException("Index " + index
+						+ " is out of section bounds");
+			}
+			return notation.charAt(start + index);
+		}
+
+		public CharSequence subSequence(int from, int to) {
+			if (from < 0 || to > end - start || from > to) {
+				throw new IndexOutOfBoundsException("Range " + from + "-" + to
+						+ " is out of section bounds");
+			}
+			return new SectionView(start + from, start + to);
+		}
+
+		@Override
+		public String toString() {
+			return notation.substring(start, end);
+		}
+	}
+}
@@ -0,0 +1,323 @@
+/*******************************************************************************
+ * Copyright C 2012, The Pistoia Alliance
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package org.helm.notation.tools;
+
+import chemaxon.marvin.plugin.PluginException;
+import chemaxon.struc.Molecule;
+import org.helm.notation.MonomerException;
+import org.helm.notation.MonomerStore;
+import org.helm.notation.NotationException;
+import org.helm.notation.StructureException;
+import org.helm.notation.model.ComplexPolymer;
+import org.helm.notation.model.EncodedPolymer;
+import org.helm.notation.model.MoleculeInfo;
+import org.helm.notation.model.PolymerNode;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jdom.JDOMException;
+
+/**
+ * This class holds a complex notation that is parsed once. The ComplexPolymer
+ * is created by the constructor, the monomers of each polymer node and all
+ * derived properties (validation, monomer count, structures, SMILES,
+ * canonical notation, MoleculeInfo, decomposition) are computed on first use
+ * and kept, so that asking for several properties parses the notation only
+ * once.
+ * 
+ * Results are computed with the monomer store given at construction and stay
+ * valid as long as that store is not cleared. Instances are safe for
+ * concurrent use, returned objects are copies where they could be modified by
+ * the caller.
+ */
+public class ParsedHelm {
+
+	private final String notation;
+	private final MonomerStore monomerStore;
+	private final ComplexPolymer complexPolymer;
+
+	private final Map<String, EncodedPolymer> encodedPolymerMap = new HashMap<String, EncodedPolymer>();
+	private int totalMonomerCount = -1;
+	private boolean valid;
+	private List<Molecule> structures;
+	private String smiles;
+	private String canonicalSmiles;
+	private String canonicalNotation;
+	private MoleculeInfo moleculeInfo;
+	private String[] decomposition;
+
+	/**
+	 * Parses a complex notation with the monomer store of MonomerFactory
+	 * 
+	 * @param notation
+	 * @throws NotationException
+	 * @throws MonomerException
+	 * @throws JDOMException
+	 * @throws IOException
+	 */
+	public ParsedHelm(String notation) throws NotationException,
+			MonomerException, JDOMException, IOException {
+		this(notation, null);
+	}
+
+	/**
+	 * Parses a complex notation
+	 * 
+	 * @param notation
+	 * @param monomerStore
+	 *            monomer store, or null for the store of MonomerFactory
+	 * @throws NotationException
+	 * @throws MonomerException
+	 * @throws JDOMException
+	 * @throws IOException
+	 */
+	public ParsedHelm(String notation, MonomerStore monomerStore)
+			throws NotationException, MonomerException, JDOMException,
+			IOException {
+		this.notation = notation;
+		this.monomerStore = ComplexNotationParser
+				.checkForMonomerStore(monomerStore);
+		this.complexPolymer = ComplexNotationParser.parse(notation,
+				this.monomerStore);
+	}
+
+	public String getNotation() {
+		return notation;
+	}
+
+	public MonomerStore getMonomerStore() {
+		return monomerStore;
+	}
+
+	/**
+	 * returns the parsed complex polymer, it must not be modified
+	 * 
+	 * @return ComplexPolymer
+	 */
+	public ComplexPolymer getComplexPolymer() {
+		return complexPolymer;
+	}
+
+	/**
+	 * returns the monomers of a polymer node as MonomerDictionary codes
+	 * 
+	 * @param nodeId
+	 *            polymer node ID, e.g. PEPTIDE1
+	 * @return EncodedPolymer
+	 * @throws NotationException
+	 *             if there is no such polymer node
+	 */
+	public synchronized EncodedPolymer getEncodedPolymer(String nodeId)
+			throws NotationException {
+		EncodedPolymer encodedPolymer = encodedPolymerMap.get(nodeId);
+		if (null == encodedPolymer) {
+			PolymerNode node = getPolymerNode(nodeId);
+			encodedPolymer = SimpleNotationParser.getEncodedPolymer(
+					node.getLabel(), node.getType(), monomerStore);
+			encodedPolymerMap.put(nodeId, encodedPolymer);
+		}
+		return encodedPolymer;
+	}
+
+	private PolymerNode getPolymerNode(String nodeId) throws NotationException {
+		for (PolymerNode node : complexPolymer.getPolymerNodeList()) {
+			if (node.getId().equals(nodeId)) {
+				return node;
+			}
+		}
+		throw new NotationException("Polymer node " + nodeId
+				+ " is not in the notation");
+	}
+
+	/**
+	 * returns the number of monomers of all polymer nodes
+	 * 
+	 * @return total monomer count
+	 * @throws NotationException
+	 */
+	public synchronized int getTotalMonomerCount() throws NotationException {
+		if (totalMonomerCount < 0) {
+			int count = 0;
+			for (PolymerNode node : complexPolymer.getPolymerNodeList()) {
+				count += getEncodedPolymer(node.getId()).getMonomerCount();
+			}
+			totalMonomerCount = count;
+		}
+		return totalMonomerCount;
+	}
+
+	/**
+	 * validates the complex polymer, only a successful validation is kept
+	 * 
+	 * @return true if valid
+	 * @throws NotationException
+	 * @throws MonomerException
+	 * @throws StructureException
+	 * @throws JDOMException
+	 * @throws IOException
+	 */
+	public synchronized boolean validate() throws NotationException,
+			MonomerException, StructureException, JDOMException, IOException {
+		if (!valid) {
+			valid = ComplexNotationParser.validateComplexPolymer(
+					complexPolymer, monomerStore);
+		}
+		return valid;
+	}
+
+	/**
+	 * returns the unconnected molecules of the complex polymer with all R
+	 * groups filled, the molecules are copies
+	 * 
+	 * @return list of Molecule
+	 * @throws NotationException
+	 * @throws MonomerException
+	 * @throws StructureException
+	 * @throws JDOMException
+	 * @throws IOException
+	 */
+	public synchronized List<Molecule> getStructures()
+			throws NotationException, MonomerException, StructureException,
+			JDOMException, IOException {
+		List<Molecule> list = new ArrayList<Molecule>(getCachedStructures()
+				.size());
+		for (Molecule molecule : getCachedStructures()) {
+			list.add(molecule.cloneMolecule());
+		}
+		return list;
+	}
+
+	private List<Molecule> getCachedStructures() throws NotationException,
+			MonomerException, StructureException, JDOMException, IOException {
+		if (null == structures) {
+			int count = getTotalMonomerCount();
+			validate();
+			structures = ComplexNotationParser.getComplexPolymerStructure(
+					complexPolymer, count, false, monomerStore);
+		}
+		return structures;
+	}
+
+	/**
+	 * returns the SMILES of the complex polymer, same as
+	 * ComplexNotationParser.getComplexPolymerSMILES
+	 * 
+	 * @return SMILES
+	 * @throws NotationException
+	 * @throws MonomerException
+	 * @throws StructureException
+	 * @throws JDOMException
+	 * @throws IOException
+	 */
+	public synchronized String getSmiles() throws NotationException,
+			MonomerException, StructureException, JDOMException, IOException {
+		if (null == smiles) {
+			int count = getTotalMonomerCount();
+			validate();
+			smiles = ComplexNotationParser.getComplexPolymerSMILES(
+					complexPolymer, count, false, monomerStore);
+		}
+		return smiles;
+	}
+
+	/**
+	 * returns the canonical SMILES of the complex polymer, same as
+	 * ComplexNotationParser.getComplexPolymerCanonicalSmiles
+	 * 
+	 * @return canonical SMILES
+	 * @throws NotationException
+	 * @throws MonomerException
+	 * @throws StructureException
+	 * @throws JDOMException
+	 * @throws IOException
+	 */
+	public synchronized String getCanonicalSmiles() throws NotationException,
+			MonomerException, StructureException, JDOMException, IOException {
+		if (null == canonicalSmiles) {
+			canonicalSmiles = ComplexNotationParser
+					.getComplexPolymerCanonicalSmiles(getCachedStructures());
+		}
+		return canonicalSmiles;
+	}
+
+	/**
+	 * returns the canonical notation of the validated complex polymer
+	 * 
+	 * @return canonical notation
+	 * @throws NotationException
+	 * @throws MonomerException
+	 * @throws StructureException
+	 * @throws JDOMException
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	public synchronized String getCanonicalNotation() throws NotationException,
+			MonomerException, StructureException, JDOMException, IOException,
+			ClassNotFoundException {
+		if (null == canonicalNotation) {
+			ComplexNotationParser.validateNotationFormat(notation);
+			validate();
+			// canonicalization changes nodes and edges in place
+			canonicalNotation = ComplexNotationParser.getCanonicalNotation(
+					complexPolymer.copy(), monomerStore);
+		}
+		return canonicalNotation;
+	}
+
+	/**
+	 * returns molecular weight, formula and exact mass of the validated
+	 * complex polymer
+	 * 
+	 * @return a copy of the MoleculeInfo
+	 * @throws NotationException
+	 * @throws MonomerException
+	 * @throws StructureException
+	 * @throws JDOMException
+	 * @throws IOException
+	 * @throws PluginException
+	 */
+	public synchronized MoleculeInfo getMoleculeInfo()
+			throws NotationException, MonomerException, StructureException,
+			JDOMException, IOException, PluginException {
+		if (null == moleculeInfo) {
+			validate();
+			moleculeInfo = ComplexNotationParser.getMoleculeInfo(
+					complexPolymer, monomerStore);
+		}
+		return new MoleculeInfo(moleculeInfo);
+	}
+
+	/**
+	 * returns the complex notations of the covalently connected parts
+	 * 
+	 * @return a copy of the complex notations
+	 */
+	public synchronized String[] getDecomposition() {
+		if (null == decomposition) {
+			decomposition = ComplexNotationParser.decomposeComplexPolymer(
+					notation, complexPolymer);
+		}
+		return decomposition.clone();
+	}
+}
@@ -0,0 +1,360 @@
+/*******************************************************************************
+ * Copyright C 2012, The Pistoia Alliance
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package org.helm.notation.tools;
+
+/**
+ * This class splits a simple polymer notation into groups and monomer tokens
+ * in a single pass. Tokens are kept in an int array as offset and length of
+ * the monomer text (without enclosing brackets) and flags; no substrings are
+ * created until the text of a token is requested.
+ * 
+ * Groups are separated by dots outside of brackets, a token is either a
+ * monomer in square brackets, a branch monomer in parentheses or a single
+ * character. An opening bracket without matching closing bracket makes an
+ * UNMATCHED token that extends to the end of the notation. The lexer does not
+ * throw, the parser decides which tokens are valid for a polymer type.
+ */
+public final class SimpleNotationLexer {
+
+	/** monomer enclosed by square brackets */
+	public static final int BRACKETED = 1;
+
+	/** branch monomer enclosed by parentheses */
+	public static final int BRANCH = 2;
+
+	/** monomer given as extended SMILES */
+	public static final int SMILES = 4;
+
+	/** opening bracket without matching closing bracket */
+	public static final int UNMATCHED = 8;
+
+	private static final char GROUP_LEVEL_DELIMITER = '.';
+	private static final int TOKEN_FIELDS = 3;
+	private static final int GROUP_FIELDS = 3;
+
+	private static final String[] SINGLE_CHARACTER_TEXTS = new String[128];
+
+	static {
+		for (char c = 0; c < SINGLE_CHARACTER_TEXTS.length; c++) {
+			SINGLE_CHARACTER_TEXTS[c] = String.valueOf(c);
+		}
+	}
+
+	private final String notation;
+
+	// offset, length and flags of each token
+	private int[] tokens;
+	private int tokenCount;
+
+	// start, end and first token of each group
+	private int[] groups;
+	private int groupCount;
+
+	/**
+	 * Tokenizes a simple polymer notation
+	 * 
+	 * @param notation
+	 */
+	public SimpleNotationLexer(String notation) {
+		this.notation = notation;
+		int capacity = notation.length() / 2 + 1;
+		this.tokens = new int[capacity * TOKEN_FIELDS];
+		this.groups = new int[capacity * GROUP_FIELDS];
+		tokenize();
+	}
+
+	/**
+	 * Checks if a monomer description is an extended SMILES
+	 * 
+	 * @param text
+	 * @return true if the text ends with $|
+	 */
+	public static boolean isSmilesCode(String text) {
+		return text.endsWith("$|");
+	}
+
+	private void tokenize() {
+		int length = notation.length();
+		int position = 0;
+		while (position < length) {
+			int groupStart = position;
+			int firstToken = tokenCount;
+			while (position < length
+					&& notation.charAt(position) != GROUP_LEVEL_DELIMITER) {
+				char c = notation.charAt(position);
+				if (c == SimpleNotationParser.MODIFICATION_START_SYMBOL) {
+					position = addEnclosedToken(position,
+							SimpleNotationParser.MODIFICATION_START_SYMBOL,
+							SimpleNotationParser.MODIFICATION_END_SYMBOL,
+							BRACKETED);
+				} else if (c == SimpleNotationParser.BRANCH_START_SYMBOL) {
+					position = addEnclosedToken(position,
+							SimpleNotationParser.BRANCH_START_SYMBOL,
+							SimpleNotationParser.BRANCH_END_SYMBOL, BRANCH);
+				} else {
+					addToken(position, 1, 0);
+					position++;
+				}
+			}
+			addGroup(groupStart, position, firstToken);
+			position++;
+		}
+	}
+
+	private int addEnclosedToken(int start, char openingBracket,
+			char closingBracket, int flags) {
+		int end = getMatchingBracketPosition(start, openingBracket,
+				closingBracket);
+		if (end < 0) {
+			addToken(start + 1, notation.length() - start - 1, flags
+					| UNMATCHED);
+			return notation.length();
+		}
+
+		int idStart = start + 1;
+		int idEnd = end;
+		if (idEnd - idStart > 1
+				&& notation.charAt(idStart) == SimpleNotationParser.MODIFICATION_START_SYMBOL
+				&& notation.charAt(idEnd - 1) == SimpleNotationParser.MODIFICATION_END_SYMBOL) {
+			idStart++;
+			idEnd--;
+		}
+		if (idEnd - idStart >= 2 && notation.charAt(idEnd - 2) == '$'
+				&& notation.charAt(idEnd - 1) == '|') {
+			flags |= SMILES;
+		}
+		addToken(start + 1, end - start - 1, flags);
+		return end + 1;
+	}
+
+	// same as SimpleNotationParser.getMatchingBracketPosition without a copy
+	// of the characters
+	private int getMatchingBracketPosition(int position, char openingBracket,
+			char closingBracket) {
+		int last = notation.length() - 1;
+		if (position >= last) {
+			return -1;
+		}
+
+		int currentPosition = position;
+		int openingBracketCount = 1;
+		do {
+			char currentCharacter = notation.charAt(++currentPosition);
+			if (currentCharacter == openingBracket) {
+				openingBracketCount++;
+			} else if (currentCharacter == closingBracket) {
+				openingBracketCount--;
+			}
+		} while (openingBracketCount > 0 && currentPosition < last);
+
+		return (notation.charAt(currentPosition) == closingBracket) ? currentPosition
+				: -1;
+	}
+
+	private void addToken(int offset, int length, int flags) {
+		int index = tokenCount * TOKEN_FIELDS;
+		if (index == tokens.length) {
+			int[] newTokens = new int[tokens.length * 2];
+			System.arraycopy(tokens, 0, newTokens, 0, tokens.length);
+			tokens = newTokens;
+		}
+		tokens[index] = offset;
+		tokens[index + 1] = length;
+		tokens[index + 2] = flags;
+		tokenCount++;
+	}
+
+	private void addGroup(int start, int end, int firstToken) {
+		int index = groupCount * GROUP_FIELDS;
+		if (index == groups.length) {
+			int[] newGroups = new int[groups.length * 2];
+			System.arraycopy(groups, 0, newGroups, 0, groups.length);
+			groups = newGroups;
+		}
+		groups[index] = start;
+		groups[index + 1] = end;
+		groups[index + 2] = firstToken;
+		groupCount++;
+	}
+
+	/**
+	 * returns the tokenized notation
+	 * 
+	 * @return notation
+	 */
+	public String getNotation() {
+		return notation;
+	}
+
+	/**
+	 * returns the number of dot separated groups
+	 * 
+	 * @return group count
+	 */
+	public int getGroupCount() {
+		return groupCount;
+	}
+
+	/**
+	 * returns the offset of the first character of a group
+	 * 
+	 * @param group
+	 * @return offset in the notation
+	 */
+	public int getGroupStart(int group) {
+		return groups[group * GROUP_FIELDS];
+	}
+
+	/**
+	 * returns the offset after the last character of a group
+	 * 
+	 * @param group
+	 * @return offset in the notation
+	 */
+	public int getGroupEnd(int group) {
+		return groups[group * GROUP_FIELDS + 1];
+	}
+
+	/**
+	 * returns the index of the first token of a group
+	 * 
+	 * @param group
+	 * @return token index
+	 */
+	public int getFirstToken(int group) {
+		return groups[group * GROUP_FIELDS + 2];
+	}
+
+	/**
+	 * returns the index after the last token of a group
+	 * 
+	 * @param group
+	 * @return token index
+	 */
+	public int getEndToken(int group) {
+		return (group + 1 < groupCount) ? getFirstToken(group + 1)
+				: tokenCount;
+	}
+
+	/**
+	 * returns the text of a group
+	 * 
+	 * @param group
+	 * @return group notation
+	 */
+	public String getGroupText(int group) {
+		return getText(getGroupStart(group), getGroupEnd(group));
+	}
+
+	/**
+	 * returns the total number of tokens
+	 * 
+	 * @return token count
+	 */
+	public int getTokenCount() {
+		return tokenCount;
+	}
+
+	/**
+	 * returns the offset of the monomer text of a token, after the opening
+	 * bracket for enclosed monomers
+	 * 
+	 * @param token
+	 * @return offset in the notation
+	 */
+	public int getTokenOffset(int token) {
+		return tokens[token * TOKEN_FIELDS];
+	}
+
+	/**
+	 * returns the length of the monomer text of a token
+	 * 
+	 * @param token
+	 * @return length without brackets
+	 */
+	public int getTokenLength(int token) {
+		return tokens[token * TOKEN_FIELDS + 1];
+	}
+
+	/**
+	 * returns the flags of a token
+	 * 
+	 * @param token
+	 * @return combination of BRACKETED, BRANCH, SMILES and UNMATCHED
+	 */
+	public int getTokenFlags(int token) {
+		return tokens[token * TOKEN_FIELDS + 2];
+	}
+
+	/**
+	 * returns the offset of the first character of a token including the
+	 * opening bracket
+	 * 
+	 * @param token
+	 * @return offset in the notation
+	 */
+	public int getTokenStart(int token) {
+		int offset = getTokenOffset(token);
+		return ((getTokenFlags(token) & (BRACKETED | BRANCH)) != 0) ? offset - 1
+				: offset;
+	}
+
+	/**
+	 * returns the monomer text of a token without enclosing brackets
+	 * 
+	 * @param token
+	 * @return monomer text
+	 */
+	public String getTokenText(int token) {
+		int offset = getTokenOffset(token);
+		return getText(offset, offset + getTokenLength(token));
+	}
+
+	/**
+	 * returns the monomer ID or SMILES of a token, a second pair of square
+	 * brackets is removed as well
+	 * 
+	 * @param token
+	 * @return monomer ID or SMILES
+	 */
+	public String getMonomerID(int token) {
+		int start = getTokenOffset(token);
+		int end = start + getTokenLength(token);
+		if (end - start > 1
+				&& notation.charAt(start) == SimpleNotationParser.MODIFICATION_START_SYMBOL
+				&& notation.charAt(end - 1) == SimpleNotationParser.MODIFICATION_END_SYMBOL) {
+			start++;
+			end--;
+		}
+		return getText(start, end);
+	}
+
+	private String getText(int start, int end) {
+		if (end - start == 1) {
+			char c = notation.charAt(start);
+			if (c < SINGLE_CHARACTER_TEXTS.length) {
+				return SINGLE_CHARACTER_TEXTS[c];
+			}
+		}
+		return notation.substring(start, end);
+	}
+}
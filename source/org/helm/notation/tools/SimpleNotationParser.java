@@ -25,14 +25,17 @@ import chemaxon.marvin.plugin.PluginException;
 import chemaxon.struc.MolAtom;
 import chemaxon.struc.Molecule;
 
+import org.helm.notation.MonomerDictionary;
 import org.helm.notation.MonomerException;
 import org.helm.notation.MonomerFactory;
 import org.helm.notation.MonomerStore;
 import org.helm.notation.NotationConstant;
 import org.helm.notation.NotationException;
 import org.helm.notation.NucleotideFactory;
+import org.helm.notation.OverlayMonomerStore;
 import org.helm.notation.StructureException;
 import org.helm.notation.model.Attachment;
+import org.helm.notation.model.EncodedPolymer;
 import org.helm.notation.model.MoleculeInfo;
 import org.helm.notation.model.Monomer;
 import org.helm.notation.model.Nucleotide;
@@ -40,13 +43,14 @@ import org.helm.notation.model.RgroupStructure;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 import org.jdom.JDOMException;
 
@@ -78,6 +82,22 @@ public class SimpleNotationParser {
 	public static final String RNA_SENSE_STRAND_ANNOTATION = "ss";
 	public static final String RNA_ANTISENSE_STRAND_ANNOTATION = "as";
 
+	// maximum number of parsed monomer structures kept in memory
+	public static final int MONOMER_STRUCTURE_CACHE_SIZE = 1024;
+
+	/**
+	 * molecular graphs of parsed monomer structures keyed by monomer store
+	 * version, polymer type and monomer ID, the graphs are shared
+	 */
+	private static final Map<String, MonomerStructureTemplate> monomerStructureCache = new LinkedHashMap<String, MonomerStructureTemplate>(
+			64, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(
+				Map.Entry<String, MonomerStructureTemplate> eldest) {
+			return size() > MONOMER_STRUCTURE_CACHE_SIZE;
+		}
+	};
+
 	/**
 	 * This method generates the SMILES string for simple polymer notation
 	 * 
@@ -309,10 +329,131 @@ public class SimpleNotationParser {
 			String polymerType, MonomerStore monomerStore) throws IOException,
 			NotationException, MonomerException, StructureException,
 			JDOMException {
-		getSimplePolymerStructure(polymerNotation, polymerType, monomerStore);
+		getSimplePolymerRgroupSet(polymerNotation, polymerType, monomerStore);
 		return true;
 	}
 
+	/**
+	 * This method returns the R groups of a simple polymer that are left for
+	 * connections, as monomer number:R group (e.g. 5:R3). The R groups are
+	 * taken from the attachment lists of the monomers, no structure is
+	 * generated. The keys are the same as those of the R group map of
+	 * getSimplePolymerStructure.
+	 * 
+	 * @param polymerNotation
+	 * @param polymerType
+	 * @param monomerStore
+	 * @return set of R groups, or null for a CHEM polymer without specific
+	 *         structure
+	 * @throws java.io.IOException
+	 * @throws org.helm.notation.NotationException
+	 * @throws org.helm.notation.MonomerException
+	 * @throws org.helm.notation.StructureException
+	 * @throws org.jdom.JDOMException
+	 */
+	public static Set<String> getSimplePolymerRgroupSet(
+			String polymerNotation, String polymerType,
+			MonomerStore monomerStore) throws IOException, NotationException,
+			MonomerException, StructureException, JDOMException {
+		List<Monomer> monomerList = getMonomerList(polymerNotation,
+				polymerType, monomerStore);
+		if (monomerList == null || monomerList.size() == 0) {
+			throw new NotationException("Polymer notation contains no monomer");
+		}
+
+		Set<String> rgroups = new HashSet<String>();
+		if (polymerType.equals(Monomer.CHEMICAL_POLYMER_TYPE)) {
+			Monomer m = monomerList.get(0);
+			if (null == m.getCanSMILES()) {
+				return null;
+			}
+			for (String label : getRgroupLabels(m)) {
+				rgroups.add("1:" + label);
+			}
+			return rgroups;
+		}
+
+		List<String> prevMonomerRgroups = null;
+		int prevMonomerIndex = -1;
+		for (int i = 0; i < monomerList.size(); i++) {
+			Monomer m = monomerList.get(i);
+			if (!m.hasMolfile() && null == m.getCanSMILES()) {
+				throw new NotationException("Monomer " + m.getAlternateId()
+						+ " has no structure");
+			}
+			List<String> monomerRgroups = getRgroupLabels(m);
+
+			if (null == prevMonomerRgroups) {
+				// first monomer, its R1 is kept even if it has none
+				rgroups.add("1:" + Attachment.BACKBONE_MONOMER_LEFT_ATTACHEMENT);
+				monomerRgroups
+						.remove(Attachment.BACKBONE_MONOMER_LEFT_ATTACHEMENT);
+				prevMonomerRgroups = monomerRgroups;
+				prevMonomerIndex = i;
+			} else if (m.getMonomerType().equals(Monomer.BACKBONE_MOMONER_TYPE)) {
+				connectRgroups(monomerList.get(prevMonomerIndex),
+						prevMonomerRgroups,
+						Attachment.BACKBONE_MONOMER_RIGHT_ATTACHEMENT, m,
+						monomerRgroups,
+						Attachment.BACKBONE_MONOMER_LEFT_ATTACHEMENT);
+
+				// unused R groups on previous backbone monomer, numbered as
+				// by getSimplePolymerStructure
+				for (String label : prevMonomerRgroups) {
+					rgroups.add(i + ":" + label);
+				}
+				prevMonomerRgroups = monomerRgroups;
+				prevMonomerIndex = i;
+			} else if (m.getMonomerType().equals(Monomer.BRANCH_MOMONER_TYPE)) {
+				connectRgroups(monomerList.get(prevMonomerIndex),
+						prevMonomerRgroups,
+						Attachment.BACKBONE_MONOMER_BRANCH_ATTACHEMENT, m,
+						monomerRgroups, Attachment.BRANCH_MONOMER_ATTACHEMENT);
+
+				// unused R groups on branch monomer
+				for (String label : monomerRgroups) {
+					rgroups.add((i + 1) + ":" + label);
+				}
+			} else {
+				throw new NotationException(
+						"Undefined Monomer Type is not supported in simple polymer");
+			}
+		}
+
+		// unused R groups on the last backbone monomer
+		for (String label : prevMonomerRgroups) {
+			rgroups.add((prevMonomerIndex + 1) + ":" + label);
+		}
+		return rgroups;
+	}
+
+	private static List<String> getRgroupLabels(Monomer monomer) {
+		List<String> labels = new ArrayList<String>();
+		List<Attachment> attachments = monomer.getAttachmentList();
+		if (null != attachments) {
+			for (Attachment attachment : attachments) {
+				labels.add(attachment.getLabel());
+			}
+		}
+		return labels;
+	}
+
+	private static void connectRgroups(Monomer source,
+			List<String> sourceRgroups, String sourceR, Monomer target,
+			List<String> targetRgroups, String targetR)
+			throws NotationException {
+		if (!sourceRgroups.remove(sourceR)) {
+			throw new NotationException("Monomer " + source.getAlternateId()
+					+ " has no attachment point " + sourceR + " for "
+					+ target.getAlternateId());
+		}
+		if (!targetRgroups.remove(targetR)) {
+			throw new NotationException("Monomer " + target.getAlternateId()
+					+ " has no attachment point " + targetR + " for "
+					+ source.getAlternateId());
+		}
+	}
+
 	/**
 	 * This method generates the RgroupStructure of simple polymer notation
 	 * 
@@ -355,150 +496,148 @@ public class SimpleNotationParser {
 			String polymerNotation, String polymerType,
 			MonomerStore monomerStore) throws IOException, NotationException,
 			MonomerException, StructureException, JDOMException {
+		StructureAssembler assembler = new StructureAssembler();
+		Map<String, Integer> rmap = assembleSimplePolymerStructure(
+				polymerNotation, polymerType, monomerStore, assembler);
+
+		RgroupStructure structure = new RgroupStructure();
+		structure.setMolecule(assembler.build());
+		Map<String, MolAtom> rgroupMap = new HashMap<String, MolAtom>();
+		if (null != rmap) {
+			for (Map.Entry<String, Integer> entry : rmap.entrySet()) {
+				Integer atom = entry.getValue();
+				rgroupMap.put(entry.getKey(),
+						(null == atom) ? null : assembler.getAtom(atom));
+			}
+		}
+		structure.setRgroupMap(rgroupMap);
+		return structure;
+	}
+
+	/**
+	 * This method adds the monomer graphs of a simple polymer notation to an
+	 * assembler and connects them, the molecule is built by the caller
+	 * 
+	 * @param polymerNotation
+	 * @param polymerType
+	 * @param monomerStore
+	 * @param assembler
+	 * @return map of unused R atoms of the assembler, key is MonomerNumber:R#,
+	 *         or null if the polymer has no specific structure
+	 * @throws IOException
+	 * @throws NotationException
+	 * @throws MonomerException
+	 * @throws StructureException
+	 * @throws JDOMException
+	 */
+	static Map<String, Integer> assembleSimplePolymerStructure(
+			String polymerNotation, String polymerType,
+			MonomerStore monomerStore, StructureAssembler assembler)
+			throws IOException, NotationException, MonomerException,
+			StructureException, JDOMException {
 		List<Monomer> monomerList = getMonomerList(polymerNotation,
 				polymerType, monomerStore);
 		if (monomerList == null || monomerList.size() == 0) {
 			throw new NotationException("Polymer notation contains no monomer");
 		}
-		List<RgroupStructure> structureList = getMonomerStructureList(monomerList);
-
-		if (monomerList.size() == structureList.size()) {
+		List<MolecularGraph> graphList = getMonomerGraphList(monomerList,
+				monomerStore);
 
-			Molecule molecule = null;
-			Map<String, MolAtom> rmap = new HashMap<String, MolAtom>();
-			if (polymerType.equals(Monomer.CHEMICAL_POLYMER_TYPE)) {
-				if (null != monomerList.get(0).getCanSMILES()) {
-
-					molecule = structureList.get(0).getMolecule();
-					Map rgroupMap = structureList.get(0).getRgroupMap();
-					Set keyset = rgroupMap.keySet();
-					for (Iterator it = keyset.iterator(); it.hasNext();) {
-						String key = (String) it.next();
-						rmap.put("1:" + key, (MolAtom) rgroupMap.get(key));
-					}
-				}
+		if (monomerList.size() != graphList.size()) {
+			throw new NotationException(
+					"The number of monomers and structures do not match");
+		}
 
-			} else {
+		Map<String, Integer> rmap = new HashMap<String, Integer>();
+		if (polymerType.equals(Monomer.CHEMICAL_POLYMER_TYPE)) {
+			if (null == monomerList.get(0).getCanSMILES()) {
+				return null;
+			}
 
-				int prevMonomerIndex = -1;
-				// Map<String, MolAtom> rgroupMap = null;
-
-				for (int i = 0; i < monomerList.size(); i++) {
-					Monomer m = monomerList.get(i);
-					RgroupStructure ms = structureList.get(i);
-					Molecule mol = ms.getMolecule();
-					Map<String, MolAtom> rgroupMap = ms.getRgroupMap(); // modify
-																		// this
-																		// map
-																		// when
-																		// element
-																		// used
-
-					if (null != molecule) {
-						RgroupStructure prevMonomerStructure = structureList
-								.get(prevMonomerIndex);
-						Map prevMonomerRgroupMap = prevMonomerStructure
-								.getRgroupMap();
-
-						if (m.getMonomerType().equals(
-								Monomer.BACKBONE_MOMONER_TYPE)) {
-							StructureParser
-									.merge(molecule,
-											(MolAtom) prevMonomerRgroupMap
-													.get(Attachment.BACKBONE_MONOMER_RIGHT_ATTACHEMENT),
-											mol,
-											(MolAtom) rgroupMap
-													.get(Attachment.BACKBONE_MONOMER_LEFT_ATTACHEMENT));
+			int offset = assembler.addFragment(graphList.get(0));
+			for (Map.Entry<String, Integer> entry : graphList.get(0)
+					.getRgroupMap().entrySet()) {
+				rmap.put("1:" + entry.getKey(), offset + entry.getValue());
+			}
+			return rmap;
+		}
 
-							prevMonomerRgroupMap
-									.remove(Attachment.BACKBONE_MONOMER_RIGHT_ATTACHEMENT);
-							rgroupMap
-									.remove(Attachment.BACKBONE_MONOMER_LEFT_ATTACHEMENT);
-
-							prevMonomerIndex = i;
-
-							// possible unused R groups on previous backbone
-							// monomer
-							Set keySet = prevMonomerRgroupMap.keySet();
-							for (Iterator it = keySet.iterator(); it.hasNext();) {
-								String key = (String) it.next();
-								int monomerCount = i;
-								rmap.put("" + monomerCount + ":" + key,
-										(MolAtom) prevMonomerRgroupMap.get(key));
-							}
+		// R atoms of each monomer by label, used R groups are removed
+		List<Map<String, Integer>> rgroupMapList = new ArrayList<Map<String, Integer>>(
+				graphList.size());
+		int prevMonomerIndex = -1;
+		for (int i = 0; i < monomerList.size(); i++) {
+			Monomer m = monomerList.get(i);
+			MolecularGraph graph = graphList.get(i);
+			int offset = assembler.addFragment(graph);
+			Map<String, Integer> rgroupMap = new HashMap<String, Integer>();
+			for (Map.Entry<String, Integer> entry : graph.getRgroupMap()
+					.entrySet()) {
+				rgroupMap.put(entry.getKey(), offset + entry.getValue());
+			}
+			rgroupMapList.add(rgroupMap);
 
-						} else if (m.getMonomerType().equals(
-								Monomer.BRANCH_MOMONER_TYPE)) {
-							StructureParser
-									.merge(molecule,
-											(MolAtom) prevMonomerRgroupMap
-													.get(Attachment.BACKBONE_MONOMER_BRANCH_ATTACHEMENT),
-											mol,
-											(MolAtom) rgroupMap
-													.get(Attachment.BRANCH_MONOMER_ATTACHEMENT));
+			if (prevMonomerIndex >= 0) {
+				Map<String, Integer> prevMonomerRgroupMap = rgroupMapList
+						.get(prevMonomerIndex);
 
+				if (m.getMonomerType().equals(Monomer.BACKBONE_MOMONER_TYPE)) {
+					connect(assembler,
 							prevMonomerRgroupMap
-									.remove(Attachment.BACKBONE_MONOMER_BRANCH_ATTACHEMENT);
+									.remove(Attachment.BACKBONE_MONOMER_RIGHT_ATTACHEMENT),
 							rgroupMap
-									.remove(Attachment.BRANCH_MONOMER_ATTACHEMENT);
-							// possible unused R groups on branch monomer
-							Set keySet = rgroupMap.keySet();
-							for (Iterator it = keySet.iterator(); it.hasNext();) {
-								String key = (String) it.next();
-								if (!(key
-										.equals(Attachment.BRANCH_MONOMER_ATTACHEMENT))) {
-									int monomerCount = i + 1;
-									rmap.put("" + monomerCount + ":" + key,
-											(MolAtom) rgroupMap.get(key));
-								}
-							}
-						} else {
-							throw new NotationException(
-									"Undefined Monomer Type is not supported in simple polymer");
-						}
+									.remove(Attachment.BACKBONE_MONOMER_LEFT_ATTACHEMENT));
 
-					} else {
-						// first monomer
-						molecule = mol;
-						prevMonomerIndex = i;
-						rmap.put(
-								"1:"
-										+ Attachment.BACKBONE_MONOMER_LEFT_ATTACHEMENT,
-								(MolAtom) rgroupMap
-										.get(Attachment.BACKBONE_MONOMER_LEFT_ATTACHEMENT));
-						rgroupMap
-								.remove(Attachment.BACKBONE_MONOMER_LEFT_ATTACHEMENT);
+					prevMonomerIndex = i;
+
+					// possible unused R groups on previous backbone
+					// monomer
+					for (Map.Entry<String, Integer> entry : prevMonomerRgroupMap
+							.entrySet()) {
+						rmap.put("" + i + ":" + entry.getKey(),
+								entry.getValue());
 					}
-				}
 
-				// check unused R group on the last backbone monomer
-				int monomerCount = prevMonomerIndex + 1;
-				Map map = structureList.get(prevMonomerIndex).getRgroupMap();
-				Set keySet = map.keySet();
-				for (Iterator it = keySet.iterator(); it.hasNext();) {
-					String key = (String) it.next();
-					rmap.put(monomerCount + ":" + key, (MolAtom) map.get(key));
+				} else if (m.getMonomerType().equals(
+						Monomer.BRANCH_MOMONER_TYPE)) {
+					connect(assembler,
+							prevMonomerRgroupMap
+									.remove(Attachment.BACKBONE_MONOMER_BRANCH_ATTACHEMENT),
+							rgroupMap.remove(Attachment.BRANCH_MONOMER_ATTACHEMENT));
+
+					// possible unused R groups on branch monomer
+					for (Map.Entry<String, Integer> entry : rgroupMap
+							.entrySet()) {
+						rmap.put("" + (i + 1) + ":" + entry.getKey(),
+								entry.getValue());
+					}
+				} else {
+					throw new NotationException(
+							"Undefined Monomer Type is not supported in simple polymer");
 				}
 
-				// last monomer
-				// if (null != rgroupMap) {
-				// rmap.put("" + monomerList.size() + ":" +
-				// Attachment.BACKBONE_MONOMER_RIGHT_ATTACHEMENT, (MolAtom)
-				// rgroupMap.get(Attachment.BACKBONE_MONOMER_RIGHT_ATTACHEMENT));
-				// }
+			} else {
+				// first monomer
+				prevMonomerIndex = i;
+				rmap.put("1:" + Attachment.BACKBONE_MONOMER_LEFT_ATTACHEMENT,
+						rgroupMap.remove(Attachment.BACKBONE_MONOMER_LEFT_ATTACHEMENT));
 			}
+		}
 
-			RgroupStructure structure = new RgroupStructure();
-			structure.setMolecule(molecule);
-			structure.setRgroupMap(rmap);
-
-			return structure;
-
-		} else {
-			throw new NotationException(
-					"The number of monomers and structures do not match");
+		// check unused R group on the last backbone monomer
+		int monomerCount = prevMonomerIndex + 1;
+		Map<String, Integer> map = rgroupMapList.get(prevMonomerIndex);
+		for (Map.Entry<String, Integer> entry : map.entrySet()) {
+			rmap.put(monomerCount + ":" + entry.getKey(), entry.getValue());
 		}
+		return rmap;
+	}
 
+	private static void connect(StructureAssembler assembler, Integer rgroup1,
+			Integer rgroup2) throws StructureException {
+		assembler.connect(
+				(null == rgroup1) ? StructureAssembler.NO_ATOM : rgroup1,
+				(null == rgroup2) ? StructureAssembler.NO_ATOM : rgroup2);
 	}
 
 	/**
@@ -550,24 +689,82 @@ public class SimpleNotationParser {
 	}
 
 	/**
-	 * Convert list of Monomer to list of RgroupStructure
+	 * Convert list of Monomer to list of MolecularGraph, the graphs are cached
+	 * templates and must not be changed
 	 * 
 	 * @param monomerList
-	 * @return list of RgroupStructure
+	 * @param monomerStore
+	 *            the store the monomers were taken from
+	 * @return list of MolecularGraph
 	 * @throws org.helm.notation.NotationException
 	 * @throws java.io.IOException
 	 */
-	private static List<RgroupStructure> getMonomerStructureList(
-			List<Monomer> monomerList) throws NotationException, IOException {
-		List<RgroupStructure> list = new ArrayList<RgroupStructure>();
+	private static List<MolecularGraph> getMonomerGraphList(
+			List<Monomer> monomerList, MonomerStore monomerStore)
+			throws NotationException, IOException {
+		List<MolecularGraph> list = new ArrayList<MolecularGraph>();
+		long storeVersion = monomerStore.getVersion();
+		// overlay monomers are request scoped, they would only evict shared
+		// templates
+		boolean cacheable = !(monomerStore instanceof OverlayMonomerStore);
 
 		for (int i = 0; i < monomerList.size(); i++) {
-			RgroupStructure ms = getMonomerStructure(monomerList.get(i));
-			list.add(ms);
+			Monomer monomer = monomerList.get(i);
+			MolecularGraph graph;
+			if (cacheable && !monomer.isAdHocMonomer()) {
+				graph = getMonomerGraph(monomer, storeVersion);
+			} else {
+				graph = createMonomerGraph(monomer);
+			}
+			list.add(graph);
 		}
 		return list;
 	}
 
+	/**
+	 * This method returns the cached MolecularGraph template of the monomer,
+	 * the template is parsed on first use
+	 * 
+	 * @param monomer
+	 * @param storeVersion
+	 *            version of the store the monomer was taken from
+	 * @return MolecularGraph
+	 * @throws java.io.IOException
+	 * @throws org.helm.notation.NotationException
+	 */
+	private static MolecularGraph getMonomerGraph(Monomer monomer,
+			long storeVersion) throws IOException, NotationException {
+		String key = storeVersion + "|" + monomer.getPolymerType() + "|"
+				+ monomer.getAlternateId();
+		MonomerStructureTemplate template;
+		synchronized (monomerStructureCache) {
+			template = monomerStructureCache.get(key);
+		}
+
+		// the monomer may have been read from a newer database
+		if (null == template || template.monomer != monomer) {
+			MolecularGraph graph = createMonomerGraph(monomer);
+			if (null == graph) {
+				return null;
+			}
+			template = new MonomerStructureTemplate(monomer, graph);
+			synchronized (monomerStructureCache) {
+				monomerStructureCache.put(key, template);
+			}
+		}
+		return template.graph;
+	}
+
+	private static MolecularGraph createMonomerGraph(Monomer monomer)
+			throws IOException, NotationException {
+		RgroupStructure structure = getMonomerStructure(monomer);
+		if (null == structure) {
+			return null;
+		}
+		return new MolecularGraph(structure.getMolecule(),
+				SmilesTemplate.parse(monomer.getCanSMILES()));
+	}
+
 	/**
 	 * This methods generates the list of Monomer from polymer notation
 	 * 
@@ -620,6 +817,69 @@ public class SimpleNotationParser {
 		return list;
 	}
 
+	/**
+	 * This method returns the simple polymer as monomer codes of the
+	 * MonomerDictionary of the monomer database
+	 * 
+	 * @param polymerNotation
+	 * @param polymerType
+	 * @return EncodedPolymer
+	 * @throws NotationException
+	 */
+	public static EncodedPolymer getEncodedPolymer(String polymerNotation,
+			String polymerType) throws NotationException {
+		MonomerFactory factory = null;
+		try {
+			factory = MonomerFactory.getInstance();
+		} catch (Exception ex) {
+			throw new NotationException("Unable to initialize monomer factory",
+					ex);
+		}
+		return getEncodedPolymer(polymerNotation, polymerType,
+				factory.getMonomerStore());
+	}
+
+	/**
+	 * This method returns the simple polymer as monomer codes of the
+	 * MonomerDictionary of the monomer store, with a bitmap of the branch
+	 * monomers. Ad hoc monomers are added to the store as with
+	 * getMonomerIDList.
+	 * 
+	 * @param polymerNotation
+	 * @param polymerType
+	 * @param monomerStore
+	 * @return EncodedPolymer
+	 * @throws NotationException
+	 */
+	public static EncodedPolymer getEncodedPolymer(String polymerNotation,
+			String polymerType, MonomerStore monomerStore)
+			throws NotationException {
+		SimpleNotationLexer lexer = null;
+		if (!polymerType.equals(Monomer.CHEMICAL_POLYMER_TYPE)) {
+			lexer = new SimpleNotationLexer(polymerNotation);
+		}
+		List<String> ids = getMonomerIDList(polymerNotation, lexer,
+				polymerType, monomerStore);
+
+		MonomerDictionary dictionary = monomerStore.getMonomerDictionary();
+		long version = dictionary.getVersion();
+		int[] codes = new int[ids.size()];
+		BitSet branches = new BitSet(codes.length);
+		for (int i = 0; i < codes.length; i++) {
+			codes[i] = dictionary.getCode(polymerType, ids.get(i));
+			if (codes[i] == MonomerDictionary.NO_CODE) {
+				throw new NotationException("Monomer " + ids.get(i)
+						+ " is not in the monomer store");
+			}
+			if (null != lexer
+					&& (lexer.getTokenFlags(i) & SimpleNotationLexer.BRANCH) != 0) {
+				branches.set(i);
+			}
+		}
+		return new EncodedPolymer(polymerType, codes, branches, dictionary,
+				version);
+	}
+
 	/**
 	 * This methods returns the nucleotide list for RNA polymer type, with
 	 * structure validation on.
@@ -722,62 +982,36 @@ public class SimpleNotationParser {
 		Map<String, String> reverseNucMap = NucleotideFactory.getInstance()
 				.getReverseNucleotideTemplateMap();
 
-		SimpleNotationGroupIterator iterator = new SimpleNotationGroupIterator(
-				polymerNotation);
-		while (iterator.hasNextGroup()) {
-
-			// String[] notations =
-			// polymerNotation.split(GROUP_LEVEL_DELIMITER_REGEX);
-
-			// for (int i = 0; i < notations.length; i++) {
-			// String notation = notations[i];
-			String notation = iterator.nextGroup();
+		SimpleNotationLexer lexer = new SimpleNotationLexer(polymerNotation);
+		int groupCount = lexer.getGroupCount();
+		for (int group = 0; group < groupCount; group++) {
+			String notation = lexer.getGroupText(group);
 
 			String symbol = null;
 
 			// last nucleotide will be handled differently
 			String tmpNotation = notation;
-			// if (i == (notations.length - 1) && notation.endsWith(")")) {
-			if (!iterator.hasNextGroup() && notation.endsWith(")")) {
+			if (group == groupCount - 1 && notation.endsWith(")")) {
 				tmpNotation = notation + "P";
 			}
 
 			if (reverseNucMap.containsKey(tmpNotation)) {
 				symbol = reverseNucMap.get(tmpNotation);
 			} else {
-				char[] chars = notation.toCharArray();
-				String base = null;
 				symbol = "X";
 
-				// find base
-				for (int j = 0; j < chars.length; j++) {
-					char letter = chars[j];
-					// skip modifications if not in branch
-					if (letter == MODIFICATION_START_SYMBOL) {
-						int matchingPos = getMatchingBracketPosition(chars, j,
-								MODIFICATION_START_SYMBOL,
-								MODIFICATION_END_SYMBOL);
-						j++;
-
-						if (matchingPos == -1) {
-							throw new NotationException(
-									"Invalid Polymer Notation: Could not find matching bracket");
-						}
-						j = matchingPos;
-
+				// find base, modifications are skipped
+				for (int token = lexer.getFirstToken(group); token < lexer
+						.getEndToken(group); token++) {
+					int flags = lexer.getTokenFlags(token);
+					if ((flags & SimpleNotationLexer.UNMATCHED) != 0) {
+						throw new NotationException(
+								"Invalid Polymer Notation: Could not find matching bracket");
 					}
-					// base is always a branch monomer
-					else if (letter == BRANCH_START_SYMBOL) {
-						int matchingPos = getMatchingBracketPosition(chars, j,
-								BRANCH_START_SYMBOL, BRANCH_END_SYMBOL);
-						j++;
 
-						if (matchingPos == -1) {
-							throw new NotationException(
-									"Invalid Polymer Notation: Could not find matching bracket");
-						}
-
-						base = notation.substring(j, matchingPos);
+					// base is always a branch monomer
+					if ((flags & SimpleNotationLexer.BRANCH) != 0) {
+						String base = lexer.getTokenText(token);
 
 						if (base.length() == 1) {
 							symbol = base;
@@ -794,10 +1028,7 @@ public class SimpleNotationParser {
 								symbol = monomer.getNaturalAnalog();
 							}
 						}
-
-						j = matchingPos;
 					}
-
 				}
 
 			}
@@ -876,15 +1107,10 @@ public class SimpleNotationParser {
 		List<Nucleotide> ids = new ArrayList<Nucleotide>();
 		Map<String, String> reverseNucMap = NucleotideFactory.getInstance()
 				.getReverseNucleotideTemplateMap();
-		// String[] notations =
-		// polymerNotation.split(GROUP_LEVEL_DELIMITER_REGEX);
-		// for (int i = 0; i < notations.length; i++) {
-		SimpleNotationGroupIterator iterator = new SimpleNotationGroupIterator(
-				polymerNotation);
-		while (iterator.hasNextGroup()) {
-
-			// String notation = notations[i];
-			String notation = iterator.nextGroup();
+		SimpleNotationLexer lexer = new SimpleNotationLexer(polymerNotation);
+		int groupCount = lexer.getGroupCount();
+		for (int group = 0; group < groupCount; group++) {
+			String notation = lexer.getGroupText(group);
 			String symbol = null;
 
 			// last nucleotide will be handled differently
@@ -896,8 +1122,7 @@ public class SimpleNotationParser {
 				nuc = new Nucleotide("temp", notation);
 				String naturalAnalog = nuc.getNaturalAnalog();
 				if (nuc.isModified()) {
-					// if (i == (notations.length - 1)
-					if (!iterator.hasNextGroup()
+					if (group == groupCount - 1
 							&& nuc.unmodifiedWithoutPhosphate()) {
 						nuc.setSymbol("end" + naturalAnalog);
 					} else {
@@ -944,38 +1169,30 @@ public class SimpleNotationParser {
 	}
 
 	/**
-	 * This method returns the list of monomer tuples (monomertype,id) from a
-	 * nucleotide sequence
+	 * This method checks the monomer tokens of a nucleotide group, modified
+	 * monomers must be enclosed by brackets and branch monomers must follow a
+	 * backbone monomer
 	 * 
-	 * @param nucleotideSequence
-	 * @return list of String []
+	 * @param lexer
+	 * @param group
 	 * @throws NotationException
 	 */
-	private static List<String[]> getNucleotideMonomerList(
-			String nucleotideSequence) throws NotationException {
-		List<String[]> ids = new ArrayList<String[]>();
-
-		char[] chars = nucleotideSequence.toCharArray();
+	private static void validateNucleotideGroup(SimpleNotationLexer lexer,
+			int group) throws NotationException {
+		int groupStart = lexer.getGroupStart(group);
 		char prevLetter = 0;
 
-		for (int i = 0; i < chars.length; i++) {
-			char letter = chars[i];
-			if (letter == MODIFICATION_START_SYMBOL) {
-				int matchingPos = getMatchingBracketPosition(chars, i,
-						MODIFICATION_START_SYMBOL, MODIFICATION_END_SYMBOL);
-				i++;
-
-				if (matchingPos == -1) {
+		for (int token = lexer.getFirstToken(group); token < lexer
+				.getEndToken(group); token++) {
+			int flags = lexer.getTokenFlags(token);
+			int start = lexer.getTokenStart(token);
+			if ((flags & SimpleNotationLexer.BRACKETED) != 0) {
+				if ((flags & SimpleNotationLexer.UNMATCHED) != 0) {
 					throw new NotationException(
 							"Invalid Polymer Notation: modified monomer must be enclosed by square brackets");
-				} else {
-					ids.add(new String[] { Monomer.BACKBONE_MOMONER_TYPE,
-							nucleotideSequence.substring(i, matchingPos) });
 				}
-				i = matchingPos;
-
-			} else if (letter == BRANCH_START_SYMBOL) {
-				if (i == 0) {
+			} else if ((flags & SimpleNotationLexer.BRANCH) != 0) {
+				if (start == groupStart) {
 					throw new NotationException(
 							"Invalid Polymer Notation: branch monomer is not allowed at the beginnig of notation");
 				}
@@ -985,27 +1202,32 @@ public class SimpleNotationParser {
 							"Invalid Polymer Notation: branch monomers cannot be connected with each other");
 				}
 
-				int matchingPos = getMatchingBracketPosition(chars, i,
-						BRANCH_START_SYMBOL, BRANCH_END_SYMBOL);
-				i++;
-				if (matchingPos == -1) {
+				if ((flags & SimpleNotationLexer.UNMATCHED) != 0) {
 					throw new NotationException(
 							"Invalid Polymer Notation: modified monomer must be enclosed by brackets");
-				} else {
-					ids.add(new String[] { Monomer.BRANCH_MOMONER_TYPE,
-							nucleotideSequence.substring(i, matchingPos) });
 				}
-				i = matchingPos;
-
-			} else {
-				ids.add(new String[] { Monomer.BACKBONE_MOMONER_TYPE,
-						nucleotideSequence.substring(i, i + 1) });
 			}
-			prevLetter = letter;
+			prevLetter = lexer.getNotation().charAt(start);
 		}
+	}
 
-		return ids;
-
+	/**
+	 * This method preprocesses the monomer node of a token
+	 * 
+	 * @param lexer
+	 * @param token
+	 * @param polymerType
+	 * @param naturalAnalog
+	 * @param monomerStore
+	 * @return monomer alternateID
+	 * @throws NotationException
+	 */
+	private static String processToken(SimpleNotationLexer lexer, int token,
+			String polymerType, String naturalAnalog, MonomerStore monomerStore)
+			throws NotationException {
+		boolean isSmilesCode = (lexer.getTokenFlags(token) & SimpleNotationLexer.SMILES) != 0;
+		return processNode(lexer.getMonomerID(token), isSmilesCode,
+				polymerType, naturalAnalog, monomerStore);
 	}
 
 	/**
@@ -1020,143 +1242,147 @@ public class SimpleNotationParser {
 	public static List<String> getMonomerIDList(String polymerNotation,
 			String polymerType, MonomerStore monomerStore)
 			throws NotationException {
-		List<String> ids = new ArrayList<String>();
+		SimpleNotationLexer lexer = null;
+		if (!polymerType.equals(Monomer.CHEMICAL_POLYMER_TYPE)) {
+			lexer = new SimpleNotationLexer(polymerNotation);
+		}
+		return getMonomerIDList(polymerNotation, lexer, polymerType,
+				monomerStore);
+	}
 
-		SimpleNotationGroupIterator groupIterator = new SimpleNotationGroupIterator(
-				polymerNotation);
+	/**
+	 * This method returns the list of Monomer IDs from simple polymer
+	 * notation, there is one monomer per token of the lexer
+	 * 
+	 * @param polymerNotation
+	 * @param lexer
+	 *            tokens of the notation, null for CHEM
+	 * @param polymerType
+	 * @param monomerStore
+	 * @return list of Monomer IDs
+	 * @throws NotationException
+	 */
+	private static List<String> getMonomerIDList(String polymerNotation,
+			SimpleNotationLexer lexer, String polymerType,
+			MonomerStore monomerStore) throws NotationException {
+		List<String> ids = new ArrayList<String>();
 
 		// CHEMICAL can have only one monomer
 		if (polymerType.equals(Monomer.CHEMICAL_POLYMER_TYPE)) {
 			String id = processNode(polymerNotation, polymerType, "X",
 					monomerStore);
 			ids.add(id);
-		} else if (polymerType.equals(Monomer.PEPTIDE_POLYMER_TYPE)) {
-			while (groupIterator.hasNextGroup()) {
-				String notation = groupIterator.nextGroup();
-				char[] chars = notation.toCharArray();
-
-				String curId = null;
+			return ids;
+		}
 
-				for (int i = 0; i < chars.length; i++) {
-					char letter = chars[i];
-					if (letter == MODIFICATION_START_SYMBOL) {
-						int matchingPos = getMatchingBracketPosition(chars, i,
-								MODIFICATION_START_SYMBOL,
-								MODIFICATION_END_SYMBOL);
-						i++;
+		int groupCount = lexer.getGroupCount();
+		if (polymerType.equals(Monomer.PEPTIDE_POLYMER_TYPE)) {
+			for (int group = 0; group < groupCount; group++) {
+				boolean isSingleLetter = lexer.getGroupEnd(group)
+						- lexer.getGroupStart(group) == 1;
 
-						if (matchingPos == -1) {
+				for (int token = lexer.getFirstToken(group); token < lexer
+						.getEndToken(group); token++) {
+					int flags = lexer.getTokenFlags(token);
+					String curId = null;
+					if ((flags & SimpleNotationLexer.BRACKETED) != 0) {
+						if ((flags & SimpleNotationLexer.UNMATCHED) != 0) {
 							throw new NotationException(
 									"Invalid Polymer Notation: modified monomer must be enclosed by square brackets");
-						} else {
-							curId = notation.substring(i, matchingPos);
 						}
-						i = matchingPos;
-
-					} else if (notation.length() == 1) {
-						curId = notation;
+						curId = processToken(lexer, token, polymerType, "X",
+								monomerStore);// Backbone
+					} else if (isSingleLetter) {
+						curId = processNode(lexer.getGroupText(group),
+								polymerType, "X", monomerStore);// Backbone
 					} else {
 						throw new NotationException(
-								"Invalid Peptide Notation: " + notation);
+								"Invalid Peptide Notation: "
+										+ lexer.getGroupText(group));
 					}
 
-					curId = processNode(curId, polymerType, "X", monomerStore);// Backbone
-
 					ids.add(curId);
-
 				}
 			}
 		} else if (polymerType.equals(Monomer.NUCLIEC_ACID_POLYMER_TYPE)) {
-			boolean isFirstGroup = true;
-			while (groupIterator.hasNextGroup()) {
-				String notation = groupIterator.nextGroup();
+			for (int group = 0; group < groupCount; group++) {
+				boolean isFirstGroup = group == 0;
+				boolean isLastGroup = group == groupCount - 1;
 
-				boolean isLastGroup = !groupIterator.hasNextGroup();
+				validateNucleotideGroup(lexer, group);
 
-				List<String[]> monomers = getNucleotideMonomerList(notation);
+				int first = lexer.getFirstToken(group);
+				int monomerCount = lexer.getEndToken(group) - first;
 
 				boolean hasBase = false;
-				for (String[] tuple : monomers) {
-					if (tuple[0] == Monomer.BRANCH_MOMONER_TYPE) {
+				for (int token = first; token < first + monomerCount; token++) {
+					if ((lexer.getTokenFlags(token) & SimpleNotationLexer.BRANCH) != 0) {
 						hasBase = true;
 						break;
 					}
 				}
 
-				if (monomers.size() == 1) {
+				if (monomerCount == 1) {
 
 					if (isLastGroup) {
-						ids.add(processNode(monomers.get(0)[1], polymerType,
-								"R", monomerStore));
+						ids.add(processToken(lexer, first, polymerType, "R",
+								monomerStore));
 					} else if (isFirstGroup) {
-						ids.add(processNode(monomers.get(0)[1], polymerType,
-								"P", monomerStore));
+						ids.add(processToken(lexer, first, polymerType, "P",
+								monomerStore));
 					} else {
 						throw new NotationException(
 								"Invalid Polymer Notation: Nucleotide sequence "
-										+ notation + " is incorrect");
+										+ lexer.getGroupText(group)
+										+ " is incorrect");
 					}
 
 				}
 
-				else if (monomers.size() == 2) {
+				else if (monomerCount == 2) {
 					if (isLastGroup) {
 						// end of notation
-						if (hasBase) {
-							ids.add(processNode(monomers.get(0)[1],
-									polymerType, "R", monomerStore));
-							ids.add(processNode(monomers.get(1)[1],
-									polymerType, "X", monomerStore));
-						} else {
-							ids.add(processNode(monomers.get(0)[1],
-									polymerType, "R", monomerStore));
-							ids.add(processNode(monomers.get(1)[1],
-									polymerType, "P", monomerStore));
-						}
-
+						ids.add(processToken(lexer, first, polymerType, "R",
+								monomerStore));
+						ids.add(processToken(lexer, first + 1, polymerType,
+								hasBase ? "X" : "P", monomerStore));
 					}
 					// beginning of notation
 					else if (isFirstGroup) {
-						if (hasBase) {
-							ids.add(processNode(monomers.get(0)[1],
-									polymerType, "X", monomerStore));
-							ids.add(processNode(monomers.get(1)[1],
-									polymerType, "P", monomerStore));
-						} else {
-							ids.add(processNode(monomers.get(0)[1],
-									polymerType, "R", monomerStore));
-							ids.add(processNode(monomers.get(1)[1],
-									polymerType, "P", monomerStore));
-						}
+						ids.add(processToken(lexer, first, polymerType,
+								hasBase ? "X" : "R", monomerStore));
+						ids.add(processToken(lexer, first + 1, polymerType,
+								"P", monomerStore));
 					}
 					// middle of notation
 					else if (!hasBase) {
-						ids.add(processNode(monomers.get(0)[1], polymerType,
-								"R", monomerStore));
-						ids.add(processNode(monomers.get(1)[1], polymerType,
+						ids.add(processToken(lexer, first, polymerType, "R",
+								monomerStore));
+						ids.add(processToken(lexer, first + 1, polymerType,
 								"P", monomerStore));
 
 					} else {
 						throw new NotationException(
 								"Invalid Polymer Notation: Nucleotide sequence "
-										+ notation + " is incorrect");
+										+ lexer.getGroupText(group)
+										+ " is incorrect");
 					}
 				}
 
-				else if (monomers.size() == 3) {
-					ids.add(processNode(monomers.get(0)[1], polymerType, "R",
+				else if (monomerCount == 3) {
+					ids.add(processToken(lexer, first, polymerType, "R",
 							monomerStore));
-					ids.add(processNode(monomers.get(1)[1], polymerType, "X",
+					ids.add(processToken(lexer, first + 1, polymerType, "X",
 							monomerStore));
-					ids.add(processNode(monomers.get(2)[1], polymerType, "P",
+					ids.add(processToken(lexer, first + 2, polymerType, "P",
 							monomerStore));
 				} else {
 					throw new NotationException(
 							"Invalid Polymer Notation: Nucleotide sequence "
-									+ notation + " is incorrect");
+									+ lexer.getGroupText(group)
+									+ " is incorrect");
 
 				}
-				isFirstGroup = false;
 			}
 		}
 
@@ -1191,8 +1417,13 @@ public class SimpleNotationParser {
 			nodeDesc = nodeDesc.substring(1, nodeDesc.length() - 1);
 		}
 
-		boolean isSmilesCode = Pattern.matches(".*\\$\\|$", nodeDesc);
+		return processNode(nodeDesc, SimpleNotationLexer.isSmilesCode(nodeDesc),
+				polymerType, naturalAnalog, monomerStore);
+	}
 
+	private static String processNode(String nodeDesc, boolean isSmilesCode,
+			String polymerType, String naturalAnalog, MonomerStore monomerStore)
+			throws NotationException {
 		if (!isSmilesCode) {
 			Map<String, Monomer> monomers = monomerStore
 					.getMonomers(polymerType);
@@ -1299,7 +1530,9 @@ public class SimpleNotationParser {
 
 			m.setAttachmentList(al);
 			try {
-				monomerStore.addNewMonomer(m);
+				// another thread may have registered the same SMILES meanwhile
+				alternateId = monomerStore.addNewMonomerIfAbsent(m)
+						.getAlternateId();
 			} catch (Exception ex) {
 				throw new NotationException(
 						"Unable to add adhoc new monomer into monomer databse",
@@ -2571,6 +2804,36 @@ public class SimpleNotationParser {
 			String polymerType, MonomerStore monomerStore)
 			throws NotationException, MonomerException, IOException,
 			JDOMException, PluginException, StructureException {
+		return getMoleculeInfo(notation, polymerType, monomerStore,
+				new HashMap<String, MoleculeInfo>());
+	}
+
+	/**
+	 * This method returns the MoleculeInfo of simple polymer, chunks of
+	 * MONOMER_GROUP_COUNT_INTERVAL groups that occur more than once are
+	 * computed once
+	 * 
+	 * @param notation
+	 *            - simple notation
+	 * @param polymerType
+	 *            - RNA, PEPTIDE or CHEM
+	 * @param monomerStore
+	 * @param chunkInfoMap
+	 *            MoleculeInfo of chunks, key is polymer type and chunk
+	 *            notation, filled on first use and may be shared by the
+	 *            polymers of one request
+	 * @return MoleculeInfo of this simple polymer, all R groups are capped.
+	 * @throws NotationException
+	 * @throws MonomerException
+	 * @throws IOException
+	 * @throws JDOMException
+	 * @throws PluginException
+	 * @throws StructureException
+	 */
+	static MoleculeInfo getMoleculeInfo(String notation, String polymerType,
+			MonomerStore monomerStore, Map<String, MoleculeInfo> chunkInfoMap)
+			throws NotationException, MonomerException, IOException,
+			JDOMException, PluginException, StructureException {
 
 		if (polymerType.equals(Monomer.CHEMICAL_POLYMER_TYPE)) {
 			notation = processNode(notation, Monomer.CHEMICAL_POLYMER_TYPE,
@@ -2582,14 +2845,10 @@ public class SimpleNotationParser {
 
 		StringBuilder tmpNotationBuilder = new StringBuilder();
 
-		SimpleNotationGroupIterator groupIterator = new SimpleNotationGroupIterator(
-				notation);
+		SimpleNotationLexer lexer = new SimpleNotationLexer(notation);
 		List<String> groups = new ArrayList<String>();
-		// String[] groups = notation.split(GROUP_LEVEL_DELIMITER_REGEX);
-
-		while (groupIterator.hasNextGroup()) {
-			groups.add(groupIterator.nextGroup());
-
+		for (int group = 0; group < lexer.getGroupCount(); group++) {
+			groups.add(lexer.getGroupText(group));
 		}
 
 		for (int i = 1; i <= groups.size(); i++) {
@@ -2650,19 +2909,22 @@ public class SimpleNotationParser {
 		List<MoleculeInfo> chunkMiList = new ArrayList<MoleculeInfo>();
 		for (int i = 0; i < chunks.size(); i++) {
 			String tmpNotation = chunks.get(i);
-			String complexNotation = getComplexNotation(tmpNotation,
-					polymerType, monomerStore);
-			String smiles = ComplexNotationParser.getComplexPolymerSMILES(
-					complexNotation, monomerStore);
-			MoleculeInfo tmpmi = StructureParser.getMoleculeInfo(smiles);
+			String key = polymerType + ":" + tmpNotation;
+			MoleculeInfo tmpmi = chunkInfoMap.get(key);
+			if (null == tmpmi) {
+				String complexNotation = getComplexNotation(tmpNotation,
+						polymerType, monomerStore);
+				String smiles = ComplexNotationParser.getComplexPolymerSMILES(
+						complexNotation, monomerStore);
+				tmpmi = StructureParser.getMoleculeInfo(smiles);
+				chunkInfoMap.put(key, tmpmi);
+			}
 			chunkMiList.add(tmpmi);
 		}
 
 		return StructureParser.processMoleculeInfo(chunkMiList, capMiList);
 	}
 
-	private static Map<String, Integer> seedMap = new HashMap<String, Integer>();
-
 	public static String getAdHocMonomerIDPrefix(String polymerType) {
 		if (polymerType.equals(Monomer.CHEMICAL_POLYMER_TYPE)) {
 			return "CM#";
@@ -2675,38 +2937,35 @@ public class SimpleNotationParser {
 		}
 	}
 
+	/**
+	 * returns the next free ad hoc monomer ID of the polymer type, such as
+	 * CM#1. Seeds are allocated atomically per store, IDs already used by the
+	 * store are skipped.
+	 * 
+	 * @param polymerType
+	 * @param store
+	 * @return ad hoc monomer ID
+	 */
 	public static String generateNextAdHocMonomerID(String polymerType,
 			MonomerStore store) {
-		Map<String, Monomer> internalMonomers = null;
-		try {
-			internalMonomers = MonomerFactory.getInstance().getMonomerDB()
-					.get(polymerType);
-		} catch (Exception e) {
-
-		}
-
-		Map<String, Monomer> monomers = store.getMonomers(polymerType);
-
-		Integer seed = seedMap.get(polymerType);
-		if (seed == null) {
-			seed = 0;
-		}
-		seed++;
-		seedMap.put(polymerType, seed);
-
-		String result = getAdHocMonomerIDPrefix(polymerType) + seed;
-
-		if ((monomers != null && monomers.containsKey(result))
-				|| (internalMonomers != null && internalMonomers
-						.containsKey(result))) {
-			return generateNextAdHocMonomerID(polymerType, store);
-		} else {
-			return result;
-		}
+		String prefix = getAdHocMonomerIDPrefix(polymerType);
+		String result;
+		do {
+			result = prefix + store.nextAdHocSeed(polymerType);
+		} while (null != store.getMonomer(polymerType, result));
+		return result;
 	}
 
+	/**
+	 * restarts the ad hoc monomer IDs of the monomer database store, used by
+	 * tests
+	 */
 	public static void resetSeed() {
-		seedMap = new HashMap<String, Integer>();
+		try {
+			MonomerFactory.getInstance().getMonomerStore().resetAdHocSeeds();
+		} catch (Exception e) {
+			// no monomer database, so nothing to reset
+		}
 	}
 
 	public static int getMatchingBracketPosition(char[] characters,
@@ -2759,4 +3018,18 @@ public class SimpleNotationParser {
 
 	}
 
+	/**
+	 * molecular graph of a monomer, together with the monomer it was parsed
+	 * from
+	 */
+	private static final class MonomerStructureTemplate {
+		private final Monomer monomer;
+		private final MolecularGraph graph;
+
+		private MonomerStructureTemplate(Monomer monomer, MolecularGraph graph) {
+			this.monomer = monomer;
+			this.graph = graph;
+		}
+	}
+
 }
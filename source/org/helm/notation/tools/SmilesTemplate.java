@@ -0,0 +1,654 @@
+/*******************************************************************************
+ * Copyright C 2012, The Pistoia Alliance
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package org.helm.notation.tools;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * This class prepares the extended SMILES of a monomer or cap group for
+ * writing polymer SMILES by text concatenation. The R atoms are cut out of
+ * the SMILES once: the atom bonded to an R atom gets a placeholder for a ring
+ * closure instead, and its chirality is inverted where moving the bond into
+ * the ring closure changes the order of its neighbors. Writing the fragment
+ * only fills the ring closures into the placeholders.
+ * 
+ * R atoms must be terminal atoms without ring closures and without directional
+ * bonds, and the extension may only have atom labels and the relative stereo
+ * flag. parse returns null for other SMILES, such fragments have to be written
+ * from their molecule. A template is immutable and can be shared.
+ */
+final class SmilesTemplate {
+
+	/** placeholder index of R groups the template does not have */
+	static final int NO_PLACEHOLDER = -1;
+
+	private static final String BOND_SYMBOLS = "-=#$:/\\";
+	private static final String RGROUP_LABEL_PREFIX = "_R";
+
+	// text before each placeholder and after the last one
+	private final String[] pieces;
+	// R group number, bond symbol of the R atom and aromaticity of the atom
+	// bonded to it, for each placeholder
+	private final int[] rgroups;
+	private final String[] bondSymbols;
+	private final boolean[] aromatic;
+
+	private SmilesTemplate(String[] pieces, int[] rgroups,
+			String[] bondSymbols, boolean[] aromatic) {
+		this.pieces = pieces;
+		this.rgroups = rgroups;
+		this.bondSymbols = bondSymbols;
+		this.aromatic = aromatic;
+	}
+
+	/**
+	 * Creates the template of an extended SMILES with R atoms labeled as _R#
+	 * 
+	 * @param extendedSmiles
+	 * @return template or null if the SMILES is not supported
+	 */
+	static SmilesTemplate parse(String extendedSmiles) {
+		if (null == extendedSmiles) {
+			return null;
+		}
+		String text = extendedSmiles.trim();
+		int space = text.indexOf(' ');
+		String smiles = (space < 0) ? text : text.substring(0, space);
+		String[] labels = getAtomLabels((space < 0) ? "" : text.substring(
+				space).trim());
+		if (null == labels || smiles.length() == 0) {
+			return null;
+		}
+
+		SmilesGraph graph = new SmilesGraph(smiles);
+		if (!graph.parse() || labels.length > graph.atomCount) {
+			return null;
+		}
+		return graph.createTemplate(labels);
+	}
+
+	/**
+	 * returns the labels of the atoms, empty if there is no extension
+	 * 
+	 * @return labels or null if the extension has other fields than labels and
+	 *         the relative stereo flag
+	 */
+	private static String[] getAtomLabels(String extension) {
+		String[] labels = new String[0];
+		if (extension.length() == 0) {
+			return labels;
+		}
+		int end = extension.length() - 1;
+		if (end < 1 || extension.charAt(0) != '|'
+				|| extension.charAt(end) != '|') {
+			return null;
+		}
+
+		int i = 1;
+		while (i < end) {
+			if (extension.charAt(i) == '$') {
+				int close = extension.indexOf('$', i + 1);
+				if (close < 0 || close >= end) {
+					return null;
+				}
+				labels = extension.substring(i + 1, close).split(";", -1);
+				i = close + 1;
+			} else {
+				int comma = extension.indexOf(',', i);
+				if (comma < 0 || comma > end) {
+					comma = end;
+				}
+				if (!"r".equals(extension.substring(i, comma))) {
+					return null;
+				}
+				i = comma;
+			}
+			if (i < end) {
+				if (extension.charAt(i) != ',') {
+					return null;
+				}
+				i++;
+			}
+		}
+		return labels;
+	}
+
+	/**
+	 * returns the number of placeholders, one for each R atom
+	 * 
+	 * @return placeholder count
+	 */
+	int getPlaceholderCount() {
+		return rgroups.length;
+	}
+
+	/**
+	 * returns the placeholder of an R group
+	 * 
+	 * @param rgroup
+	 *            R group number
+	 * @return placeholder index or NO_PLACEHOLDER
+	 */
+	int getPlaceholder(int rgroup) {
+		for (int i = 0; i < rgroups.length; i++) {
+			if (rgroups[i] == rgroup) {
+				return i;
+			}
+		}
+		return NO_PLACEHOLDER;
+	}
+
+	/**
+	 * returns the bond symbol the R atom of a placeholder was bonded with
+	 * 
+	 * @param placeholder
+	 * @return bond symbol, empty for implicit bonds
+	 */
+	String getBondSymbol(int placeholder) {
+		return bondSymbols[placeholder];
+	}
+
+	/**
+	 * Checks if the atom of a placeholder is aromatic
+	 * 
+	 * @param placeholder
+	 * @return true for aromatic atoms
+	 */
+	boolean isAromatic(int placeholder) {
+		return aromatic[placeholder];
+	}
+
+	/**
+	 * Writes the SMILES with ring closures in place of the R atoms
+	 * 
+	 * @param out
+	 * @param ringClosures
+	 *            ring closure of each placeholder, with bond symbol
+	 * @throws IOException
+	 */
+	void write(Appendable out, String[] ringClosures) throws IOException {
+		for (int i = 0; i < rgroups.length; i++) {
+			out.append(pieces[i]);
+			out.append(ringClosures[i]);
+		}
+		out.append(pieces[rgroups.length]);
+	}
+
+	/**
+	 * atoms of a SMILES with their neighbors in the order that defines
+	 * chirality: preceding atom, implicit hydrogen, ring closures and then
+	 * branches and chain
+	 */
+	private static final class SmilesGraph {
+
+		private static final int HYDROGEN = -1;
+		private static final int UNCLOSED = -2;
+
+		private final String smiles;
+		private final int length;
+
+		private int atomCount;
+		private final int[] atomStarts;
+		private final int[] atomEnds;
+		// position and length of @ or @@
+		private final int[] chiralities;
+		private final int[] chiralityLengths;
+		private final boolean[] aromaticAtoms;
+		private final boolean[] hydrogens;
+		private final int[] precedingAtoms;
+		private final char[] precedingBonds;
+		private final int[] precedingBondPositions;
+		private final List<List<Integer>> ringNeighbors;
+		private final List<List<Integer>> chainNeighbors;
+
+		SmilesGraph(String smiles) {
+			this.smiles = smiles;
+			this.length = smiles.length();
+			atomStarts = new int[length];
+			atomEnds = new int[length];
+			chiralities = new int[length];
+			chiralityLengths = new int[length];
+			aromaticAtoms = new boolean[length];
+			hydrogens = new boolean[length];
+			precedingAtoms = new int[length];
+			precedingBonds = new char[length];
+			precedingBondPositions = new int[length];
+			ringNeighbors = new ArrayList<List<Integer>>();
+			chainNeighbors = new ArrayList<List<Integer>>();
+		}
+
+		boolean parse() {
+			int[] branchAtoms = new int[length];
+			int depth = 0;
+			int[] ringAtoms = new int[100];
+			int[] ringSlots = new int[100];
+			for (int i = 0; i < ringAtoms.length; i++) {
+				ringAtoms[i] = -1;
+			}
+
+			int previous = -1;
+			char bond = 0;
+			int bondPosition = -1;
+			boolean afterAtom = false;
+			int i = 0;
+			while (i < length) {
+				char c = smiles.charAt(i);
+				if (c == '(') {
+					if (previous < 0 || bond != 0) {
+						return false;
+					}
+					branchAtoms[depth++] = previous;
+					afterAtom = false;
+					i++;
+				} else if (c == ')') {
+					if (depth == 0 || bond != 0) {
+						return false;
+					}
+					previous = branchAtoms[--depth];
+					afterAtom = false;
+					i++;
+				} else if (c == '.') {
+					if (depth > 0 || bond != 0) {
+						return false;
+					}
+					previous = -1;
+					afterAtom = false;
+					i++;
+				} else if (BOND_SYMBOLS.indexOf(c) >= 0) {
+					if (previous < 0 || bond != 0) {
+						return false;
+					}
+					bond = c;
+					bondPosition = i;
+					i++;
+				} else if (isDigit(c) || c == '%') {
+					// ring closures directly follow their atom
+					if (!afterAtom) {
+						return false;
+					}
+					int number;
+					if (c == '%') {
+						if (i + 2 >= length || !isDigit(smiles.charAt(i + 1))
+								|| !isDigit(smiles.charAt(i + 2))) {
+							return false;
+						}
+						number = Integer.parseInt(smiles.substring(i + 1,
+								i + 3));
+						i += 3;
+					} else {
+						number = c - '0';
+						i++;
+					}
+
+					List<Integer> neighbors = ringNeighbors.get(previous);
+					int other = ringAtoms[number];
+					if (other < 0) {
+						ringAtoms[number] = previous;
+						ringSlots[number] = neighbors.size();
+						neighbors.add(UNCLOSED);
+					} else {
+						ringNeighbors.get(other).set(ringSlots[number],
+								previous);
+						neighbors.add(other);
+						ringAtoms[number] = -1;
+					}
+					bond = 0;
+				} else {
+					int atom = atomCount;
+					int end = parseAtom(i, atom);
+					if (end < 0) {
+						return false;
+					}
+					atomStarts[atom] = i;
+					atomEnds[atom] = end;
+					precedingAtoms[atom] = previous;
+					precedingBonds[atom] = bond;
+					precedingBondPositions[atom] = (bond == 0) ? -1
+							: bondPosition;
+					ringNeighbors.add(new ArrayList<Integer>());
+					chainNeighbors.add(new ArrayList<Integer>());
+					if (previous >= 0) {
+						chainNeighbors.get(previous).add(atom);
+					}
+					atomCount++;
+
+					previous = atom;
+					bond = 0;
+					afterAtom = true;
+					i = end;
+				}
+			}
+
+			for (int number = 0; number < ringAtoms.length; number++) {
+				if (ringAtoms[number] >= 0) {
+					return false;
+				}
+			}
+			return bond == 0 && depth == 0;
+		}
+
+		/**
+		 * parses the atom at a position
+		 * 
+		 * @return position after the atom or -1 if there is no supported atom
+		 */
+		private int parseAtom(int start, int atom) {
+			chiralities[atom] = -1;
+			char c = smiles.charAt(start);
+			if (c != '[') {
+				aromaticAtoms[atom] = "bcnops".indexOf(c) >= 0;
+				if ((c == 'B' || c == 'C') && start + 1 < length
+						&& smiles.charAt(start + 1) == ((c == 'B') ? 'r' : 'l')) {
+					return start + 2;
+				}
+				return ("BCNOPSFI*bcnops".indexOf(c) >= 0) ? start + 1 : -1;
+			}
+
+			int close = smiles.indexOf(']', start);
+			if (close < 0) {
+				return -1;
+			}
+			int p = start + 1;
+			while (p < close && isDigit(smiles.charAt(p))) {
+				p++;
+			}
+			if (p == close) {
+				return -1;
+			}
+
+			char symbol = smiles.charAt(p++);
+			if (Character.isUpperCase(symbol)) {
+				while (p < close && Character.isLowerCase(smiles.charAt(p))) {
+					p++;
+				}
+			} else if (Character.isLowerCase(symbol)) {
+				aromaticAtoms[atom] = true;
+				if (p < close
+						&& ("se".equals(smiles.substring(p - 1, p + 1)) || "as"
+								.equals(smiles.substring(p - 1, p + 1)))) {
+					p++;
+				}
+			} else if (symbol != '*') {
+				return -1;
+			}
+
+			if (p < close && smiles.charAt(p) == '@') {
+				chiralities[atom] = p;
+				p++;
+				if (p < close && smiles.charAt(p) == '@') {
+					p++;
+				}
+				chiralityLengths[atom] = p - chiralities[atom];
+				// only tetrahedral chirality
+				if (p < close && Character.isUpperCase(smiles.charAt(p))
+						&& smiles.charAt(p) != 'H') {
+					return -1;
+				}
+			}
+
+			if (p < close && smiles.charAt(p) == 'H') {
+				p++;
+				hydrogens[atom] = p == close || smiles.charAt(p) != '0';
+			}
+			return close + 1;
+		}
+
+		SmilesTemplate createTemplate(String[] labels) {
+			int[] rgroupNumbers = new int[atomCount];
+			int[] rgroupAtoms = new int[atomCount];
+			int rgroupCount = 0;
+			for (int atom = 0; atom < labels.length; atom++) {
+				String label = labels[atom];
+				if (label.startsWith(RGROUP_LABEL_PREFIX)) {
+					int number;
+					try {
+						number = Integer.parseInt(label
+								.substring(RGROUP_LABEL_PREFIX.length()));
+					} catch (NumberFormatException e) {
+						return null;
+					}
+					if (number <= 0) {
+						return null;
+					}
+					for (int i = 0; i < rgroupCount; i++) {
+						if (rgroupNumbers[rgroupAtoms[i]] == number) {
+							return null;
+						}
+					}
+					rgroupNumbers[atom] = number;
+					rgroupAtoms[rgroupCount++] = atom;
+				}
+			}
+
+			List<Edit> edits = new ArrayList<Edit>();
+			int[] bondedAtoms = new int[rgroupCount];
+			String[] rgroupBonds = new String[rgroupCount];
+			for (int i = 0; i < rgroupCount; i++) {
+				int rgroup = rgroupAtoms[i];
+				if (!ringNeighbors.get(rgroup).isEmpty()) {
+					return null;
+				}
+
+				int atom;
+				char bond;
+				int deleteStart;
+				int deleteEnd;
+				int preceding = precedingAtoms[rgroup];
+				List<Integer> following = chainNeighbors.get(rgroup);
+				if (preceding >= 0 && following.isEmpty()) {
+					// X[*] or X([*])
+					atom = preceding;
+					bond = precedingBonds[rgroup];
+					deleteStart = (bond == 0) ? atomStarts[rgroup]
+							: precedingBondPositions[rgroup];
+					deleteEnd = atomEnds[rgroup];
+					if (deleteStart > 0 && smiles.charAt(deleteStart - 1) == '('
+							&& deleteEnd < length
+							&& smiles.charAt(deleteEnd) == ')') {
+						deleteStart--;
+						deleteEnd++;
+					}
+				} else if (preceding < 0 && following.size() == 1) {
+					// [*]X at the start of a component
+					atom = following.get(0);
+					bond = precedingBonds[atom];
+					deleteStart = atomStarts[rgroup];
+					deleteEnd = atomStarts[atom];
+					if (deleteEnd - atomEnds[rgroup] != ((bond == 0) ? 0 : 1)) {
+						return null;
+					}
+				} else {
+					return null;
+				}
+				if (bond == '/' || bond == '\\' || bond == ':'
+						|| rgroupNumbers[atom] > 0) {
+					return null;
+				}
+
+				bondedAtoms[i] = atom;
+				rgroupBonds[i] = (bond == 0) ? "" : String.valueOf(bond);
+				edits.add(new Edit(deleteStart, deleteEnd, "", -1));
+				int position = getRingClosureEnd(atom);
+				edits.add(new Edit(position, position, null, i));
+			}
+
+			for (int i = 0; i < rgroupCount; i++) {
+				int atom = bondedAtoms[i];
+				int chirality = chiralities[atom];
+				// each chiral atom once, with its first R atom
+				if (chirality >= 0 && indexOf(bondedAtoms, atom) == i
+						&& isOddPermutation(atom, rgroupNumbers)) {
+					edits.add(new Edit(chirality, chirality
+							+ chiralityLengths[atom],
+							(chiralityLengths[atom] == 1) ? "@@" : "@", -1));
+				}
+			}
+
+			// insertions go before deletions at the same position and keep the
+			// order of their R atoms
+			Collections.sort(edits, new Comparator<Edit>() {
+				public int compare(Edit edit1, Edit edit2) {
+					if (edit1.start != edit2.start) {
+						return (edit1.start < edit2.start) ? -1 : 1;
+					}
+					boolean insertion1 = edit1.start == edit1.end;
+					boolean insertion2 = edit2.start == edit2.end;
+					return (insertion1 == insertion2) ? 0 : (insertion1 ? -1
+							: 1);
+				}
+			});
+
+			String[] pieces = new String[rgroupCount + 1];
+			int[] rgroups = new int[rgroupCount];
+			String[] bondSymbols = new String[rgroupCount];
+			boolean[] aromatic = new boolean[rgroupCount];
+			StringBuilder piece = new StringBuilder();
+			int placeholder = 0;
+			int position = 0;
+			for (Edit edit : edits) {
+				if (edit.start < position) {
+					return null;
+				}
+				piece.append(smiles, position, edit.start);
+				if (edit.rgroup >= 0) {
+					pieces[placeholder] = piece.toString();
+					piece.setLength(0);
+					rgroups[placeholder] = rgroupNumbers[rgroupAtoms[edit.rgroup]];
+					bondSymbols[placeholder] = rgroupBonds[edit.rgroup];
+					aromatic[placeholder] = aromaticAtoms[bondedAtoms[edit.rgroup]];
+					placeholder++;
+				} else {
+					piece.append(edit.text);
+				}
+				position = edit.end;
+			}
+			piece.append(smiles, position, length);
+			pieces[placeholder] = piece.toString();
+
+			return new SmilesTemplate(pieces, rgroups, bondSymbols, aromatic);
+		}
+
+		/**
+		 * Checks if the neighbors of an atom change order by an odd number of
+		 * swaps when its R atoms are replaced by ring closures after the
+		 * existing ones
+		 */
+		private boolean isOddPermutation(int atom, int[] rgroupNumbers) {
+			List<Integer> current = new ArrayList<Integer>();
+			List<Integer> replaced = new ArrayList<Integer>();
+			int preceding = precedingAtoms[atom];
+			if (preceding >= 0) {
+				current.add(preceding);
+				if (rgroupNumbers[preceding] == 0) {
+					replaced.add(preceding);
+				}
+			}
+			if (hydrogens[atom]) {
+				current.add(HYDROGEN);
+				replaced.add(HYDROGEN);
+			}
+			current.addAll(ringNeighbors.get(atom));
+			replaced.addAll(ringNeighbors.get(atom));
+			current.addAll(chainNeighbors.get(atom));
+
+			// R atoms in atom order, as their placeholders
+			if (preceding >= 0 && rgroupNumbers[preceding] > 0) {
+				replaced.add(preceding);
+			}
+			for (int neighbor : chainNeighbors.get(atom)) {
+				if (rgroupNumbers[neighbor] > 0) {
+					replaced.add(neighbor);
+				}
+			}
+			for (int neighbor : chainNeighbors.get(atom)) {
+				if (rgroupNumbers[neighbor] == 0) {
+					replaced.add(neighbor);
+				}
+			}
+
+			int inversions = 0;
+			for (int i = 0; i < replaced.size(); i++) {
+				int position = current.indexOf(replaced.get(i));
+				for (int j = i + 1; j < replaced.size(); j++) {
+					if (current.indexOf(replaced.get(j)) < position) {
+						inversions++;
+					}
+				}
+			}
+			return inversions % 2 == 1;
+		}
+
+		// after the atom and its ring closures
+		private int getRingClosureEnd(int atom) {
+			int position = atomEnds[atom];
+			while (position < length) {
+				int next = position;
+				if (BOND_SYMBOLS.indexOf(smiles.charAt(next)) >= 0) {
+					next++;
+				}
+				if (next < length && isDigit(smiles.charAt(next))) {
+					position = next + 1;
+				} else if (next < length && smiles.charAt(next) == '%') {
+					position = next + 3;
+				} else {
+					break;
+				}
+			}
+			return position;
+		}
+
+		private static int indexOf(int[] values, int value) {
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] == value) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		private static boolean isDigit(char c) {
+			return c >= '0' && c <= '9';
+		}
+	}
+
+	/**
+	 * replacement of a text range by text or by the placeholder of an R atom
+	 */
+	private static final class Edit {
+
+		final int start;
+		final int end;
+		final String text;
+		final int rgroup;
+
+		Edit(int start, int end, String text, int rgroup) {
+			this.start = start;
+			this.end = end;
+			this.text = text;
+			this.rgroup = rgroup;
+		}
+	}
+}
@@ -0,0 +1,471 @@
+/*******************************************************************************
+ * Copyright C 2012, The Pistoia Alliance
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ * CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+ * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package org.helm.notation.tools;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.helm.notation.StructureException;
+
+import chemaxon.struc.MolAtom;
+import chemaxon.struc.Molecule;
+
+/**
+ * This class assembles one molecule from the molecular graphs of monomers and
+ * cap groups. Each added fragment gets a range of atom indices, connections
+ * are made between R atoms by index the same way as StructureParser.merge
+ * does and only recorded: the R atoms are marked as removed and the new bond
+ * is kept as the two atoms it connects and the bond it is cloned from. The
+ * Marvin molecule is built once, when all connections are known, so assembly
+ * cost is linear in the number of atoms. Instead of building the molecule,
+ * the SMILES can be written from the SMILES templates of the fragments.
+ * 
+ * An assembler builds a single molecule and is not safe for concurrent use.
+ */
+final class StructureAssembler {
+
+	/** atom index that is never available for connection */
+	static final int NO_ATOM = -1;
+
+	// atom 1, atom 2, fragment and graph bond of the cloned bond, the later
+	// of the two connected fragments, R atom 1, R atom 2 and the R atom of the
+	// cloned bond
+	private static final int CONNECTION_FIELDS = 8;
+
+	private static final int MAX_RING_CLOSURE = 99;
+
+	private MolecularGraph[] graphs = new MolecularGraph[16];
+	private int[] offsets = new int[16];
+	private int fragmentCount;
+	private int atomCount;
+
+	private int[] connections = new int[16 * CONNECTION_FIELDS];
+	private int connectionCount;
+
+	private final BitSet removed = new BitSet();
+
+	private MolAtom[] atoms;
+
+	/**
+	 * Adds a fragment
+	 * 
+	 * @param graph
+	 * @return index of the first atom of the fragment, atom i of the graph is
+	 *         at this offset + i
+	 */
+	int addFragment(MolecularGraph graph) {
+		if (fragmentCount == graphs.length) {
+			graphs = Arrays.copyOf(graphs, fragmentCount * 2);
+			offsets = Arrays.copyOf(offsets, fragmentCount * 2);
+		}
+		int offset = atomCount;
+		graphs[fragmentCount] = graph;
+		offsets[fragmentCount] = offset;
+		fragmentCount++;
+		atomCount += graph.getAtomCount();
+		return offset;
+	}
+
+	/**
+	 * Adds the fragments and connections of another assembler. The graphs are
+	 * shared, so a structure that occurs more than once, like identical
+	 * polymer nodes, is assembled only once and then appended as often as
+	 * needed.
+	 * 
+	 * @param other
+	 *            assembler that is not changed afterwards
+	 * @return index of the first appended atom, atom i of the other assembler
+	 *         is at this offset + i
+	 */
+	int append(StructureAssembler other) {
+		int atomOffset = atomCount;
+		int fragmentOffset = fragmentCount;
+		for (int fragment = 0; fragment < other.fragmentCount; fragment++) {
+			addFragment(other.graphs[fragment]);
+		}
+
+		int index = connectionCount * CONNECTION_FIELDS;
+		int length = other.connectionCount * CONNECTION_FIELDS;
+		if (index + length > connections.length) {
+			connections = Arrays.copyOf(connections,
+					Math.max(index + length, connections.length * 2));
+		}
+		int[] otherConnections = other.connections;
+		for (int i = 0; i < length; i += CONNECTION_FIELDS) {
+			connections[index + i] = otherConnections[i] + atomOffset;
+			connections[index + i + 1] = otherConnections[i + 1] + atomOffset;
+			connections[index + i + 2] = otherConnections[i + 2]
+					+ fragmentOffset;
+			connections[index + i + 3] = otherConnections[i + 3];
+			connections[index + i + 4] = otherConnections[i + 4]
+					+ fragmentOffset;
+			connections[index + i + 5] = otherConnections[i + 5] + atomOffset;
+			connections[index + i + 6] = otherConnections[i + 6] + atomOffset;
+			connections[index + i + 7] = otherConnections[i + 7] + atomOffset;
+		}
+		connectionCount += other.connectionCount;
+
+		for (int atom = other.removed.nextSetBit(0); atom >= 0; atom = other.removed
+				.nextSetBit(atom + 1)) {
+			removed.set(atomOffset + atom);
+		}
+		return atomOffset;
+	}
+
+	/**
+	 * returns the number of fragments added
+	 * 
+	 * @return fragment count
+	 */
+	int getFragmentCount() {
+		return fragmentCount;
+	}
+
+	/**
+	 * Connects the atoms bonded to two R atoms, both R atoms are removed. The
+	 * bond of the first R atom is kept unless the second R atom is connected
+	 * to a chiral center.
+	 * 
+	 * @param rgroup1
+	 *            atom index of the first R atom
+	 * @param rgroup2
+	 *            atom index of the second R atom
+	 * @throws StructureException
+	 *             if an R atom is not available or both R atoms are connected
+	 *             to chiral centers
+	 */
+	void connect(int rgroup1, int rgroup2) throws StructureException {
+		if (rgroup1 == rgroup2) {
+			throw new StructureException(
+					"R group is not available for connection");
+		}
+		int fragment1 = getRgroupFragment(rgroup1);
+		int fragment2 = getRgroupFragment(rgroup2);
+		MolecularGraph graph1 = graphs[fragment1];
+		MolecularGraph graph2 = graphs[fragment2];
+		int atom1 = rgroup1 - offsets[fragment1];
+		int atom2 = rgroup2 - offsets[fragment2];
+
+		boolean singleStereo2 = graph2.isSingleStereo(atom2);
+		if (graph1.isSingleStereo(atom1) && singleStereo2) {
+			throw new StructureException(
+					"Both R atoms are connected to chiral centers");
+		}
+
+		int bond1 = graph1.getRgroupBond(atom1);
+		int bond2 = graph2.getRgroupBond(atom2);
+
+		int index = connectionCount * CONNECTION_FIELDS;
+		if (index == connections.length) {
+			connections = Arrays.copyOf(connections, index * 2);
+		}
+		connections[index] = offsets[fragment1]
+				+ graph1.getOtherAtom(bond1, atom1);
+		connections[index + 1] = offsets[fragment2]
+				+ graph2.getOtherAtom(bond2, atom2);
+		if (singleStereo2) {
+			// keep chiral bond on rgroup2
+			connections[index + 2] = fragment2;
+			connections[index + 3] = bond2;
+			connections[index + 7] = rgroup2;
+		} else {
+			// keep bond on rgroup1, regardless stereo type
+			connections[index + 2] = fragment1;
+			connections[index + 3] = bond1;
+			connections[index + 7] = rgroup1;
+		}
+		// the bond is added in front of the bonds of the later fragment, where
+		// merging would have added it
+		connections[index + 4] = Math.max(fragment1, fragment2);
+		connections[index + 5] = rgroup1;
+		connections[index + 6] = rgroup2;
+		connectionCount++;
+
+		removed.set(rgroup1);
+		removed.set(rgroup2);
+	}
+
+	private int getRgroupFragment(int rgroup) throws StructureException {
+		if (rgroup < 0 || rgroup >= atomCount || removed.get(rgroup)) {
+			throw new StructureException(
+					"R group is not available for connection");
+		}
+		int fragment = getFragment(rgroup);
+		if (graphs[fragment].getRgroup(rgroup - offsets[fragment]) <= 0) {
+			throw new StructureException(
+					"R group is not available for connection");
+		}
+		return fragment;
+	}
+
+	private int getFragment(int atom) {
+		int fragment = Arrays.binarySearch(offsets, 0, fragmentCount, atom);
+		if (fragment < 0) {
+			fragment = -fragment - 2;
+		}
+		// skip fragments without atoms
+		while (fragment + 1 < fragmentCount && offsets[fragment + 1] == atom) {
+			fragment++;
+		}
+		return fragment;
+	}
+
+	/**
+	 * Builds the molecule from all fragments. Atoms keep the order of the
+	 * fragments, the molecule of the first fragment is copied with its
+	 * properties and the atoms and bonds of the other fragments are cloned.
+	 * 
+	 * @return assembled molecule or null if no fragment was added
+	 */
+	Molecule build() {
+		if (fragmentCount == 0) {
+			return null;
+		}
+
+		atoms = new MolAtom[atomCount];
+		Molecule molecule = graphs[0].cloneMolecule();
+		MolAtom[] firstAtoms = molecule.getAtomArray();
+		for (int i = 0; i < firstAtoms.length; i++) {
+			if (removed.get(i)) {
+				molecule.removeNode(firstAtoms[i]);
+			} else {
+				atoms[i] = firstAtoms[i];
+			}
+		}
+		for (int fragment = 1; fragment < fragmentCount; fragment++) {
+			graphs[fragment].cloneAtoms(atoms, offsets[fragment], removed);
+		}
+		for (int i = firstAtoms.length; i < atomCount; i++) {
+			if (null != atoms[i]) {
+				molecule.add(atoms[i]);
+			}
+		}
+
+		// connections grouped by the later fragment, in connection order
+		int[] connectionStarts = new int[fragmentCount + 1];
+		for (int i = 0; i < connectionCount; i++) {
+			connectionStarts[connections[i * CONNECTION_FIELDS + 4] + 1]++;
+		}
+		for (int fragment = 0; fragment < fragmentCount; fragment++) {
+			connectionStarts[fragment + 1] += connectionStarts[fragment];
+		}
+		int[] orderedConnections = new int[connectionCount];
+		int[] next = Arrays.copyOf(connectionStarts, fragmentCount);
+		for (int i = 0; i < connectionCount; i++) {
+			orderedConnections[next[connections[i * CONNECTION_FIELDS + 4]]++] = i;
+		}
+
+		// bonds of the first fragment are in the molecule already
+		for (int fragment = 0; fragment < fragmentCount; fragment++) {
+			for (int i = connectionStarts[fragment]; i < connectionStarts[fragment + 1]; i++) {
+				int index = orderedConnections[i] * CONNECTION_FIELDS;
+				int graphFragment = connections[index + 2];
+				molecule.add(graphs[graphFragment].cloneBond(
+						connections[index + 3], atoms[connections[index]],
+						atoms[connections[index + 1]]));
+			}
+			if (fragment > 0) {
+				addBonds(molecule, fragment);
+			}
+		}
+		return molecule;
+	}
+
+	private void addBonds(Molecule molecule, int fragment) {
+		MolecularGraph graph = graphs[fragment];
+		int offset = offsets[fragment];
+		for (int bond = 0; bond < graph.getBondCount(); bond++) {
+			MolAtom atom1 = atoms[offset + graph.getBondAtom1(bond)];
+			MolAtom atom2 = atoms[offset + graph.getBondAtom2(bond)];
+			if (null != atom1 && null != atom2) {
+				molecule.add(graph.cloneBond(bond, atom1, atom2));
+			}
+		}
+	}
+
+	/**
+	 * Writes the non-canonical SMILES of the assembled structure from the
+	 * SMILES templates of the fragments, the molecule is not built. Fragments
+	 * are separated by dots and every connection is written as a ring
+	 * closure. Fragments are written in the order they were added, except
+	 * fragments with a single connection, like cap groups, which follow the
+	 * fragment they are connected to, so that few ring closures are open at
+	 * a time.
+	 * 
+	 * @param out
+	 * @return false if a fragment has no template, an R group of a template is
+	 *         not connected or more ring closures than 99 are open at once,
+	 *         nothing is written in that case
+	 * @throws IOException
+	 */
+	boolean writeSmiles(Appendable out) throws IOException {
+		SmilesTemplate[] templates = new SmilesTemplate[fragmentCount];
+		String[][] ringClosures = new String[fragmentCount][];
+		for (int fragment = 0; fragment < fragmentCount; fragment++) {
+			templates[fragment] = graphs[fragment].getSmilesTemplate();
+			if (null == templates[fragment]) {
+				return false;
+			}
+			ringClosures[fragment] = new String[templates[fragment]
+					.getPlaceholderCount()];
+		}
+
+		// fragment and placeholder of both ends of each connection, end 2 * i
+		// and 2 * i + 1 of connection i
+		int endCount = 2 * connectionCount;
+		int[] endFragments = new int[endCount];
+		int[] endPlaceholders = new int[endCount];
+		for (int end = 0; end < endCount; end++) {
+			int rgroup = connections[(end / 2) * CONNECTION_FIELDS + 5 + end
+					% 2];
+			int fragment = getFragment(rgroup);
+			int placeholder = templates[fragment].getPlaceholder(graphs[fragment]
+					.getRgroup(rgroup - offsets[fragment]));
+			if (placeholder == SmilesTemplate.NO_PLACEHOLDER) {
+				return false;
+			}
+			endFragments[end] = fragment;
+			endPlaceholders[end] = placeholder;
+		}
+
+		String[] bondSymbols = new String[connectionCount];
+		for (int i = 0; i < connectionCount; i++) {
+			int index = i * CONNECTION_FIELDS;
+			int kept = 2 * i + ((connections[index + 7] == connections[index + 5]) ? 0
+					: 1);
+			String symbol = templates[endFragments[kept]]
+					.getBondSymbol(endPlaceholders[kept]);
+			// a bond between aromatic atoms would be read as aromatic
+			if (symbol.length() == 0
+					&& templates[endFragments[2 * i]]
+							.isAromatic(endPlaceholders[2 * i])
+					&& templates[endFragments[2 * i + 1]]
+							.isAromatic(endPlaceholders[2 * i + 1])) {
+				symbol = "-";
+			}
+			bondSymbols[i] = symbol;
+		}
+
+		// connection ends grouped by fragment
+		int[] endStarts = new int[fragmentCount + 1];
+		for (int end = 0; end < endCount; end++) {
+			endStarts[endFragments[end] + 1]++;
+		}
+		for (int fragment = 0; fragment < fragmentCount; fragment++) {
+			endStarts[fragment + 1] += endStarts[fragment];
+		}
+		int[] fragmentEnds = new int[endCount];
+		int[] next = Arrays.copyOf(endStarts, fragmentCount);
+		for (int end = 0; end < endCount; end++) {
+			fragmentEnds[next[endFragments[end]]++] = end;
+		}
+
+		int[] order = new int[fragmentCount];
+		int orderCount = 0;
+		for (int fragment = 0; fragment < fragmentCount; fragment++) {
+			if (isTrailingFragment(fragment, endStarts, fragmentEnds,
+					endFragments)) {
+				continue;
+			}
+			order[orderCount++] = fragment;
+			for (int i = endStarts[fragment]; i < endStarts[fragment + 1]; i++) {
+				int other = endFragments[fragmentEnds[i] ^ 1];
+				if (other != fragment
+						&& isTrailingFragment(other, endStarts, fragmentEnds,
+								endFragments)) {
+					order[orderCount++] = other;
+				}
+			}
+		}
+
+		// ring closure numbers are reused after the fragment that closes them
+		int[] numbers = new int[connectionCount];
+		BitSet open = new BitSet();
+		BitSet closed = new BitSet();
+		for (int i = 0; i < orderCount; i++) {
+			int fragment = order[i];
+			for (int j = endStarts[fragment]; j < endStarts[fragment + 1]; j++) {
+				int end = fragmentEnds[j];
+				int connection = end / 2;
+				if (numbers[connection] == 0) {
+					int number = open.nextClearBit(1);
+					if (number > MAX_RING_CLOSURE) {
+						return false;
+					}
+					open.set(number);
+					numbers[connection] = number;
+				} else {
+					closed.set(numbers[connection]);
+				}
+
+				String[] fragmentClosures = ringClosures[fragment];
+				int placeholder = endPlaceholders[end];
+				if (null != fragmentClosures[placeholder]) {
+					return false;
+				}
+				int number = numbers[connection];
+				fragmentClosures[placeholder] = bondSymbols[connection]
+						+ ((number < 10) ? String.valueOf(number) : "%"
+								+ number);
+			}
+			open.andNot(closed);
+			closed.clear();
+		}
+		for (int fragment = 0; fragment < fragmentCount; fragment++) {
+			for (String ringClosure : ringClosures[fragment]) {
+				if (null == ringClosure) {
+					return false;
+				}
+			}
+		}
+
+		for (int i = 0; i < orderCount; i++) {
+			if (i > 0) {
+				out.append('.');
+			}
+			templates[order[i]].write(out, ringClosures[order[i]]);
+		}
+		return true;
+	}
+
+	// a fragment with a single connection to an earlier fragment is written
+	// right after that fragment
+	private static boolean isTrailingFragment(int fragment, int[] endStarts,
+			int[] fragmentEnds, int[] endFragments) {
+		int start = endStarts[fragment];
+		return endStarts[fragment + 1] - start == 1
+				&& endFragments[fragmentEnds[start] ^ 1] < fragment;
+	}
+
+	/**
+	 * returns an atom of the built molecule
+	 * 
+	 * @param index
+	 *            atom index of the assembler
+	 * @return MolAtom or null if the atom was removed or the molecule is not
+	 *         built yet
+	 */
+	MolAtom getAtom(int index) {
+		return (null == atoms) ? null : atoms[index];
+	}
+}
@@ -37,9 +37,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class provides methods that handle chemical structures
@@ -62,9 +65,102 @@ public class StructureParser {
 	public static final String SMILES_FORMAT = "smiles";
 	private static final int CANONICALIZATION_ROUND = 3;
 
+	/**
+	 * system property, if "false" canonical SMILES are not cached
+	 */
+	public static final String CANONICAL_SMILES_CACHE_PROPERTY = "org.helm.notation.canonicalSmilesCache";
+
+	// maximum number of canonical SMILES kept in memory
+	public static final int CANONICAL_SMILES_CACHE_SIZE = 4096;
+
+	private static volatile boolean canonicalSmilesCacheEnabled = !"false"
+			.equalsIgnoreCase(System.getProperty(CANONICAL_SMILES_CACHE_PROPERTY));
+
+	private static final AtomicLong canonicalSmilesCacheHits = new AtomicLong();
+	private static final AtomicLong canonicalSmilesCacheMisses = new AtomicLong();
+
+	// key is input type, format and input SMILES, value is the unique SMILES
+	private static final Map<String, String> canonicalSmilesCache = new LinkedHashMap<String, String>(
+			256, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+			return size() > CANONICAL_SMILES_CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * enables or disables the cache of canonical SMILES, disabling clears it
+	 * 
+	 * @param enabled
+	 */
+	public static void setCanonicalSmilesCacheEnabled(boolean enabled) {
+		canonicalSmilesCacheEnabled = enabled;
+		if (!enabled) {
+			clearCanonicalSmilesCache();
+		}
+	}
+
+	public static boolean isCanonicalSmilesCacheEnabled() {
+		return canonicalSmilesCacheEnabled;
+	}
+
+	/**
+	 * returns the number of canonical SMILES taken from the cache
+	 * 
+	 * @return hit count
+	 */
+	public static long getCanonicalSmilesCacheHitCount() {
+		return canonicalSmilesCacheHits.get();
+	}
+
+	/**
+	 * returns the number of canonical SMILES that had to be computed while the
+	 * cache was enabled
+	 * 
+	 * @return miss count
+	 */
+	public static long getCanonicalSmilesCacheMissCount() {
+		return canonicalSmilesCacheMisses.get();
+	}
+
+	/**
+	 * removes all canonical SMILES from the cache and resets its statistics
+	 */
+	public static void clearCanonicalSmilesCache() {
+		synchronized (canonicalSmilesCache) {
+			canonicalSmilesCache.clear();
+		}
+		canonicalSmilesCacheHits.set(0);
+		canonicalSmilesCacheMisses.set(0);
+	}
+
+	private static String getCachedSmiles(String key) {
+		if (!canonicalSmilesCacheEnabled) {
+			return null;
+		}
+		String smiles;
+		synchronized (canonicalSmilesCache) {
+			smiles = canonicalSmilesCache.get(key);
+		}
+		if (null == smiles) {
+			canonicalSmilesCacheMisses.incrementAndGet();
+		} else {
+			canonicalSmilesCacheHits.incrementAndGet();
+		}
+		return smiles;
+	}
+
+	private static void cacheSmiles(String key, String smiles) {
+		if (canonicalSmilesCacheEnabled && null != smiles) {
+			synchronized (canonicalSmilesCache) {
+				canonicalSmilesCache.put(key, smiles);
+			}
+		}
+	}
+
 	public static MoleculeInfo getMoleculeInfo(String smiles)
 			throws IOException, PluginException {
-		Molecule mol = getMolecule(smiles);
+		Molecule mol = getMolecule(smiles, false);
 		ElementalAnalyserPlugin plugin = new ElementalAnalyserPlugin();
 		plugin.setDoublePrecision(2);
 		plugin.setMolecule(mol);
@@ -86,7 +182,7 @@ public class StructureParser {
 	 * @throws java.io.IOException
 	 */
 	public static boolean validateSmiles(String smiles) throws IOException {
-		Molecule mol = getMolecule(smiles);
+		Molecule mol = getMolecule(smiles, false);
 		for (int i = 0; i < mol.getAtomCount(); i++) {
 			MolAtom a = mol.getAtom(i);
 			a.valenceCheck();
@@ -148,8 +244,7 @@ public class StructureParser {
 	 */
 	public static String getUniqueExtendedSMILES(String extendedSMILES)
 			throws StructureException, IOException {
-		Molecule mol = getMolecule(extendedSMILES);
-		return getUniqueExtendedSMILES(mol);
+		return getUniqueSmiles(extendedSMILES, CHEMAXON_EXTENDEND_SMILES_FORMAT);
 	}
 
 	public static String getUniqueExtendedSMILES(Molecule molecule)
@@ -166,8 +261,7 @@ public class StructureParser {
 	 * @throws IOException
 	 */
 	public static String getUniqueSmiles(String smiles) throws IOException {
-		Molecule mol = StructureParser.getMolecule(smiles);
-		return getUniqueSmiles(mol);
+		return getUniqueSmiles(smiles, UNIQUE_SMILES_FORMAT);
 	}
 
 	public static String getUniqueSmiles(Molecule molecule) throws IOException {
@@ -176,21 +270,42 @@ public class StructureParser {
 
 	public static String getUniqueSmiles(String smiles, String format)
 			throws IOException {
-		Molecule mol = StructureParser.getMolecule(smiles);
-		return getUniqueSmiles(mol, format);
+		String key = "S" + format + " " + smiles;
+		String uniqueSmiles = getCachedSmiles(key);
+		if (null == uniqueSmiles) {
+			Molecule mol = StructureParser.getMolecule(smiles, false);
+			mol.implicitizeHydrogens(MolAtom.ALL_H);
+			uniqueSmiles = getStableSmiles(mol.toFormat(format), format);
+			cacheSmiles(key, uniqueSmiles);
+		}
+		return uniqueSmiles;
 	}
 
 	public static String getUniqueSmiles(Molecule molecule, String format)
 			throws IOException {
-		String oldSmi = "";
 		molecule.implicitizeHydrogens(MolAtom.ALL_H);
-		String newSmi = molecule.toFormat(format);
+		String smi = molecule.toFormat(format);
+
+		// the rounds only depend on the first SMILES
+		String key = "M" + format + " " + smi;
+		String uniqueSmiles = getCachedSmiles(key);
+		if (null == uniqueSmiles) {
+			uniqueSmiles = getStableSmiles(smi, format);
+			cacheSmiles(key, uniqueSmiles);
+		}
+		return uniqueSmiles;
+	}
+
+	private static String getStableSmiles(String smiles, String format)
+			throws IOException {
+		String oldSmi = "";
+		String newSmi = smiles;
 		int count = 0;
 		while (!oldSmi.equals(newSmi) && count < CANONICALIZATION_ROUND) {
 			count++;
 			oldSmi = newSmi;
 
-			Molecule mol = StructureParser.getMolecule(oldSmi);
+			Molecule mol = StructureParser.getMolecule(oldSmi, false);
 			mol.implicitizeHydrogens(MolAtom.ALL_H);
 			newSmi = mol.toFormat(format);
 		}
@@ -199,7 +314,8 @@ public class StructureParser {
 	}
 
 	public static String SMILES2ChemAxonPDB(String smiles) throws IOException {
-		Molecule mol = getMolecule(smiles);
+		// the 3D layout is made from scratch
+		Molecule mol = getMolecule(smiles, false);
 		mol.addExplicitHydrogens(0);
 		mol.clean(3, null);
 		return mol.toFormat("pdb");
@@ -214,12 +330,33 @@ public class StructureParser {
 	 * @throws java.io.IOException
 	 */
 	public static Molecule getMolecule(String structureInput) throws IOException {
+		return getMolecule(structureInput, true);
+	}
+
+	/**
+	 * convert SMILES or MOLFILE to Molecule, with or without 2D layout. Without
+	 * layout the molecule keeps the coordinates of the input, none for SMILES,
+	 * which is enough for SMILES export, elemental analysis and R group
+	 * lookup. Molecules that are merged need the layout, the stereo bonds of
+	 * R groups are found by their wedges.
+	 * 
+	 * @param structureInput
+	 *            input SMILES or MOLFILE string
+	 * @param layout
+	 *            false to skip the 2D layout
+	 * @return Molecule object
+	 * @throws java.io.IOException
+	 */
+	public static Molecule getMolecule(String structureInput, boolean layout)
+			throws IOException {
 		Molecule molecule = null;
 		if (null != structureInput) {
 			InputStream is = new ByteArrayInputStream(structureInput.getBytes());
 			MolImporter importer = new MolImporter(is);
 			molecule = importer.read();
-			molecule.clean(2, null);
+			if (layout) {
+				molecule.clean(2, null);
+			}
 		}
 		return molecule;
 	}
@@ -362,7 +499,7 @@ public class StructureParser {
 
 		for (int i = 0; i < allSmiles.length; i++) {
 			String smiles = allSmiles[i];
-			Molecule mol = getMolecule(smiles);
+			Molecule mol = getMolecule(smiles, false);
 			int atomCount = mol.getAtomCount();
 
 			StringBuffer sb = new StringBuffer();
@@ -0,0 +1,81 @@
+package org.helm.notation.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.helm.notation.NotationException;
+import org.helm.notation.tools.EdgeParser;
+import org.junit.Test;
+
+public class PolymerGraphTest {
+
+	@Test
+	public void testNodeIndices() throws NotationException {
+		PolymerGraph graph = createGraph(
+				new String[] { "PEPTIDE1", "PEPTIDE2", "CHEM1" }, new String[] {
+						"PEPTIDE1,CHEM1,1:R1-1:R2", "PEPTIDE1,PEPTIDE1,3:R3-7:R3" });
+		assertEquals(3, graph.getNodeCount());
+		assertEquals(2, graph.getNodeIndex("CHEM1"));
+		assertEquals(PolymerGraph.NO_INDEX, graph.getNodeIndex("RNA1"));
+		assertEquals("PEPTIDE2", graph.getNodeId(1));
+		assertSame(graph.getNode(0), graph.getNode("PEPTIDE1"));
+
+		assertEquals(0, graph.getSourceIndex(0));
+		assertEquals(2, graph.getTargetIndex(0));
+		// a self cycle is listed once
+		assertArrayEquals(new int[] { 0, 1 }, graph.getNodeEdges(0));
+		assertArrayEquals(new int[0], graph.getNodeEdges(1));
+	}
+
+	@Test
+	public void testComponents() throws NotationException {
+		PolymerGraph graph = createGraph(new String[] { "PEPTIDE1",
+				"PEPTIDE2", "PEPTIDE3", "PEPTIDE4", "PEPTIDE5", "PEPTIDE6" },
+				new String[] { "PEPTIDE3,PEPTIDE4,1:R3-1:R3",
+						"PEPTIDE1,PEPTIDE2,1:R3-1:R3",
+						"PEPTIDE4,PEPTIDE5,2:R3-1:R3",
+						"PEPTIDE2,PEPTIDE3,2:R3-2:R3" });
+		// components joined by the last edge keep the order of their start
+		assertEquals(2, graph.getComponentCount());
+		assertEquals(Arrays.asList("PEPTIDE3", "PEPTIDE4", "PEPTIDE5",
+				"PEPTIDE1", "PEPTIDE2"), graph.getComponentNodeIds(0));
+		assertArrayEquals(new int[] { 0, 1, 2, 3 }, graph.getComponentEdges(0));
+		assertEquals(Arrays.asList("PEPTIDE6"), graph.getComponentNodeIds(1));
+		assertEquals(0, graph.getComponentEdgeList(1).size());
+		assertEquals(1, graph.getComponent(5));
+	}
+
+	@Test
+	public void testEdgeOnlyNodes() throws NotationException {
+		PolymerGraph graph = createGraph(new String[] { "PEPTIDE1", "CHEM1" },
+				new String[] { "PEPTIDE1+PEPTIDE2,CHEM1,1:R3-1:R1" });
+		assertEquals(3, graph.getNodeCount());
+		assertEquals(2, graph.getNodeIndex("PEPTIDE1+PEPTIDE2"));
+		assertNull(graph.getNode(2));
+		assertEquals(2, graph.getComponentCount());
+		assertEquals(Arrays.asList("PEPTIDE1+PEPTIDE2", "CHEM1"),
+				graph.getComponentNodeIds(0));
+		assertEquals(Arrays.asList("PEPTIDE1"), graph.getComponentNodeIds(1));
+	}
+
+	private static PolymerGraph createGraph(String[] nodeIds, String[] edges)
+			throws NotationException {
+		List<PolymerNode> nodeList = new ArrayList<PolymerNode>();
+		for (String nodeId : nodeIds) {
+			PolymerNode node = new PolymerNode();
+			node.setId(nodeId);
+			nodeList.add(node);
+		}
+		List<PolymerEdge> edgeList = new ArrayList<PolymerEdge>();
+		for (String edge : edges) {
+			edgeList.add(EdgeParser.parse(edge));
+		}
+		return new PolymerGraph(nodeList, edgeList);
+	}
+}
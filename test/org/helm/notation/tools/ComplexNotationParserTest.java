@@ -46,6 +46,8 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import chemaxon.struc.Molecule;
+
 public class ComplexNotationParserTest {
 
 	@Before
@@ -579,4 +581,73 @@ public class ComplexNotationParserTest {
 
 	}
 
+	@Test
+	public void testParsedHelm() throws Exception {
+		String notation = "PEPTIDE1{A.G.G.G.C.C.K.K.K.K}|CHEM1{MCC}$PEPTIDE1,CHEM1,10:R3-1:R1$$$";
+		ParsedHelm helm = new ParsedHelm(notation);
+
+		assertEquals(11, helm.getTotalMonomerCount());
+		assertEquals(10, helm.getEncodedPolymer("PEPTIDE1").getMonomerCount());
+		assertTrue(helm.validate());
+		assertEquals(ComplexNotationParser.getComplexPolymerSMILES(notation),
+				helm.getSmiles());
+		assertEquals(ComplexNotationParser.getCanonicalNotation(notation),
+				helm.getCanonicalNotation());
+		assertEquals(1, helm.getDecomposition().length);
+
+		MoleculeInfo info = ComplexNotationParser.getMoleculeInfo(notation);
+		assertEquals(info.getMolecularFormula(), helm.getMoleculeInfo()
+				.getMolecularFormula());
+
+		// canonicalization must not change the parsed nodes
+		notation = "PEPTIDE1{K.A.A.G.K}$PEPTIDE1,PEPTIDE1,1:R1-5:R2$$$";
+		helm = new ParsedHelm(notation);
+		assertEquals(ComplexNotationParser.getCanonicalNotation(notation),
+				helm.getCanonicalNotation());
+		assertEquals("K.A.A.G.K", helm.getComplexPolymer()
+				.getPolymerNodeList().get(0).getLabel());
+		assertSame(helm.getCanonicalNotation(), helm.getCanonicalNotation());
+	}
+	@Test
+	public void testMonomerCountThreshold() throws Exception {
+		String notation = "PEPTIDE1{A.C.D.E.F.G.H.I.K.L}|PEPTIDE2{C.C}$PEPTIDE1,PEPTIDE2,2:R3-1:R3$$$";
+		String smiles = ComplexNotationParser.getComplexPolymerSMILES(notation);
+
+		int threshold = ComplexNotationParser.getMonomerCountThreshold();
+		try {
+			ComplexNotationParser.setMonomerCountThreshold(10);
+			try {
+				ComplexNotationParser.getComplexPolymerSMILES(notation);
+				fail("monomer count above threshold");
+			} catch (NotationException e) {
+				// expected
+			}
+
+			ComplexNotationParser.setMonomerCountThreshold(0);
+			assertEquals(smiles,
+					ComplexNotationParser.getComplexPolymerSMILES(notation));
+		} finally {
+			ComplexNotationParser.setMonomerCountThreshold(threshold);
+		}
+	}
+
+	@Test
+	public void testWriteComplexPolymerSmiles() throws Exception {
+		String notation = "PEPTIDE1{A.C.D.E.F.G.H.I.K.L}|PEPTIDE2{C.C}|CHEM1{MCC}$PEPTIDE1,PEPTIDE2,2:R3-1:R3|PEPTIDE1,CHEM1,9:R3-1:R1$$$";
+		StringBuilder sb = new StringBuilder();
+		ComplexNotationParser.writeComplexPolymerSmiles(notation,
+				MonomerFactory.getInstance().getMonomerStore(), sb);
+
+		// same structure as the molecules built from the monomer structures
+		StringBuilder built = new StringBuilder();
+		for (Molecule molecule : ComplexNotationParser
+				.getComplexPolymerStructure(notation)) {
+			if (built.length() > 0) {
+				built.append('.');
+			}
+			built.append(molecule.toFormat("smiles"));
+		}
+		assertEquals(StructureParser.getUniqueSmiles(built.toString()),
+				StructureParser.getUniqueSmiles(sb.toString()));
+	}
 }
@@ -0,0 +1,86 @@
+package org.helm.notation.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.helm.notation.NotationException;
+import org.helm.notation.model.PolymerEdge;
+import org.junit.Test;
+
+public class EdgeParserTest {
+
+	@Test
+	public void testStandardEdge() throws NotationException {
+		PolymerEdge edge = EdgeParser.parse("PEPTIDE1,CHEM1,12:R3-1:R1");
+		assertEquals(PolymerEdge.STANDARD_EDGE, edge.getEdgeType());
+		assertEquals("PEPTIDE1", edge.getSourceNode());
+		assertEquals("CHEM1", edge.getTargetNode());
+		assertEquals(12, edge.getSourceMonomerNumber());
+		assertEquals(1, edge.getTargetMonomerNumber());
+		assertEquals("R3", edge.getSourceR());
+		assertEquals(3, edge.getSourceRNumber());
+		assertEquals(1, edge.getTargetRNumber());
+		assertEquals("12:R3-1:R1", edge.getConnection());
+		assertEquals("CHEM1,PEPTIDE1,1:R1-12:R3", edge.toReverseString());
+		assertFalse(edge.isSelfCycle());
+	}
+
+	@Test
+	public void testBackboneSelfCycle() throws NotationException {
+		PolymerEdge edge = EdgeParser.parse("PEPTIDE1,PEPTIDE1,10:R2-1:R1");
+		assertTrue(edge.isSelfCycle());
+		assertTrue(edge.isBackboneSelfCycle());
+
+		edge = EdgeParser.parse("PEPTIDE1,PEPTIDE1,3:R3-7:R3");
+		assertTrue(edge.isSelfCycle());
+		assertFalse(edge.isBackboneSelfCycle());
+	}
+
+	@Test
+	public void testAttachmentChanges() throws NotationException {
+		PolymerEdge edge = EdgeParser.parse("PEPTIDE1,PEPTIDE2,5:R3-2:R3");
+		edge.setSourceR("R1");
+		edge.setTargetMonomerNumber(9);
+		assertEquals("5:R1-9:R3", edge.getConnection());
+		assertEquals(1, edge.getSourceRNumber());
+		assertEquals(9, edge.getTargetMonomerNumber());
+		assertEquals("PEPTIDE1,PEPTIDE2,5:R1-9:R3", edge.toString());
+
+		edge.setConnection(edge.getReverseConnection());
+		assertEquals("9:R3-5:R1", edge.getConnection());
+		assertEquals(9, edge.getSourceMonomerNumber());
+	}
+
+	@Test
+	public void testPairAndGenericEdges() throws NotationException {
+		PolymerEdge edge = EdgeParser.parse("RNA1,RNA2,2:PAIR-5:pair");
+		assertEquals(PolymerEdge.PAIR_EDGE, edge.getEdgeType());
+		assertNull(edge.getSourceR());
+		assertEquals(0, edge.getSourceMonomerNumber());
+
+		edge = EdgeParser.parse("PEPTIDE1+PEPTIDE2,CHEM1,generic:C1+C2-1:R1");
+		assertEquals(PolymerEdge.GENERIC_EDGE, edge.getEdgeType());
+		assertEquals(2, edge.getSourceNodes().length);
+		assertEquals("C1+C2", edge.getSourceGenericDescriptor());
+		assertEquals("R1", edge.getTargetR());
+	}
+
+	@Test
+	public void testInvalidEdges() {
+		String[] edges = new String[] { "PEPTIDE1,CHEM1",
+				"PEPTIDE1,CHEM1,1:R1-2:R2,X", "PEPTIDE1,CHEM1,1:R1",
+				"PEPTIDE1,CHEM1,1:R1-2:R2-3:R3", "PEPTIDE1,CHEM1,x:R1-2:R2",
+				"PEPTIDE1,CHEM1,1:R1-2:pair", "PEPTIDE1+CHEM2,CHEM1,generic:a-1:R1",
+				"PEPTIDE1,CHEM1,1:R1:2-2:R2" };
+		for (String edge : edges) {
+			try {
+				EdgeParser.parse(edge);
+				fail(edge + " must not be parsed");
+			} catch (NotationException e) {
+			}
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package org.helm.notation.tools;
+
+import static org.helm.notation.tools.TestMonomers.createMonomer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.helm.notation.MonomerStore;
+import org.helm.notation.NotationException;
+import org.helm.notation.model.Monomer;
+import org.helm.notation.model.ValidationResult;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HelmValidatorTest {
+
+	private MonomerStore store;
+
+	@Before
+	public void init() throws Exception {
+		// attachments only, the structures are not used for validation
+		store = new MonomerStore();
+		store.addMonomer(createMonomer(Monomer.PEPTIDE_POLYMER_TYPE, "A",
+				"R1", "R2"));
+		store.addMonomer(createMonomer(Monomer.PEPTIDE_POLYMER_TYPE, "C",
+				"R1", "R2", "R3"));
+		store.addMonomer(createMonomer(Monomer.PEPTIDE_POLYMER_TYPE, "ac",
+				"R2"));
+		store.addMonomer(createMonomer(Monomer.CHEMICAL_POLYMER_TYPE, "SS3",
+				"R1", "R2"));
+	}
+
+	@Test
+	public void attachmentBasedValidation() throws Exception {
+		Set<String> expected = new HashSet<String>();
+		expected.add("1:R1");
+		expected.add("2:R3");
+		expected.add("3:R2");
+		assertEquals(expected, SimpleNotationParser.getSimplePolymerRgroupSet(
+				"A.C.A", Monomer.PEPTIDE_POLYMER_TYPE, store));
+		assertTrue(SimpleNotationParser.validateSimpleNotation("[ac].A",
+				Monomer.PEPTIDE_POLYMER_TYPE, store));
+		try {
+			SimpleNotationParser.validateSimpleNotation("A.[ac]",
+					Monomer.PEPTIDE_POLYMER_TYPE, store);
+			fail("ac has no R1 to connect to");
+		} catch (NotationException e) {
+		}
+
+		assertTrue(ComplexNotationParser.validateComplexNotation(
+				"PEPTIDE1{A.C.A}|CHEM1{SS3}$PEPTIDE1,CHEM1,2:R3-1:R1$$$", store));
+		try {
+			ComplexNotationParser.validateComplexNotation(
+					"PEPTIDE1{A.C.A}|CHEM1{SS3}$PEPTIDE1,CHEM1,1:R3-1:R1$$$",
+					store);
+			fail("A has no R3");
+		} catch (NotationException e) {
+		}
+	}
+
+	@Test
+	public void helmValidator() throws Exception {
+		final String[] notations = new String[] {
+				"PEPTIDE1{A.C.A}|CHEM1{SS3}$PEPTIDE1,CHEM1,2:R3-1:R1$$$",
+				"PEPTIDE1{A.C.A}", "PEPTIDE1{A.CA}$$$$",
+				"PEPTIDE1{A}|PEPTIDE1{C}$$$$", "PEPTIDE1{A.[ac]}$$$$",
+				"PEPTIDE1{A.C.A}|CHEM1{SS3}$PEPTIDE1,CHEM1,1:R3-1:R1$$$",
+				"1PEPTIDE{A}$$$$" };
+		int[] codes = new int[] { ValidationResult.VALID,
+				ValidationResult.INVALID_FORMAT,
+				ValidationResult.INVALID_POLYMER,
+				ValidationResult.INVALID_POLYMER_NODE,
+				ValidationResult.INVALID_POLYMER,
+				ValidationResult.INVALID_CONNECTION,
+				ValidationResult.INVALID_POLYMER_NODE };
+
+		HelmValidator validator = new HelmValidator(store);
+		ValidationResult result = new ValidationResult();
+		for (int i = 0; i < notations.length; i++) {
+			validator.validate(notations[i], result);
+			assertEquals(notations[i], codes[i], result.getErrorCode());
+		}
+
+		validator.validate(notations[2], result);
+		assertEquals("PEPTIDE1", result.getNodeId());
+		assertEquals(notations[2].indexOf("CA"), result.getOffset());
+		validator.validate(notations[3], result);
+		assertEquals("PEPTIDE1", result.getNodeId());
+
+		assertTrue(validator.validateSimplePolymer("A.C.A",
+				Monomer.PEPTIDE_POLYMER_TYPE, result));
+		assertFalse(validator.validateSimplePolymer("A.C.A",
+				Monomer.NUCLIEC_ACID_POLYMER_TYPE, result));
+
+		// bulk validation in parallel, results arrive by input index
+		final int[] bulkCodes = new int[notations.length * 100];
+		List<String> bulk = new ArrayList<String>();
+		for (int i = 0; i < bulkCodes.length; i++) {
+			bulk.add(notations[i % notations.length]);
+		}
+		new HelmValidator(store, 4).validate(bulk.iterator(),
+				new HelmValidator.ResultHandler() {
+					public void handle(long index, ValidationResult result) {
+						assertEquals(notations[(int) index % notations.length],
+								result.getNotation());
+						bulkCodes[(int) index] = result.getErrorCode() + 1;
+					}
+				});
+		for (int i = 0; i < bulkCodes.length; i++) {
+			assertEquals(codes[i % notations.length] + 1, bulkCodes[i]);
+		}
+	}
+
+	@Test
+	public void validationHasNoSideEffects() throws Exception {
+		String notation = "PEPTIDE1{A.C.A}|CHEM1{[*]OCCO[*] |$_R1;;;;;_R2$|}$PEPTIDE1,CHEM1,2:R3-1:R1$$$";
+		int chemCount = store.getMonomers(Monomer.CHEMICAL_POLYMER_TYPE)
+				.size();
+		int smilesCount = store.getSmilesMonomerDB().size();
+		long version = store.getVersion();
+
+		HelmValidator validator = new HelmValidator(store);
+		ValidationResult result = validator.validate(notation);
+		assertEquals(result.getMessage(), ValidationResult.VALID,
+				result.getErrorCode());
+		assertTrue(validator.validateSimplePolymer("[[*]OCCCO[*] |$_R1;;;;;;_R2$|]",
+				Monomer.CHEMICAL_POLYMER_TYPE, result));
+
+		// ad hoc monomers of inline SMILES are not registered
+		assertEquals(chemCount, store.getMonomers(Monomer.CHEMICAL_POLYMER_TYPE)
+				.size());
+		assertEquals(smilesCount, store.getSmilesMonomerDB().size());
+		assertEquals(version, store.getVersion());
+	}
+}
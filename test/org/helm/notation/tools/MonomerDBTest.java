@@ -1,17 +1,46 @@
 package org.helm.notation.tools;
 
+import static org.helm.notation.tools.TestMonomers.createMonomer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.helm.notation.MonomerCacheFile;
+import org.helm.notation.MonomerDBLoader;
+import org.helm.notation.MonomerDBSnapshot;
+import org.helm.notation.MonomerDictionary;
 import org.helm.notation.MonomerException;
 import org.helm.notation.MonomerFactory;
+import org.helm.notation.MonomerStore;
+import org.helm.notation.OverlayMonomerStore;
 import org.helm.notation.StructureException;
 import org.helm.notation.model.Attachment;
+import org.helm.notation.model.EncodedPolymer;
+import org.helm.notation.model.MoleculeInfo;
 import org.helm.notation.model.Monomer;
+import org.helm.notation.model.MonomerCache;
+import org.jdom.Element;
 import org.jdom.JDOMException;
+import org.jdom.input.SAXBuilder;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -60,6 +89,509 @@ public class MonomerDBTest {
 
 	}
 
+	@Test
+	public void storeVersion() throws Exception {
+		MonomerStore store = new MonomerStore();
+		long version = store.getVersion();
+		assertNotEquals(version, new MonomerStore().getVersion());
+
+		Monomer m = new Monomer(Monomer.CHEMICAL_POLYMER_TYPE,
+				Monomer.UNDEFINED_MOMONER_TYPE, null, "PEG2");
+		m.setCanSMILES("[*]OCCO[*] |$_R1;;;;;_R2$|");
+		store.addMonomer(m);
+		assertEquals(version, store.getVersion());
+
+		store.clearMonomers();
+		assertNotEquals(version, store.getVersion());
+	}
+
+	@Test
+	public void capMoleculeInfo() throws Exception {
+		Attachment first = new Attachment("R1", "H");
+		first.setCapGroupSMILES("[*][H] |$_R1;$|");
+		Attachment second = new Attachment("R1", "H");
+		second.setCapGroupSMILES("[*][H] |$_R1;$|");
+
+		MoleculeInfo mi = first.getCapMoleculeInfo();
+		MoleculeInfo sharedMi = second.getCapMoleculeInfo();
+		assertNotSame(mi, sharedMi);
+		assertEquals(mi.getMolecularFormula(), sharedMi.getMolecularFormula());
+		assertEquals(mi.getMolecularWeight(), sharedMi.getMolecularWeight(),
+				1e-10);
+		assertEquals(mi.getExactMass(), sharedMi.getExactMass(), 1e-10);
+
+		// callers get copies
+		mi.setMolecularWeight(0);
+		assertEquals(sharedMi.getMolecularWeight(), first.getCapMoleculeInfo()
+				.getMolecularWeight(), 1e-10);
+
+		assertNull(new Attachment("R1", "H").getCapMoleculeInfo());
+	}
+
+	@Test
+	public void overlayMonomerStore() throws Exception {
+		MonomerStore base = new MonomerStore();
+		Monomer peg = new Monomer(Monomer.CHEMICAL_POLYMER_TYPE,
+				Monomer.UNDEFINED_MOMONER_TYPE, null, "PEG2");
+		peg.setCanSMILES("[*]OCCO[*] |$_R1;;;;;_R2$|");
+		base.addMonomer(peg);
+
+		MonomerFactory.resetDBChanged();
+		OverlayMonomerStore overlay = new OverlayMonomerStore(base);
+		Monomer adHoc = new Monomer(Monomer.CHEMICAL_POLYMER_TYPE,
+				Monomer.UNDEFINED_MOMONER_TYPE, null, "CM#1");
+		adHoc.setCanSMILES("[*]OCCCO[*] |$_R1;;;;;;_R2$|");
+		Monomer registered = overlay.addNewMonomerIfAbsent(adHoc);
+		assertNotSame(adHoc, registered);
+		assertEquals("CM#1", registered.getAlternateId());
+		assertFalse(adHoc.isNewMonomer());
+		assertSame(registered, overlay.getMonomer(registered.getCanSMILES()));
+		assertFalse(MonomerFactory.hasDBChanged());
+
+		// reads fall through to the base
+		assertTrue(overlay.hasMonomer(Monomer.CHEMICAL_POLYMER_TYPE, "PEG2"));
+		assertTrue(overlay.hasMonomer(Monomer.CHEMICAL_POLYMER_TYPE, "CM#1"));
+		assertEquals(2, overlay.getMonomers(Monomer.CHEMICAL_POLYMER_TYPE)
+				.size());
+		assertEquals(2, overlay.getAllMonomersList().size());
+		assertFalse(base.hasMonomer(Monomer.CHEMICAL_POLYMER_TYPE, "CM#1"));
+
+		// a SMILES of the base is not registered again
+		Monomer duplicate = new Monomer(Monomer.CHEMICAL_POLYMER_TYPE,
+				Monomer.UNDEFINED_MOMONER_TYPE, null, "CM#2");
+		duplicate.setCanSMILES(peg.getCanSMILES());
+		assertEquals("PEG2", overlay.addNewMonomerIfAbsent(duplicate)
+				.getAlternateId());
+
+		overlay.promoteMonomers();
+		assertTrue(base.hasMonomer(Monomer.CHEMICAL_POLYMER_TYPE, "CM#1"));
+		assertTrue(overlay.getOverlayMonomers().isEmpty());
+	}
+
+	@Test
+	public void concurrentAdHocRegistration() throws Exception {
+		final MonomerStore store = new MonomerStore();
+		final String smiles = "[*]OCCO[*] |$_R1;;;;;_R2$|";
+		final int threadCount = 8;
+		final Monomer[] registered = new Monomer[threadCount];
+		final CountDownLatch start = new CountDownLatch(1);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+		Thread[] threads = new Thread[threadCount];
+		for (int i = 0; i < threadCount; i++) {
+			final int index = i;
+			threads[i] = new Thread(new Runnable() {
+				public void run() {
+					try {
+						start.await();
+						Monomer m = new Monomer(Monomer.CHEMICAL_POLYMER_TYPE,
+								Monomer.UNDEFINED_MOMONER_TYPE, null, "CM#"
+										+ index);
+						m.setCanSMILES(smiles);
+						registered[index] = store.addNewMonomerIfAbsent(m);
+					} catch (Throwable t) {
+						failure.compareAndSet(null, t);
+					}
+				}
+			});
+			threads[i].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+
+		for (int i = 0; i < threadCount; i++) {
+			assertSame(registered[0], registered[i]);
+		}
+		assertEquals(1, store.getMonomers(Monomer.CHEMICAL_POLYMER_TYPE)
+				.size());
+		assertEquals(1, store.getSmilesMonomerDB().size());
+		assertSame(registered[0], store.getMonomer(
+				Monomer.CHEMICAL_POLYMER_TYPE, registered[0].getAlternateId()));
+		assertNull(store.getMonomer("RNA", "A"));
+	}
+
+	@Test
+	public void concurrentAdHocMonomerIDs() throws Exception {
+		final MonomerStore store = new MonomerStore();
+		final int threadCount = 8;
+		final int idCount = 100;
+		final String[][] ids = new String[threadCount][idCount];
+		final CountDownLatch start = new CountDownLatch(1);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+		Thread[] threads = new Thread[threadCount];
+		for (int i = 0; i < threadCount; i++) {
+			final int index = i;
+			threads[i] = new Thread(new Runnable() {
+				public void run() {
+					try {
+						start.await();
+						for (int j = 0; j < idCount; j++) {
+							ids[index][j] = SimpleNotationParser
+									.generateNextAdHocMonomerID(
+											Monomer.PEPTIDE_POLYMER_TYPE, store);
+						}
+					} catch (Throwable t) {
+						failure.compareAndSet(null, t);
+					}
+				}
+			});
+			threads[i].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+
+		Set<String> unique = new HashSet<String>();
+		for (String[] threadIds : ids) {
+			for (String id : threadIds) {
+				assertTrue(id.startsWith("PM#"));
+				unique.add(id);
+			}
+		}
+		assertEquals(threadCount * idCount, unique.size());
+
+		// overlays allocate from their base, seeds are per polymer type
+		OverlayMonomerStore overlay = new OverlayMonomerStore(store);
+		assertEquals("PM#" + (threadCount * idCount + 1),
+				SimpleNotationParser.generateNextAdHocMonomerID(
+						Monomer.PEPTIDE_POLYMER_TYPE, overlay));
+		assertEquals("CM#1", SimpleNotationParser.generateNextAdHocMonomerID(
+				Monomer.CHEMICAL_POLYMER_TYPE, overlay));
+
+		store.resetAdHocSeeds();
+		assertEquals("PM#1", SimpleNotationParser.generateNextAdHocMonomerID(
+				Monomer.PEPTIDE_POLYMER_TYPE, store));
+	}
+
+	@Test
+	public void monomerDictionary() throws Exception {
+		MonomerStore store = new MonomerStore();
+		for (String id : new String[] { "R", "P", "A", "G", "sP" }) {
+			Monomer m = new Monomer(Monomer.NUCLIEC_ACID_POLYMER_TYPE,
+					Monomer.BACKBONE_MOMONER_TYPE, null, id);
+			m.setCanSMILES("[*]" + id);
+			store.addMonomer(m);
+		}
+
+		EncodedPolymer polymer = SimpleNotationParser.getEncodedPolymer(
+				"P.R(A)[sP].R(G)P.R(A)", Monomer.NUCLIEC_ACID_POLYMER_TYPE,
+				store);
+		assertEquals(9, polymer.getMonomerCount());
+		assertEquals(SimpleNotationParser.getMonomerIDList(
+				"P.R(A)[sP].R(G)P.R(A)", Monomer.NUCLIEC_ACID_POLYMER_TYPE,
+				store), polymer.getMonomerIDList());
+		assertTrue(polymer.isBranch(2));
+		assertTrue(polymer.isBranch(5));
+		assertEquals(3, polymer.getBranches().cardinality());
+
+		// codes are dense and assigned in order of first use
+		MonomerDictionary dictionary = store.getMonomerDictionary();
+		assertSame(dictionary, polymer.getDictionary());
+		assertEquals(5, dictionary.size(Monomer.NUCLIEC_ACID_POLYMER_TYPE));
+		assertEquals(1, polymer.getCode(1));
+		assertEquals(polymer.getCode(1), polymer.getCode(4));
+		assertEquals("A", dictionary.getMonomerID(
+				Monomer.NUCLIEC_ACID_POLYMER_TYPE, polymer.getCode(8)));
+		assertEquals(MonomerDictionary.NO_CODE, dictionary.getCode(
+				Monomer.NUCLIEC_ACID_POLYMER_TYPE, "U"));
+
+		int[] composition = polymer.getComposition();
+		assertEquals(3, composition[polymer.getCode(1)]);
+		assertEquals(2, composition[polymer.getCode(2)]);
+
+		store.clearMonomers();
+		assertEquals(0, dictionary.size(Monomer.NUCLIEC_ACID_POLYMER_TYPE));
+		try {
+			polymer.getMonomer(0);
+			fail("codes of a cleared store must not resolve");
+		} catch (IllegalStateException e) {
+		}
+	}
+
+	// a cache with the PEG2 monomer, the molfile may be null
+	private static MonomerCache createPegCache(String molfile) {
+		Monomer m = new Monomer(Monomer.CHEMICAL_POLYMER_TYPE,
+				Monomer.UNDEFINED_MOMONER_TYPE, null, "PEG2");
+		m.setCanSMILES("[*]OCCO[*] |$_R1;;;;;_R2$|");
+		m.setMolfile(molfile);
+
+		Map<String, Monomer> chem = new HashMap<String, Monomer>();
+		chem.put(m.getAlternateId(), m);
+		Map<String, Map<String, Monomer>> db = new HashMap<String, Map<String, Monomer>>();
+		db.put(Monomer.CHEMICAL_POLYMER_TYPE, chem);
+		Map<String, Monomer> smilesDB = new HashMap<String, Monomer>();
+		smilesDB.put(m.getCanSMILES(), m);
+
+		MonomerCache cache = new MonomerCache();
+		cache.setMonomerDB(db);
+		cache.setSmilesMonomerDB(smilesDB);
+		cache.setAttachmentDB(new HashMap<String, Attachment>());
+		return cache;
+	}
+
+	private static File createTempCacheFile() throws IOException {
+		File file = File.createTempFile("MonomerCache", ".bin");
+		file.deleteOnExit();
+		return file;
+	}
+
+	// flips a byte of the data file, negative positions count from the end
+	private static void corruptByte(File file, long pos) throws IOException {
+		RandomAccessFile pointer = new RandomAccessFile(file, "r");
+		byte[] name = new byte[(int) pointer.length()];
+		pointer.readFully(name);
+		pointer.close();
+		RandomAccessFile data = new RandomAccessFile(new File(
+				file.getAbsoluteFile().getParentFile(), new String(name,
+						"UTF-8")), "rw");
+		data.seek(pos < 0 ? data.length() + pos : pos);
+		int b = data.read();
+		data.seek(data.getFilePointer() - 1);
+		data.write(b ^ 0xff);
+		data.close();
+	}
+
+	@Test
+	public void snapshotVersioning() {
+		MonomerDBSnapshot empty = MonomerDBSnapshot.create(null, null, null);
+		Monomer m = new Monomer(Monomer.CHEMICAL_POLYMER_TYPE,
+				Monomer.UNDEFINED_MOMONER_TYPE, null, "CM#1");
+		m.setCanSMILES("[*]OCCO[*] |$_R1;;;;;_R2$|");
+
+		MonomerDBSnapshot next = empty.withMonomer(m);
+		assertTrue(next.getVersion() > empty.getVersion());
+		assertNotEquals(empty.getContentHash(), next.getContentHash());
+		assertNull(empty.getMonomerDB().get(Monomer.CHEMICAL_POLYMER_TYPE));
+		assertSame(m, next.getSmilesMonomerDB().get(m.getCanSMILES()));
+
+		// adding an existing ID does not create a new version
+		assertSame(next, next.withMonomer(m));
+
+		// equal content, equal hash
+		MonomerDBSnapshot copy = MonomerDBSnapshot.create(next.getMonomerDB(),
+				next.getSmilesMonomerDB(), next.getAttachmentDB());
+		assertEquals(next.getContentHash(), copy.getContentHash());
+		assertTrue(copy.getVersion() > next.getVersion());
+
+		// a molfile change alone changes the hash
+		Monomer changed = new Monomer(Monomer.CHEMICAL_POLYMER_TYPE,
+				Monomer.UNDEFINED_MOMONER_TYPE, null, "CM#1");
+		changed.setCanSMILES(m.getCanSMILES());
+		changed.setMolfile("molfile");
+		assertNotEquals(next.getContentHash(), empty.withMonomer(changed)
+				.getContentHash());
+	}
+
+	@Test
+	public void snapshotLayering() {
+		MonomerDBSnapshot snapshot = MonomerDBSnapshot.create(null, null, null);
+		List<MonomerDBSnapshot> history = new ArrayList<MonomerDBSnapshot>();
+		for (int i = 0; i < 100; i++) {
+			history.add(snapshot);
+			snapshot = snapshot.withMonomer(createMonomer(
+					Monomer.CHEMICAL_POLYMER_TYPE, "CM#" + i));
+		}
+
+		Map<String, Monomer> monomers = snapshot.getMonomerDB().get(
+				Monomer.CHEMICAL_POLYMER_TYPE);
+		assertEquals(100, monomers.size());
+		assertEquals(100, snapshot.getSmilesMonomerDB().size());
+		Set<String> ids = new HashSet<String>();
+		for (Map.Entry<String, Monomer> entry : monomers.entrySet()) {
+			assertEquals(entry.getKey(), entry.getValue().getAlternateId());
+			ids.add(entry.getKey());
+		}
+		assertEquals(100, ids.size());
+		for (int i = 0; i < 100; i++) {
+			assertSame(monomers.get("CM#" + i), snapshot.getSmilesMonomerDB()
+					.get("[*]CM#" + i));
+		}
+
+		// earlier snapshots are unchanged
+		MonomerDBSnapshot earlier = history.get(50);
+		assertEquals(50,
+				earlier.getMonomerDB().get(Monomer.CHEMICAL_POLYMER_TYPE)
+						.size());
+		assertFalse(earlier.getSmilesMonomerDB().containsKey("[*]CM#50"));
+	}
+
+	@Test
+	public void corruptMolfile() throws Exception {
+		Monomer m = new Monomer(Monomer.CHEMICAL_POLYMER_TYPE,
+				Monomer.UNDEFINED_MOMONER_TYPE, null, "Corrupt");
+		m.setEncodedMolfile("not an encoded molfile");
+		assertTrue(m.hasMolfile());
+		assertNull(m.getMolfile());
+		try {
+			MonomerParser.validateMonomer(m);
+			fail("Corrupt molfile passed validation");
+		} catch (MonomerException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void binaryCacheRoundTrip() throws Exception {
+		Attachment attachment = new Attachment("R1", "H");
+		attachment.setAlternateId("R1-H");
+		attachment.setCapGroupSMILES("[*][H] |$_R1;$|");
+
+		MonomerCache cache = createPegCache("molfile");
+		Monomer m = cache.getMonomerDB().get(Monomer.CHEMICAL_POLYMER_TYPE)
+				.get("PEG2");
+		m.setName("Diethylene glycol");
+		m.addAttachment(attachment);
+		cache.getAttachmentDB().put(attachment.getAlternateId(), attachment);
+
+		File file = createTempCacheFile();
+		MonomerCacheFile.write(cache, file);
+
+		MonomerCacheFile cacheFile = MonomerCacheFile.open(file);
+		Monomer read = cacheFile.getMonomerDB()
+				.get(Monomer.CHEMICAL_POLYMER_TYPE).get("PEG2");
+		assertEquals(m.getCanSMILES(), read.getCanSMILES());
+		assertEquals(m.getName(), read.getName());
+		assertEquals(m.getMolfile(), read.getMolfile());
+		assertNull(read.getNaturalAnalog());
+		assertEquals("R1-H", read.getAttachmentList().get(0).getAlternateId());
+		assertSame(read, cacheFile.getSmilesMonomerDB().get(m.getCanSMILES()));
+		assertEquals("H", cacheFile.getAttachmentDB().get("R1-H")
+				.getCapGroupName());
+		assertEquals(MonomerDBSnapshot.create(cache).getContentHash(),
+				cacheFile.getContentHash());
+		MonomerCacheFile.delete(file);
+	}
+
+	@Test
+	public void corruptBinaryCachePayload() throws Exception {
+		MonomerCache cache = createPegCache("molfile");
+		File file = createTempCacheFile();
+		MonomerCacheFile.write(cache, file);
+		// the molfile is the last section of the data file
+		corruptByte(file, -1);
+
+		// opening only checks the index, the next start rebuilds the cache
+		MonomerCacheFile cacheFile = MonomerCacheFile.open(file);
+		try {
+			cacheFile.getMonomer(Monomer.CHEMICAL_POLYMER_TYPE, "PEG2");
+			fail("Corrupt molfile was decoded");
+		} catch (MonomerException e) {
+			// expected
+		}
+		assertFalse(file.exists());
+
+		MonomerCacheFile.write(cache, file);
+		corruptByte(file, -1);
+		try {
+			MonomerCacheFile.open(file).validatePayload();
+			fail("Corrupt payload passed validation");
+		} catch (MonomerException e) {
+			// expected
+		}
+		assertFalse(file.exists());
+		MonomerCacheFile.delete(file);
+	}
+
+	@Test
+	public void validatedCacheStamp() throws Exception {
+		MonomerCache cache = createPegCache(null);
+		long contentHash = MonomerDBSnapshot.create(cache).getContentHash();
+		File file = createTempCacheFile();
+
+		MonomerCacheFile.write(cache, file, Long.valueOf(contentHash));
+		assertTrue(MonomerCacheFile.open(file).isValidated());
+
+		// content changed since the last validation
+		MonomerCacheFile.write(cache, file, Long.valueOf(contentHash + 1));
+		assertFalse(MonomerCacheFile.open(file).isValidated());
+
+		MonomerCacheFile.write(cache, file);
+		assertFalse(MonomerCacheFile.open(file).isValidated());
+
+		// the validated marker is covered by the header checksum
+		MonomerCacheFile.write(cache, file, Long.valueOf(contentHash));
+		corruptByte(file, 76);
+		try {
+			MonomerCacheFile.open(file);
+			fail("Corrupt validated marker was accepted");
+		} catch (MonomerException e) {
+			// expected
+		}
+		MonomerCacheFile.delete(file);
+	}
+
+	@Test
+	public void binaryCacheRewriteWhileMapped() throws Exception {
+		MonomerCache cache = createPegCache(null);
+		File file = createTempCacheFile();
+		MonomerCacheFile.write(cache, file);
+		MonomerCacheFile mapped = MonomerCacheFile.open(file);
+
+		cache.getMonomerDB().get(Monomer.CHEMICAL_POLYMER_TYPE)
+				.put("PEG3", createMonomer(Monomer.CHEMICAL_POLYMER_TYPE, "PEG3"));
+		MonomerCacheFile.write(cache, file);
+
+		// the mapped file keeps its content, the cache file has the new one
+		assertNull(mapped.getMonomerDB().get(Monomer.CHEMICAL_POLYMER_TYPE)
+				.get("PEG3"));
+		assertEquals("PEG2",
+				mapped.getMonomerDB().get(Monomer.CHEMICAL_POLYMER_TYPE)
+						.get("PEG2").getAlternateId());
+		assertEquals(2,
+				MonomerCacheFile.open(file).getMonomerDB()
+						.get(Monomer.CHEMICAL_POLYMER_TYPE).size());
+		MonomerCacheFile.delete(file);
+		assertFalse(file.exists());
+	}
+
+	@Test
+	public void parallelLoadingMatchesSerial() throws Exception {
+		MonomerCache serial = loadBundledMonomerDB(new MonomerDBLoader(1));
+		MonomerCache parallel = loadBundledMonomerDB(new MonomerDBLoader(4));
+
+		assertEquals(serial.getMonomerDB().keySet(), parallel.getMonomerDB()
+				.keySet());
+		for (String polymerType : serial.getMonomerDB().keySet()) {
+			Map<String, Monomer> expected = serial.getMonomerDB().get(
+					polymerType);
+			Map<String, Monomer> actual = parallel.getMonomerDB().get(
+					polymerType);
+			assertEquals(expected.keySet(), actual.keySet());
+			for (String id : expected.keySet()) {
+				assertEquals(expected.get(id).getCanSMILES(), actual.get(id)
+						.getCanSMILES());
+			}
+		}
+		assertEquals(serial.getSmilesMonomerDB().keySet(), parallel
+				.getSmilesMonomerDB().keySet());
+		assertEquals(serial.getAttachmentDB().keySet(), parallel
+				.getAttachmentDB().keySet());
+		assertEquals(
+				MonomerDBSnapshot.create(serial).getContentHash(),
+				MonomerDBSnapshot.create(parallel).getContentHash());
+	}
+
+	private MonomerCache loadBundledMonomerDB(MonomerDBLoader loader)
+			throws Exception {
+		InputStream in = MonomerFactory.class
+				.getResourceAsStream(MonomerFactory.MONOMER_DB_XML_RESOURCE);
+		Element root = new SAXBuilder().build(in).getRootElement();
+		in.close();
+		return loader.load(root.getChild(MonomerFactory.POLYMER_LIST_ELEMENT,
+				root.getNamespace()), root.getChild(
+				MonomerFactory.ATTACHMENT_LIST_ELEMENT, root.getNamespace()));
+	}
+
 	public void showMonomerDB(Map monomerDB) throws StructureException,
 			IOException {
 		Set polymerSet = monomerDB.keySet();
@@ -0,0 +1,85 @@
+package org.helm.notation.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.helm.notation.NotationException;
+import org.junit.Test;
+
+public class NotationSectionsTest {
+
+	@Test
+	public void testSections() throws NotationException {
+		String notation = "RNA1{R(U)P.R(T)}|RNA2{R(A)P.R(A)}|CHEM1{sDBL}$RNA1,CHEM1,1:R1-1:R2$RNA1,RNA2,2:pair-5:pair$RNA1{ss}|RNA2{ss}$V2.0";
+		NotationSections sections = NotationSections.split(notation);
+		assertTrue(sections.isValid());
+		assertEquals("RNA1{R(U)P.R(T)}|RNA2{R(A)P.R(A)}|CHEM1{sDBL}",
+				sections.getSectionString(NotationSections.NODES));
+		assertEquals("RNA1,CHEM1,1:R1-1:R2",
+				sections.getSectionString(NotationSections.EDGES));
+		assertEquals("RNA1,RNA2,2:pair-5:pair",
+				sections.getSectionString(NotationSections.BASE_PAIRS));
+		assertEquals("RNA1{ss}|RNA2{ss}",
+				sections.getSectionString(NotationSections.ANNOTATIONS));
+		assertEquals("V2.0", sections.getSectionString(NotationSections.OTHER));
+		assertEquals(notation.substring(notation.indexOf("}$") + 1),
+				sections.getStringAfterNodes());
+
+		CharSequence edges = sections.getSection(NotationSections.EDGES);
+		assertEquals(20, edges.length());
+		assertEquals('R', edges.charAt(0));
+		assertEquals("CHEM1", edges.subSequence(5, 10).toString());
+	}
+
+	@Test
+	public void testEmptySections() throws NotationException {
+		NotationSections sections = NotationSections.split("PEPTIDE1{A.G}$$$$");
+		assertEquals("PEPTIDE1{A.G}",
+				sections.getSectionString(NotationSections.NODES));
+		for (int i = NotationSections.EDGES; i <= NotationSections.OTHER; i++) {
+			assertTrue(sections.isEmpty(i));
+			assertEquals("", sections.getSectionString(i));
+			assertEquals(0, sections.getSection(i).length());
+		}
+	}
+
+	@Test
+	public void testMatchesComponentStrings() throws NotationException {
+		String notation = "PEPTIDE1{A.C}|PEPTIDE2{C.A}$PEPTIDE1,PEPTIDE2,2:R3-1:R3$$PEPTIDE1{ann}$";
+		NotationSections sections = NotationSections.split(notation);
+		assertEquals(ComplexNotationParser.getAllNodeString(notation),
+				sections.getSectionString(NotationSections.NODES));
+		assertEquals(ComplexNotationParser.getAllEdgeString(notation),
+				sections.getSectionString(NotationSections.EDGES));
+		assertEquals(ComplexNotationParser.getAllBasePairString(notation),
+				sections.getSectionString(NotationSections.BASE_PAIRS));
+		assertEquals(ComplexNotationParser.getAllNodeLabelString(notation),
+				sections.getSectionString(NotationSections.ANNOTATIONS));
+		assertEquals(ComplexNotationParser.getOtherString(notation),
+				sections.getSectionString(NotationSections.OTHER));
+	}
+
+	@Test
+	public void testInvalidFormat() {
+		NotationSections sections = new NotationSections("PEPTIDE1{A.G}");
+		assertFalse(sections.isValid());
+		assertEquals(
+				"Invalid complex notation format,missing first component stopper }$",
+				sections.getErrorMessage());
+
+		sections = new NotationSections("PEPTIDE1{A.G}$$$");
+		assertFalse(sections.isValid());
+		assertEquals(
+				"Invalid complex notation format, must have four positional delimieters $$$$",
+				sections.getErrorMessage());
+
+		try {
+			NotationSections.split("PEPTIDE1{A.G}$$");
+			fail("missing delimiters must throw");
+		} catch (NotationException e) {
+			assertEquals(sections.getErrorMessage(), e.getMessage());
+		}
+	}
+}
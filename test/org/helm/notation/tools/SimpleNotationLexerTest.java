@@ -0,0 +1,86 @@
+package org.helm.notation.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SimpleNotationLexerTest {
+
+	@Test
+	public void testGroupsMatchIterator() {
+		String[] notations = new String[] { "A.K.A",
+				"P.R(A)[sP].RP.R(G)P.[LR]([5meC])", "SMPEG2", ".A..K.",
+				"G.G.K.A.A.[[SeH]C[C@H](N[*])C([*])=O |$;;;;_R1;;_R2;$|].[meC]",
+				"R(A.B)P.[dA", "" };
+		for (String notation : notations) {
+			List<String> expected = new ArrayList<String>();
+			SimpleNotationGroupIterator iterator = new SimpleNotationGroupIterator(
+					notation);
+			while (iterator.hasNextGroup()) {
+				expected.add(iterator.nextGroup());
+			}
+
+			SimpleNotationLexer lexer = new SimpleNotationLexer(notation);
+			List<String> groups = new ArrayList<String>();
+			for (int i = 0; i < lexer.getGroupCount(); i++) {
+				groups.add(lexer.getGroupText(i));
+			}
+			assertEquals(notation, expected, groups);
+		}
+	}
+
+	@Test
+	public void testRNATokens() {
+		SimpleNotationLexer lexer = new SimpleNotationLexer(
+				"P.R(A)[sP].[LR]([5meC])");
+		assertEquals(3, lexer.getGroupCount());
+		assertEquals(6, lexer.getTokenCount());
+
+		assertEquals(1, lexer.getFirstToken(1));
+		assertEquals(4, lexer.getEndToken(1));
+		assertEquals("R", lexer.getTokenText(1));
+		assertEquals(0, lexer.getTokenFlags(1));
+		assertEquals("A", lexer.getTokenText(2));
+		assertEquals(SimpleNotationLexer.BRANCH, lexer.getTokenFlags(2));
+		assertEquals(3, lexer.getTokenStart(2));
+		assertEquals("sP", lexer.getTokenText(3));
+		assertEquals(SimpleNotationLexer.BRACKETED, lexer.getTokenFlags(3));
+
+		assertEquals("LR", lexer.getTokenText(4));
+		assertEquals("5meC", lexer.getMonomerID(5));
+		assertEquals("[5meC]", lexer.getTokenText(5));
+
+		// single letters are not copied
+		assertSame(lexer.getTokenText(2),
+				new SimpleNotationLexer("K.A").getTokenText(1));
+	}
+
+	@Test
+	public void testInlineSmilesTokens() {
+		String smiles = "[SeH]C[C@H](N[*])C([*])=O |$;;;;_R1;;_R2;$|";
+		SimpleNotationLexer lexer = new SimpleNotationLexer("G.[" + smiles
+				+ "].[meC]");
+		assertEquals(3, lexer.getTokenCount());
+		assertEquals(smiles, lexer.getMonomerID(1));
+		assertEquals(SimpleNotationLexer.BRACKETED | SimpleNotationLexer.SMILES,
+				lexer.getTokenFlags(1));
+		assertEquals(SimpleNotationLexer.BRACKETED, lexer.getTokenFlags(2));
+		assertTrue(SimpleNotationLexer.isSmilesCode(smiles));
+	}
+
+	@Test
+	public void testUnmatchedBracket() {
+		SimpleNotationLexer lexer = new SimpleNotationLexer("A.[dA.K");
+		assertEquals(2, lexer.getGroupCount());
+		assertEquals("[dA.K", lexer.getGroupText(1));
+		assertEquals(2, lexer.getTokenCount());
+		assertEquals(SimpleNotationLexer.BRACKETED
+				| SimpleNotationLexer.UNMATCHED, lexer.getTokenFlags(1));
+		assertEquals("dA.K", lexer.getTokenText(1));
+	}
+}
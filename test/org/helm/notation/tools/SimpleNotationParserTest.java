@@ -1,6 +1,7 @@
 package org.helm.notation.tools;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
@@ -16,12 +17,14 @@ import org.helm.notation.StructureException;
 import org.helm.notation.model.MoleculeInfo;
 import org.helm.notation.model.Monomer;
 import org.helm.notation.model.Nucleotide;
+import org.helm.notation.model.RgroupStructure;
 import org.jdom.JDOMException;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import chemaxon.marvin.plugin.PluginException;
+import chemaxon.struc.MolAtom;
 
 public class SimpleNotationParserTest {
 
@@ -607,4 +610,46 @@ public class SimpleNotationParserTest {
 
 	}
 
+	@Test
+	public void testRepeatedMonomerStructures() throws IOException,
+			NotationException, StructureException, MonomerException,
+			JDOMException {
+		String notation = "G.G.K.G.G.K.G.G.K";
+		String result = SimpleNotationParser.getSimplePolymerSMILES(notation,
+				Monomer.PEPTIDE_POLYMER_TYPE);
+		assertEquals(result, SimpleNotationParser.getSimplePolymerSMILES(
+				notation, Monomer.PEPTIDE_POLYMER_TYPE));
+
+		// structures are copies of the cached template
+		RgroupStructure first = SimpleNotationParser.getSimplePolymerStructure(
+				"K", Monomer.PEPTIDE_POLYMER_TYPE);
+		RgroupStructure second = SimpleNotationParser
+				.getSimplePolymerStructure("K", Monomer.PEPTIDE_POLYMER_TYPE);
+		assertNotSame(first.getMolecule(), second.getMolecule());
+		assertEquals(first.getRgroupMap().keySet(), second.getRgroupMap()
+				.keySet());
+		for (MolAtom atom : second.getRgroupMap().values()) {
+			assertTrue(second.getMolecule().contains(atom));
+		}
+	}
+
+	@Test
+	public void testRgroupSetMatchesStructure() throws IOException,
+			NotationException, StructureException, MonomerException,
+			JDOMException {
+		String[][] polymers = new String[][] {
+				{ "A.G.G.C.C.K.K.K", Monomer.PEPTIDE_POLYMER_TYPE },
+				{ getPeptideNotationWithSalt(), Monomer.PEPTIDE_POLYMER_TYPE },
+				{ "P.R(A)P.R(G)[sP].[dR](T)P.R(U)", Monomer.NUCLIEC_ACID_POLYMER_TYPE },
+				{ "R(A)P.R(G)", Monomer.NUCLIEC_ACID_POLYMER_TYPE },
+				{ "SS3", Monomer.CHEMICAL_POLYMER_TYPE } };
+		for (String[] polymer : polymers) {
+			RgroupStructure structure = SimpleNotationParser
+					.getSimplePolymerStructure(polymer[0], polymer[1]);
+			assertEquals(polymer[0], structure.getRgroupMap().keySet(),
+					SimpleNotationParser.getSimplePolymerRgroupSet(polymer[0],
+							polymer[1], MonomerFactory.getInstance()
+									.getMonomerStore()));
+		}
+	}
 }
@@ -0,0 +1,78 @@
+package org.helm.notation.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class SmilesTemplateTest {
+
+	@Test
+	public void testPlaceholders() throws IOException {
+		SmilesTemplate template = SmilesTemplate
+				.parse("C[C@H](N[*])C([*])=O |$;;;_R1;;_R2;$|");
+		assertEquals(2, template.getPlaceholderCount());
+		assertEquals(0, template.getPlaceholder(1));
+		assertEquals(1, template.getPlaceholder(2));
+		assertEquals(SmilesTemplate.NO_PLACEHOLDER, template.getPlaceholder(3));
+		assertEquals("C[C@H](N1)C%12=O", write(template, "1", "%12"));
+
+		// R atom at the start of the SMILES
+		template = SmilesTemplate.parse("[*]N[C@@H](C)C([*])=O |$_R1;;;;;_R2;$|");
+		assertEquals("N1[C@@H](C)C2=O", write(template, "1", "2"));
+
+		template = SmilesTemplate.parse("OP([*])([*])=O |$;;_R1;_R2;$|");
+		assertEquals("OP12=O", write(template, "1", "2"));
+
+		template = SmilesTemplate.parse("[*][H] |$_R1;$|");
+		assertEquals("[H]3", write(template, "3"));
+	}
+
+	@Test
+	public void testChirality() throws IOException {
+		// the ring closure takes the place of the R atom
+		assertEquals("O[C@@H]1C", write(
+				SmilesTemplate.parse("O[C@@H]([*])C |$;;_R1;$|"), "1"));
+
+		// the ring closure moves before the other neighbors
+		assertEquals("O[C@H]1(C)", write(
+				SmilesTemplate.parse("O[C@@H](C)[*] |$;;;_R1$|"), "1"));
+		assertEquals("[C@H]1(C)O", write(
+				SmilesTemplate.parse("[*][C@@H](C)O |$_R1;;;$|"), "1"));
+		assertEquals("C[C@@]21CCN2", write(
+				SmilesTemplate.parse("C[C@@]2([*])CCN2 |$;;_R1;;;$|"), "1"));
+	}
+
+	@Test
+	public void testBonds() {
+		SmilesTemplate template = SmilesTemplate
+				.parse("c1ccccc1[*] |$;;;;;;_R1$|");
+		assertEquals("", template.getBondSymbol(0));
+		assertTrue(template.isAromatic(0));
+
+		template = SmilesTemplate.parse("C=[*] |$;_R1$|");
+		assertEquals("=", template.getBondSymbol(0));
+		assertFalse(template.isAromatic(0));
+	}
+
+	@Test
+	public void testUnsupported() {
+		assertNull(SmilesTemplate.parse(null));
+		assertNull(SmilesTemplate.parse("[*]/C=C/C |$_R1;;;$|"));
+		assertNull(SmilesTemplate.parse("C[*]C |$;_R1;$|"));
+		assertNull(SmilesTemplate.parse("[*]C=CC[*] |$_R1;;;;_R2$,c:1|"));
+		assertNull(SmilesTemplate.parse("[*][*] |$_R1;_R2$|"));
+		assertNull(SmilesTemplate.parse("C1CC |$;_R1;$|"));
+	}
+
+	private static String write(SmilesTemplate template, String... ringClosures)
+			throws IOException {
+		StringBuilder sb = new StringBuilder();
+		template.write(sb, ringClosures);
+		return sb.toString();
+	}
+}
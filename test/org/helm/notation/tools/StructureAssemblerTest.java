@@ -0,0 +1,153 @@
+package org.helm.notation.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import org.helm.notation.StructureException;
+import org.junit.Test;
+
+import chemaxon.struc.MolAtom;
+import chemaxon.struc.Molecule;
+
+public class StructureAssemblerTest {
+
+	private static final String GLYCINE = "[*]NCC([*])=O |$_R1;;;;_R2;$|";
+	private static final String HYDROGEN_CAP = "[*][H] |$_R1;$|";
+	private static final String HYDROXYL_CAP = "O[*] |$;_R2$|";
+
+	@Test
+	public void testChainMatchesMerge() throws IOException, StructureException {
+		// G.G.G with cap groups, merged into a growing molecule
+		Molecule merged = getMolecule(HYDROGEN_CAP);
+		MolAtom right = StructureParser.getRgroupAtom(merged, 1);
+		for (int i = 0; i < 3; i++) {
+			Molecule glycine = getMolecule(GLYCINE);
+			MolAtom next = StructureParser.getRgroupAtom(glycine, 2);
+			StructureParser.merge(merged, right, glycine,
+					StructureParser.getRgroupAtom(glycine, 1));
+			right = next;
+		}
+		Molecule cap = getMolecule(HYDROXYL_CAP);
+		StructureParser.merge(merged, right, cap,
+				StructureParser.getRgroupAtom(cap, 2));
+
+		StructureAssembler assembler = new StructureAssembler();
+		MolecularGraph capGraph = new MolecularGraph(getMolecule(HYDROGEN_CAP));
+		MolecularGraph glycineGraph = new MolecularGraph(getMolecule(GLYCINE));
+		int rightAtom = assembler.addFragment(capGraph)
+				+ capGraph.getRgroupAtom(1);
+		for (int i = 0; i < 3; i++) {
+			int offset = assembler.addFragment(glycineGraph);
+			assembler.connect(rightAtom, offset + glycineGraph.getRgroupAtom(1));
+			rightAtom = offset + glycineGraph.getRgroupAtom(2);
+		}
+		capGraph = new MolecularGraph(getMolecule(HYDROXYL_CAP));
+		assembler.connect(rightAtom, assembler.addFragment(capGraph)
+				+ capGraph.getRgroupAtom(2));
+		Molecule assembled = assembler.build();
+
+		assertEquals(merged.getAtomCount(), assembled.getAtomCount());
+		assertEquals(merged.getBondCount(), assembled.getBondCount());
+		assertEquals(StructureParser.getUniqueSmiles(merged),
+				StructureParser.getUniqueSmiles(assembled));
+		assertNull(assembler.getAtom(rightAtom));
+	}
+
+	@Test
+	public void testWriteSmilesMatchesBuild() throws IOException,
+			StructureException {
+		StructureAssembler assembler = new StructureAssembler();
+		MolecularGraph capGraph = getGraph(HYDROGEN_CAP);
+		MolecularGraph glycineGraph = getGraph(GLYCINE);
+		int offset = assembler.addFragment(glycineGraph);
+		int rightAtom = offset + glycineGraph.getRgroupAtom(2);
+		assembler.connect(offset + glycineGraph.getRgroupAtom(1),
+				assembler.addFragment(capGraph) + capGraph.getRgroupAtom(1));
+
+		StringBuilder sb = new StringBuilder();
+		assertFalse(assembler.writeSmiles(sb));
+		assertEquals(0, sb.length());
+
+		for (int i = 0; i < 2; i++) {
+			offset = assembler.addFragment(glycineGraph);
+			assembler.connect(rightAtom, offset + glycineGraph.getRgroupAtom(1));
+			rightAtom = offset + glycineGraph.getRgroupAtom(2);
+		}
+		capGraph = getGraph(HYDROXYL_CAP);
+		assembler.connect(rightAtom, assembler.addFragment(capGraph)
+				+ capGraph.getRgroupAtom(2));
+
+		assertTrue(assembler.writeSmiles(sb));
+		assertEquals("N1CC2=O.[H]1.N2CC1=O.N1CC2=O.O2", sb.toString());
+		assertEquals(StructureParser.getUniqueSmiles(assembler.build()),
+				StructureParser.getUniqueSmiles(StructureParser.getMolecule(sb
+						.toString())));
+	}
+
+	@Test
+	public void testAppendMatchesAddFragment() throws IOException,
+			StructureException {
+		MolecularGraph glycine = new MolecularGraph(getMolecule(GLYCINE));
+
+		// G.G.G.G from single fragments
+		StructureAssembler expected = new StructureAssembler();
+		int rightAtom = expected.addFragment(glycine) + glycine.getRgroupAtom(2);
+		for (int i = 0; i < 3; i++) {
+			int offset = expected.addFragment(glycine);
+			expected.connect(rightAtom, offset + glycine.getRgroupAtom(1));
+			rightAtom = offset + glycine.getRgroupAtom(2);
+		}
+
+		// G.G.G.G from a G.G assembler appended twice
+		StructureAssembler dimer = new StructureAssembler();
+		int first = dimer.addFragment(glycine);
+		int second = dimer.addFragment(glycine);
+		dimer.connect(first + glycine.getRgroupAtom(2),
+				second + glycine.getRgroupAtom(1));
+		StructureAssembler assembler = new StructureAssembler();
+		int left = assembler.append(dimer);
+		int right = assembler.append(dimer);
+		assertEquals(0, left);
+		assertEquals(2 * glycine.getAtomCount(), right);
+		assertEquals(4, assembler.getFragmentCount());
+		assembler.connect(left + second + glycine.getRgroupAtom(2), right
+				+ first + glycine.getRgroupAtom(1));
+
+		assertEquals(StructureParser.getUniqueSmiles(expected.build()),
+				StructureParser.getUniqueSmiles(assembler.build()));
+		assertEquals(2, dimer.getFragmentCount());
+	}
+
+	@Test
+	public void testUsedRgroup() throws IOException, StructureException {
+		StructureAssembler assembler = new StructureAssembler();
+		MolecularGraph glycine = new MolecularGraph(getMolecule(GLYCINE));
+		int first = assembler.addFragment(glycine);
+		int second = assembler.addFragment(glycine);
+		assembler.connect(first + glycine.getRgroupAtom(2),
+				second + glycine.getRgroupAtom(1));
+		try {
+			assembler.connect(first + glycine.getRgroupAtom(2),
+					second + glycine.getRgroupAtom(2));
+			fail("R group used twice");
+		} catch (StructureException e) {
+			// expected
+		}
+	}
+
+	private static MolecularGraph getGraph(String smiles) throws IOException {
+		return new MolecularGraph(getMolecule(smiles),
+				SmilesTemplate.parse(smiles));
+	}
+
+	private static Molecule getMolecule(String smiles) throws IOException {
+		Molecule molecule = StructureParser.getMolecule(smiles);
+		molecule.dearomatize();
+		return molecule;
+	}
+}
@@ -0,0 +1,66 @@
+package org.helm.notation.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.helm.notation.StructureException;
+import org.junit.After;
+import org.junit.Test;
+
+import chemaxon.struc.Molecule;
+
+public class StructureParserTest {
+
+	@After
+	public void tearDown() {
+		StructureParser.setCanonicalSmilesCacheEnabled(true);
+	}
+
+	@Test
+	public void testCanonicalSmilesCache() throws IOException,
+			StructureException {
+		String smiles = "OCC(O)CO";
+		StructureParser.setCanonicalSmilesCacheEnabled(false);
+		String expected = StructureParser.getUniqueSmiles(smiles);
+		String expectedExtended = StructureParser
+				.getUniqueExtendedSMILES(smiles);
+		assertEquals(0, StructureParser.getCanonicalSmilesCacheMissCount());
+
+		StructureParser.setCanonicalSmilesCacheEnabled(true);
+		assertEquals(expected, StructureParser.getUniqueSmiles(smiles));
+		assertEquals(expected, StructureParser.getUniqueSmiles(smiles));
+		assertEquals(1, StructureParser.getCanonicalSmilesCacheHitCount());
+		assertEquals(1, StructureParser.getCanonicalSmilesCacheMissCount());
+
+		// the format is part of the key
+		assertEquals(expectedExtended,
+				StructureParser.getUniqueExtendedSMILES(smiles));
+		assertEquals(2, StructureParser.getCanonicalSmilesCacheMissCount());
+
+		assertEquals(expected, StructureParser.getUniqueSmiles(StructureParser
+				.getMolecule(smiles)));
+		assertEquals(expected, StructureParser.getUniqueSmiles(StructureParser
+				.getMolecule(smiles)));
+		assertTrue(StructureParser.getCanonicalSmilesCacheHitCount() >= 2);
+
+		StructureParser.clearCanonicalSmilesCache();
+		assertEquals(0, StructureParser.getCanonicalSmilesCacheHitCount());
+	}
+
+	@Test
+	public void testImportWithoutLayout() throws IOException {
+		String smiles = "C[C@H](N[*])C([*])=O |$;;;_R1;;_R2;$|";
+		Molecule molecule = StructureParser.getMolecule(smiles, false);
+		assertEquals(0, molecule.getDim());
+		assertEquals(2, StructureParser.getMolecule(smiles).getDim());
+
+		StructureParser.setCanonicalSmilesCacheEnabled(false);
+		assertEquals(StructureParser.getUniqueSmiles(StructureParser
+				.getMolecule(smiles)), StructureParser.getUniqueSmiles(molecule));
+		assertTrue(StructureParser.validateSmiles(smiles));
+		assertFalse(StructureParser.validateSmiles("C(C)(C)(C)(C)C"));
+	}
+}
@@ -0,0 +1,29 @@
+package org.helm.notation.tools;
+
+import org.helm.notation.model.Attachment;
+import org.helm.notation.model.Monomer;
+
+/**
+ * monomers for tests that do not need the monomer database
+ */
+final class TestMonomers {
+
+	private TestMonomers() {
+	}
+
+	/**
+	 * creates a monomer with the SMILES "[*]" + id and hydrogen cap groups for
+	 * the given R groups
+	 */
+	static Monomer createMonomer(String polymerType, String id,
+			String... rgroups) {
+		String monomerType = polymerType.equals(Monomer.CHEMICAL_POLYMER_TYPE) ? Monomer.UNDEFINED_MOMONER_TYPE
+				: Monomer.BACKBONE_MOMONER_TYPE;
+		Monomer m = new Monomer(polymerType, monomerType, null, id);
+		m.setCanSMILES("[*]" + id);
+		for (String rgroup : rgroups) {
+			m.addAttachment(new Attachment(rgroup, "H"));
+		}
+		return m;
+	}
+}